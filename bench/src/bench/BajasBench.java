@@ -0,0 +1,84 @@
+package bench;
+
+import app.RepositorioPersonas;
+import app.Socio;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mide una baja masiva de socios en el repositorio, como las bajas que se
+ * procesan de golpe cada noche, y el listado de todas las personas después de
+ * las bajas.
+ *
+ * Cada medida da de baja a un lote de socios al azar y los vuelve a dar de
+ * alta, para que el repositorio tenga siempre los mismos socios. El lote se
+ * elige de nuevo en cada medida: si fuera siempre el mismo, tras la primera
+ * medida sus socios estarían al final de los listados.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class BajasBench {
+    @Param({"1000000"})
+    public int elementos;
+
+    @Param({"10000"})
+    public int bajas;
+
+    private RepositorioPersonas repositorio;
+    private Socio[] socios;
+    private Socio[] lote;
+    private Random r;
+
+    @Setup
+    public void preparar(){
+        r = Datos.aleatorio();
+        socios = Datos.socios(elementos);
+        repositorio = new RepositorioPersonas();
+        for(Socio s : socios){
+            repositorio.añadir(s);
+        }
+        lote = new Socio[bajas];
+    }
+
+    private void elegirLote(){
+        for(int i = 0; i < bajas; i++){
+            lote[i] = socios[r.nextInt(elementos)];
+        }
+    }
+
+    @Benchmark
+    public int bajaMasiva(){
+        elegirLote();
+        int eliminadas = 0;
+        for(Socio s : lote){
+            if(repositorio.eliminar(s)){
+                eliminadas++;
+            }
+        }
+        for(Socio s : lote){
+            repositorio.añadir(s);
+        }
+        return eliminadas;
+    }
+
+    @Benchmark
+    public int listarTrasBajas(){
+        elegirLote();
+        for(Socio s : lote){
+            repositorio.eliminar(s);
+        }
+        int personas = repositorio.listar().size();
+        for(Socio s : lote){
+            repositorio.añadir(s);
+        }
+        return personas;
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import app.Actividad;
+import app.BarridoSocios;
+import app.CatalogoActividades;
+import app.RepositorioPersonas;
+import app.ResultadoBarrido;
+import app.Socio;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mide los barridos en paralelo de todos los socios con distinto número de
+ * hilos, para comprobar cómo escalan con los núcleos.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BarridoBench {
+    @Param({"100000", "1000000"})
+    public int elementos;
+
+    @Param({"1", "2", "4", "8"})
+    public int hilos;
+
+    private RepositorioPersonas repositorio;
+    private CatalogoActividades catalogo;
+    private ForkJoinPool pool;
+    private BarridoSocios barrido;
+
+    @Setup
+    public void preparar(){
+        Random r = Datos.aleatorio();
+        Actividad[] actividades = Datos.actividades(200);
+        catalogo = new CatalogoActividades();
+        for(Actividad a : actividades){
+            catalogo.añadir(a);
+        }
+
+        repositorio = new RepositorioPersonas();
+        for(Socio s : Datos.socios(elementos)){
+            int n = r.nextInt(4);
+            for(int i = 0; i < n; i++){
+                s.addActividad(actividades[r.nextInt(actividades.length)]);
+            }
+            repositorio.añadir(s);
+        }
+
+        pool = new ForkJoinPool(hilos);
+        barrido = new BarridoSocios(pool);
+    }
+
+    @TearDown
+    public void terminar(){
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ResultadoBarrido recalculoCuotas(){
+        return barrido.ejecutar(repositorio, BarridoSocios.recalculoCuotas(), null);
+    }
+
+    @Benchmark
+    public ResultadoBarrido validacion(){
+        return barrido.ejecutar(repositorio, BarridoSocios.validacion(catalogo), null);
+    }
+}
@@ -0,0 +1,117 @@
+package bench;
+
+import app.Actividad;
+import app.CatalogoActividades;
+import app.Especialidad;
+import app.Persona;
+import app.RepositorioPersonas;
+import app.Socio;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.IndiceNombres;
+import utils.InicializarDatos;
+import utils.Utilidades;
+import utils.ValidarDatos;
+
+/**
+ * Mide las búsquedas de personas por DNI y por nombre y de actividades en el
+ * catálogo. Las búsquedas por DNI se miden en la lista de personas, en el
+ * índice por DNI que se usaba antes del {@link RepositorioPersonas} y en el
+ * repositorio. Cada invocación hace 1000 búsquedas, la mitad de ellas de
+ * elementos que no existen, sobre colecciones de distintos tamaños.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BusquedaBench {
+    private static final int BUSQUEDAS = 1000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int elementos;
+
+    private ArrayList <Persona> listaPersonas;
+    private IndiceDNI indiceDNI;
+    private RepositorioPersonas repositorio;
+    private IndiceNombres <Persona> indiceNombres;
+    private CatalogoActividades catalogo;
+    private String[] dnis;
+    private String[] nombres;
+    private Actividad[] actividades;
+
+    @Setup
+    public void preparar(){
+        Random r = Datos.aleatorio();
+        listaPersonas = new ArrayList<>(elementos);
+        indiceDNI = new IndiceDNI();
+        repositorio = new RepositorioPersonas();
+        indiceNombres = new IndiceNombres<>();
+
+        for(Socio s : Datos.socios(elementos)){
+            listaPersonas.add(s);
+            indiceDNI.añadir(s, listaPersonas.size()-1);
+            indiceNombres.añadir(s.getNombreNormalizado(), s);
+            repositorio.añadir(s);
+        }
+
+        catalogo = new CatalogoActividades();
+        Actividad[] todas = Datos.actividades(elementos);
+        for(Actividad a : todas){
+            catalogo.añadir(a);
+        }
+
+        dnis = new String[BUSQUEDAS];
+        nombres = new String[BUSQUEDAS];
+        actividades = new Actividad[BUSQUEDAS];
+        for(int i = 0; i < BUSQUEDAS; i++){
+            int numero = i % 2 == 0 ? r.nextInt(elementos) : elementos + r.nextInt(elementos);
+            dnis[i] = Datos.dni(numero);
+            nombres[i] = Utilidades.formatearString(Datos.nombre(numero));
+            actividades[i] = i % 2 == 0 ? todas[r.nextInt(elementos)] : new Actividad(Datos.nombre(numero), 60, 100, Especialidad.CARDIO, false);
+        }
+    }
+
+    @Benchmark
+    public void comprobarExistenciaNifIndice(Blackhole bh){
+        for(String dni : dnis){
+            int posicion = indiceDNI.posicion(dni, false);
+            bh.consume(posicion == -1 ? indiceDNI.posicion(dni, true) : posicion);
+        }
+    }
+
+    @Benchmark
+    public void comprobarExistenciaNifRepositorio(Blackhole bh){
+        for(String dni : dnis){
+            bh.consume(repositorio.existe(dni, false) || repositorio.existe(dni, true));
+        }
+    }
+
+    @Benchmark
+    public void comprobarExistenciaNifLista(Blackhole bh){
+        for(String dni : dnis){
+            bh.consume(ValidarDatos.comprobarExistenciaNif(listaPersonas, dni));
+        }
+    }
+
+    @Benchmark
+    public void listaCoincidencias(Blackhole bh){
+        for(String nombre : nombres){
+            bh.consume(InicializarDatos.listaCoincidencias(indiceNombres, nombre));
+        }
+    }
+
+    @Benchmark
+    public void posicionActividad(Blackhole bh){
+        for(Actividad a : actividades){
+            bh.consume(catalogo.posicion(a));
+        }
+    }
+}
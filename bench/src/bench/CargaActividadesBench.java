@@ -0,0 +1,85 @@
+package bench;
+
+import app.Actividad;
+import app.CatalogoActividades;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mide la carga de muchas actividades comprobando, antes de añadir cada una,
+ * que no existe ya otra igual. Compara la organización anterior del catálogo,
+ * una lista en la que la comprobación recorre todas las actividades, con el
+ * {@link CatalogoActividades}, que la comprueba en su índice hash.
+ *
+ * Cada medida carga actividades nuevas, ya que una actividad solo puede estar
+ * en un catálogo, por lo que se mide una sola carga por iteración. La lista
+ * anterior usaba además un hash constante en las actividades, que ya no se
+ * puede reproducir: la carga en la lista se mide con el hash actual, que no la
+ * afecta porque la lista no lo usa.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class CargaActividadesBench {
+    @Param({"100000"})
+    public int elementos;
+
+    private Actividad[] actividades;
+    private CatalogoActividades catalogo;
+
+    @Setup(Level.Invocation)
+    public void preparar(){
+        actividades = Datos.actividades(elementos);
+        catalogo = new CatalogoActividades();
+    }
+
+    @TearDown(Level.Invocation)
+    public void vaciar(){
+        // Las actividades de un catálogo conservan su identificador: se sacan
+        // del catálogo, empezando por el final para no desplazar las demás.
+        for(int i = catalogo.size() - 1; i >= 0; i--){
+            catalogo.eliminar(i);
+        }
+    }
+
+    /**
+     * La comprobación de la lista anterior, que recorría siempre toda la lista.
+     */
+    private static int existeEnLista(ArrayList <Actividad> lista, Actividad actividad){
+        int posicion = -1;
+
+        for(int i = 0; i < lista.size(); i++){
+            if(actividad.equals(lista.get(i))){
+                posicion = i;
+            }
+        }
+
+        return posicion;
+    }
+
+    @Benchmark
+    public ArrayList<Actividad> cargarLista(){
+        ArrayList <Actividad> lista = new ArrayList<>();
+        for(Actividad a : actividades){
+            if(existeEnLista(lista, a) == -1){
+                lista.add(a);
+            }
+        }
+        return lista;
+    }
+
+    @Benchmark
+    public CatalogoActividades cargarCatalogo(){
+        for(Actividad a : actividades){
+            catalogo.añadir(a);
+        }
+        return catalogo;
+    }
+}
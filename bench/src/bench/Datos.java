@@ -0,0 +1,133 @@
+package bench;
+
+import app.Actividad;
+import app.Especialidad;
+import app.Monitor;
+import app.Socio;
+import java.util.Random;
+
+/**
+ * Genera los datos de prueba de los benchmarks. Los datos son siempre los
+ * mismos para un mismo tamaño, ya que se generan con una semilla fija.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class Datos {
+    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
+    private static final long SEMILLA = 20241017L;
+
+    /**
+     * Devuelve un generador de números aleatorios con la semilla de los
+     * benchmarks.
+     *
+     * @return El generador.
+     */
+    public static Random aleatorio(){
+        return new Random(SEMILLA);
+    }
+
+    /**
+     * Devuelve el DNI válido que corresponde a un número.
+     *
+     * @param numero El número del DNI, entre 0 y 99999999.
+     * @return El DNI con su letra de control.
+     */
+    public static String dni(int numero){
+        return String.format("%08d%c", numero, LETRAS_DNI.charAt(numero % 23));
+    }
+
+    /**
+     * Devuelve un nombre válido y distinto para cada número, formado solo por
+     * letras.
+     *
+     * @param numero El número del nombre.
+     * @return El nombre.
+     */
+    public static String nombre(int numero){
+        StringBuilder nombre = new StringBuilder("Persona numero ");
+        do{
+            nombre.append((char) ('a' + numero % 26));
+            numero /= 26;
+        }while(numero > 0);
+        return nombre.toString();
+    }
+
+    /**
+     * Devuelve una fecha de nacimiento válida en formato "yyyy-m-d".
+     *
+     * @param r El generador de números aleatorios.
+     * @return La fecha.
+     */
+    public static String fecha(Random r){
+        return (1940 + r.nextInt(60)) + "-" + (1 + r.nextInt(12)) + "-" + (1 + r.nextInt(28));
+    }
+
+    /**
+     * Devuelve los datos de una persona en el orden del constructor de
+     * {@code Persona}.
+     *
+     * @param numero El número de la persona, que determina su nombre y su DNI.
+     * @param r El generador de números aleatorios.
+     * @return Los datos de la persona.
+     */
+    public static String[] registro(int numero, Random r){
+        return new String[]{nombre(numero), dni(numero), "Calle Mayor " + (numero % 100), "Madrid", "Madrid", "28001", "600000000", fecha(r)};
+    }
+
+    /**
+     * Crea socios con DNI y nombres distintos.
+     *
+     * @param n El número de socios.
+     * @return Los socios.
+     */
+    public static Socio[] socios(int n){
+        Random r = aleatorio();
+        Socio[] socios = new Socio[n];
+        for(int i = 0; i < n; i++){
+            String[] d = registro(i, r);
+            socios[i] = new Socio(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7]);
+        }
+        return socios;
+    }
+
+    /**
+     * Crea monitores con DNI y nombres distintos y votos aleatorios.
+     *
+     * @param n El número de monitores.
+     * @return Los monitores.
+     */
+    public static Monitor[] monitores(int n){
+        Random r = aleatorio();
+        Monitor[] monitores = new Monitor[n];
+        for(int i = 0; i < n; i++){
+            String[] d = registro(i, r);
+            monitores[i] = new Monitor(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7], 1200 + r.nextInt(2000));
+            int votos = r.nextInt(20);
+            for(int v = 0; v < votos; v++){
+                monitores[i].meGusta(r.nextBoolean());
+            }
+        }
+        return monitores;
+    }
+
+    /**
+     * Crea actividades distintas con calorías y votos aleatorios.
+     *
+     * @param n El número de actividades.
+     * @return Las actividades.
+     */
+    public static Actividad[] actividades(int n){
+        Random r = aleatorio();
+        Especialidad[] categorias = Especialidad.values();
+        Actividad[] actividades = new Actividad[n];
+        for(int i = 0; i < n; i++){
+            actividades[i] = new Actividad(nombre(i), 2 + r.nextInt(119), r.nextInt(1000), categorias[r.nextInt(categorias.length)], r.nextBoolean());
+            int votos = r.nextInt(10);
+            for(int v = 0; v < votos; v++){
+                actividades[i].votar(r.nextInt(11));
+            }
+        }
+        return actividades;
+    }
+}
@@ -0,0 +1,107 @@
+package bench;
+
+import app.Monitor;
+import app.PuntuacionMonitor;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Comprueba que no se pierden votos cuando varios hilos votan a la vez a los
+ * mismos monitores, como las tabletas de los quioscos del gimnasio.
+ *
+ * Cada hilo vota al azar a los monitores, a favor o en contra, y cuenta los
+ * votos que envía a cada uno. Al terminar todos los hilos, la puntuación de
+ * cada monitor tiene que tener exactamente los votos positivos y negativos
+ * enviados. Si falta o sobra algún voto, el programa termina con error.
+ *
+ * <p>Uso: {@code EstresVotos [hilos] [votos por hilo] [monitores]}, por
+ * defecto 8 hilos, 1000000 votos por hilo y 4 monitores.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class EstresVotos {
+    private static final int HILOS = 8;
+    private static final int VOTOS = 1000000;
+    private static final int MONITORES = 4;
+
+    public static void main(String[] args) throws InterruptedException {
+        int hilos = args.length > 0 ? Integer.parseInt(args[0]) : HILOS;
+        int votos = args.length > 1 ? Integer.parseInt(args[1]) : VOTOS;
+        int n = args.length > 2 ? Integer.parseInt(args[2]) : MONITORES;
+
+        if(hilos <= 0 || votos <= 0 || n <= 0){
+            throw new IllegalArgumentException("Los hilos, los votos y los monitores tienen que ser positivos");
+        }
+
+        Monitor[] monitores = Datos.monitores(n);
+        for(Monitor m : monitores){
+            m.cargarVotos(0, 0);
+        }
+        long[][] positivos = new long[hilos][n];
+        long[][] negativos = new long[hilos][n];
+        CountDownLatch salida = new CountDownLatch(1);
+        Thread[] votantes = new Thread[hilos];
+
+        for(int h = 0; h < hilos; h++){
+            long[] p = positivos[h];
+            long[] q = negativos[h];
+            votantes[h] = new Thread(() -> {
+                ThreadLocalRandom r = ThreadLocalRandom.current();
+                try{
+                    salida.await();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for(int i = 0; i < votos; i++){
+                    int m = r.nextInt(n);
+                    boolean like = r.nextBoolean();
+                    monitores[m].meGusta(like);
+                    if(like){
+                        p[m]++;
+                    }else{
+                        q[m]++;
+                    }
+                }
+            }, "votante-" + h);
+            votantes[h].start();
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for(Thread votante : votantes){
+            votante.join();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long enviados = 0;
+        long contados = 0;
+        int errores = 0;
+        for(int m = 0; m < n; m++){
+            long esperadosPositivos = 0;
+            long esperadosNegativos = 0;
+            for(int h = 0; h < hilos; h++){
+                esperadosPositivos += positivos[h][m];
+                esperadosNegativos += negativos[h][m];
+            }
+
+            PuntuacionMonitor puntuacion = monitores[m].getPuntuacion();
+            enviados += esperadosPositivos + esperadosNegativos;
+            contados += puntuacion.getVotosPositivos() + puntuacion.getVotosNegativos();
+            if(puntuacion.getVotosPositivos() != esperadosPositivos || puntuacion.getVotosNegativos() != esperadosNegativos){
+                System.out.println(String.format(Locale.ROOT, "Monitor %d: enviados %d positivos y %d negativos, contados %d y %d",
+                        m, esperadosPositivos, esperadosNegativos, puntuacion.getVotosPositivos(), puntuacion.getVotosNegativos()));
+                errores++;
+            }
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%d hilos, %d monitores: %d votos enviados y %d contados en %.2f s (%.1f millones de votos/s)",
+                hilos, n, enviados, contados, segundos, enviados / segundos / 1e6));
+        if(errores > 0){
+            throw new IllegalStateException("Se han perdido votos en " + errores + " monitores");
+        }
+        System.out.println("No se ha perdido ningún voto");
+    }
+}
@@ -0,0 +1,84 @@
+package bench;
+
+import app.RepositorioPersonas;
+import app.Socio;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Mide la memoria que ocupa cada socio: la diferencia del montón ocupado antes
+ * y después de crear los socios, dividida entre el número de socios. Se mide
+ * con los socios solos y con los socios dados de alta en un
+ * {@link RepositorioPersonas}, que añade sus índices.
+ *
+ * Los datos de cada socio se copian en cadenas nuevas antes de crearlo, igual
+ * que cuando se leen de un fichero o de la consola, para que los socios no
+ * compartan las cadenas literales de {@link Datos}.
+ *
+ * <p>Uso: {@code HuellaMemoria [socios]}, por defecto 1000000. Conviene
+ * ejecutarlo con un montón fijo ({@code -Xms} igual a {@code -Xmx}).</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class HuellaMemoria {
+    private static final int SOCIOS = 1000000;
+
+    public static void main(String[] args){
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : SOCIOS;
+        if(n <= 0){
+            throw new IllegalArgumentException("El número de socios tiene que ser positivo");
+        }
+
+        long antes = ocupada();
+        Socio[] socios = crear(n);
+        long despues = ocupada();
+        System.out.println(String.format(Locale.ROOT, "Socios: %d, %.1f bytes por socio", n, (despues - antes) / (double) n));
+
+        RepositorioPersonas repositorio = new RepositorioPersonas();
+        for(Socio s : socios){
+            repositorio.añadir(s);
+        }
+        socios = null;
+        long conRepositorio = ocupada();
+        System.out.println(String.format(Locale.ROOT, "Con el repositorio: %.1f bytes por socio", (conRepositorio - antes) / (double) n));
+
+        // Mantiene el repositorio vivo hasta después de medir.
+        System.out.println("Personas en el repositorio: " + repositorio.numeroSocios());
+    }
+
+    private static Socio[] crear(int n){
+        Random r = Datos.aleatorio();
+        Socio[] socios = new Socio[n];
+
+        for(int i = 0; i < n; i++){
+            String[] d = Datos.registro(i, r);
+            for(int j = 0; j < d.length; j++){
+                d[j] = new String(d[j].toCharArray());
+            }
+            socios[i] = new Socio(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7]);
+        }
+
+        return socios;
+    }
+
+    /**
+     * Devuelve la memoria ocupada del montón después de recoger la basura
+     * varias veces, hasta que deja de bajar.
+     */
+    private static long ocupada(){
+        Runtime runtime = Runtime.getRuntime();
+        long ocupada = Long.MAX_VALUE;
+
+        for(int i = 0; i < 10; i++){
+            System.gc();
+            long ahora = runtime.totalMemory() - runtime.freeMemory();
+            if(ahora >= ocupada){
+                break;
+            }
+            ocupada = ahora;
+        }
+
+        return ocupada;
+    }
+}
@@ -0,0 +1,133 @@
+package bench;
+
+import app.Monitor;
+import app.Persona;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Esta clase representa un índice por DNI de la lista de personas del
+ * gimnasio. La representación de la clase usa los atributos
+ * <code>posicionesSocios</code> y <code>posicionesMonitores</code>.
+ *
+ * La aplicación ya no la usa, ya que las búsquedas por DNI las resuelve el
+ * {@link app.RepositorioPersonas}; se conserva en los benchmarks para comparar
+ * el índice sobre la lista de personas con la búsqueda en la lista.
+ *
+ * Mantiene por separado los socios (incluidos los socios premium) y los
+ * monitores, de forma que una misma persona puede estar registrada como socio y
+ * como monitor con el mismo DNI, igual que permite la aplicación. Cada entrada
+ * guarda la posición de la persona dentro de la lista de personas, por lo que
+ * las consultas de existencia y posición se resuelven en tiempo constante sin
+ * recorrer la lista.
+ *
+ * <p>El índice debe actualizarse cada vez que se modifica la lista de personas:
+ * al dar de alta se añade la nueva posición y al dar de baja, como la lista
+ * desplaza los elementos posteriores, se reconstruye a partir de la lista.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class IndiceDNI {
+    private HashMap <String, Integer> posicionesSocios;
+    private HashMap <String, Integer> posicionesMonitores;
+
+    /**
+     * Crea un índice vacío.
+     */
+    public IndiceDNI(){
+        this.posicionesSocios = new HashMap<>();
+        this.posicionesMonitores = new HashMap<>();
+    }
+
+    /**
+     * Registra a una persona en el índice con la posición que ocupa en la
+     * lista de personas.
+     *
+     * Si ya existía otra persona del mismo tipo con ese DNI, la nueva posición
+     * sustituye a la anterior, igual que la búsqueda lineal devolvía la última
+     * coincidencia de la lista.
+     *
+     * @param persona La persona que se quiere registrar.
+     * @param posicion La posición de la persona en la lista de personas.
+     */
+    public void añadir(Persona persona, int posicion){
+        if(persona instanceof Monitor){
+            posicionesMonitores.put(persona.getDNI(), posicion);
+        }else{
+            posicionesSocios.put(persona.getDNI(), posicion);
+        }
+    }
+
+    /**
+     * Vuelve a construir el índice a partir de la lista de personas.
+     *
+     * Se usa después de eliminar un elemento de la lista, ya que las
+     * posiciones de las personas posteriores cambian.
+     *
+     * @param listaPersonas La lista de personas que se quiere indexar.
+     */
+    public void reconstruir(ArrayList <Persona> listaPersonas){
+        posicionesSocios.clear();
+        posicionesMonitores.clear();
+
+        for(int i = 0; i < listaPersonas.size(); i++){
+            añadir(listaPersonas.get(i), i);
+        }
+    }
+
+    /**
+     * Devuelve la posición en la lista de personas de la persona con el DNI
+     * indicado.
+     *
+     * @param dni El DNI que se quiere buscar.
+     * @param esMonitor {@code true} para buscar entre los monitores y
+     * {@code false} para buscar entre los socios.
+     * @return La posición de la persona o -1 si no existe.
+     */
+    public int posicion(String dni, boolean esMonitor){
+        Integer posicion;
+
+        if(esMonitor){
+            posicion = posicionesMonitores.get(dni);
+        }else{
+            posicion = posicionesSocios.get(dni);
+        }
+
+        return posicion == null ? -1 : posicion;
+    }
+
+    /**
+     * Indica si existe alguna persona del tipo indicado con ese DNI.
+     *
+     * @param dni El DNI que se quiere comprobar.
+     * @param esMonitor {@code true} para buscar entre los monitores y
+     * {@code false} para buscar entre los socios.
+     * @return {@code true} si el DNI está registrado, {@code false} en caso
+     * contrario.
+     */
+    public boolean existe(String dni, boolean esMonitor){
+        if(esMonitor){
+            return posicionesMonitores.containsKey(dni);
+        }
+        return posicionesSocios.containsKey(dni);
+    }
+
+    /**
+     * Devuelve el número de socios distintos registrados en el índice.
+     *
+     * @return El número de socios.
+     */
+    public int numeroSocios(){
+        return posicionesSocios.size();
+    }
+
+    /**
+     * Devuelve el número de monitores distintos registrados en el índice.
+     *
+     * @return El número de monitores.
+     */
+    public int numeroMonitores(){
+        return posicionesMonitores.size();
+    }
+}
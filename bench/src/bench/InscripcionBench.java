@@ -0,0 +1,57 @@
+package bench;
+
+import app.Actividad;
+import app.Socio;
+import app.SocioPremium;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mide las inscripciones de los socios en las actividades: añadir y quitar una
+ * actividad, y copiar un socio con sus actividades al convertirlo en socio
+ * premium.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InscripcionBench {
+    @Param({"4", "16"})
+    public int actividades;
+
+    private Actividad[] catalogo;
+    private Socio socio;
+    private Actividad extra;
+
+    @Setup
+    public void preparar(){
+        Random r = Datos.aleatorio();
+        catalogo = Datos.actividades(64);
+        socio = new SocioPremium(Datos.socios(1)[0]);
+        for(int i = 0; i < actividades; i++){
+            socio.addActividad(catalogo[r.nextInt(catalogo.length)]);
+        }
+        extra = catalogo[catalogo.length - 1];
+    }
+
+    @Benchmark
+    public int inscribirYQuitar(){
+        socio.addActividad(extra);
+        socio.delActividad(extra);
+        return socio.getDuracionActividades();
+    }
+
+    @Benchmark
+    public int convertirPremium(){
+        SocioPremium premium = new SocioPremium(socio);
+        int minutos = premium.getDuracionActividades();
+        premium.abandonarActividades();
+        return minutos;
+    }
+}
@@ -0,0 +1,69 @@
+package bench;
+
+import app.Actividad;
+import app.Monitor;
+import estadisticas.MejorActividadPorValoracion;
+import estadisticas.MejoresActividadesPorCantidadKcal;
+import estadisticas.MejoresActividadesPorInscritos;
+import estadisticas.MejoresMonitoresPorValoracion;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Mide la ordenación con {@code Collections.sort} de los comparadores de
+ * {@code estadisticas}. Cada invocación ordena una copia de la lista original,
+ * por lo que siempre se parte del mismo desorden.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrdenacionBench {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int elementos;
+
+    private Actividad[] actividades;
+    private Monitor[] monitores;
+
+    @Setup
+    public void preparar(){
+        actividades = Datos.actividades(elementos);
+        monitores = Datos.monitores(elementos);
+    }
+
+    @Benchmark
+    public ArrayList<Actividad> mejorActividadPorValoracion(){
+        ArrayList <Actividad> lista = new ArrayList<>(Arrays.asList(actividades));
+        Collections.sort(lista, new MejorActividadPorValoracion());
+        return lista;
+    }
+
+    @Benchmark
+    public ArrayList<Actividad> mejoresActividadesPorCantidadKcal(){
+        ArrayList <Actividad> lista = new ArrayList<>(Arrays.asList(actividades));
+        Collections.sort(lista, new MejoresActividadesPorCantidadKcal());
+        return lista;
+    }
+
+    @Benchmark
+    public ArrayList<Actividad> mejoresActividadesPorInscritos(){
+        ArrayList <Actividad> lista = new ArrayList<>(Arrays.asList(actividades));
+        Collections.sort(lista, new MejoresActividadesPorInscritos());
+        return lista;
+    }
+
+    @Benchmark
+    public ArrayList<Monitor> mejoresMonitoresPorValoracion(){
+        ArrayList <Monitor> lista = new ArrayList<>(Arrays.asList(monitores));
+        Collections.sort(lista, new MejoresMonitoresPorValoracion());
+        return lista;
+    }
+}
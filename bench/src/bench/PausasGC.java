@@ -0,0 +1,132 @@
+package bench;
+
+import app.Persona;
+import app.Socio;
+import app.TablaPersonas;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Mide las pausas del recolector de basura con muchos socios guardados en el
+ * montón o en una {@link TablaPersonas}, fuera del montón.
+ *
+ * Después de cargar los socios, durante unos segundos se registran accesos de
+ * socios al azar mientras se crean objetos de vida corta, como haría la
+ * aplicación atendiendo a los tornos, y se anotan las pausas de cada
+ * recolección. Al final se fuerza una recolección completa, cuyo tiempo depende
+ * de los objetos vivos del montón.
+ *
+ * <p>Uso: {@code PausasGC [monton|tabla] [socios] [segundos]}, por defecto
+ * {@code monton}, 5000000 socios y 20 segundos. Para comparar, los dos modos se
+ * ejecutan con el mismo montón.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class PausasGC {
+    private static final int SOCIOS = 5000000;
+    private static final int SEGUNDOS = 20;
+
+    private static final ArrayList <Long> pausas = new ArrayList<>();
+
+    public static void main(String[] args){
+        boolean enTabla = args.length > 0 && args[0].equals("tabla");
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : SOCIOS;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : SEGUNDOS;
+
+        if(n <= 0 || segundos <= 0){
+            throw new IllegalArgumentException("Los socios y los segundos tienen que ser positivos");
+        }
+
+        Random r = Datos.aleatorio();
+        Socio[] socios = enTabla ? null : new Socio[n];
+        TablaPersonas tabla = enTabla ? new TablaPersonas(n) : null;
+        long inicio = System.nanoTime();
+
+        for(int i = 0; i < n; i++){
+            String[] d = Datos.registro(i, r);
+            Socio s = new Socio(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7]);
+            if(enTabla){
+                tabla.añadir(s);
+            }else{
+                socios[i] = s;
+            }
+        }
+        System.out.println(String.format(Locale.ROOT, "%d socios en %s cargados en %.1f s",
+                n, enTabla ? "la tabla" : "el montón", (System.nanoTime() - inicio) / 1e9));
+
+        System.gc();
+        escucharPausas();
+
+        LocalDate hoy = LocalDate.now();
+        long fin = System.nanoTime() + segundos * 1_000_000_000L;
+        long accesos = 0;
+        Object[] recientes = new Object[4096];
+
+        while(System.nanoTime() < fin){
+            for(int i = 0; i < 10000; i++){
+                int fila = r.nextInt(n);
+                if(enTabla){
+                    tabla.registrarAcceso(fila, hoy);
+                }else{
+                    socios[fila].registrarAcceso(hoy);
+                }
+                // Basura de vida corta, como las peticiones y respuestas de los tornos.
+                recientes[i & (recientes.length - 1)] = new byte[256];
+                accesos++;
+            }
+        }
+
+        long completa = System.nanoTime();
+        System.gc();
+        completa = System.nanoTime() - completa;
+
+        ArrayList<Long> medidas;
+        synchronized(pausas){
+            medidas = new ArrayList<>(pausas);
+        }
+        medidas.sort(null);
+        long total = 0;
+        for(long pausa : medidas){
+            total += pausa;
+        }
+
+        System.out.println("Accesos: " + accesos + ", recolecciones: " + medidas.size());
+        if(!medidas.isEmpty()){
+            System.out.println(String.format(Locale.ROOT, "Pausas: media %.1f ms, p99 %d ms, máxima %d ms",
+                    total / (double) medidas.size(), medidas.get((int) Math.ceil(0.99 * medidas.size()) - 1), medidas.get(medidas.size() - 1)));
+        }
+        System.out.println(String.format(Locale.ROOT, "Recolección completa: %.0f ms", completa / 1e6));
+
+        // Mantiene los socios vivos hasta después de medir.
+        Persona p = enTabla ? tabla.persona(0) : socios[0];
+        System.out.println("Primer socio: " + p.getDNI());
+    }
+
+    /**
+     * Anota la duración de cada recolección a partir de ahora, salvo las
+     * completas pedidas con {@link System#gc()} y las fases concurrentes, que no
+     * paran la aplicación.
+     */
+    private static void escucharPausas(){
+        for(GarbageCollectorMXBean recolector : ManagementFactory.getGarbageCollectorMXBeans()){
+            ((NotificationEmitter) recolector).addNotificationListener((notificacion, datos) -> {
+                if(notificacion.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)){
+                    GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notificacion.getUserData());
+                    if(!info.getGcCause().equals("System.gc()") && info.getGcInfo().getDuration() >= 0 && !info.getGcName().contains("Concurrent") && !info.getGcName().contains("Cycles")){
+                        synchronized(pausas){
+                            pausas.add(info.getGcInfo().getDuration());
+                        }
+                    }
+                }
+            }, null, null);
+        }
+    }
+}
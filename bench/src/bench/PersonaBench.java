@@ -0,0 +1,63 @@
+package bench;
+
+import app.Actividad;
+import app.Especialidad;
+import app.Socio;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Mide la creación de personas, que valida todos sus datos en el
+ * constructor, y el cálculo de la cuota de los socios.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonaBench {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int elementos;
+
+    private String[][] registros;
+    private Socio[] socios;
+
+    @Setup
+    public void preparar(){
+        Random r = Datos.aleatorio();
+        registros = new String[elementos][];
+        for(int i = 0; i < elementos; i++){
+            registros[i] = Datos.registro(i, r);
+        }
+
+        socios = Datos.socios(elementos);
+        for(Socio s : socios){
+            int actividades = r.nextInt(4);
+            for(int i = 0; i < actividades; i++){
+                s.addActividad(new Actividad("Actividad", 2 + r.nextInt(60), 100, Especialidad.FITNESS, false));
+            }
+        }
+    }
+
+    @Benchmark
+    public void constructorPersona(Blackhole bh){
+        for(String[] d : registros){
+            bh.consume(new Socio(d[0], d[1], d[2], d[3], d[4], d[5], d[6], d[7]));
+        }
+    }
+
+    @Benchmark
+    public double getCuota(){
+        double total = 0;
+        for(Socio s : socios){
+            total += s.getCuota();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import app.CaducidadSocios;
+import app.Socio;
+import app.TablaPersonas;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Compara los recorridos de todos los socios en el montón con los mismos
+ * recorridos sobre la {@link TablaPersonas}, fuera del montón y por columnas.
+ *
+ * Todos los socios accedieron en las dos últimas semanas, así que la
+ * inactivación no inactiva a nadie y cada medida revisa a todos los socios.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class TablaBench {
+    private static final String[] PROVINCIAS = {"Madrid", "Barcelona", "Sevilla", "Valencia", "Lugo", "Cadiz", "Toledo", "Soria"};
+
+    @Param({"1000000"})
+    public int elementos;
+
+    private Socio[] socios;
+    private TablaPersonas tabla;
+    private LocalDate hoy;
+    private int corte;
+
+    @Setup
+    public void preparar(){
+        Random r = Datos.aleatorio();
+        hoy = LocalDate.now();
+        corte = (int) CaducidadSocios.ultimoAccesoCaducado(hoy).toEpochDay();
+        socios = new Socio[elementos];
+        tabla = new TablaPersonas(elementos);
+
+        for(int i = 0; i < elementos; i++){
+            String[] d = Datos.registro(i, r);
+            Socio s = new Socio(d[0], d[1], d[2], d[3], PROVINCIAS[r.nextInt(PROVINCIAS.length)], d[5], d[6], d[7]);
+            s.setFechaUltimoAcceso(hoy.minusDays(r.nextInt(14)));
+            socios[i] = s;
+            tabla.añadir(s);
+        }
+    }
+
+    @TearDown
+    public void terminar(){
+        tabla.close();
+    }
+
+    @Benchmark
+    public int inactivacionMonton(){
+        int inactivados = 0;
+        for(Socio s : socios){
+            if(s.getEstaActivo() && s.getDiaUltimoAcceso() <= corte){
+                s.setEstaActivo(false);
+                inactivados++;
+            }
+        }
+        return inactivados;
+    }
+
+    @Benchmark
+    public int inactivacionTabla(){
+        return tabla.inactivar(hoy);
+    }
+
+    @Benchmark
+    public long minutosMonton(){
+        long total = 0;
+        for(Socio s : socios){
+            total += s.getDuracionActividades();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long minutosTabla(){
+        return tabla.minutosSocios();
+    }
+
+    @Benchmark
+    public int provinciaMonton(){
+        int encontrados = 0;
+        for(Socio s : socios){
+            if(s.getProvincia().equals("Lugo") && s.getEstaActivo()){
+                encontrados++;
+            }
+        }
+        return encontrados;
+    }
+
+    @Benchmark
+    public int provinciaTabla(){
+        return tabla.filtrarProvincia("Lugo", true).length;
+    }
+}
@@ -0,0 +1,60 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.FechaISO;
+import utils.ValidarDatos;
+
+/**
+ * Mide la validación de DNI y la decodificación de fechas de nacimiento sobre
+ * listas de distintos tamaños. Un cuarto de los DNI tiene la letra de control
+ * equivocada.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidacionBench {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int elementos;
+
+    private String[] dnis;
+    private String[] fechas;
+
+    @Setup
+    public void preparar(){
+        Random r = Datos.aleatorio();
+        dnis = new String[elementos];
+        fechas = new String[elementos];
+
+        for(int i = 0; i < elementos; i++){
+            String dni = Datos.dni(r.nextInt(100000000));
+            if(i % 4 == 0){
+                dni = dni.substring(0, 8) + (dni.charAt(8) == 'T' ? 'R' : 'T');
+            }
+            dnis[i] = dni;
+            fechas[i] = Datos.fecha(r);
+        }
+    }
+
+    @Benchmark
+    public void validarNif(Blackhole bh){
+        for(String dni : dnis){
+            bh.consume(ValidarDatos.validarNif(dni));
+        }
+    }
+
+    @Benchmark
+    public void decodificarFecha(Blackhole bh){
+        for(String fecha : fechas){
+            bh.consume(FechaISO.decodificar(fecha));
+        }
+    }
+}
@@ -1,19 +1,63 @@
 package app;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import utils.AlmacenIds;
+import utils.Utilidades;
 import utils.ValidarDatos;
 
 /**
  * Esta clase representa una actividad que puede ser realizada por los socios de
  * una organización. La representación de la clase usa los atributos
  * <code>nombre</code>, <code>duracion</code>, <code>calorias</code>,
- * <code>categoria</code>, <code>esPremium</code> y <code>votos</code>.
+ * <code>categoria</code>, <code>esPremium</code>, <code>votos</code>,
+ * <code>id</code>, <code>sumaVotos</code>, <code>numeroVotos</code>,
+ * <code>inscritos</code>, <code>inscritosPendientes</code> y
+ * <code>repositorioPendiente</code>.
  *
  * La actividad tiene un nombre, duración, calorías quemadas, categoría, y un
  * estado de si es premium. Además, permite realizar votaciones y calcular la
  * valoración media de la actividad.
  *
+ * <p>Como los votos van de 0 a 10, no se guardan uno a uno: se cuenta cuántos
+ * votos hay de cada valor y se lleva la suma y el número total de votos. Así la
+ * media, la mediana y la distribución de los votos se calculan en tiempo
+ * constante y la memoria que ocupa una actividad no crece con los votos.</p>
+ *
+ * <p>La actividad mantiene también los socios inscritos en ella, que se
+ * actualizan cuando un socio añade o elimina la actividad, de forma que saber
+ * quién está inscrito y cuántos socios hay no requiere recorrer los socios.
+ * Los socios de un {@link RepositorioPersonas} que todavía no se han creado
+ * desde su {@link OrigenPersonas} solo se cuentan en los inscritos
+ * pendientes, que bajan según se crean. Antes de devolver los inscritos o de
+ * cambiar la duración, que necesitan a los socios, se pide al repositorio que
+ * cree los pendientes.</p>
+ *
+ * <p>Mientras una actividad está en uso, es decir, mientras pertenece a un
+ * catálogo o tiene algún socio inscrito, tiene un identificador numérico que no
+ * cambia y que no comparte con ninguna otra, ni siquiera con sus copias. Los
+ * identificadores los reparte un {@link AlmacenIds} común a todas las
+ * actividades, de 31 bits para admitir hasta 2<sup>24</sup> actividades en uso,
+ * del que se recuperan con {@link #porId(int)} leyendo una casilla de un
+ * array. Cuando la actividad deja de estar en uso su casilla queda libre
+ * para otra actividad, sin mover las demás. Los socios guardan los
+ * identificadores de sus actividades en lugar de las actividades.</p>
+ *
+ * <p>Los votos y las inscripciones pueden llegar desde varios hilos a la vez y
+ * se registran sincronizando sobre la actividad. El recuento de votos también
+ * se lee sincronizando sobre la actividad, para que la media, la mediana y el
+ * número de votos salgan siempre de los mismos votos. El aviso al catálogo se
+ * hace después, fuera de la sincronización.</p>
+ *
+ * <p>Dos actividades son iguales si tienen el mismo nombre, duración y
+ * categoría. Si la actividad pertenece a un {@link CatalogoActividades}, al
+ * cambiar alguno de estos atributos se avisa al catálogo para que actualice sus
+ * índices, y el cambio no se aplica si la actividad pasaría a ser igual a otra
+ * del catálogo.</p>
+ *
  * <p>Los métodos de la clase permiten manipular estos atributos de forma
  * controlada, validando que se respeten las condiciones mínimas para su
  * correcto funcionamiento.</p>
@@ -25,11 +69,22 @@ import utils.ValidarDatos;
 
 public class Actividad implements Comparable<Actividad>, Valorable{
     private String nombre;
+    private String nombreNormalizado;
     private int duracion;
     private int calorias;
     private Especialidad categoria;
     private boolean esPremium;
-    private ArrayList <Integer> votos;
+    private int [] votos;
+    private int sumaVotos;
+    private int numeroVotos;
+    private LinkedHashMap <Socio, Integer> inscritos = new LinkedHashMap<>();
+    private int inscritosPendientes;
+    private RepositorioPersonas repositorioPendiente;
+    private volatile int id = -1;
+    CatalogoActividades catalogo;
+    
+    private static final AlmacenIds <Actividad> almacen = new AlmacenIds<>(31);
+    private static final StampedLock bloqueoAlmacen = new StampedLock();
     
     /**
      * Crea una nueva actividad con los parámetros especificados.
@@ -61,29 +116,43 @@ public class Actividad implements Comparable<Actividad>, Valorable{
         }
         
         this.nombre = nombre;
+        this.nombreNormalizado = Utilidades.formatearString(nombre);
         this.duracion = duracion;
         this.calorias = calorias;
         this.categoria = categoria;
         this.esPremium = esPremium;
-        this.votos = new ArrayList();
+        this.votos = new int[11];
     }
     
     /**
      * Crea una nueva actividad copiando los datos de otra actividad existente.
      *
-     * Copia todos los atributos de la actividad original, incluyendo la lista
-     * de votos.
+     * Copia todos los atributos de la actividad original, incluyendo el
+     * recuento de votos. Los socios inscritos no se copian, ya que están inscritos en
+     * la actividad original, y la copia no tiene identificador hasta que se
+     * usa.
      *
      * @param a la actividad a copiar
      */
     public Actividad(Actividad a){
         this(a.nombre, a.duracion, a.calorias, a.categoria, a.esPremium);
-        this.votos = new ArrayList<>();
-        for(Integer voto : a.votos){
-            this.votos.add(voto);
+        synchronized(a){
+            this.votos = a.votos.clone();
+            this.sumaVotos = a.sumaVotos;
+            this.numeroVotos = a.numeroVotos;
         }
     }
 
+    /**
+     * Devuelve el identificador de la actividad, que no cambia mientras la
+     * actividad pertenezca a un catálogo o tenga socios inscritos.
+     *
+     * @return El atributo id del objeto, o -1 si la actividad no está en uso.
+     */
+    public int getId() {
+        return id;
+    }
+    
     /**
      * Devuelve el nombre de la actividad.
      *
@@ -96,17 +165,34 @@ public class Actividad implements Comparable<Actividad>, Valorable{
     /**
      * Establece el valor del atributo nombre. El valor recibido por parámetro
      * debe ser un string con un tamaño válido. Si el valor no cumple con las
-     * condiciones establecidas, el atributo no se modificará.
+     * condiciones establecidas, el atributo no se modificará. El nombre
+     * normalizado se actualiza junto con el nombre.
      *
      * @param nombre El nuevo nombre de la actividad, debe cumplir con las
      * condiciones de validación.
      */
     public void setNombre(String nombre) {
         if(ValidarDatos.validarGeneral(nombre)){
-            this.nombre = nombre;
+            String anterior = this.nombre;
+            cambiarClave(() -> asignarNombre(nombre), () -> asignarNombre(anterior));
         }
     }
     
+    private void asignarNombre(String nombre) {
+        this.nombre = nombre;
+        this.nombreNormalizado = Utilidades.formatearString(nombre);
+    }
+    
+    /**
+     * Devuelve el nombre normalizado de la actividad, en mayúsculas y sin
+     * espacios, que se usa como clave en las búsquedas por nombre.
+     *
+     * @return El atributo nombre normalizado del objeto.
+     */
+    public String getNombreNormalizado() {
+        return nombreNormalizado;
+    }
+    
     /**
      * Devuelve el valor del atributo duracion.
      *
@@ -119,13 +205,27 @@ public class Actividad implements Comparable<Actividad>, Valorable{
     /**
      * Establece el valor del atributo duracion. El valor recibido por parámetro
      * debe ser mayor a 1 minuto y no exceder las 2 horas. Si el valor no cumple
-     * con estos requisitos, el atributo no se modificará.
+     * con estos requisitos, el atributo no se modificará. Si la duración
+     * cambia, se actualizan los minutos y la cuota de los socios inscritos.
      *
      * @param duracion El valor de la duración en minutos.
      */    
     public void setDuracion(int duracion) {
         if(ValidarDatos.validarDuracion(duracion)){
-            this.duracion = duracion;
+            crearInscritosPendientes();
+            int anterior = this.duracion;
+            cambiarClave(() -> this.duracion = duracion, () -> this.duracion = anterior);
+            
+            int diferencia = this.duracion - anterior;
+            if(diferencia != 0){
+                LinkedHashMap <Socio, Integer> copia;
+                synchronized(this){
+                    copia = new LinkedHashMap<>(inscritos);
+                }
+                for(Map.Entry<Socio, Integer> inscrito : copia.entrySet()){
+                    inscrito.getKey().registrarMinutos(diferencia * inscrito.getValue());
+                }
+            }
         }
     }
     
@@ -166,7 +266,33 @@ public class Actividad implements Comparable<Actividad>, Valorable{
      * @param categoria El valor de la categoría de la actividad.
      */
     public void setCategoria(Especialidad categoria) {
-        this.categoria = categoria;
+        Especialidad anterior = this.categoria;
+        cambiarClave(() -> this.categoria = categoria, () -> this.categoria = anterior);
+    }
+
+    /**
+     * Aplica un cambio sobre el nombre, la duración o la categoría de la
+     * actividad.
+     *
+     * Si la actividad pertenece a un catálogo, el catálogo aplica el cambio
+     * con su bloqueo de escritura (ver
+     * {@link CatalogoActividades#cambiarClave(Actividad, Runnable, Runnable)}),
+     * y si con la nueva clave la actividad es igual a otra del catálogo, el
+     * cambio se deshace. Si la actividad sale del catálogo mientras tanto, se
+     * vuelve a comprobar a qué catálogo pertenece.
+     *
+     * @param cambio El cambio que se quiere aplicar.
+     * @param deshacer La operación que deja la actividad como estaba.
+     */
+    private void cambiarClave(Runnable cambio, Runnable deshacer) {
+        CatalogoActividades c = catalogo;
+        while(c != null && !c.cambiarClave(this, cambio, deshacer)){
+            c = catalogo;
+        }
+        
+        if(c == null){
+            cambio.run();
+        }
     }
 
     /**
@@ -189,10 +315,10 @@ public class Actividad implements Comparable<Actividad>, Valorable{
     }
     
     /**
-     * Añade un voto a la lista de votos si el valor es válido.
+     * Añade un voto al recuento de votos si el valor es válido.
      *
      * El voto debe estar en el rango de 0 a 10 (inclusive). Si es válido, se
-     * agrega a la lista de votos y se devuelve {@code true}. En caso contrario,
+     * agrega al recuento de votos y se devuelve {@code true}. En caso contrario,
      * no se añade y se devuelve {@code false}.
      *
      * @param voto el valor del voto a añadir, entre 0 y 10.
@@ -203,33 +329,305 @@ public class Actividad implements Comparable<Actividad>, Valorable{
         boolean esValido = false;
         
         if(voto>=0 && voto<=10){
-            votos.add(voto);
+            synchronized(this){
+                votos[voto]++;
+                sumaVotos += voto;
+                numeroVotos++;
+            }
             esValido = true;
+            
+            if(catalogo != null){
+                catalogo.votoRegistrado(this);
+            }
         }
         
         return esValido;
     }
     
+    /**
+     * Sustituye los votos de la actividad por la distribución indicada. Se usa
+     * al cargar una actividad guardada, para no tener que repetir los votos uno
+     * a uno.
+     *
+     * @param distribucion Un array de 11 posiciones con el número de votos de
+     * cada valor, como el que devuelve {@link #getDistribucionVotos()}.
+     *
+     * @throws IllegalArgumentException Si el array no tiene 11 posiciones o
+     * algún número de votos es negativo.
+     */
+    public void cargarVotos(int[] distribucion){
+        if(distribucion.length != votos.length){
+            throw new IllegalArgumentException("La distribución tiene que tener " + votos.length + " valores");
+        }
+        
+        int suma = 0;
+        int numero = 0;
+        for(int voto = 0; voto < distribucion.length; voto++){
+            if(distribucion[voto] < 0){
+                throw new IllegalArgumentException("El número de votos no puede ser negativo");
+            }
+            suma += voto * distribucion[voto];
+            numero += distribucion[voto];
+        }
+        
+        synchronized(this){
+            this.votos = distribucion.clone();
+            this.sumaVotos = suma;
+            this.numeroVotos = numero;
+        }
+        
+        if(catalogo != null){
+            catalogo.votoRegistrado(this);
+        }
+    }
+    
+    /**
+     * Devuelve los socios inscritos en la actividad, en el orden en el que se
+     * inscribieron.
+     *
+     * @return Una lista nueva con los socios inscritos.
+     */
+    public ArrayList<Socio> getInscritos() {
+        crearInscritosPendientes();
+        synchronized(this){
+            return new ArrayList<>(inscritos.keySet());
+        }
+    }
+    
+    /**
+     * Devuelve el número de socios distintos inscritos en la actividad,
+     * incluidos los pendientes de crear.
+     *
+     * @return El número de socios inscritos.
+     */
+    public synchronized int getNumeroInscritos() {
+        return inscritos.size() + inscritosPendientes;
+    }
+    
+    /**
+     * Indica si hay algún socio inscrito en la actividad.
+     *
+     * @return {@code true} si hay socios inscritos, {@code false} en caso
+     * contrario.
+     */
+    public synchronized boolean tieneInscritos() {
+        return !inscritos.isEmpty() || inscritosPendientes > 0;
+    }
+    
+    /**
+     * Anota los socios inscritos en la actividad que el repositorio creará
+     * más tarde desde su {@link OrigenPersonas}. Lo llama el repositorio al
+     * cargar las personas pendientes.
+     *
+     * @param numero El número de socios pendientes inscritos.
+     * @param repositorio El repositorio que los crea.
+     */
+    synchronized void cargarInscritosPendientes(int numero, RepositorioPersonas repositorio) {
+        this.inscritosPendientes = numero;
+        this.repositorioPendiente = repositorio;
+    }
+    
+    /**
+     * Anota que se ha creado uno de los socios pendientes inscritos, que ya
+     * se ha inscrito en la actividad. Lo llama el repositorio.
+     */
+    synchronized void inscritoPendienteCreado() {
+        inscritosPendientes--;
+    }
+    
+    /**
+     * Pide al repositorio que cree los socios pendientes, si quedan inscritos
+     * pendientes. Se llama sin la actividad bloqueada, ya que el repositorio
+     * bloquea sus fragmentos antes que las actividades de los socios que crea.
+     */
+    private void crearInscritosPendientes() {
+        RepositorioPersonas repositorio;
+        synchronized(this){
+            repositorio = inscritosPendientes > 0 ? repositorioPendiente : null;
+        }
+        
+        if(repositorio != null){
+            repositorio.crearPendientes();
+        }
+    }
+    
+    /**
+     * Registra una inscripción del socio en la actividad. Un socio puede tener
+     * la misma actividad varias veces en su lista, por lo que se cuenta el
+     * número de veces que está inscrito.
+     *
+     * @param s El socio que se inscribe.
+     *
+     * @throws IllegalStateException Si la actividad no tiene identificador y
+     * no quedan identificadores libres. En ese caso no se inscribe al socio.
+     */
+    synchronized void inscribir(Socio s) {
+        ocuparId();
+        inscritos.merge(s, 1, Integer::sum);
+    }
+    
+    /**
+     * Elimina una inscripción del socio en la actividad. El socio deja de
+     * figurar como inscrito cuando no le quedan inscripciones.
+     *
+     * @param s El socio que deja la actividad.
+     */
+    synchronized void desinscribir(Socio s) {
+        inscritos.computeIfPresent(s, (socio, veces) -> veces > 1 ? veces - 1 : null);
+        liberarId();
+    }
+    
+    /**
+     * Anota que la actividad pasa a pertenecer a un catálogo. Lo llama el
+     * catálogo con su bloqueo de escritura.
+     *
+     * @param c El catálogo.
+     *
+     * @throws IllegalStateException Si la actividad no tiene identificador y
+     * no quedan identificadores libres. En ese caso la actividad no entra en
+     * el catálogo.
+     */
+    synchronized void entrarCatalogo(CatalogoActividades c) {
+        ocuparId();
+        this.catalogo = c;
+    }
+    
+    /**
+     * Anota que la actividad deja de pertenecer a su catálogo. Lo llama el
+     * catálogo con su bloqueo de escritura.
+     */
+    synchronized void salirCatalogo() {
+        this.catalogo = null;
+        liberarId();
+    }
+    
+    /**
+     * Devuelve la actividad con el identificador indicado. El almacén se lee
+     * sin bloquearlo y solo si cambia mientras tanto se vuelve a leer con el
+     * bloqueo de lectura.
+     *
+     * @param id El identificador de la actividad.
+     * @return La actividad, o null si no hay ninguna actividad en uso con ese
+     * identificador.
+     */
+    static Actividad porId(int id) {
+        long stamp = bloqueoAlmacen.tryOptimisticRead();
+        Actividad a = almacen.get(id);
+
+        if(!bloqueoAlmacen.validate(stamp)){
+            stamp = bloqueoAlmacen.readLock();
+            try{
+                a = almacen.get(id);
+            }finally{
+                bloqueoAlmacen.unlockRead(stamp);
+            }
+        }
+
+        return a;
+    }
+    
+    /**
+     * Da un identificador a la actividad si no lo tiene. Se llama con la
+     * actividad bloqueada.
+     */
+    private void ocuparId() {
+        if(id == -1){
+            long stamp = bloqueoAlmacen.writeLock();
+            try{
+                id = almacen.añadir(this);
+            }finally{
+                bloqueoAlmacen.unlockWrite(stamp);
+            }
+        }
+    }
+    
+    /**
+     * Libera el identificador de la actividad si ya no está en uso. Se llama
+     * con la actividad bloqueada.
+     */
+    private void liberarId() {
+        if(id != -1 && catalogo == null && inscritos.isEmpty() && inscritosPendientes == 0){
+            long stamp = bloqueoAlmacen.writeLock();
+            try{
+                almacen.eliminar(id);
+                id = -1;
+            }finally{
+                bloqueoAlmacen.unlockWrite(stamp);
+            }
+        }
+    }
+    
     /**
      * Calcula y devuelve la valoración media de la actividad.
      *
-     * Este método suma todos los votos registrados en la lista de votos y
-     * calcula la media aritmética. El resultado se redondea al entero más
-     * cercano y se devuelve como valoración.
+     * La media se calcula a partir de la suma y el número de votos, que se
+     * mantienen al votar. El resultado se redondea al entero más cercano y se
+     * devuelve como valoración. Si no hay votos, la valoración es 0.
      *
      * @return la valoración media redondeada como un entero.
      */
     @Override
-    public int calcularValoracion(){
-        double contador = 0;
+    public synchronized int calcularValoracion(){
+        int valoracion = 0;
         
-        for(int i = 0; i < votos.size(); i++){
-            contador += votos.get(i);
+        if(numeroVotos > 0){
+            valoracion = (int) Math.round((double) sumaVotos/numeroVotos);
         }
         
-        double valoracion = contador/votos.size();
+        return valoracion;
+    }
+    
+    /**
+     * Calcula la mediana de los votos de la actividad.
+     *
+     * Se recorre el recuento de los 11 valores posibles hasta llegar a la mitad
+     * de los votos. Si el número de votos es par, la mediana es la media de los
+     * dos votos centrales. Si no hay votos, la mediana es 0.
+     *
+     * @return la mediana de los votos.
+     */
+    public synchronized double calcularMediana(){
+        double mediana = 0;
+        
+        if(numeroVotos > 0){
+            int centroInferior = (numeroVotos - 1) / 2;
+            int centroSuperior = numeroVotos / 2;
+            int votoInferior = -1, votoSuperior = -1;
+            int acumulado = 0;
+            
+            for(int voto = 0; voto < votos.length && votoSuperior == -1; voto++){
+                acumulado += votos[voto];
+                if(votoInferior == -1 && acumulado > centroInferior){
+                    votoInferior = voto;
+                }
+                if(acumulado > centroSuperior){
+                    votoSuperior = voto;
+                }
+            }
+            
+            mediana = (votoInferior + votoSuperior) / 2.0;
+        }
         
-        return (int) Math.round(valoracion);
+        return mediana;
+    }
+    
+    /**
+     * Devuelve cuántos votos ha recibido la actividad de cada valor.
+     *
+     * @return Un array nuevo de 11 posiciones, donde la posición i contiene el
+     * número de votos con valor i.
+     */
+    public synchronized int[] getDistribucionVotos(){
+        return votos.clone();
+    }
+    
+    /**
+     * Devuelve el número total de votos de la actividad.
+     *
+     * @return El número de votos.
+     */
+    public synchronized int getNumeroVotos(){
+        return numeroVotos;
     }
     
     @Override
@@ -244,6 +642,9 @@ public class Actividad implements Comparable<Actividad>, Valorable{
     @Override
     public int hashCode() {
         int hash = 3;
+        hash = 59 * hash + Objects.hashCode(this.nombre);
+        hash = 59 * hash + this.duracion;
+        hash = 59 * hash + Objects.hashCode(this.categoria);
         return hash;
     }
 
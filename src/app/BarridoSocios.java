@@ -0,0 +1,301 @@
+package app;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import utils.ConjuntoEnteros;
+import utils.MotorValidacion;
+
+/**
+ * Esta clase representa un barrido en paralelo de todos los socios del
+ * gimnasio, para los trabajos que sí tienen que ver a todos los socios, como
+ * recalcular las cuotas o volver a validar los datos. La representación de la
+ * clase usa el atributo <code>pool</code>.
+ *
+ * Se copian las personas de cada fragmento del {@link RepositorioPersonas} y
+ * el barrido se reparte en tareas de un {@link ForkJoinPool}: primero por
+ * fragmentos y después por rangos de cada fragmento, hasta rangos de
+ * {@value #UMBRAL} personas. Cada tarea acumula en su propio acumulador, que
+ * crea el trabajo, y los acumuladores se combinan al unir las tareas, así que
+ * los hilos no comparten nada mientras recorren sus rangos y el barrido escala
+ * con el número de núcleos.
+ *
+ * <p>El avance se cuenta al terminar cada rango y se avisa cada vez que se
+ * completa otro 10 % de las personas.</p>
+ *
+ * <p>El barrido trabaja sobre una copia de las personas, por lo que no bloquea
+ * el repositorio: los socios dados de alta mientras tanto no se revisan y los
+ * dados de baja pueden revisarse todavía.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class BarridoSocios {
+    private static final int UMBRAL = 2048;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Crea un barrido que usa el pool común.
+     */
+    public BarridoSocios(){
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un barrido que usa el pool indicado.
+     *
+     * @param pool El pool en el que se ejecutan las tareas.
+     */
+    public BarridoSocios(ForkJoinPool pool){
+        this.pool = pool;
+    }
+
+    /**
+     * Ejecuta un trabajo sobre todos los socios del repositorio.
+     *
+     * @param <A> El tipo del acumulador del trabajo.
+     * @param repositorio El repositorio de personas.
+     * @param trabajo El trabajo que se ejecuta.
+     * @param progreso El que recibe el avance del barrido, o {@code null}.
+     * Se llama desde los hilos del pool.
+     * @return La combinación de los acumuladores de todas las tareas.
+     */
+    public <A> A ejecutar(RepositorioPersonas repositorio, Trabajo<A> trabajo, Progreso progreso){
+        Persona[][] fragmentos = repositorio.copiarFragmentos();
+        long total = 0;
+        for(Persona[] fragmento : fragmentos){
+            total += fragmento.length;
+        }
+
+        Avance avance = new Avance(total, progreso);
+        return pool.invoke(new Tarea<>(trabajo, avance, fragmentos, 0, fragmentos.length, 0, fragmentos.length == 0 ? 0 : fragmentos[0].length));
+    }
+
+    /**
+     * Trabajo que inactiva a los socios activos que no han accedido en el
+     * último mes, con la misma regla que {@link CaducidadSocios}. Sirve, por
+     * ejemplo, para revisar todos los socios de una instantánea recuperada.
+     *
+     * @param hoy El día con el que se compara el último acceso.
+     * @return El trabajo.
+     */
+    public static Trabajo<ResultadoBarrido> inactivacion(LocalDate hoy){
+        return new TrabajoResultado(){
+            @Override
+            public void procesar(Socio s, ResultadoBarrido r){
+                r.revisado();
+                if(s.getEstaActivo() && !CaducidadSocios.diaCaducidad(s.getFechaUltimoAcceso()).isAfter(hoy)){
+                    s.setEstaActivo(false);
+                    r.afectado();
+                }
+            }
+        };
+    }
+
+    /**
+     * Trabajo que vuelve a calcular los minutos y la cuota de cada socio a
+     * partir de sus actividades y corrige los que no coinciden. El resultado
+     * tiene además los minutos y las cuotas de todos los socios.
+     *
+     * @return El trabajo.
+     */
+    public static Trabajo<ResultadoBarrido> recalculoCuotas(){
+        return new TrabajoResultado(){
+            @Override
+            public void procesar(Socio s, ResultadoBarrido r){
+                r.revisado();
+                int diferencia = s.recalcularMinutos();
+                if(diferencia != 0){
+                    r.afectado(s.getDNI() + ": " + (diferencia > 0 ? "+" : "") + diferencia + " minutos");
+                }
+                r.sumar(s.getDuracionActividades(), s.getCuota());
+            }
+        };
+    }
+
+    /**
+     * Trabajo que vuelve a validar los datos de cada socio con las reglas del
+     * alta y comprueba que todas sus actividades siguen en el catálogo.
+     *
+     * Los identificadores de las actividades del catálogo se copian una vez al
+     * crear el trabajo, para que las tareas no bloqueen el catálogo por cada
+     * actividad de cada socio. Las tareas solo leen el conjunto.
+     *
+     * @param catalogo El catálogo de actividades.
+     * @return El trabajo.
+     */
+    public static Trabajo<ResultadoBarrido> validacion(CatalogoActividades catalogo){
+        ConjuntoEnteros enCatalogo = new ConjuntoEnteros();
+        for(Actividad a : catalogo.getLista()){
+            enCatalogo.añadir(a.getId());
+        }
+
+        return new TrabajoResultado(){
+            @Override
+            public void procesar(Socio s, ResultadoBarrido r){
+                r.revisado();
+                String[] campos = {s.getNombre(), s.getDNI(), s.getDireccion(), s.getLocalidad(), s.getProvincia(), s.getCodigoPostal(), s.getTelefono(), s.getFechaNacimiento().toString()};
+                int errores = MotorValidacion.validarPersona(campos);
+                int fueraDeCatalogo = s.contarActividadesFuera(enCatalogo);
+
+                if(errores != 0 || fueraDeCatalogo != 0){
+                    String detalle = s.getDNI() + ":";
+                    if(errores != 0){
+                        detalle += " datos incorrectos (" + MotorValidacion.describirErrores(errores) + ")";
+                    }
+                    if(fueraDeCatalogo != 0){
+                        detalle += " " + fueraDeCatalogo + " actividades fuera del catálogo";
+                    }
+                    r.afectado(detalle);
+                }
+            }
+        };
+    }
+
+    /**
+     * Un trabajo que se ejecuta sobre cada socio durante un barrido.
+     *
+     * @param <A> El tipo del acumulador en el que cada tarea guarda su
+     * resultado.
+     */
+    public interface Trabajo<A> {
+        /**
+         * Crea un acumulador vacío para una tarea.
+         *
+         * @return El acumulador.
+         */
+        A crear();
+
+        /**
+         * Procesa un socio y acumula su resultado.
+         *
+         * @param s El socio.
+         * @param acumulador El acumulador de la tarea.
+         */
+        void procesar(Socio s, A acumulador);
+
+        /**
+         * Combina los acumuladores de dos tareas.
+         *
+         * @param a El acumulador de la primera tarea.
+         * @param b El acumulador de la segunda tarea.
+         * @return El acumulador combinado, que puede ser uno de los dos.
+         */
+        A combinar(A a, A b);
+    }
+
+    /**
+     * Recibe el avance de un barrido.
+     */
+    @FunctionalInterface
+    public interface Progreso {
+        /**
+         * Avisa de las personas recorridas hasta ahora.
+         *
+         * @param recorridas Las personas recorridas.
+         * @param total El total de personas del barrido.
+         */
+        void avance(long recorridas, long total);
+    }
+
+    /**
+     * Base de los trabajos que acumulan en un {@link ResultadoBarrido}.
+     */
+    private abstract static class TrabajoResultado implements Trabajo<ResultadoBarrido> {
+        @Override
+        public ResultadoBarrido crear(){
+            return new ResultadoBarrido();
+        }
+
+        @Override
+        public ResultadoBarrido combinar(ResultadoBarrido a, ResultadoBarrido b){
+            return a.combinar(b);
+        }
+    }
+
+    /**
+     * El avance compartido de un barrido. Las tareas solo lo actualizan una vez
+     * por rango.
+     */
+    private static class Avance {
+        private final AtomicLong recorridas = new AtomicLong();
+        private final long total;
+        private final Progreso progreso;
+
+        private Avance(long total, Progreso progreso){
+            this.total = total;
+            this.progreso = progreso;
+        }
+
+        private void sumar(int n){
+            long antes = recorridas.getAndAdd(n);
+            long despues = antes + n;
+
+            if(progreso != null && n > 0 && antes * 10 / total != despues * 10 / total){
+                progreso.avance(despues, total);
+            }
+        }
+    }
+
+    /**
+     * Una tarea del barrido: un grupo de fragmentos o un rango de un
+     * fragmento.
+     */
+    @SuppressWarnings("serial")
+    private static class Tarea<A> extends RecursiveTask<A> {
+        private final Trabajo<A> trabajo;
+        private final Avance avance;
+        private final Persona[][] fragmentos;
+        private final int primerFragmento;
+        private final int finFragmentos;
+        private final int desde;
+        private final int hasta;
+
+        private Tarea(Trabajo<A> trabajo, Avance avance, Persona[][] fragmentos, int primerFragmento, int finFragmentos, int desde, int hasta){
+            this.trabajo = trabajo;
+            this.avance = avance;
+            this.fragmentos = fragmentos;
+            this.primerFragmento = primerFragmento;
+            this.finFragmentos = finFragmentos;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected A compute(){
+            A resultado;
+
+            if(finFragmentos - primerFragmento > 1){
+                int medio = (primerFragmento + finFragmentos) >>> 1;
+                Tarea<A> izquierda = new Tarea<>(trabajo, avance, fragmentos, primerFragmento, medio, 0, fragmentos[primerFragmento].length);
+                Tarea<A> derecha = new Tarea<>(trabajo, avance, fragmentos, medio, finFragmentos, 0, fragmentos[medio].length);
+                resultado = unir(izquierda, derecha);
+            }else if(hasta - desde > UMBRAL){
+                int medio = (desde + hasta) >>> 1;
+                Tarea<A> izquierda = new Tarea<>(trabajo, avance, fragmentos, primerFragmento, finFragmentos, desde, medio);
+                Tarea<A> derecha = new Tarea<>(trabajo, avance, fragmentos, primerFragmento, finFragmentos, medio, hasta);
+                resultado = unir(izquierda, derecha);
+            }else{
+                resultado = trabajo.crear();
+                Persona[] personas = fragmentos[primerFragmento];
+                for(int i = desde; i < hasta; i++){
+                    if(personas[i] instanceof Socio){
+                        trabajo.procesar((Socio) personas[i], resultado);
+                    }
+                }
+                avance.sumar(hasta - desde);
+            }
+
+            return resultado;
+        }
+
+        private A unir(Tarea<A> izquierda, Tarea<A> derecha){
+            izquierda.fork();
+            A b = derecha.compute();
+            A a = izquierda.join();
+            return trabajo.combinar(a, b);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package app;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esta clase representa la caducidad de los socios activos: el día en el que
+ * ha pasado un mes desde su último acceso y dejan de estar activos. La
+ * representación de la clase usa los atributos <code>dias</code>,
+ * <code>programados</code>, <code>reloj</code>, <code>planificador</code> y
+ * <code>repositorio</code>.
+ *
+ * Los socios activos se guardan en cubetas por el día en el que caducan,
+ * ordenadas por día. Al registrar un acceso, el socio se cambia de la cubeta
+ * del día anterior a la del nuevo, y al revisar solo se recorren las cubetas
+ * de los días que ya han llegado, por lo que el coste de cada revisión depende
+ * de los socios que caducan ese día y no del número de socios. Para cada
+ * socio se guarda además el día de la cubeta en la que está, de forma que
+ * cambiarlo de cubeta o quitarlo no depende de su fecha de último acceso, que
+ * puede haber cambiado sin pasar por esta clase. Las cubetas comparan los
+ * socios por identidad y no por DNI.
+ *
+ * <p>Un hilo en segundo plano revisa las caducidades al arrancar y cada día a
+ * medianoche. Si la fecha de un socio se cambia sin pasar por esta clase, el
+ * socio sigue en la cubeta anterior; al llegar ese día se vuelve a calcular su
+ * caducidad con la fecha actual y, si todavía no ha llegado, se pasa a la
+ * cubeta que le corresponde.</p>
+ *
+ * <p>Todos los métodos se sincronizan sobre el objeto, ya que los accesos
+ * llegan a la vez desde la consola, los tornos y el hilo de revisión. Solo se
+ * programan los socios que están en un {@link RepositorioPersonas}: al dar de
+ * baja a un socio, primero se saca del repositorio y después se cancela su
+ * caducidad, así que un acceso que llega mientras tanto o lo programa antes de
+ * que se cancele o ve que ya no está en el repositorio y no hace nada.</p>
+ *
+ * <p>Los socios pendientes de crear de un {@link RepositorioPersonas} no
+ * están en las cubetas. Si se indica su repositorio, al revisar se le pide
+ * que cree los que ya han caducado (ver
+ * {@link RepositorioPersonas#crearCaducados(LocalDate)}), que se programan al
+ * crearse, antes de recorrer las cubetas. Se pide sin sincronizar sobre el
+ * objeto, ya que el repositorio bloquea sus fragmentos antes de programar a
+ * los socios.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class CaducidadSocios {
+    private final TreeMap <Long, Set<Socio>> dias = new TreeMap<>();
+    private final IdentityHashMap <Socio, Long> programados = new IdentityHashMap<>();
+    private final Clock reloj;
+    private ScheduledExecutorService planificador;
+    private volatile RepositorioPersonas repositorio;
+
+    /**
+     * Crea la caducidad de los socios con el reloj del sistema.
+     */
+    public CaducidadSocios(){
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Crea la caducidad de los socios con el reloj indicado.
+     *
+     * @param reloj El reloj con el que se calcula el día actual.
+     */
+    public CaducidadSocios(Clock reloj){
+        this.reloj = reloj;
+    }
+
+    /**
+     * Indica el repositorio al que se piden, al revisar, los socios pendientes
+     * que han caducado.
+     *
+     * @param repositorio El repositorio, o {@code null} para no pedirlos.
+     */
+    public void setRepositorio(RepositorioPersonas repositorio){
+        this.repositorio = repositorio;
+    }
+
+    /**
+     * Añade un socio a la cubeta del día en el que caduca, quitándolo antes
+     * de la cubeta en la que estuviera. Si no está activo o no está en un
+     * repositorio, no se añade.
+     *
+     * @param s El socio.
+     */
+    public synchronized void programar(Socio s){
+        cancelar(s);
+        if(s.getEstaActivo() && s.getId() != -1){
+            añadir(s, diaCaducidad(s.getFechaUltimoAcceso()).toEpochDay());
+        }
+    }
+
+    /**
+     * Quita un socio de la cubeta en la que está, por ejemplo al darlo de
+     * baja. La cubeta es la del día con el que se programó, aunque su fecha
+     * de último acceso haya cambiado después.
+     *
+     * @param s El socio.
+     */
+    public synchronized void cancelar(Socio s){
+        Long dia = programados.remove(s);
+
+        if(dia != null){
+            Set <Socio> cubeta = dias.get(dia);
+            if(cubeta.remove(s) && cubeta.isEmpty()){
+                dias.remove(dia);
+            }
+        }
+    }
+
+    private void añadir(Socio s, long dia){
+        dias.computeIfAbsent(dia, d -> Collections.newSetFromMap(new IdentityHashMap<>())).add(s);
+        programados.put(s, dia);
+    }
+
+    /**
+     * Registra el acceso de un socio y lo pasa a la cubeta del día en el que
+     * caduca con la nueva fecha. Si el socio ya no está en un repositorio, por
+     * ejemplo porque otro puesto lo acaba de dar de baja, no se registra.
+     *
+     * @param s El socio.
+     * @param fecha La fecha del acceso.
+     * @return {@code true} si se ha registrado el acceso, {@code false} si el
+     * socio no está en un repositorio.
+     */
+    public synchronized boolean registrarAcceso(Socio s, LocalDate fecha){
+        boolean registrado = s.getId() != -1;
+
+        if(registrado){
+            s.registrarAcceso(fecha);
+            programar(s);
+        }
+
+        return registrado;
+    }
+
+    /**
+     * Inactiva a los socios de las cubetas de los días que ya han llegado,
+     * después de crear los socios pendientes del repositorio que han
+     * caducado.
+     *
+     * @return El número de socios inactivados.
+     */
+    public int revisar(){
+        LocalDate dia = LocalDate.now(reloj);
+        RepositorioPersonas r = repositorio;
+
+        if(r != null){
+            r.crearCaducados(dia);
+        }
+        return revisar(dia.toEpochDay());
+    }
+
+    private synchronized int revisar(long hoy){
+        int inactivados = 0;
+
+        while(!dias.isEmpty() && dias.firstKey() <= hoy){
+            Map.Entry<Long, Set<Socio>> cubeta = dias.pollFirstEntry();
+
+            for(Socio s : cubeta.getValue()){
+                programados.remove(s);
+                if(s.getEstaActivo()){
+                    long dia = diaCaducidad(s.getFechaUltimoAcceso()).toEpochDay();
+
+                    if(dia <= hoy){
+                        s.setEstaActivo(false);
+                        inactivados++;
+                    }else{
+                        añadir(s, dia);
+                    }
+                }
+            }
+        }
+
+        return inactivados;
+    }
+
+    /**
+     * Devuelve el número de socios pendientes de caducar, sin contar los
+     * socios pendientes de crear de un repositorio.
+     *
+     * @return El número de socios en las cubetas.
+     */
+    public synchronized int size(){
+        return programados.size();
+    }
+
+    /**
+     * Arranca el hilo que revisa las caducidades ahora y cada día a
+     * medianoche. Si ya estaba arrancado, no hace nada.
+     */
+    public synchronized void iniciar(){
+        if(planificador == null){
+            planificador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "caducidad-socios");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            planificador.execute(this::revisarYProgramar);
+        }
+    }
+
+    /**
+     * Detiene el hilo de revisión.
+     */
+    public synchronized void detener(){
+        if(planificador != null){
+            planificador.shutdownNow();
+            planificador = null;
+        }
+    }
+
+    /**
+     * Revisa las caducidades y programa la siguiente revisión para la próxima
+     * medianoche. Se programa cada vez en lugar de cada 24 horas para seguir
+     * los cambios de hora.
+     */
+    private void revisarYProgramar(){
+        revisar();
+
+        LocalDateTime ahora = LocalDateTime.now(reloj);
+        long espera = Duration.between(ahora, ahora.toLocalDate().plusDays(1).atStartOfDay()).toMillis();
+
+        synchronized(this){
+            if(planificador != null){
+                planificador.schedule(this::revisarYProgramar, Math.max(1, espera), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Devuelve el primer día en el que ha pasado un mes desde el último
+     * acceso, contando los meses igual que {@link ChronoUnit#MONTHS}. Si el
+     * último acceso es el 31 de enero, el mes no pasa hasta el 1 de marzo.
+     *
+     * @param ultimoAcceso La fecha del último acceso.
+     * @return El día en el que el socio deja de estar activo.
+     */
+    public static LocalDate diaCaducidad(LocalDate ultimoAcceso){
+        LocalDate dia = ultimoAcceso.plusMonths(1);
+
+        while(ChronoUnit.MONTHS.between(ultimoAcceso, dia) < 1){
+            dia = dia.plusDays(1);
+        }
+
+        return dia;
+    }
+
+    /**
+     * Devuelve el último día de acceso con el que un socio ya ha caducado el
+     * día indicado. Como el día de caducidad nunca es anterior para un acceso
+     * posterior, un socio ha caducado si y solo si su último acceso es igual o
+     * anterior al día devuelto, lo que permite revisar muchos socios
+     * comparando solo fechas.
+     *
+     * @param hoy El día con el que se compara.
+     * @return El último día de acceso que ha caducado ese día.
+     */
+    public static LocalDate ultimoAccesoCaducado(LocalDate hoy){
+        LocalDate dia = hoy.minusMonths(1);
+
+        while(diaCaducidad(dia).isAfter(hoy)){
+            dia = dia.minusDays(1);
+        }
+        while(!diaCaducidad(dia.plusDays(1)).isAfter(hoy)){
+            dia = dia.plusDays(1);
+        }
+
+        return dia;
+    }
+}
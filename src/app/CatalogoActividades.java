@@ -0,0 +1,472 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import utils.IndiceNombres;
+
+/**
+ * Esta clase representa el catálogo de actividades del gimnasio. La
+ * representación de la clase usa los atributos <code>actividades</code>,
+ * <code>posiciones</code>, <code>indiceNombres</code>,
+ * <code>particiones</code>, <code>observadores</code> y <code>bloqueo</code>.
+ *
+ * Las actividades se guardan en el orden en el que se añaden, que es el orden
+ * en el que se muestran numeradas por pantalla. Además, cada actividad está
+ * indexada por su clave (nombre, duración y categoría, la misma que usa
+ * {@link Actividad#equals(Object)}) junto con su posición, de forma que
+ * comprobar si una actividad ya existe o saber en qué posición está se
+ * resuelve en tiempo constante. El catálogo no admite actividades repetidas.
+ *
+ * <p>Las posiciones cambian al eliminar actividades, así que para guardar una
+ * referencia a una actividad se usa su identificador (ver
+ * {@link Actividad#getId()}), que no cambia mientras la actividad esté en el
+ * catálogo. Buscar una actividad por su identificador lee una casilla de un
+ * array.</p>
+ *
+ * <p>Las actividades también están repartidas por categoría. Cada partición
+ * guarda sus actividades ordenadas por valoración y solo se vuelve a ordenar
+ * cuando alguna de sus actividades recibe un voto o cambia la partición, por
+ * lo que listar una categoría solo trata las actividades de esa
+ * categoría.</p>
+ *
+ * <p>Si se modifica el nombre, la duración o la categoría de una actividad del
+ * catálogo, la propia actividad avisa al catálogo para que actualice sus
+ * índices.</p>
+ *
+ * <p>Las clases que necesitan seguir los cambios del catálogo, como las
+ * clasificaciones de actividades, se registran como
+ * {@link ObservadorCatalogo} y son avisadas al añadir o eliminar actividades y
+ * cuando una actividad recibe un voto.</p>
+ *
+ * <p>El catálogo se puede usar desde varios hilos. Los cambios se hacen con el
+ * bloqueo de escritura de un {@link StampedLock}, y los avisos a los
+ * observadores también, por lo que llegan de uno en uno y en orden. Los
+ * listados copian las actividades con una lectura optimista, sin bloquear, y
+ * solo si un cambio coincide con la copia la repiten con el bloqueo de
+ * lectura.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class CatalogoActividades implements Iterable<Actividad>{
+    private ArrayList <Actividad> actividades;
+    private HashMap <Actividad, Integer> posiciones;
+    private IndiceNombres <Actividad> indiceNombres;
+    private EnumMap <Especialidad, Particion> particiones;
+    private ArrayList <ObservadorCatalogo> observadores;
+    private final StampedLock bloqueo;
+
+    /**
+     * Crea un catálogo vacío.
+     */
+    public CatalogoActividades(){
+        this.actividades = new ArrayList<>();
+        this.posiciones = new HashMap<>();
+        this.indiceNombres = new IndiceNombres<>();
+        this.particiones = new EnumMap<>(Especialidad.class);
+        this.observadores = new ArrayList<>();
+        this.bloqueo = new StampedLock();
+        
+        for(Especialidad e : Especialidad.values()){
+            particiones.put(e, new Particion());
+        }
+    }
+
+    /**
+     * Añade una actividad al final del catálogo si no existe ya otra actividad
+     * igual.
+     *
+     * @param a La actividad que se quiere añadir.
+     * @return {@code true} si la actividad se ha añadido, {@code false} si ya
+     * existía una actividad igual o la actividad pertenece a otro catálogo.
+     */
+    public boolean añadir(Actividad a){
+        boolean esAñadida = false;
+        long stamp = bloqueo.writeLock();
+
+        try{
+            if(a.catalogo == null && !posiciones.containsKey(a)){
+                a.entrarCatalogo(this);
+                actividades.add(a);
+                posiciones.put(a, actividades.size()-1);
+                indiceNombres.añadir(a.getNombreNormalizado(), a);
+                particiones.get(a.getCategoria()).añadir(a);
+                esAñadida = true;
+            
+                for(ObservadorCatalogo observador : observadores){
+                    observador.actividadAñadida(a);
+                }
+            }
+        }finally{
+            bloqueo.unlockWrite(stamp);
+        }
+
+        return esAñadida;
+    }
+
+    /**
+     * Elimina la actividad que ocupa la posición indicada. Las posiciones de
+     * las actividades posteriores se desplazan una posición.
+     *
+     * @param posicion La posición de la actividad en el catálogo.
+     * @return La actividad eliminada.
+     */
+    public Actividad eliminar(int posicion){
+        long stamp = bloqueo.writeLock();
+
+        try{
+            return quitar(posicion);
+        }finally{
+            bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Elimina la actividad indicada si pertenece al catálogo. Las posiciones
+     * de las actividades posteriores se desplazan una posición.
+     *
+     * @param a La actividad que se quiere eliminar.
+     * @return {@code true} si se ha eliminado, {@code false} si no pertenecía
+     * al catálogo.
+     */
+    public boolean eliminar(Actividad a){
+        boolean eliminada = false;
+        long stamp = bloqueo.writeLock();
+
+        try{
+            if(a.catalogo == this){
+                quitar(posiciones.get(a));
+                eliminada = true;
+            }
+        }finally{
+            bloqueo.unlockWrite(stamp);
+        }
+
+        return eliminada;
+    }
+
+    /**
+     * Quita la actividad de una posición de la lista y de los índices y avisa
+     * a los observadores. Se llama con el bloqueo de escritura.
+     */
+    private Actividad quitar(int posicion){
+        Actividad a = actividades.remove(posicion);
+        posiciones.remove(a);
+        indiceNombres.eliminar(a.getNombreNormalizado(), a);
+        particiones.get(a.getCategoria()).eliminar(a);
+        a.salirCatalogo();
+
+        for(int i = posicion; i < actividades.size(); i++){
+            posiciones.put(actividades.get(i), i);
+        }
+    
+        for(ObservadorCatalogo observador : observadores){
+            observador.actividadEliminada(a);
+        }
+
+        return a;
+    }
+
+    /**
+     * Devuelve la actividad que ocupa la posición indicada.
+     *
+     * @param posicion La posición de la actividad en el catálogo.
+     * @return La actividad de esa posición.
+     */
+    public Actividad get(int posicion){
+        long stamp = bloqueo.readLock();
+        try{
+            return actividades.get(posicion);
+        }finally{
+            bloqueo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Devuelve la actividad del catálogo con el identificador indicado.
+     *
+     * @param id El identificador de la actividad.
+     * @return La actividad, o null si no hay ninguna actividad del catálogo con
+     * ese identificador.
+     */
+    public Actividad porId(int id){
+        long stamp = bloqueo.readLock();
+        try{
+            Actividad a = Actividad.porId(id);
+            return a != null && a.catalogo == this ? a : null;
+        }finally{
+            bloqueo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Devuelve la posición de la actividad igual a la indicada.
+     *
+     * @param a La actividad que se busca.
+     * @return La posición de la actividad o -1 si no está en el catálogo.
+     */
+    public int posicion(Actividad a){
+        long stamp = bloqueo.readLock();
+        try{
+            Integer posicion = posiciones.get(a);
+
+            return posicion == null ? -1 : posicion;
+        }finally{
+            bloqueo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Indica si existe en el catálogo una actividad igual a la indicada.
+     *
+     * @param a La actividad que se busca.
+     * @return {@code true} si existe, {@code false} en caso contrario.
+     */
+    public boolean contiene(Actividad a){
+        return posicion(a) != -1;
+    }
+
+    /**
+     * Devuelve el número de actividades del catálogo.
+     *
+     * @return El número de actividades.
+     */
+    public int size(){
+        long stamp = bloqueo.tryOptimisticRead();
+        int size = actividades.size();
+
+        if(!bloqueo.validate(stamp)){
+            stamp = bloqueo.readLock();
+            try{
+                size = actividades.size();
+            }finally{
+                bloqueo.unlockRead(stamp);
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Indica si el catálogo no tiene actividades.
+     *
+     * @return {@code true} si no hay actividades, {@code false} en caso
+     * contrario.
+     */
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    /**
+     * Devuelve una copia de las actividades en el orden del catálogo.
+     *
+     * @return Una lista de solo lectura con las actividades del catálogo.
+     */
+    public List<Actividad> getLista(){
+        return Collections.unmodifiableList(copiar(actividades));
+    }
+
+    /**
+     * Devuelve las actividades de una categoría ordenadas de mayor a menor
+     * valoración.
+     *
+     * Solo se tratan las actividades de la categoría indicada, y solo se
+     * ordenan si alguna ha cambiado desde la última vez que se pidieron.
+     *
+     * @param categoria La categoría de las actividades.
+     * @return Una lista de solo lectura con las actividades de la categoría.
+     */
+    public List<Actividad> getActividadesCategoria(Especialidad categoria){
+        Particion particion = particiones.get(categoria);
+        long stamp = bloqueo.tryOptimisticRead();
+        ArrayList <Actividad> lista = particion.ordenada ? copiar(particion.actividades) : null;
+
+        if(lista == null || !bloqueo.validate(stamp)){
+            stamp = bloqueo.writeLock();
+            try{
+                lista = new ArrayList<>(particion.getClasificacion());
+            }finally{
+                bloqueo.unlockWrite(stamp);
+            }
+        }
+
+        return Collections.unmodifiableList(lista);
+    }
+
+    /**
+     * Busca las actividades cuyo nombre normalizado coincide con el indicado.
+     *
+     * @param nombreNormalizado El nombre normalizado que se busca.
+     * @return Una lista nueva con las actividades que coinciden.
+     */
+    public ArrayList<Actividad> buscarNombre(String nombreNormalizado){
+        long stamp = bloqueo.readLock();
+        try{
+            return indiceNombres.buscar(nombreNormalizado);
+        }finally{
+            bloqueo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copia una lista del catálogo con una lectura optimista y, si un cambio
+     * coincide con la copia, la repite con el bloqueo de lectura.
+     */
+    private ArrayList<Actividad> copiar(ArrayList<Actividad> lista){
+        long stamp = bloqueo.tryOptimisticRead();
+        Object[] elementos = lista.toArray();
+
+        if(!bloqueo.validate(stamp)){
+            stamp = bloqueo.readLock();
+            try{
+                elementos = lista.toArray();
+            }finally{
+                bloqueo.unlockRead(stamp);
+            }
+        }
+
+        ArrayList <Actividad> copia = new ArrayList<>(elementos.length);
+        for(Object elemento : elementos){
+            copia.add((Actividad) elemento);
+        }
+        return copia;
+    }
+
+    /**
+     * Registra un observador que será avisado de los cambios del catálogo. Al
+     * registrarse, el observador recibe como añadidas las actividades que ya
+     * tiene el catálogo, en su orden. El registro y ese primer aviso se hacen
+     * con el bloqueo de escritura, por lo que el observador no se pierde
+     * ninguna actividad añadida ni ningún voto registrado mientras tanto.
+     *
+     * @param observador El observador que se quiere registrar.
+     */
+    public void añadirObservador(ObservadorCatalogo observador){
+        long stamp = bloqueo.writeLock();
+        try{
+            observadores.add(observador);
+            for(Actividad a : actividades){
+                observador.actividadAñadida(a);
+            }
+        }finally{
+            bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<Actividad> iterator(){
+        return getLista().iterator();
+    }
+
+    /**
+     * Cambia el nombre, la duración o la categoría de una actividad del
+     * catálogo. Con el bloqueo de escritura, la actividad se quita del índice
+     * de claves, se aplica el cambio y se vuelve a añadir, en la partición de
+     * su nueva categoría si ha cambiado. Si con la nueva clave la actividad es
+     * igual a otra del catálogo, el cambio se deshace antes de volver a
+     * añadirla. Como todo se hace con el bloqueo, ninguna consulta del
+     * catálogo ve la actividad a medio cambiar ni fuera del catálogo.
+     *
+     * @param a La actividad que cambia.
+     * @param cambio El cambio que se quiere aplicar.
+     * @param deshacer La operación que deja la actividad como estaba.
+     * @return {@code true} si la actividad pertenece al catálogo y se ha
+     * tratado el cambio, aplicado o deshecho, {@code false} si la actividad
+     * no pertenece al catálogo y no se ha aplicado el cambio.
+     */
+    boolean cambiarClave(Actividad a, Runnable cambio, Runnable deshacer){
+        boolean pertenece;
+        long stamp = bloqueo.writeLock();
+
+        try{
+            pertenece = a.catalogo == this;
+            if(pertenece){
+                indiceNombres.eliminar(a.getNombreNormalizado(), a);
+                particiones.get(a.getCategoria()).eliminar(a);
+                int posicion = posiciones.remove(a);
+
+                cambio.run();
+                if(posiciones.containsKey(a)){
+                    deshacer.run();
+                }
+
+                posiciones.put(a, posicion);
+                indiceNombres.añadir(a.getNombreNormalizado(), a);
+                particiones.get(a.getCategoria()).añadir(a);
+            }
+        }finally{
+            bloqueo.unlockWrite(stamp);
+        }
+
+        return pertenece;
+    }
+
+    /**
+     * Avisa al catálogo de que una de sus actividades ha recibido un voto,
+     * para que su partición se vuelva a ordenar la próxima vez que se pida y
+     * para avisar a los observadores.
+     *
+     * @param a La actividad que ha recibido el voto.
+     */
+    void votoRegistrado(Actividad a){
+        long stamp = bloqueo.writeLock();
+        try{
+            particiones.get(a.getCategoria()).ordenada = false;
+
+            for(ObservadorCatalogo observador : observadores){
+                observador.votoRegistrado(a);
+            }
+        }finally{
+            bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Las actividades de una categoría junto con su orden por valoración.
+     */
+    private static class Particion {
+        private ArrayList <Actividad> actividades = new ArrayList<>();
+        private boolean ordenada = true;
+
+        private void añadir(Actividad a){
+            actividades.add(a);
+            ordenada = false;
+        }
+
+        private void eliminar(Actividad a){
+            boolean eliminada = false;
+
+            for(int i = 0; i < actividades.size() && !eliminada; i++){
+                if(actividades.get(i) == a){
+                    actividades.remove(i);
+                    eliminada = true;
+                }
+            }
+        }
+
+        /**
+         * Devuelve las actividades ordenadas de mayor a menor valoración. Los
+         * votos pueden llegar mientras se ordena, ya que no se registran con
+         * el bloqueo del catálogo, por lo que se ordena con la valoración que
+         * tenía cada actividad al empezar.
+         */
+        private List<Actividad> getClasificacion(){
+            if(!ordenada){
+                IdentityHashMap <Actividad, Integer> valoraciones = new IdentityHashMap<>();
+                for(Actividad a : actividades){
+                    valoraciones.put(a, a.calcularValoracion());
+                }
+                Collections.sort(actividades, (a1, a2) -> valoraciones.get(a2) - valoraciones.get(a1));
+                ordenada = true;
+            }
+
+            return Collections.unmodifiableList(actividades);
+        }
+    }
+}
@@ -1,18 +1,40 @@
 package app;
 
 import estadisticas.*;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import persistencia.Diario;
+import persistencia.DiarioGimnasio;
+import persistencia.Instantanea;
+import servidor.ServidorTornos;
 import utils.*;
 
 public class GestionGimnasio {
-    private static ArrayList <Persona> listaPersonas = new ArrayList();
-    private static ArrayList <Actividad> listaActividad = new ArrayList();
+    private static RepositorioPersonas listaPersonas = new RepositorioPersonas();
+    private static CatalogoActividades listaActividad = new CatalogoActividades();
+    private static ClasificacionActividades clasificacionActividades = ClasificacionActividades.crear(listaActividad);
+    private static final int TAMAÑO_LOTE_IMPORTACION = 1000;
+    private static volatile DiarioGimnasio diario;
+    private static Path rutaDiario;
+    private static boolean diarioSinReproducir;
+    private static boolean instantaneaSinCargar;
+    private static Path rutaInstantanea;
+    private static long instantanea;
+    private static ServidorTornos servidorTornos;
+    private static CaducidadSocios caducidades = new CaducidadSocios();
     
     public static void main(String[] args) {
-        prueba();
+        cargarDatos();
+        abrirDiario();
+        caducidades.iniciar();
+        iniciarServidor();
         
         int menuPrincipal;
         do{
@@ -27,7 +49,236 @@ public class GestionGimnasio {
                 case 3 -> opcionesEstadisticas();
                 default -> System.out.println("Saliste de la aplicación");
             }
+            comprobarDiario();
         }while(menuPrincipal!=4);
+        
+        detenerServidor();
+        caducidades.detener();
+        cerrarDiario();
+        guardarInstantanea();
+    }
+    
+    /**
+     * Carga los datos del gimnasio desde la última instantánea o, si no hay
+     * ninguna, crea los datos de prueba.
+     *
+     * El fichero de la instantánea se indica con la propiedad del sistema
+     * {@code gimnasio.instantanea} (por defecto {@code gimnasio.snap}); si
+     * está vacía, no se usan instantáneas.
+     *
+     * Si la instantánea existe pero no se puede cargar, se descarta lo que se
+     * haya cargado de ella y se crean los datos de prueba. La instantánea y su
+     * diario se conservan sin cambios: en esta sesión no se usa el diario y al
+     * salir no se guarda la instantánea.
+     */
+    private static void cargarDatos(){
+        String fichero = System.getProperty("gimnasio.instantanea", "gimnasio.snap");
+        boolean cargada = false;
+        
+        if(!fichero.isBlank()){
+            rutaInstantanea = Path.of(fichero);
+            
+            if(Files.exists(rutaInstantanea)){
+                try{
+                    cargarInstantanea(Instantanea.abrir(rutaInstantanea));
+                    cargada = true;
+                }catch(IOException | RuntimeException e){
+                    String motivo = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                    System.out.println("No se pudo cargar la instantánea: " + motivo + ". Se conserva sin cambios junto con el diario, se usan los datos de prueba y los cambios de esta sesión no se guardarán.\n");
+                    instantaneaSinCargar = true;
+                    instantanea = 0;
+                    listaPersonas = new RepositorioPersonas();
+                    listaActividad = new CatalogoActividades();
+                    clasificacionActividades = ClasificacionActividades.crear(listaActividad);
+                    caducidades = new CaducidadSocios();
+                }
+            }
+        }
+        
+        if(!cargada){
+            prueba();
+        }
+    }
+    
+    /**
+     * Añade al gimnasio las actividades y las personas de una instantánea.
+     *
+     * Las actividades se añaden al catálogo, pero las personas se quedan en
+     * la instantánea como pendientes del repositorio (ver
+     * {@link RepositorioPersonas#cargarPendientes(OrigenPersonas, java.util.function.Consumer)}),
+     * que crea cada una la primera vez que se necesita y entonces se programa
+     * su caducidad. Las que caducan las crea la revisión de caducidades. Así
+     * el arranque no depende del número de personas.
+     *
+     * @param datos La instantánea.
+     */
+    private static void cargarInstantanea(Instantanea datos){
+        for(int i = 0; i < datos.numeroActividades(); i++){
+            listaActividad.añadir(datos.actividad(i));
+        }
+        
+        listaPersonas.cargarPendientes(datos, p -> {
+            if(p instanceof Socio){
+                caducidades.programar((Socio) p);
+            }
+        });
+        caducidades.setRepositorio(listaPersonas);
+        
+        instantanea = datos.getIdentificador();
+    }
+    
+    /**
+     * Guarda una instantánea de los datos del gimnasio y empieza un diario
+     * nuevo a partir de ella. El diario tiene que estar cerrado.
+     *
+     * Si al arrancar no se pudo reproducir el diario, no se guarda la
+     * instantánea: la nueva instantánea no tendría las operaciones del diario
+     * y, al no empezar el diario por ella, el diario se descartaría en el
+     * siguiente arranque. Así se conservan la instantánea y el diario
+     * anteriores sin cambios. Tampoco se guarda si al arrancar no se pudo
+     * cargar la instantánea, para no sustituirla por los datos de prueba.
+     */
+    private static void guardarInstantanea(){
+        if(rutaInstantanea != null && instantaneaSinCargar){
+            System.out.println("No se guarda la instantánea para no sustituir la que no se pudo cargar al arrancar.");
+        }else if(rutaInstantanea != null && diarioSinReproducir){
+            System.out.println("No se guarda la instantánea para no perder el diario, que no se pudo reproducir al arrancar.");
+        }else if(rutaInstantanea != null){
+            long identificador;
+            do{
+                identificador = ThreadLocalRandom.current().nextLong();
+            }while(identificador == 0);
+            
+            try{
+                Instantanea.escribir(rutaInstantanea, identificador, listaActividad, listaPersonas.listar());
+                instantanea = identificador;
+                
+                if(rutaDiario != null){
+                    try(DiarioGimnasio nuevo = new DiarioGimnasio(new Diario(rutaDiario, 0, 1, 1))){
+                        nuevo.instantanea(identificador);
+                    }
+                }
+            }catch(IOException e){
+                System.out.println("No se pudo guardar la instantánea: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Vuelve a aplicar las operaciones guardadas en el diario del gimnasio y lo
+     * abre para registrar las siguientes.
+     *
+     * El fichero del diario se indica con la propiedad del sistema
+     * {@code gimnasio.diario} (por defecto {@code gimnasio.wal}); si está
+     * vacía, no se usa diario. Las propiedades
+     * {@code gimnasio.diario.fsync.registros} y
+     * {@code gimnasio.diario.fsync.ms} indican cada cuántos registros o
+     * milisegundos se fuerzan los datos al disco (ver {@link Diario}).
+     *
+     * Si el diario no se puede leer, no se abre ni se modifica, para no
+     * perder las operaciones que no se han aplicado, y en esta sesión no se
+     * registran las operaciones. Tampoco se usa si no se pudo cargar la
+     * instantánea, ya que sus operaciones se aplican sobre ella.
+     */
+    private static void abrirDiario(){
+        String fichero = System.getProperty("gimnasio.diario", "gimnasio.wal");
+        
+        if(!fichero.isBlank() && !instantaneaSinCargar){
+            Path ruta = Path.of(fichero);
+            long longitudValida = 0;
+            
+            try{
+                longitudValida = DiarioGimnasio.reproducir(ruta, instantanea, new ReproduccionDiario());
+            }catch(IOException | RuntimeException e){
+                diarioSinReproducir = true;
+                System.out.println("No se pudo reproducir el diario: " + e.getMessage() + ". Se conserva sin cambios y las operaciones de esta sesión no se guardarán.\n");
+            }
+            
+            if(!diarioSinReproducir){
+                try{
+                    int registros = Integer.getInteger("gimnasio.diario.fsync.registros", 64);
+                    long milisegundos = Long.getLong("gimnasio.diario.fsync.ms", 50);
+
+                    diario = new DiarioGimnasio(new Diario(ruta, longitudValida, registros, milisegundos));
+                    rutaDiario = ruta;
+                    if(longitudValida == 0 && instantanea != 0){
+                        diario.instantanea(instantanea);
+                    }
+                    Runtime.getRuntime().addShutdownHook(new Thread(GestionGimnasio::interrumpir));
+                }catch(IOException | RuntimeException e){
+                    System.out.println("No se pudo abrir el diario: " + e.getMessage() + "\n");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Arranca el servidor de los tornos si se indica su puerto con la
+     * propiedad del sistema {@code gimnasio.http.puerto}. Por defecto no se
+     * arranca.
+     */
+    private static void iniciarServidor(){
+        String puerto = System.getProperty("gimnasio.http.puerto", "");
+        
+        if(!puerto.isBlank()){
+            try{
+                servidorTornos = new ServidorTornos(new InetSocketAddress(Integer.parseInt(puerto.trim())), listaPersonas, GestionGimnasio::registrarAcceso);
+                servidorTornos.iniciar();
+                System.out.println("Servidor de los tornos en el puerto " + servidorTornos.getPuerto() + "\n");
+            }catch(IOException | RuntimeException e){
+                System.out.println("No se pudo arrancar el servidor de los tornos: " + e.getMessage() + "\n");
+                servidorTornos = null;
+            }
+        }
+    }
+    
+    /**
+     * Detiene el servidor de los tornos, si está arrancado.
+     */
+    private static synchronized void detenerServidor(){
+        if(servidorTornos != null){
+            servidorTornos.detener();
+            servidorTornos = null;
+        }
+    }
+    
+    /**
+     * Se ejecuta si la aplicación termina sin salir desde el menú. Detiene el
+     * servidor de los tornos antes de cerrar el diario, para que no lleguen
+     * accesos que ya no se podrían registrar.
+     */
+    private static void interrumpir(){
+        detenerServidor();
+        cerrarDiario();
+    }
+    
+    /**
+     * Comprueba si el diario ha dejado de escribirse, por ejemplo porque el
+     * disco está lleno. En ese caso avisa una sola vez y deja de usarlo: las
+     * operaciones siguientes ya no se registran, pero los datos siguen en
+     * memoria y se guardan en la instantánea al salir.
+     */
+    private static void comprobarDiario(){
+        DiarioGimnasio d = diario;
+        
+        if(d != null && d.getError() != null){
+            cerrarDiario();
+            System.out.println("Las operaciones ya no se guardan en el diario. Se guardarán al salir de la aplicación, pero se perderán si se interrumpe.\n");
+        }
+    }
+    
+    /**
+     * Escribe las operaciones pendientes del diario y lo cierra.
+     */
+    private static synchronized void cerrarDiario(){
+        if(diario != null){
+            try{
+                diario.close();
+            }catch(IOException e){
+                System.out.println("No se pudo escribir el diario: " + e.getMessage());
+            }
+            diario = null;
+        }
     }
     
     /**
@@ -41,13 +292,17 @@ public class GestionGimnasio {
         System.out.println("3. Gestionar socios.");
         System.out.println("4. Gestionar monitores.");
         System.out.println("5. Inactivar socios automáticamente.");
-        int submenuOpcionUno = LeerDatosTeclado.leerInt("Elige una opción: [1-5]", 1, 5);
+        System.out.println("6. Importar personas desde un fichero CSV.");
+        System.out.println("7. Mantenimiento de todos los socios.");
+        int submenuOpcionUno = LeerDatosTeclado.leerInt("Elige una opción: [1-7]", 1, 7);
         switch (submenuOpcionUno) {
             case 1 -> altaPersonas();
             case 2 -> bajaPersonas();
             case 3 -> gestionarSocios();
             case 4 -> gestionarMonitores();
             case 5 -> inactivarSociosAutomaticamente();
+            case 6 -> importarPersonas();
+            case 7 -> mantenimientoSocios();
         }
     }
     
@@ -77,13 +332,17 @@ public class GestionGimnasio {
         System.out.println("3. Listar las n mejores actividades por categoría.");
         System.out.println("4. Listar las n mejores actividades por cantidad de kcal.");
         System.out.println("5. Listar los n mejores monitores.");
-        int submenuOpcionTres = LeerDatosTeclado.leerInt("Elige una opción: [1-5]", 1, 5);
+        System.out.println("6. Listar las actividades con más socios inscritos.");
+        System.out.println("7. Resumen de facturación.");
+        int submenuOpcionTres = LeerDatosTeclado.leerInt("Elige una opción: [1-7]", 1, 7);
         switch (submenuOpcionTres) {
             case 1 -> listaPersonas();
             case 2 -> listaMejoresActividades();
             case 3 -> listaActividadesCategoria();
             case 4 -> listaActividadesKcal();
             case 5 -> listaMejoresMonitores();
+            case 6 -> listaActividadesInscritos();
+            case 7 -> resumenFacturacion();
         }
     }
 
@@ -91,38 +350,37 @@ public class GestionGimnasio {
      * Da de alta a una nueva persona en el sistema, ya sea socio, socio
      * premium o monitor.
      * 
-     * <p>Primero se determina el tipo de persona a registrar y se filtra la lista
-     * de personas según corresponda. Luego, se solicita y valida el DNI para
-     * evitar duplicados. A continuación, se recopilan los datos personales
-     * comunes (nombre, dirección, etc.).</p>
+     * <p>Primero se determina el tipo de persona a registrar. Luego, se solicita
+     * y valida el DNI, comprobando en el repositorio que no exista otra
+     * persona del mismo tipo con ese DNI. A continuación, se recopilan los
+     * datos personales comunes (nombre, dirección, etc.).</p>
      * 
      * <p>Dependiendo del tipo de persona seleccionado, se instancia un objeto de
-     * tipo {@code Socio}, {@code SocioPremium} o {@code Monitor}, y se añade a
-     * la lista global {@code listaPersonas}.</p>
+     * tipo {@code Socio}, {@code SocioPremium} o {@code Monitor}, y se añade al
+     * repositorio {@code listaPersonas}. Si desde otro puesto se ha dado de
+     * alta mientras tanto a otra persona del mismo tipo con el mismo DNI, no
+     * se añade.</p>
      * 
      * En el caso de los monitores, también se solicita y registra el sueldo.
      */
     private static void altaPersonas(){
         Persona p;
-        ArrayList lista;
         
         String tipoPersona = InicializarDatos.inicializarTipoPersona();
         
         String nombre = InicializarDatos.inicializarNombre();
         
-        if(tipoPersona.equals("SOCIO") || tipoPersona.equals("SOCIOPREMIUM")){
-            lista = InicializarDatos.filtrarPersonas(listaPersonas, false);
-        }else{
-            lista = InicializarDatos.filtrarPersonas(listaPersonas, true);
-        }
+        boolean esMonitor = tipoPersona.equals("MONITOR");
         
         String DNI;
+        boolean existe;
         do{
             DNI = InicializarDatos.inicializarDNI();
-            if(ValidarDatos.comprobarExistenciaNif(lista, DNI) != -1){
+            existe = listaPersonas.existe(DNI, esMonitor);
+            if(existe){
                 System.out.println("El DNI ya lo tiene otra persona.");
             }
-        }while(ValidarDatos.comprobarExistenciaNif(lista, DNI) != -1);
+        }while(existe);
         
         String direccion = InicializarDatos.inicializarDireccion();
         String localidad = InicializarDatos.inicializarGeneral("Introduce la localidad: ");
@@ -134,15 +392,112 @@ public class GestionGimnasio {
         
         if(tipoPersona.equals("SOCIO")){
             p = new Socio(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento);
-            listaPersonas.add(p);
         }else if(tipoPersona.equals("MONITOR")){
             double sueldo = InicializarDatos.inicializarSueldo();
             p = new Monitor(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, sueldo);
-            listaPersonas.add(p);
         }else{
             p = new SocioPremium(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento);
-            listaPersonas.add(p);
         }
+        
+        if(!añadirPersona(p)){
+            System.out.println("El DNI ya lo tiene otra persona.\n");
+        }
+    }
+    
+    /**
+     * Añade una persona al repositorio si no existe otra del mismo tipo con su
+     * DNI. Si es un socio, se programa su caducidad.
+     *
+     * @param p La persona que se quiere añadir.
+     * @return {@code true} si se ha añadido, {@code false} si el DNI ya lo
+     * tenía otra persona del mismo tipo.
+     */
+    private static boolean añadirPersona(Persona p){
+        boolean añadida = listaPersonas.añadir(p);
+        
+        if(añadida && p instanceof Socio){
+            caducidades.programar((Socio) p);
+        }
+        if(añadida && diario != null){
+            diario.alta(p);
+        }
+        
+        return añadida;
+    }
+    
+    /**
+     * Da de alta un lote de personas.
+     *
+     * @param lote Las personas que se quieren añadir.
+     * @return Las personas que no se han añadido porque, mientras tanto, otro
+     * puesto ha dado de alta a otra persona del mismo tipo con su DNI.
+     */
+    private static ArrayList<Persona> añadirLote(ArrayList<Persona> lote){
+        ArrayList <Persona> rechazadas = new ArrayList<>();
+        
+        for(Persona p : lote){
+            if(!añadirPersona(p)){
+                rechazadas.add(p);
+            }
+        }
+        
+        return rechazadas;
+    }
+    
+    /**
+     * Importa socios, socios premium y monitores desde un fichero CSV.
+     *
+     * Se pide la ruta del fichero y las líneas que no se pueden importar se
+     * escriben en un fichero con el mismo nombre terminado en
+     * {@code .rechazos.csv}. Al terminar se muestra un resumen de la
+     * importación. El formato del fichero se describe en
+     * {@link ImportadorPersonas}.
+     */
+    private static void importarPersonas(){
+        Path origen = Path.of(LeerDatosTeclado.leerString("Introduce la ruta del fichero CSV: "));
+        Path rechazos = Path.of(origen + ".rechazos.csv");
+        
+        if(!Files.isRegularFile(origen)){
+            System.out.println("El fichero no existe.\n");
+        }else{
+            try{
+                ImportadorPersonas importador = new ImportadorPersonas(listaPersonas, GestionGimnasio::añadirLote, TAMAÑO_LOTE_IMPORTACION);
+                ImportadorPersonas.ResultadoImportacion resultado = importador.importar(origen, rechazos);
+                
+                System.out.println("Lineas leidas: " + resultado.getLeidas());
+                System.out.println("Personas importadas: " + resultado.getImportadas());
+                System.out.println("Lineas rechazadas: " + resultado.getRechazadas() + (resultado.getRechazadas() > 0 ? " (ver " + rechazos + ")" : ""));
+                System.out.printf("Tiempo: %d ms (%.0f lineas/s)%n%n", resultado.getMilisegundos(), resultado.getFilasPorSegundo());
+            }catch(IOException e){
+                System.out.println("No se pudo importar el fichero: " + e.getMessage() + "\n");
+            }
+        }
+    }
+    
+    /**
+     * Elimina una persona del repositorio. Si es un socio, deja de estar
+     * inscrito en sus actividades. Si otro puesto ya la ha dado de baja, no se
+     * hace nada.
+     *
+     * @param p La persona que se quiere eliminar.
+     * @return {@code true} si se ha eliminado, {@code false} si ya no estaba en
+     * el repositorio.
+     */
+    private static boolean eliminarPersona(Persona p){
+        boolean eliminada = listaPersonas.eliminar(p);
+        
+        if(eliminada){
+            if(p instanceof Socio){
+                ((Socio) p).abandonarActividades();
+                caducidades.cancelar((Socio) p);
+            }
+            
+            if(diario != null){
+                diario.baja(p);
+            }
+        }
+        
+        return eliminada;
     }
     
     /**
@@ -154,17 +509,17 @@ public class GestionGimnasio {
      * {@code listaPersonas}.</p>
      *
      * Si se encuentra una coincidencia, se procede a confirmar su baja mediante
-     * el método confirmarBaja(int posicion). Si el DNI no existe, se
+     * el método confirmarBaja(Persona persona). Si el DNI no existe, se
      * informa al usuario y se vuelve a solicitar.
      */
     private static void bajaPersonas() {
         if(listaPersonas.isEmpty()){
             System.out.println("No hay personas.\n");
         }else{
-            int posicion = PosicionDatos.encontrarPersona(listaPersonas, false, "Introduce el DNI de la persona: ");
+            Persona persona = PosicionDatos.encontrarPersona(listaPersonas, true, true, "Introduce el DNI de la persona: ");
             
-            if (posicion != -1) {
-                confirmarBaja(posicion);
+            if (persona != null) {
+                confirmarBaja(persona);
             } else {
                 System.out.println("No existe el NIF");
             }
@@ -175,22 +530,24 @@ public class GestionGimnasio {
      * Confirma y ejecuta la baja de una persona de la lista de personas
      * registradas.
      *
-     * Se solicita confirmación al usuario antes de eliminar a la persona
-     * identificada por su posición en la lista {@code listaPersonas}. Si el
-     * usuario confirma, se elimina a la persona y se notifica el éxito de la
-     * operación. En caso contrario, se cancela la baja y se informa al usuario.
+     * Se solicita confirmación al usuario antes de eliminar a la persona del
+     * repositorio {@code listaPersonas}. Si el usuario confirma, se elimina a
+     * la persona y se notifica el éxito de la operación. En caso contrario, se
+     * cancela la baja y se informa al usuario.
      *
-     * @param posicion Posición de la persona en la lista {@code listaPersonas}
-     * que se desea eliminar.
+     * @param persona La persona que se desea eliminar.
      */
-    private static void confirmarBaja(int posicion) {
-        String nombre = listaPersonas.get(posicion).getNombre();
+    private static void confirmarBaja(Persona persona) {
+        String nombre = persona.getNombre();
 
         boolean decision = LeerDatosTeclado.leerConfirmacion("¿Seguro que quieres dar de baja a: " + nombre + "? (SI/NO)");
 
         if (decision) {
-            System.out.println("Diste de baja a: " + nombre);
-            listaPersonas.remove(posicion);
+            if(eliminarPersona(persona)){
+                System.out.println("Diste de baja a: " + nombre);
+            }else{
+                System.out.println("Ya se había dado de baja a: " + nombre);
+            }
         } else {
             System.out.println("No diste de baja a: " + nombre);
         }
@@ -202,25 +559,22 @@ public class GestionGimnasio {
      * de {@code listaActividades}, eliminarse de una actividad
      * y valorar actividades.
      *
-     * Primero se filtran los socios de la lista general de personas. Si existen
-     * socios, se solicita al usuario que introduzca el nombre o DNI para
-     * identificar al socio. Si se encuentra, se marca como activo, se actualiza
+     * Primero se comprueba en el repositorio si existen socios. Si existen,
+     * se solicita al usuario que introduzca el nombre o DNI para identificar al
+     * socio. Si se encuentra, se marca como activo, se actualiza
      * su fecha de último acceso y se muestra un submenú.
      */
     private static void gestionarSocios(){
-        ArrayList <Persona> listaSocios = InicializarDatos.filtrarPersonas(listaPersonas, false);
+        if(listaPersonas.numeroSocios() > 0){
+            Persona persona = PosicionDatos.encontrarPersona(listaPersonas, false, true, "Introduce el nombre o el DNI del socio: ");
 
-        if(!listaSocios.isEmpty()){
-            int posicion = PosicionDatos.encontrarPersona(listaSocios, false, "Introduce el nombre o el DNI del socio: ");
-
-            if (posicion != -1) {
+            if (persona != null) {
                 System.out.println();
-                System.out.println("Bienvenido al perfil de " + listaSocios.get(posicion).getNombre() + ".");
+                System.out.println("Bienvenido al perfil de " + persona.getNombre() + ".");
                 
-                boolean esPremium = listaSocios.get(posicion) instanceof SocioPremium;
-                Socio socio = (Socio) listaSocios.get(posicion);
-                socio.setFechaUltimoAcceso(LocalDate.now());
-                socio.setEstaActivo(true);
+                boolean esPremium = persona instanceof SocioPremium;
+                Socio socio = (Socio) persona;
+                registrarAcceso(socio);
                 
                 int opcionMenuSocios;
                 do {
@@ -243,6 +597,26 @@ public class GestionGimnasio {
         }
     }
     
+    /**
+     * Registra el acceso de un socio al gimnasio con la fecha de hoy y lo
+     * guarda en el diario. Se usa desde la consola y desde el servidor de los
+     * tornos. Si otro puesto ha dado de baja al socio, no se registra nada.
+     *
+     * @param socio El socio que accede.
+     * @return {@code true} si se ha registrado el acceso, {@code false} si el
+     * socio ya no está en el repositorio.
+     */
+    private static boolean registrarAcceso(Socio socio){
+        boolean registrado = caducidades.registrarAcceso(socio, LocalDate.now());
+        
+        DiarioGimnasio d = diario;
+        if(registrado && d != null){
+            d.acceso(socio);
+        }
+        
+        return registrado;
+    }
+    
     /**
      * Muestra el menú de gestión de actividades para un socio y solicita al
      * usuario que elija una opción.
@@ -290,12 +664,13 @@ public class GestionGimnasio {
      * actividades.
      */
     private static void actividadesSocio(Socio socio){
-        if(!socio.listaActividad.isEmpty()){
-            for (int i = 0; i < socio.listaActividad.size(); i++) {
+        ArrayList <Actividad> actividades = socio.copiarActividades();
+        if(!actividades.isEmpty()){
+            for (int i = 0; i < actividades.size(); i++) {
                 System.out.println("La actividad " + (i + 1) + " es:");
-                System.out.println(socio.listaActividad.get(i).getNombre());
-                System.out.println("Se queman: "+socio.listaActividad.get(i).getCalorias()+" kcal");
-                System.out.println("Es de la categoria: "+socio.listaActividad.get(i).getCategoria()+"\n");
+                System.out.println(actividades.get(i).getNombre());
+                System.out.println("Se queman: "+actividades.get(i).getCalorias()+" kcal");
+                System.out.println("Es de la categoria: "+actividades.get(i).getCategoria()+"\n");
             }
             System.out.println("La duración total de la lista es de " + socio.getDuracionActividades() + " minutos.\n");
         }else{
@@ -323,15 +698,19 @@ public class GestionGimnasio {
         }else{
             int numeroActividades = listaActividad.size();
 
-            mostrarActividades(listaActividad);
+            mostrarActividades(listaActividad.getLista());
 
             int actividadElegida = (LeerDatosTeclado.leerInt("Introduce una de las actividades de la lista: (1-" + numeroActividades + ")", 1, numeroActividades) - 1);
 
-            boolean añadida = socio.addActividad(listaActividad.get(actividadElegida));
+            Actividad actividad = listaActividad.get(actividadElegida);
+            boolean añadida = socio.addActividad(actividad);
 
             if (añadida) {
+                if(diario != null){
+                    diario.añadirActividad(socio, actividad);
+                }
                 System.out.println("La actividad se ha añadido");
-                System.out.println(listaActividad.get(actividadElegida)+"\n");
+                System.out.println(actividad+"\n");
             } else {
                 System.out.println("La actividad no se ha añadido\n");
             }
@@ -348,7 +727,7 @@ public class GestionGimnasio {
      *
      * @param lista La lista de actividades que se van a mostrar.
      */
-    private static void mostrarActividades(ArrayList <Actividad> lista) {
+    private static void mostrarActividades(List <Actividad> lista) {
         for(int i = 0; i < lista.size(); i++){
             if(lista.get(i).getEsPremium()){
                 System.out.println((i+1) + ". " + lista.get(i).getNombre()+", es premium");
@@ -369,13 +748,22 @@ public class GestionGimnasio {
      * seleccionada.
      */
     private static void eliminarActividad(Socio socio){
-        if(!socio.listaActividad.isEmpty()){
-            int numeroActividades = socio.listaActividad.size();
-            mostrarActividades(socio.listaActividad);
+        ArrayList <Actividad> actividades = socio.copiarActividades();
+        if(!actividades.isEmpty()){
+            int numeroActividades = actividades.size();
+            mostrarActividades(actividades);
             
             int actividadElegida = (LeerDatosTeclado.leerInt("Introduce una de las actividades de la lista: (1-" + numeroActividades + ")", 1, numeroActividades)-1);
             
-            socio.delActividad(socio.listaActividad.get(actividadElegida));
+            Actividad actividad = actividades.get(actividadElegida);
+            
+            if(socio.delActividad(actividad)){
+                if(diario != null){
+                    diario.eliminarActividad(socio, actividad);
+                }
+            }else{
+                System.out.println("La actividad ya no estaba en tu lista.\n");
+            }
         }else{
             System.out.println("No tienes ninguna actividad.\n");
         }
@@ -396,17 +784,22 @@ public class GestionGimnasio {
      * actividad seleccionada.
      */
     private static void valorarActividad(Socio socio){
-        if(!socio.listaActividad.isEmpty()){
-            int numeroActividades = socio.listaActividad.size();
+        ArrayList <Actividad> actividades = socio.copiarActividades();
+        if(!actividades.isEmpty()){
+            int numeroActividades = actividades.size();
             
-            mostrarActividades(socio.listaActividad);
+            mostrarActividades(actividades);
             
             int actividadElegida = (LeerDatosTeclado.leerInt("Introduce una de las actividades que quieres valorar: (1-" + numeroActividades + ")", 1, numeroActividades)-1);
             
             int voto = LeerDatosTeclado.leerInt("Introduce la nota que le quieres poner: (1-10)", 1, 10);
-            boolean votado = socio.listaActividad.get(actividadElegida).votar(voto);
+            Actividad actividad = actividades.get(actividadElegida);
+            boolean votado = actividad.votar(voto);
             
             if(votado){
+                if(diario != null){
+                    diario.votar(actividad, voto);
+                }
                 System.out.println("El voto se ha registrado\n");
             }else{
                 System.out.println("El voto no se pudo registrar\n");
@@ -422,19 +815,38 @@ public class GestionGimnasio {
      * Este método convierte a un socio en un socio premium, creando un
      * nuevo objeto {@code SocioPremium} basado en el socio actual. Luego, se
      * reemplaza el objeto {@code Socio} original en la lista de personas por el
-     * nuevo objeto {@code SocioPremium}, otorgando los beneficios
+     * nuevo objeto {@code SocioPremium} en el repositorio, otorgando los beneficios
      * correspondientes a la categoría premium.
      *
      * @param socio El objeto {@code Socio} que será convertido a
      * {@code SocioPremium}.
      */
     private static void convertirPremium(Socio socio){
-        SocioPremium socioPremium = new SocioPremium(socio);
+        hacerPremium(socio);
         
         System.out.println("Ahora eres socio premium\n");
+    }
+    
+    /**
+     * Sustituye un socio por un socio premium con sus mismos datos en el
+     * repositorio. El socio deja sus actividades.
+     *
+     * @param socio El socio que se convierte.
+     */
+    private static void hacerPremium(Socio socio){
+        SocioPremium socioPremium = new SocioPremium(socio);
         
-        listaPersonas.remove(socio);
-        listaPersonas.add(socioPremium);
+        if(listaPersonas.reemplazar(socio, socioPremium)){
+            socio.abandonarActividades();
+            caducidades.cancelar(socio);
+            caducidades.programar(socioPremium);
+            
+            if(diario != null){
+                diario.convertirPremium(socio);
+            }
+        }else{
+            socioPremium.abandonarActividades();
+        }
     }
     
     /**
@@ -447,18 +859,16 @@ public class GestionGimnasio {
      * registrados, se informa al usuario correspondiente.
      */
     private static void gestionarMonitores(){
-        ArrayList<Persona> listaMonitores = InicializarDatos.filtrarPersonas(listaPersonas, true);
-        
-        if(listaMonitores.isEmpty()){
+        if(listaPersonas.numeroMonitores() == 0){
             System.out.println("No hay monitores");
         }else{
-            int posicion = PosicionDatos.encontrarPersona(listaMonitores, true, "Introduce el nombre del monitor: ");
+            Persona persona = PosicionDatos.encontrarPersona(listaPersonas, true, false, "Introduce el nombre del monitor: ");
 
-            if (posicion != -1) {
+            if (persona != null) {
                 System.out.println();
-                System.out.println("Bienvenido al perfil de " + listaMonitores.get(posicion).getNombre() + ".");
+                System.out.println("Bienvenido al perfil de " + persona.getNombre() + ".");
 
-                Monitor monitor = (Monitor) listaMonitores.get(posicion);
+                Monitor monitor = (Monitor) persona;
 
                 menuMonitor(monitor);
             } else {
@@ -510,6 +920,10 @@ public class GestionGimnasio {
         double sueldo = InicializarDatos.inicializarSueldo();
         
         monitor.setSueldo(sueldo);
+        
+        if(diario != null){
+            diario.sueldo(monitor);
+        }
     }
     
     /**
@@ -543,6 +957,10 @@ public class GestionGimnasio {
                 case 2 -> { eliminarEspecialidad(elementosArray, arrayEspecialidad); }
                 default -> { System.out.println("Saliste al menu de especialidad.\n"); }
             }
+            
+            if(seleccion != 3 && diario != null){
+                diario.especialidades(monitor);
+            }
         } while(seleccion != 3);
     }
 
@@ -638,30 +1056,91 @@ public class GestionGimnasio {
     private static void realizarValoracion(Monitor monitor){
         boolean decision = LeerDatosTeclado.leerConfirmacion("¿Te gusta el monitor "+monitor.getNombre()+"? (SI/NO)");
         monitor.meGusta(decision);
+        
+        if(diario != null){
+            diario.meGusta(monitor, decision);
+        }
     }
     
     /**
      * Inactiva automáticamente a los socios que no han accedido en el último
      * mes.
      *
-     * Este método recorre la lista de socios y verifica si su última fecha de
-     * acceso es anterior a un mes respecto a la fecha actual. Si un socio no ha
-     * accedido en al menos un mes, se inactiva automáticamente estableciendo su
-     * estado de actividad a {@code false}.
+     * Los socios ya se inactivan en segundo plano cada medianoche (ver
+     * {@link CaducidadSocios}); este método adelanta la revisión y solo
+     * recorre los socios cuyo mes ya ha pasado, no la lista de socios.
      */
     private static void inactivarSociosAutomaticamente(){
-        ArrayList <Persona> listaSocios = InicializarDatos.filtrarPersonas(listaPersonas, false);
-        for(int i = 0; i < listaSocios.size(); i++){
-            Socio socio = (Socio) listaSocios.get(i);
-
-            if(socio.getEstaActivo()){
-                int mesInactivo = (int) ChronoUnit.MONTHS.between(socio.getFechaUltimoAcceso(), LocalDate.now());
-
-                if (mesInactivo >= 1) {
-                    socio.setEstaActivo(false);
-                }
-            }
+        int inactivados = caducidades.revisar();
+        System.out.println("Socios inactivados: " + inactivados);
+    }
+    
+    /**
+     * Ejecuta sobre todos los socios uno de los trabajos de mantenimiento de
+     * {@link BarridoSocios}: inactivar a los que llevan un mes sin acceder,
+     * recalcular las cuotas o volver a validar sus datos y actividades. También
+     * permite ver la ocupación del repositorio de personas.
+     *
+     * El barrido se reparte entre los núcleos del equipo. Mientras dura se
+     * muestra el avance y al terminar, los socios revisados y afectados, el
+     * tiempo y los socios revisados por segundo.
+     */
+    private static void mantenimientoSocios(){
+        System.out.println("1. Inactivar a los socios que llevan un mes sin acceder.");
+        System.out.println("2. Recalcular las cuotas.");
+        System.out.println("3. Validar los datos y las actividades.");
+        System.out.println("4. Ver la ocupación del repositorio de personas.");
+        int opcion = LeerDatosTeclado.leerInt("Elige una opción: [1-4]", 1, 4);
+        
+        if(opcion == 4){
+            ocupacionPersonas();
+        }else{
+            barridoSocios(opcion);
+        }
+    }
+    
+    /**
+     * Ejecuta el trabajo de mantenimiento elegido sobre todos los socios y
+     * muestra el resultado.
+     *
+     * @param opcion La opción elegida en el menú de mantenimiento (1-3).
+     */
+    private static void barridoSocios(int opcion){
+        BarridoSocios.Trabajo<ResultadoBarrido> trabajo = switch (opcion) {
+            case 1 -> BarridoSocios.inactivacion(LocalDate.now());
+            case 2 -> BarridoSocios.recalculoCuotas();
+            default -> BarridoSocios.validacion(listaActividad);
+        };
+        
+        long inicio = System.nanoTime();
+        ResultadoBarrido resultado = new BarridoSocios().ejecutar(listaPersonas, trabajo,
+                (recorridas, total) -> System.out.println("Recorridas " + recorridas + " de " + total + " personas (" + recorridas * 100 / total + " %)"));
+        long milisegundos = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        
+        System.out.println("Socios revisados: " + resultado.getRevisados() + ", afectados: " + resultado.getAfectados());
+        for(String detalle : resultado.getDetalles()){
+            System.out.println("  " + detalle);
+        }
+        if(opcion == 2){
+            System.out.printf("Minutos: %d, cuotas: %.2f euros%n", resultado.getMinutos(), resultado.getImporte());
         }
+        System.out.println("Tiempo: " + milisegundos + " ms (" + resultado.getRevisados() * 1000 / milisegundos + " socios por segundo)\n");
+    }
+    
+    /**
+     * Muestra las posiciones vivas y las lápidas del repositorio de personas
+     * y, si hay lápidas, permite compactarlo sin esperar al hilo en segundo
+     * plano.
+     */
+    private static void ocupacionPersonas(){
+        RepositorioPersonas.Ocupacion ocupacion = listaPersonas.ocupacion();
+        System.out.println(ocupacion);
+        
+        if(ocupacion.getLapidas() > 0 && LeerDatosTeclado.leerConfirmacion("¿Compactar ahora? (SI/NO)")){
+            listaPersonas.compactar();
+            System.out.println(listaPersonas.ocupacion());
+        }
+        System.out.println();
     }
     
     /**
@@ -686,7 +1165,11 @@ public class GestionGimnasio {
         int existe = ValidarDatos.comprobarExistenciaActividad(listaActividad, actividad);
         
         if(existe == -1){
-            listaActividad.add(actividad);
+            listaActividad.añadir(actividad);
+            
+            if(diario != null){
+                diario.nuevaActividad(actividad);
+            }
             System.out.println("Se creo\n");
         }else{
             System.out.println("No se creo\n");
@@ -699,7 +1182,7 @@ public class GestionGimnasio {
      *
      * Este método solicita al usuario el nombre de la actividad que desea
      * eliminar. Luego verifica si la actividad existe en la lista y, en caso
-     * afirmativo, revisa si algún socio tiene dicha actividad registrada. Si
+     * afirmativo, consulta los socios inscritos en la actividad. Si
      * algún socio tiene la actividad, no se puede eliminar y se informa al
      * usuario. Si la actividad no está asignada a ningún socio, se elimina de
      * la lista de actividades.
@@ -709,32 +1192,27 @@ public class GestionGimnasio {
             System.out.println("No hay actividades.\n");
         }else{
             StringBuilder sociosConActividad = new StringBuilder();
-            boolean esEliminado = true;
             String nombre = InicializarDatos.inicializarGeneral("Introduce el nombre de la actividad: ");
             nombre = Utilidades.formatearString(nombre);
 
-            int existe = ValidarDatos.comprobarExistenciaActividad(listaActividad, nombre);
+            int id = ValidarDatos.comprobarExistenciaActividad(listaActividad, nombre);
+            Actividad actividad = listaActividad.porId(id);
             
-            if (existe != -1) {
-                for (int i = 0; i < listaPersonas.size(); i++) {
-                    if (listaPersonas.get(i) instanceof Socio) {
-                        Socio s = (Socio) listaPersonas.get(i);
-                        for (int j = 0; j < s.listaActividad.size(); j++) {
-                            Actividad actividad = s.listaActividad.get(j);
-
-                            if (listaActividad.get(existe).equals(actividad)) {
-                                esEliminado = false;
-                                sociosConActividad.append(s.getNombre() + ". ");
-                            }
-                        }
-                    }
-                }
+            if (actividad != null) {
 
-                if (!esEliminado) {
-                    System.out.println("No se puede eliminar porque los siguientes usuarios tienen la actividad "+listaActividad.get(existe).getNombre()+":");
+                if (actividad.tieneInscritos()) {
+                    for (Socio s : actividad.getInscritos()) {
+                        sociosConActividad.append(s.getNombre() + ". ");
+                    }
+                    
+                    System.out.println("No se puede eliminar porque los siguientes usuarios tienen la actividad "+actividad.getNombre()+":");
                     System.out.println(sociosConActividad + "\n");
                 } else {
-                    listaActividad.remove(existe);
+                    listaActividad.eliminar(actividad);
+                    
+                    if(diario != null){
+                        diario.eliminarActividad(actividad);
+                    }
                     System.out.println("Se ha eliminado la actividad\n");
                 }
             } else {
@@ -772,20 +1250,22 @@ public class GestionGimnasio {
     }
     
     /**
-     * Muestra la lista de actividades ordenadas por valoración.
+     * Muestra las n actividades con mejor valoración.
      *
      * Si no hay actividades registradas, se informa al usuario. En caso
-     * contrario, se ordenan de mayor a menor según su valoración y se muestran
-     * por pantalla.
+     * contrario, se pide el número de actividades que se quieren ver y se
+     * muestran de mayor a menor según su valoración. Las actividades se toman
+     * de la clasificación, que se mantiene al día con cada voto, por lo que la
+     * lista de actividades no se ordena ni cambia su numeración.
      */
     private static void listaMejoresActividades(){
         if(listaActividad.isEmpty()){
             System.out.println("No existe ninguna actividad.\n");
         }else{
-            Collections.sort(listaActividad, new MejorActividadPorValoracion());
+            int n = LeerDatosTeclado.leerInt("¿Cuántas actividades quieres ver? (1-" + listaActividad.size() + ")", 1, listaActividad.size());
             System.out.println("Actividades ordenadas por valoracion: \n");
 
-            for (Actividad actividad : listaActividad) {
+            for (Actividad actividad : clasificacionActividades.mejores(n)) {
                 System.out.println(actividad + "\n");
             }
         }
@@ -796,29 +1276,24 @@ public class GestionGimnasio {
      * valoración.
      *
      * Si no hay actividades registradas, informa al usuario. Si existen,
-     * solicita una categoría al usuario, ordena las actividades por valoración
-     * y muestra solo aquellas que coinciden con la categoría seleccionada. Si
-     * no se encuentra ninguna actividad con esa categoría, lo indica al
-     * usuario.
+     * solicita una categoría al usuario y muestra las actividades de esa
+     * categoría, que el catálogo mantiene ordenadas por valoración. Si no se
+     * encuentra ninguna actividad con esa categoría, lo indica al usuario.
      */
     private static void listaActividadesCategoria(){
         if(listaActividad.isEmpty()){
             System.out.println("No se encontro ninguna actividad.\n");
         }else{
-            boolean encontrado = false;
-            Collections.sort(listaActividad, new MejorActividadPorValoracion());
             Especialidad categoria = InicializarDatos.inicializarEspecialidad();
+            List <Actividad> actividadesCategoria = listaActividad.getActividadesCategoria(categoria);
 
             System.out.println("Actividades ordenadas por " + categoria + ": \n");
 
-            for (Actividad actividad : listaActividad) {
-                if (actividad.getCategoria().equals(categoria)) {
-                    System.out.println(actividad + "\n");
-                    encontrado = true;
-                }
+            for (Actividad actividad : actividadesCategoria) {
+                System.out.println(actividad + "\n");
             }
 
-            if (!encontrado) {
+            if (actividadesCategoria.isEmpty()) {
                 System.out.println("No se encontro ninguna actividad con esa categoria.\n");
             }
         }
@@ -828,31 +1303,70 @@ public class GestionGimnasio {
      * Muestra las actividades ordenadas por la cantidad de calorías quemadas.
      *
      * Si no hay actividades registradas, informa al usuario. En caso contrario,
-     * ordena la lista de actividades por la cantidad de kilocalorías y las
-     * muestra por pantalla.
+     * ordena una copia de la lista de actividades por la cantidad de
+     * kilocalorías y las muestra por pantalla.
      */
     private static void listaActividadesKcal(){
         if(listaActividad.isEmpty()){
             System.out.println("No se encontro ninguna actividad.\n");
         }else{
-            Collections.sort(listaActividad, new MejoresActividadesPorCantidadKcal());
+            ArrayList <Actividad> actividades = new ArrayList<>(listaActividad.getLista());
+            Collections.sort(actividades, new MejoresActividadesPorCantidadKcal());
 
             System.out.println("Actividades ordenadas por cantidad de kcal: \n");
 
-            for (Actividad actividad : listaActividad) {
+            for (Actividad actividad : actividades) {
                 System.out.println(actividad + "\n");
             }
         }
     }
     
+    /**
+     * Muestra las actividades ordenadas por el número de socios inscritos.
+     *
+     * Si no hay actividades registradas, informa al usuario. En caso contrario,
+     * ordena una copia de la lista de actividades por el número de socios
+     * inscritos, que cada actividad mantiene al día, y las muestra por
+     * pantalla junto con ese número.
+     */
+    private static void listaActividadesInscritos(){
+        if(listaActividad.isEmpty()){
+            System.out.println("No se encontro ninguna actividad.\n");
+        }else{
+            ArrayList <Actividad> actividades = new ArrayList<>(listaActividad.getLista());
+            Collections.sort(actividades, new MejoresActividadesPorInscritos());
+
+            System.out.println("Actividades ordenadas por socios inscritos: \n");
+
+            for (Actividad actividad : actividades) {
+                System.out.println(actividad.getNombre() + ": " + actividad.getNumeroInscritos() + " socios inscritos\n");
+            }
+        }
+    }
+    
+    /**
+     * Muestra el resumen de facturación del gimnasio: el número de socios, los
+     * minutos de actividades contratados y los ingresos por cuotas.
+     *
+     * Los minutos y los ingresos se mantienen cada vez que un socio añade o
+     * elimina una actividad, por lo que no se recorre la lista de personas.
+     */
+    private static void resumenFacturacion(){
+        System.out.println("Socios registrados: " + listaPersonas.numeroSocios());
+        System.out.println("Minutos de actividades contratados: " + listaPersonas.getMinutosSocios());
+        System.out.printf("Ingresos por cuotas: %.2f euros%n%n", listaPersonas.getIngresos());
+    }
+    
     /**
      * Muestra la lista de monitores ordenados por su valoración.
      *
      * Si no hay monitores registrados, informa al usuario. En caso contrario,
      * se ordenan por su valoración de mayor a menor y se muestran por pantalla.
+     * La valoración que se usa para ordenar es el límite inferior de Wilson de
+     * cada monitor, que tiene en cuenta el número de votos que ha recibido.
      */
     private static void listaMejoresMonitores(){
-        ArrayList <Monitor> listaMonitores = InicializarDatos.filtrarPersonas(listaPersonas, true);
+        ArrayList <Monitor> listaMonitores = InicializarDatos.filtrarPersonas(listaPersonas.listar(), true);
         
         if(listaMonitores.isEmpty()){
             System.out.println("No se encontro ningun monitor.\n");
@@ -883,7 +1397,7 @@ public class GestionGimnasio {
     private static void mostrarPersonasFiltradas(boolean mostrarMonitores, boolean mostrarSocios, boolean mostrarSociosPremium){
         boolean encontrado = false;
         
-        for(Persona persona : listaPersonas){
+        for(Persona persona : listaPersonas.listar()){
             boolean esMonitor = persona instanceof Monitor;
             boolean esSocio = persona instanceof Socio && !(persona instanceof SocioPremium);
             boolean esSocioPremium = persona instanceof SocioPremium;
@@ -915,7 +1429,7 @@ public class GestionGimnasio {
         Monitor m2 = new Monitor("Robert De Niro", "57305590D", "Calle Broadway", "Nueva York", "Manhattan", "10000", "739846215", "1943-8-17", 1810);
         Monitor m3 = new Monitor("Robert Lewandowski", "98765432M", "Calle Marszalkowska", "Polonia", "Varsovia", "93455", "347124765", "1988-8-21", 1237);
         
-        //No se puede validar si una Persona es igual que una de la lista, por lo que se podrían crear dos monitores iguales (de esta forma, en la aplicacion no se puede).
+        //El repositorio no admite dos monitores con el mismo DNI, por lo que m5 no se llega a añadir.
         Monitor m4 = new Monitor("Federico Garcia Lorca", "87654321X", "Calle Ganivel", "Granada", "Fuente Vaqueros", "12345", "669123445", "1998-6-5", 1200);
         Monitor m5 = new Monitor("Federico Garcia Lorca", "87654321X", "Calle Ganivel", "Granada", "Fuente Vaqueros", "12345", "669123445", "1998-6-5", 1200);
         
@@ -943,41 +1457,41 @@ public class GestionGimnasio {
 
         Actividad a15 = new Actividad("Cardio funcional", 35, 55, Especialidad.CARDIO, true);
         
-        //No se puede validar si una Actividad es igual que una de la lista, por lo que se podrían crear dos actividades iguales (de esta forma, en la aplicacion no se puede).
+        //El catálogo no admite actividades iguales, por lo que a17 no se añade a la lista de actividades (igual que en la aplicacion).
         Actividad a16 = new Actividad("Maratón en cinta", 50, 50, Especialidad.CARDIO, false);
         Actividad a17 = new Actividad("Maratón en cinta", 50, 50, Especialidad.CARDIO, false);
         
         //Añadimos las personas a la lista personas
-        listaPersonas.add(s1);
-        listaPersonas.add(s2);
-        listaPersonas.add(s3);
-        listaPersonas.add(sp1);
-        listaPersonas.add(sp2);
-        listaPersonas.add(sp3);
-        listaPersonas.add(m1);
-        listaPersonas.add(m2);
-        listaPersonas.add(m3);
-        listaPersonas.add(m4);
-        listaPersonas.add(m5);
+        añadirPersona(s1);
+        añadirPersona(s2);
+        añadirPersona(s3);
+        añadirPersona(sp1);
+        añadirPersona(sp2);
+        añadirPersona(sp3);
+        añadirPersona(m1);
+        añadirPersona(m2);
+        añadirPersona(m3);
+        añadirPersona(m4);
+        añadirPersona(m5);
         
         //Añadimos las actividades a la lista actividades
-        listaActividad.add(a1);
-        listaActividad.add(a2);
-        listaActividad.add(a3);
-        listaActividad.add(a4);
-        listaActividad.add(a5);
-        listaActividad.add(a6);
-        listaActividad.add(a7);
-        listaActividad.add(a8);
-        listaActividad.add(a9);
-        listaActividad.add(a10);
-        listaActividad.add(a11);
-        listaActividad.add(a12);
-        listaActividad.add(a13);
-        listaActividad.add(a14);
-        listaActividad.add(a15);
-        listaActividad.add(a16);
-        listaActividad.add(a17);
+        listaActividad.añadir(a1);
+        listaActividad.añadir(a2);
+        listaActividad.añadir(a3);
+        listaActividad.añadir(a4);
+        listaActividad.añadir(a5);
+        listaActividad.añadir(a6);
+        listaActividad.añadir(a7);
+        listaActividad.añadir(a8);
+        listaActividad.añadir(a9);
+        listaActividad.añadir(a10);
+        listaActividad.añadir(a11);
+        listaActividad.añadir(a12);
+        listaActividad.añadir(a13);
+        listaActividad.añadir(a14);
+        listaActividad.añadir(a15);
+        listaActividad.añadir(a16);
+        listaActividad.añadir(a17);
         
         //Añadimos actividades a socios
         s1.addActividad(a2);
@@ -1014,10 +1528,10 @@ public class GestionGimnasio {
         sp3.addActividad(a17);
 
         sp1.setFechaRegistro(LocalDate.of(2024, 8, 1));
-        sp1.setFechaUltimoAcceso(LocalDate.of(2025, 3, 7));
+        caducidades.registrarAcceso(sp1, LocalDate.of(2025, 3, 7));
         
         s1.setFechaRegistro(LocalDate.of(2024, 8, 1));
-        s1.setFechaUltimoAcceso(LocalDate.of(2025, 3, 7));
+        caducidades.registrarAcceso(s1, LocalDate.of(2025, 3, 7));
         //Valoramos monitores
         m1.meGusta(true);
         m1.meGusta(true);
@@ -1080,4 +1594,128 @@ public class GestionGimnasio {
         a16.votar(7);
         a16.votar(6);
     }
+    
+    /**
+     * Aplica las operaciones del diario al reproducirlo al arrancar. Usa las
+     * mismas operaciones que el menú, pero sin pedir datos ni registrar de nuevo
+     * las operaciones en el diario. Las personas y actividades que ya no
+     * existen se ignoran.
+     */
+    private static class ReproduccionDiario implements DiarioGimnasio.Operaciones {
+        @Override
+        public void registroOmitido(int numero, Exception causa){
+            String motivo = causa.getMessage() == null ? causa.getClass().getSimpleName() : causa.getMessage();
+            System.out.println("Se omite la operación " + numero + " del diario: " + motivo);
+        }
+
+        @Override
+        public void alta(Persona p){
+            añadirPersona(p);
+        }
+
+        @Override
+        public void baja(String dni, boolean esMonitor){
+            Persona p = listaPersonas.buscar(dni, esMonitor);
+            if(p != null){
+                eliminarPersona(p);
+            }
+        }
+
+        @Override
+        public void acceso(String dni, LocalDate fecha){
+            Socio socio = socio(dni);
+            if(socio != null){
+                caducidades.registrarAcceso(socio, fecha);
+            }
+        }
+
+        @Override
+        public void añadirActividad(String dni, boolean esMonitor, String nombre, int duracion, Especialidad categoria){
+            Socio socio = socio(dni);
+            Actividad actividad = actividad(nombre, duracion, categoria);
+            if(socio != null && actividad != null){
+                socio.addActividad(actividad);
+            }
+        }
+
+        @Override
+        public void eliminarActividad(String dni, boolean esMonitor, String nombre, int duracion, Especialidad categoria){
+            Socio socio = socio(dni);
+            Actividad actividad = actividad(nombre, duracion, categoria);
+            if(socio != null && actividad != null){
+                socio.delActividad(actividad);
+            }
+        }
+
+        @Override
+        public void votar(String nombre, int duracion, Especialidad categoria, int voto){
+            Actividad actividad = actividad(nombre, duracion, categoria);
+            if(actividad != null){
+                actividad.votar(voto);
+            }
+        }
+
+        @Override
+        public void meGusta(String dni, boolean like){
+            Monitor monitor = monitor(dni);
+            if(monitor != null){
+                monitor.meGusta(like);
+            }
+        }
+
+        @Override
+        public void convertirPremium(String dni){
+            Socio socio = socio(dni);
+            if(socio != null && !(socio instanceof SocioPremium)){
+                hacerPremium(socio);
+            }
+        }
+
+        @Override
+        public void sueldo(String dni, double sueldo){
+            Monitor monitor = monitor(dni);
+            if(monitor != null){
+                monitor.setSueldo(sueldo);
+            }
+        }
+
+        @Override
+        public void especialidades(String dni, Especialidad[] especialidades){
+            Monitor monitor = monitor(dni);
+            if(monitor != null){
+                Especialidad[] actuales = monitor.getEspecialidad();
+                for(int i = 0; i < actuales.length; i++){
+                    actuales[i] = i < especialidades.length ? especialidades[i] : null;
+                }
+            }
+        }
+
+        @Override
+        public void nuevaActividad(Actividad a){
+            if(!listaActividad.contiene(a)){
+                listaActividad.añadir(a);
+            }
+        }
+
+        @Override
+        public void eliminarActividad(String nombre, int duracion, Especialidad categoria){
+            Actividad actividad = actividad(nombre, duracion, categoria);
+            if(actividad != null && !actividad.tieneInscritos()){
+                listaActividad.eliminar(actividad);
+            }
+        }
+
+        private static Socio socio(String dni){
+            return (Socio) listaPersonas.buscar(dni, false);
+        }
+
+        private static Monitor monitor(String dni){
+            return (Monitor) listaPersonas.buscar(dni, true);
+        }
+
+        private static Actividad actividad(String nombre, int duracion, Especialidad categoria){
+            int posicion = listaActividad.posicion(new Actividad(nombre, duracion, 0, categoria, false));
+            return posicion == -1 ? null : listaActividad.get(posicion);
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package app;
 
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import utils.ValidarDatos;
 
 /**
@@ -7,25 +10,32 @@ import utils.ValidarDatos;
  * {@code Persona}. La representación de la clase usa los atributos
  * <code>especialidad</code>, <code>sueldo</code>, <code>votosPositivos</code>,
  * <code>votosNegativos</code>, <code>contador</code> y
- * <code>votosTotales</code>.
+ * <code>puntuacion</code>.
  *
  * El monitor tiene un conjunto de especialidades, un sueldo, y cuenta con un
  * sistema de votos positivos y negativos que permiten valorar al monitor. Los
  * métodos de la clase permiten manipular estos atributos y calcular una
  * valoración basada en los votos.
  *
+ * <p>Los votos pueden llegar a la vez desde varios hilos. Se cuentan con
+ * {@link LongAdder}, que reparte los incrementos entre varias celdas para que
+ * los hilos no compitan por el mismo contador y no se pierda ningún voto.
+ * Después de cada voto se publica una {@link PuntuacionMonitor} inmutable con
+ * los votos y la valoración ya calculados, que es la que se usa para consultar
+ * y comparar monitores sin volver a sumar los contadores.</p>
+ *
  * @author David Diéguez
  * @version 1.0
  */
 
 
 public class Monitor extends Persona implements Valorable{
-    private Especialidad [] especialidad;
+    private Especialidad [] especialidad = new Especialidad[3];
     private double sueldo;
-    private int votosPositivos;
-    private int votosNegativos;
+    private final LongAdder votosPositivos = new LongAdder();
+    private final LongAdder votosNegativos = new LongAdder();
     private int contador = 0;
-    private static int votosTotales = 0;
+    private final AtomicReference <PuntuacionMonitor> puntuacion = new AtomicReference<>(PuntuacionMonitor.SIN_VOTOS);
     
     /**
      * Crea un nuevo objeto Monitor con los datos proporcionados.
@@ -60,10 +70,57 @@ public class Monitor extends Persona implements Valorable{
             throw new IllegalArgumentException("El sueldo no puede ser menor que el salario mínimo interprofesional");
         }
         
-        this.especialidad = new Especialidad[3];
         this.sueldo = sueldo;
-        this.votosNegativos = 0;
-        this.votosPositivos = 0;
+    }
+    
+    /**
+     * Crea un monitor que ya estaba dado de alta. Los datos se validan como en
+     * el otro constructor, salvo la edad máxima, que solo se exige al darlo de
+     * alta.
+     *
+     * @param nombre El nombre del monitor.
+     * @param DNI El DNI del monitor.
+     * @param direccion La dirección del monitor.
+     * @param localidad La localidad del monitor.
+     * @param provincia La provincia del monitor.
+     * @param codigoPostal El código postal del monitor.
+     * @param telefono El teléfono del monitor.
+     * @param fechaNacimiento La fecha de nacimiento del monitor.
+     * @param sueldo El sueldo del monitor.
+     * 
+     * @throws IllegalArgumentException Si alguno de los datos no es válido o
+     * el sueldo es menor que el salario mínimo interprofesional.
+     */
+    protected Monitor(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento, double sueldo) {
+        super(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento);
+        
+        if(!ValidarDatos.validarSueldo(sueldo)){
+            throw new IllegalArgumentException("El sueldo no puede ser menor que el salario mínimo interprofesional");
+        }
+        
+        this.sueldo = sueldo;
+    }
+    
+    /**
+     * Recupera un monitor guardado, por ejemplo en una instantánea o en el
+     * diario, sin volver a exigir la edad máxima del alta.
+     *
+     * @param nombre El nombre del monitor.
+     * @param DNI El DNI del monitor.
+     * @param direccion La dirección del monitor.
+     * @param localidad La localidad del monitor.
+     * @param provincia La provincia del monitor.
+     * @param codigoPostal El código postal del monitor.
+     * @param telefono El teléfono del monitor.
+     * @param fechaNacimiento La fecha de nacimiento del monitor.
+     * @param sueldo El sueldo del monitor.
+     * @return El monitor.
+     * 
+     * @throws IllegalArgumentException Si alguno de los datos no es válido o
+     * el sueldo es menor que el salario mínimo interprofesional.
+     */
+    public static Monitor restaurar(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento, double sueldo) {
+        return new Monitor(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, sueldo);
     }
     
     /**
@@ -79,11 +136,13 @@ public class Monitor extends Persona implements Valorable{
      * @param m El monitor a copiar.
      */
     public Monitor(Monitor m){
-        this(m.getNombre(), m.getDNI(), m.getDireccion(), m.getLocalidad(), m.getLocalidad(), m.getCodigoPostal(), m.getTelefono(), m.getFechaNacimiento().format(java.time.format.DateTimeFormatter.ISO_DATE), m.getSueldo());
+        this(m.getNombre(), m.getDNI(), m.getDireccion(), m.getLocalidad(), m.getProvincia(), m.getCodigoPostal(), m.getTelefono(), m.getFechaNacimiento(), m.getSueldo());
         this.especialidad = m.especialidad;
         this.sueldo = m.sueldo;
-        this.votosNegativos = m.votosNegativos;
-        this.votosPositivos = m.votosPositivos;
+        PuntuacionMonitor p = m.getPuntuacion();
+        this.votosNegativos.add(p.getVotosNegativos());
+        this.votosPositivos.add(p.getVotosPositivos());
+        this.puntuacion.set(p);
         this.contador = m.contador;
     }
 
@@ -143,42 +202,92 @@ public class Monitor extends Persona implements Valorable{
      *
      * Si el parámetro {@code like} es {@code true}, se incrementa el contador
      * de votos positivos. Si es {@code false}, se incrementa el contador de
-     * votos negativos. En ambos casos, el contador total de votos también se
-     * incrementa.
+     * votos negativos. Después se actualiza la puntuación del monitor.
+     *
+     * Puede llamarse desde varios hilos a la vez sin perder votos.
      *
      * @param like {@code true} si el voto es positivo, {@code false} si es
      * negativo.
      */
     public void meGusta(boolean like){
         if(like){
-            votosPositivos++;
+            votosPositivos.increment();
         }else{
-            votosNegativos++;
+            votosNegativos.increment();
+        }
+        actualizarPuntuacion();
+    }
+    
+    /**
+     * Sustituye los votos del monitor por los indicados. Se usa al cargar un
+     * monitor guardado, para no tener que repetir los votos uno a uno. No debe
+     * llamarse mientras otros hilos votan al monitor.
+     *
+     * @param positivos El número de votos positivos.
+     * @param negativos El número de votos negativos.
+     *
+     * @throws IllegalArgumentException Si algún número de votos es negativo.
+     */
+    public void cargarVotos(long positivos, long negativos){
+        if(positivos < 0 || negativos < 0){
+            throw new IllegalArgumentException("El número de votos no puede ser negativo");
         }
-        votosTotales++;
+        
+        votosPositivos.reset();
+        votosPositivos.add(positivos);
+        votosNegativos.reset();
+        votosNegativos.add(negativos);
+        puntuacion.set(new PuntuacionMonitor(positivos, negativos));
     }
     
     /**
-     * Calcula la valoración del monitor en función de los votos positivos y
-     * totales.
+     * Devuelve la última puntuación publicada del monitor.
+     *
+     * Los votos y la valoración de la puntuación devuelta son coherentes entre
+     * sí, y la puntuación no cambia aunque el monitor reciba más votos.
+     *
+     * @return La puntuación del monitor.
+     */
+    public PuntuacionMonitor getPuntuacion(){
+        return puntuacion.get();
+    }
+    
+    /**
+     * Calcula la valoración del monitor en función de sus votos positivos y
+     * sus votos totales.
      *
      * La valoración se calcula como el porcentaje de votos positivos sobre el
-     * total de votos, multiplicado por 10 para obtener un valor entre 0 y 10.
-     * El resultado se redondea al entero más cercano.
+     * total de votos del monitor, multiplicado por 10 para obtener un valor
+     * entre 0 y 10. El resultado se redondea al entero más cercano. Si el
+     * monitor no tiene votos, la valoración es 0.
      *
      * @return La valoración del monitor, un número entero entre 0 y 10.
      */
     @Override
     public int calcularValoracion(){
-        double valoracion = votosPositivos / votosTotales;
-        
-        valoracion *= 10;
+        return getPuntuacion().calcularValoracion();
+    }
+    
+    /**
+     * Publica una puntuación nueva con la suma actual de los contadores.
+     *
+     * Si varios hilos votan a la vez, solo se sustituye la puntuación
+     * publicada por otra con más votos, de forma que una puntuación calculada
+     * antes nunca pisa a otra más reciente.
+     */
+    private void actualizarPuntuacion(){
+        PuntuacionMonitor actual;
+        PuntuacionMonitor nueva;
         
-        return (int) Math.round(valoracion);
+        do{
+            actual = puntuacion.get();
+            nueva = new PuntuacionMonitor(votosPositivos.sum(), votosNegativos.sum());
+        }while(nueva.getVotosTotales() > actual.getVotosTotales() && !puntuacion.compareAndSet(actual, nueva));
     }
     
     @Override
     public String toString(){
-        return super.toString() + " su sueldo es: "+sueldo+", con "+votosNegativos+" votos negativos y "+votosPositivos+" votos positivos.";
+        PuntuacionMonitor p = getPuntuacion();
+        return super.toString() + " su sueldo es: "+sueldo+", con "+p.getVotosNegativos()+" votos negativos y "+p.getVotosPositivos()+" votos positivos.";
     }
 }
@@ -0,0 +1,15 @@
+package app;
+
+/**
+ * Esta interfaz la implementan las clases que quieren recibir los cambios de
+ * un {@link CatalogoActividades}: las actividades que se añaden, las que se
+ * eliminan y los votos que reciben sus actividades.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public interface ObservadorCatalogo {
+    void actividadAñadida(Actividad a);
+    void actividadEliminada(Actividad a);
+    void votoRegistrado(Actividad a);
+}
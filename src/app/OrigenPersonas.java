@@ -0,0 +1,39 @@
+package app;
+
+/**
+ * Esta interfaz la implementan los datos guardados del gimnasio, como una
+ * instantánea, de los que un {@link RepositorioPersonas} crea cada persona la
+ * primera vez que se pide (ver
+ * {@link RepositorioPersonas#cargarPendientes(OrigenPersonas, java.util.function.Consumer)}).
+ *
+ * Las personas se identifican por su posición, de 0 a
+ * {@code numeroPersonas() - 1}, que es también su orden de alta, y las
+ * actividades por la suya. {@code persona} y {@code actividad} crean la
+ * persona o la actividad de una posición; las actividades de un socio son
+ * las de {@code actividad}. El resto de métodos responden sin crear ninguna
+ * persona: {@code numeroDNI} y {@code esMonitor} describen la persona de una
+ * posición, {@code buscar} devuelve la posición de la persona del tipo
+ * indicado con ese número de DNI (ver {@link Persona#getNumeroDNI()}) o -1 si
+ * no hay ninguna, {@code getMinutosSocios} suma los minutos de actividades de
+ * todos los socios y {@code numeroInscritos} cuenta los socios distintos
+ * inscritos en una actividad. Las caducidades son los socios activos
+ * ordenados por el día, contado desde el 1 de enero de 1970, en el que
+ * caducan (ver {@link CaducidadSocios#diaCaducidad(java.time.LocalDate)}).
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public interface OrigenPersonas {
+    int numeroPersonas();
+    int numeroDNI(int posicion);
+    boolean esMonitor(int posicion);
+    int buscar(int numeroDNI, boolean esMonitor);
+    Persona persona(int posicion);
+    long getMinutosSocios();
+    int numeroActividades();
+    Actividad actividad(int posicion);
+    int numeroInscritos(int posicionActividad);
+    int numeroCaducidades();
+    long diaCaducidad(int i);
+    int posicionCaducidad(int i);
+}
@@ -1,7 +1,13 @@
 package app;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.time.LocalDate;
-import java.util.Objects;
+import java.util.List;
+import java.util.Locale;
+import utils.DiccionarioCadenas;
+import utils.FechaISO;
+import utils.MotorValidacion;
 import utils.Utilidades;
 import utils.ValidarDatos;
 
@@ -15,6 +21,30 @@ import utils.ValidarDatos;
  * La clase implementa la interfaz {@code Comparable<Persona>}, lo que permite ordenar objetos
  * de tipo Persona en función de su edad y nombre.
  * 
+ * <p>Para ordenar sin crear objetos en cada comparación, cada persona guarda su
+ * clave de ordenación: la edad como número, junto con el día en el que se
+ * calculó, y la {@link CollationKey} de su nombre según el orden alfabético
+ * español. La edad solo se recalcula cuando cambia el día o la fecha de
+ * nacimiento, y la clave del nombre cuando cambia el nombre. La clave del
+ * nombre se crea la primera vez que se compara la persona, ya que es lo más
+ * caro de crear una persona y no hace falta si no se ordena (por ejemplo, al
+ * cargar muchas personas de una instantánea).</p>
+ * 
+ * <p>Para ocupar poca memoria con muchas personas, los datos con formato fijo
+ * se guardan como números: el DNI como su número, ya que la letra de control
+ * depende solo del número, el teléfono como número y la fecha de nacimiento
+ * como el número de días desde el 1 de enero de 1970. La localidad, la
+ * provincia y el código postal, que se repiten entre muchas personas, se
+ * guardan en un {@link DiccionarioCadenas} común a todas las personas del
+ * gimnasio y cada persona solo guarda la cadena compartida. Los métodos de
+ * consulta devuelven los mismos textos y fechas que se dieron al crear la
+ * persona.</p>
+ * 
+ * <p>Al darse de alta en un {@link RepositorioPersonas}, la persona recibe un
+ * identificador numérico que no cambia mientras siga en el repositorio, aunque
+ * se den de baja otras personas. Con él el repositorio la encuentra leyendo
+ * una casilla de un array.</p>
+ * 
  * @author David Diéguez
  * @version 1.0
  */
@@ -22,13 +52,22 @@ import utils.ValidarDatos;
 
 public abstract class Persona implements Comparable<Persona>{
     private String nombre;
-    private String DNI;
+    private String nombreNormalizado;
+    private int numeroDNI;
     private String direccion;
     private String localidad;
     private String provincia;
     private String codigoPostal;
-    private String telefono;
-    private LocalDate fechaNacimiento;
+    private int telefono;
+    private int diaNacimiento;
+    private int edad;
+    private int diaEdad = Integer.MIN_VALUE;
+    private CollationKey claveNombre;
+    private int id = -1;
+    private static final DiccionarioCadenas LUGARES = new DiccionarioCadenas();
+    // Collator sincroniza getCollationKey, así que cada hilo usa el suyo para
+    // poder comparar personas desde varios hilos.
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(() -> Collator.getInstance(Locale.of("es", "ES")));
       
     /**
      * Construye un nuevo objeto Persona con los datos proporcionados.
@@ -49,6 +88,33 @@ public abstract class Persona implements Comparable<Persona>{
      * @throws IllegalArgumentException si alguno de los valores es inválido.
      */
     public Persona(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, String fechaNacimiento) {
+        this(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, FechaISO.decodificar(fechaNacimiento), true);
+    }
+    
+    /**
+     * Construye una persona que ya estaba dada de alta, al copiarla o al
+     * recuperarla de una instantánea o del diario.
+     *
+     * Los datos se validan igual que al crear una persona, salvo la edad: que
+     * la persona no tenga más de 99 años se exige al darla de alta, y una
+     * persona guardada puede haberlos cumplido después.
+     *
+     * @param nombre Nombre completo de la persona, entre 10 y 50 caracteres.
+     * @param DNI DNI en formato válido.
+     * @param direccion Dirección de la persona, entre 3 y 50 caracteres.
+     * @param localidad Localidad de residencia, entre 3 y 50 caracteres.
+     * @param provincia Provincia de residencia, entre 3 y 50 caracteres.
+     * @param codigoPostal Código postal válido de 5 dígitos.
+     * @param telefono Número de teléfono válido de 9 dígitos.
+     * @param fechaNacimiento Fecha de nacimiento.
+     *
+     * @throws IllegalArgumentException si alguno de los valores es inválido.
+     */
+    protected Persona(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento) {
+        this(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento.toEpochDay(), false);
+    }
+    
+    private Persona(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, long diaNacimiento, boolean comprobarEdad) {
         if(!ValidarDatos.validarNombre(nombre)){
             throw new IllegalArgumentException("El nombre tiene que tener entre [10-50] caracteres");
         }
@@ -77,22 +143,19 @@ public abstract class Persona implements Comparable<Persona>{
             throw new IllegalArgumentException("El telefono solo tiene 9 digitos");
         }
         
-        if(!ValidarDatos.validarFecha(fechaNacimiento)){
+        if(comprobarEdad && !ValidarDatos.validarFechaNacimiento(diaNacimiento)){
             throw new IllegalArgumentException("La fecha no tiene el formato adecuado (yyyy-mm-dd), no es correcta o tienes más de 99 años");
         }
         
-        int year = Utilidades.extraerYearDesdeFecha(fechaNacimiento);
-        int month = Utilidades.extraerMonthDesdeFecha(fechaNacimiento);
-        int day = Utilidades.extraerDayDesdeFecha(fechaNacimiento);
-        
         this.nombre = nombre;
-        this.DNI = DNI;
+        this.nombreNormalizado = Utilidades.formatearString(nombre);
+        this.numeroDNI = MotorValidacion.numeroDNI(DNI);
         this.direccion = direccion;
-        this.localidad = localidad;
-        this.provincia = provincia;
-        this.codigoPostal = codigoPostal;
-        this.telefono = telefono;
-        this.fechaNacimiento = LocalDate.of(year, month, day);
+        this.localidad = LUGARES.canonica(localidad);
+        this.provincia = LUGARES.canonica(provincia);
+        this.codigoPostal = LUGARES.canonica(codigoPostal);
+        this.telefono = Integer.parseInt(telefono);
+        this.diaNacimiento = (int) diaNacimiento;
     }
     
     /**
@@ -108,14 +171,50 @@ public abstract class Persona implements Comparable<Persona>{
      * Establece el valor del atributo nombre. El valor recibido por parámetro
      * debe ser un string con entre 10 y 50 caracteres. Si el valor no tiene el
      * tamaño permitido o contiene caracteres no válidos, el atributo no se
-     * modificará.
+     * modificará. El nombre normalizado y la clave de ordenación del nombre se
+     * actualizan junto con el nombre.
+     * 
+     * Si la persona está en un repositorio, su nombre se cambia con
+     * {@link RepositorioPersonas#renombrar(Persona, String)}, que actualiza
+     * también el índice por nombre del repositorio.
      *
      * @param nombre El valor del nombre en el rango [10, 50].
+     * 
+     * @throws IllegalStateException Si la persona está en un repositorio.
      */
     public void setNombre(String nombre) {
-        if(ValidarDatos.validarNombre(nombre)){
+        if(id != -1){
+            throw new IllegalStateException("La persona está en un repositorio: su nombre se cambia desde el repositorio");
+        }
+        cambiarNombre(nombre);
+    }
+    
+    /**
+     * Cambia el nombre de la persona como {@link #setNombre(String)}, aunque
+     * esté en un repositorio. Lo llama el repositorio con el fragmento de la
+     * persona bloqueado, para actualizar a la vez su índice por nombre.
+     * 
+     * @param nombre El valor del nombre en el rango [10, 50].
+     * @return {@code true} si el nombre es válido y se ha cambiado.
+     */
+    boolean cambiarNombre(String nombre) {
+        boolean valido = ValidarDatos.validarNombre(nombre);
+        if(valido){
             this.nombre = nombre;
+            this.nombreNormalizado = Utilidades.formatearString(nombre);
+            this.claveNombre = null;
         }
+        return valido;
+    }
+    
+    /**
+     * Devuelve el nombre normalizado de la persona, en mayúsculas y sin
+     * espacios, que se usa como clave en las búsquedas por nombre.
+     * 
+     * @return El atributo nombre normalizado del objeto.
+     */
+    public String getNombreNormalizado() {
+        return nombreNormalizado;
     }
 
     /**
@@ -124,7 +223,37 @@ public abstract class Persona implements Comparable<Persona>{
      * @return El atributo DNI del objeto.
      */
     public String getDNI() {
-        return DNI;
+        return MotorValidacion.textoDNI(numeroDNI);
+    }
+    
+    /**
+     * Devuelve el número del DNI, sin la letra de control. Sirve para comparar
+     * o indexar personas por DNI sin formar el texto del DNI.
+     * 
+     * @return El número del DNI (ver {@link MotorValidacion#numeroDNI(CharSequence)}).
+     */
+    public int getNumeroDNI() {
+        return numeroDNI;
+    }
+    
+    /**
+     * Devuelve el identificador de la persona en su repositorio.
+     * 
+     * @return El identificador (ver {@link RepositorioPersonas#porId(int)}), o
+     * -1 si la persona no está en ningún repositorio.
+     */
+    public int getId() {
+        return id;
+    }
+    
+    /**
+     * Establece el identificador de la persona. Lo llama el repositorio con el
+     * fragmento de la persona bloqueado.
+     * 
+     * @param id El identificador, o -1 al salir del repositorio.
+     */
+    void setId(int id) {
+        this.id = id;
     }
 
     /**
@@ -132,11 +261,21 @@ public abstract class Persona implements Comparable<Persona>{
      * el formato válido de un NIF español. Si no es válido, el atributo no se
      * modificará.
      *
+     * El DNI decide la igualdad de las personas y su posición en los índices
+     * del repositorio, por lo que no se puede cambiar mientras la persona esté
+     * en un repositorio. Para cambiarlo hay que sacarla del repositorio y
+     * volver a añadirla.
+     *
      * @param DNI El DNI que se desea establecer.
+     *
+     * @throws IllegalStateException Si la persona está en un repositorio.
      */
     public void setDNI(String DNI) {
+        if(id != -1){
+            throw new IllegalStateException("La persona está en un repositorio: su DNI no se puede cambiar");
+        }
         if (ValidarDatos.validarNif(DNI)) {
-            this.DNI = DNI;
+            this.numeroDNI = MotorValidacion.numeroDNI(DNI);
         }
     }
 
@@ -180,7 +319,7 @@ public abstract class Persona implements Comparable<Persona>{
      */
     public void setLocalidad(String localidad) {
         if(ValidarDatos.validarGeneral(localidad)){
-            this.localidad = localidad;
+            this.localidad = LUGARES.canonica(localidad);
         }
     }
 
@@ -202,7 +341,7 @@ public abstract class Persona implements Comparable<Persona>{
      */
     public void setProvincia(String provincia) {
         if(ValidarDatos.validarGeneral(provincia)){
-            this.provincia = provincia;
+            this.provincia = LUGARES.canonica(provincia);
         }
     }
 
@@ -224,7 +363,7 @@ public abstract class Persona implements Comparable<Persona>{
      */
     public void setCodigoPostal(String codigoPostal) {
         if(ValidarDatos.validarCodigoPostal(codigoPostal)){
-            this.codigoPostal = codigoPostal;
+            this.codigoPostal = LUGARES.canonica(codigoPostal);
         }
     }
 
@@ -234,7 +373,24 @@ public abstract class Persona implements Comparable<Persona>{
      * @return El atributo telefono del objeto.
      */
     public String getTelefono() {
-        return telefono;
+        return digitos(telefono, 9);
+    }
+    
+    /**
+     * Escribe un número con los dígitos indicados, completando con ceros a la
+     * izquierda.
+     *
+     * @param numero El número, no negativo.
+     * @param longitud El número de dígitos.
+     * @return El texto del número.
+     */
+    static String digitos(int numero, int longitud) {
+        char[] digitos = new char[longitud];
+        for(int i = longitud - 1; i >= 0; i--){
+            digitos[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+        return new String(digitos);
     }
 
     /**
@@ -245,7 +401,7 @@ public abstract class Persona implements Comparable<Persona>{
      */
     public void setTelefono(String telefono) {
         if(ValidarDatos.validarTelefono(telefono)){
-            this.telefono = telefono;
+            this.telefono = Integer.parseInt(telefono);
         }
     }
 
@@ -255,7 +411,7 @@ public abstract class Persona implements Comparable<Persona>{
      * @return El atributo fecha nacimiento del objeto.
      */
     public LocalDate getFechaNacimiento() {
-        return fechaNacimiento;
+        return LocalDate.ofEpochDay(diaNacimiento);
     }
 
     /**
@@ -266,12 +422,10 @@ public abstract class Persona implements Comparable<Persona>{
      * @param fechaNacimiento La fecha de nacimiento en formato "yyyy-MM-dd".
      */    
     public void setFechaNacimiento(String fechaNacimiento) {
-        if(ValidarDatos.validarFecha(fechaNacimiento)){
-            int year = Utilidades.extraerYearDesdeFecha(fechaNacimiento);
-            int month = Utilidades.extraerMonthDesdeFecha(fechaNacimiento);
-            int day = Utilidades.extraerDayDesdeFecha(fechaNacimiento);
-
-            this.fechaNacimiento = LocalDate.of(year, month, day);
+        long diaNacimiento = FechaISO.decodificar(fechaNacimiento);
+        if(ValidarDatos.validarFechaNacimiento(diaNacimiento)){
+            this.diaNacimiento = (int) diaNacimiento;
+            this.diaEdad = Integer.MIN_VALUE;
         }
     }
     
@@ -279,24 +433,75 @@ public abstract class Persona implements Comparable<Persona>{
      * Devuelve la edad de la persona calculada a partir de su fecha de
      * nacimiento. La edad se calcula restando la fecha actual a la fecha de
      * nacimiento y ajustando en función de si la fecha de nacimiento ya ocurrió
-     * este año.
+     * este año. Solo se recalcula la primera vez que se pide cada día.
      *
      * @return La edad de la persona en años.
      */
     public int getEdad(){
-        return Utilidades.calcularEdad(this.fechaNacimiento);
+        actualizarEdad(Utilidades.diaActual());
+        return this.edad;
+    }
+    
+    /**
+     * Recalcula la edad si se calculó un día distinto al indicado.
+     *
+     * @param dia El día actual (ver {@link Utilidades#diaActual()}).
+     */
+    private void actualizarEdad(long dia){
+        if(this.diaEdad != dia){
+            this.edad = Utilidades.calcularEdad(LocalDate.ofEpochDay(this.diaNacimiento), dia);
+            this.diaEdad = (int) dia;
+        }
+    }
+    
+    /**
+     * Ordena una lista de personas por edad y nombre.
+     *
+     * Se lee la fecha una sola vez y se actualiza la edad de todas las
+     * personas antes de ordenar, de forma que durante la ordenación solo se
+     * comparan las claves guardadas, sin leer el reloj ni crear objetos.
+     *
+     * @param personas La lista de personas que se quiere ordenar.
+     */
+    public static void ordenar(List<? extends Persona> personas){
+        long dia = Utilidades.diaActual();
+        
+        for(Persona p : personas){
+            p.actualizarEdad(dia);
+            p.actualizarClaveNombre();
+        }
+        personas.sort(Persona::compararClaves);
+    }
+    
+    private CollationKey actualizarClaveNombre(){
+        CollationKey clave = this.claveNombre;
+        if(clave == null){
+            clave = COLLATOR.get().getCollationKey(nombre);
+            this.claveNombre = clave;
+        }
+        
+        return clave;
+    }
+    
+    private int compararClaves(Persona p){
+        int comparar = Integer.compare(this.edad, p.edad);
+        if(comparar == 0){
+            comparar = this.actualizarClaveNombre().compareTo(p.actualizarClaveNombre());
+        }
+        
+        return comparar;
     }
     
     @Override
     public String toString(){
-        return nombre + " con DNI: " + DNI + " su dirección es: " + direccion + " de la provincia "
-                + provincia + " con CP " + codigoPostal + " su telefono es: " + telefono + " nació el día: " + fechaNacimiento;
+        return nombre + " con DNI: " + getDNI() + " su dirección es: " + direccion + " de la provincia "
+                + provincia + " con CP " + codigoPostal + " su telefono es: " + getTelefono() + " nació el día: " + getFechaNacimiento();
     }
 
     @Override
     public int hashCode() {
         int hash = 5;
-        hash = 59 * hash + Objects.hashCode(this.DNI);
+        hash = 59 * hash + Integer.hashCode(this.numeroDNI);
         return hash;
     }
 
@@ -312,14 +517,15 @@ public abstract class Persona implements Comparable<Persona>{
             return false;
         }
         final Persona other = (Persona) obj;
-        return Objects.equals(this.DNI, other.DNI);
+        return this.numeroDNI == other.numeroDNI;
     }
     
     @Override
     public int compareTo(Persona p) {
-        String persona1 = this.getEdad()+this.nombre;
-        String persona2 = p.getEdad()+p.nombre;
+        long dia = Utilidades.diaActual();
+        this.actualizarEdad(dia);
+        p.actualizarEdad(dia);
         
-        return persona1.compareTo(persona2);
+        return compararClaves(p);
     }
 }
@@ -0,0 +1,112 @@
+package app;
+
+/**
+ * Esta clase representa la puntuación de un monitor en un momento dado. La
+ * representación de la clase usa los atributos <code>votosPositivos</code>,
+ * <code>votosNegativos</code> y <code>limiteInferior</code>.
+ *
+ * Es inmutable: cada vez que el monitor recibe un voto se crea una puntuación
+ * nueva, de forma que los votos positivos, los negativos y la valoración que se
+ * leen de una misma puntuación siempre son coherentes entre sí aunque se estén
+ * registrando votos a la vez.
+ *
+ * <p>El límite inferior es el extremo inferior del intervalo de confianza de
+ * Wilson al 95% para la proporción de votos positivos. A diferencia del
+ * porcentaje de votos positivos, tiene en cuenta cuántos votos hay, por lo que
+ * un monitor con un solo voto positivo no queda por delante de otro con
+ * cientos de votos casi todos positivos.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public final class PuntuacionMonitor {
+    /**
+     * La puntuación de un monitor que todavía no ha recibido votos.
+     */
+    public static final PuntuacionMonitor SIN_VOTOS = new PuntuacionMonitor(0, 0);
+
+    private static final double Z = 1.96;
+
+    private final long votosPositivos;
+    private final long votosNegativos;
+    private final double limiteInferior;
+
+    /**
+     * Crea una puntuación con los votos indicados y calcula su límite inferior
+     * de Wilson.
+     *
+     * @param votosPositivos El número de votos positivos.
+     * @param votosNegativos El número de votos negativos.
+     */
+    PuntuacionMonitor(long votosPositivos, long votosNegativos){
+        this.votosPositivos = votosPositivos;
+        this.votosNegativos = votosNegativos;
+        this.limiteInferior = calcularLimiteInferior(votosPositivos, votosPositivos + votosNegativos);
+    }
+
+    /**
+     * Devuelve el número de votos positivos.
+     *
+     * @return Los votos positivos.
+     */
+    public long getVotosPositivos(){
+        return this.votosPositivos;
+    }
+
+    /**
+     * Devuelve el número de votos negativos.
+     *
+     * @return Los votos negativos.
+     */
+    public long getVotosNegativos(){
+        return this.votosNegativos;
+    }
+
+    /**
+     * Devuelve el número total de votos.
+     *
+     * @return La suma de los votos positivos y negativos.
+     */
+    public long getVotosTotales(){
+        return this.votosPositivos + this.votosNegativos;
+    }
+
+    /**
+     * Devuelve el límite inferior de Wilson de la proporción de votos
+     * positivos.
+     *
+     * @return Un valor entre 0 y 1, 0 si no hay votos.
+     */
+    public double getLimiteInferior(){
+        return this.limiteInferior;
+    }
+
+    /**
+     * Calcula la valoración como el porcentaje de votos positivos sobre los
+     * votos del monitor, en una escala de 0 a 10 redondeada al entero más
+     * cercano.
+     *
+     * @return La valoración, 0 si no hay votos.
+     */
+    public int calcularValoracion(){
+        long total = getVotosTotales();
+
+        if(total == 0){
+            return 0;
+        }
+        return (int) Math.round(votosPositivos * 10.0 / total);
+    }
+
+    private static double calcularLimiteInferior(long positivos, long total){
+        if(total == 0){
+            return 0;
+        }
+
+        double p = (double) positivos / total;
+        double z2 = Z * Z;
+        double centro = p + z2 / (2 * total);
+        double margen = Z * Math.sqrt((p * (1 - p) + z2 / (4 * total)) / total);
+
+        return (centro - margen) / (1 + z2 / total);
+    }
+}
@@ -0,0 +1,1149 @@
+package app;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import utils.AlmacenIds;
+import utils.IndiceNombres;
+import utils.ListaEnteros;
+import utils.MotorValidacion;
+
+/**
+ * Esta clase representa el conjunto de personas del gimnasio y permite usarlo
+ * desde varios hilos a la vez, por ejemplo desde varios puestos de recepción.
+ * La representación de la clase usa los atributos <code>fragmentos</code>,
+ * <code>secuencia</code>, <code>compactaciones</code>,
+ * <code>minutosSocios</code> y <code>pendientes</code>.
+ *
+ * Las personas se reparten en fragmentos según el número de su DNI (ver
+ * {@link Persona#getNumeroDNI()}), con el que también se indexan, y cada fragmento tiene su
+ * propio {@link StampedLock}, por lo que las altas y bajas de personas con DNI
+ * de fragmentos distintos no se esperan entre sí. Igual que en el índice de
+ * DNI, un socio y un monitor pueden tener el mismo DNI, pero no dos socios ni
+ * dos monitores.
+ *
+ * <p>Las búsquedas por DNI y por nombre solo bloquean el fragmento que
+ * consultan. Los listados y los recuentos copian cada fragmento con una lectura
+ * optimista, sin bloquearlo, y solo si una escritura lo cambia mientras tanto lo
+ * vuelven a copiar con el bloqueo de lectura. Así una escritura solo espera a
+ * la copia de un fragmento y nunca a un recorrido completo, y un recorrido no
+ * impide las escrituras.</p>
+ *
+ * <p>Cada persona recibe un número de secuencia al darse de alta y los
+ * listados devuelven las personas en orden de alta.</p>
+ *
+ * <p>Cada persona recibe también un identificador (ver
+ * {@link Persona#getId()}), que no cambia mientras siga en el repositorio, ni
+ * siquiera al sustituirla con {@link #reemplazar(Persona, Persona)}. Cada
+ * fragmento guarda sus personas en un {@link AlmacenIds}, y el identificador
+ * lleva en sus bits bajos el número del fragmento, por lo que buscar una
+ * persona por su identificador es leer una casilla del almacén de su
+ * fragmento. Las bajas dejan la casilla vacía sin mover a las demás
+ * personas, y las altas siguientes la vuelven a ocupar.</p>
+ *
+ * <p>Las bajas tampoco mueven el array de personas en orden de alta: la
+ * persona se quita de los índices y en su posición queda una lápida, que los
+ * listados y los recuentos saltan, por lo que dar de baja a muchas personas
+ * seguidas no mueve el array una vez por cada baja. Cuando las lápidas llegan
+ * a una cuarta parte de las posiciones de un fragmento, un hilo en segundo
+ * plano compacta el fragmento quitando las lápidas del array. Si además el
+ * fragmento tiene menos de la mitad de las personas que llegó a tener, se
+ * reconstruyen sus índices por DNI y por nombre, cuyas tablas no se reducen al
+ * quitar elementos. {@link #ocupacion()} muestra las posiciones vivas y las
+ * lápidas de todo el repositorio.</p>
+ *
+ * <p>Los socios del repositorio suman sus minutos de actividades a un
+ * contador del repositorio al darse de alta y cada vez que cambian (ver
+ * {@link Socio#getDuracionActividades()}), y los restan al darse de baja, por
+ * lo que los ingresos por cuotas se obtienen sin recorrer a los socios y solo
+ * cuentan los socios dados de alta.</p>
+ *
+ * <p>El repositorio puede empezar con las personas de un
+ * {@link OrigenPersonas}, como una instantánea, sin crearlas (ver
+ * {@link #cargarPendientes(OrigenPersonas, Consumer)}). Cada persona
+ * pendiente se crea y se da de alta en su fragmento la primera vez que se
+ * busca por su DNI o se da de alta otra persona del mismo tipo con su DNI, y
+ * ocupa en los listados la posición que tenía en el origen. Los recuentos,
+ * los minutos de los socios y los inscritos de cada actividad cuentan a los
+ * pendientes con los datos del origen, así que no necesitan crearlos; los
+ * listados, las búsquedas por nombre y los recorridos de todas las personas
+ * crean antes todas las pendientes, y la caducidad de los socios crea los
+ * que caducan (ver {@link #crearCaducados(LocalDate)}). Al crear una persona
+ * pendiente se avisa a quien cargó el origen, fuera del bloqueo del
+ * fragmento. Las personas pendientes no tienen identificador hasta que se
+ * crean y no ocupan posiciones en {@link #ocupacion()}.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class RepositorioPersonas {
+    private static final int BITS_FRAGMENTO = 4;
+    private static final int FRAGMENTOS = 1 << BITS_FRAGMENTO;
+    private static final double UMBRAL_LAPIDAS = 0.25;
+    private static final int MINIMO_LAPIDAS = 64;
+
+    // Un solo hilo compacta los fragmentos de todos los repositorios y
+    // termina cuando lleva un rato sin trabajo.
+    private static final ThreadPoolExecutor COMPACTADOR = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), tarea -> {
+        Thread hilo = new Thread(tarea, "compactador-personas");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    static{
+        COMPACTADOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final Fragmento[] fragmentos;
+    private final AtomicLong secuencia;
+    private final AtomicLong compactaciones;
+    private final LongAdder minutosSocios;
+    private volatile Pendientes pendientes;
+
+    /**
+     * Crea un repositorio sin personas.
+     */
+    public RepositorioPersonas(){
+        this.minutosSocios = new LongAdder();
+        this.fragmentos = new Fragmento[FRAGMENTOS];
+        for(int i = 0; i < FRAGMENTOS; i++){
+            this.fragmentos[i] = new Fragmento(i, minutosSocios);
+        }
+        this.secuencia = new AtomicLong();
+        this.compactaciones = new AtomicLong();
+    }
+
+    private Fragmento fragmento(int numeroDNI){
+        return fragmentos[numeroFragmento(numeroDNI)];
+    }
+
+    private static int numeroFragmento(int numeroDNI){
+        int h = numeroDNI * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (FRAGMENTOS - 1);
+    }
+
+    /**
+     * Empieza el repositorio con las personas de un origen, que se crean la
+     * primera vez que se necesitan. Las personas del origen ocupan las
+     * primeras posiciones en orden de alta, los socios suman sus minutos a
+     * los del repositorio y los socios inscritos en cada actividad del origen
+     * se cuentan en sus inscritos. Hay que llamarlo antes de usar el
+     * repositorio y con las actividades del origen ya en uso, por ejemplo en
+     * un catálogo.
+     *
+     * @param origen Las personas pendientes.
+     * @param alCrear Se llama con cada persona pendiente que se crea, después
+     * de darla de alta, por ejemplo para programar la caducidad de los socios.
+     * No se llama con el bloqueo de ningún fragmento.
+     *
+     * @throws IllegalStateException Si ya se ha dado de alta alguna persona o
+     * ya se han cargado personas pendientes.
+     */
+    public void cargarPendientes(OrigenPersonas origen, Consumer<Persona> alCrear){
+        int numero = origen.numeroPersonas();
+
+        if(!secuencia.compareAndSet(0, numero)){
+            throw new IllegalStateException("El repositorio ya tiene personas");
+        }
+
+        if(numero > 0){
+            ListaEnteros[] posiciones = new ListaEnteros[FRAGMENTOS];
+            int[][] porFragmento = new int[FRAGMENTOS][];
+            int[] socios = new int[FRAGMENTOS];
+            int[] monitores = new int[FRAGMENTOS];
+            for(int i = 0; i < FRAGMENTOS; i++){
+                posiciones[i] = new ListaEnteros();
+            }
+            for(int posicion = 0; posicion < numero; posicion++){
+                int i = numeroFragmento(origen.numeroDNI(posicion));
+                posiciones[i].añadir(posicion);
+                if(origen.esMonitor(posicion)){
+                    monitores[i]++;
+                }else{
+                    socios[i]++;
+                }
+            }
+
+            for(int i = 0; i < FRAGMENTOS; i++){
+                Fragmento f = fragmentos[i];
+                porFragmento[i] = posiciones[i].toArray();
+                long stamp = f.bloqueo.writeLock();
+                try{
+                    f.sociosPendientes = socios[i];
+                    f.monitoresPendientes = monitores[i];
+                }finally{
+                    f.bloqueo.unlockWrite(stamp);
+                }
+            }
+            for(int i = 0; i < origen.numeroActividades(); i++){
+                origen.actividad(i).cargarInscritosPendientes(origen.numeroInscritos(i), this);
+            }
+            minutosSocios.add(origen.getMinutosSocios());
+            pendientes = new Pendientes(origen, alCrear, porFragmento);
+        }
+    }
+
+    /**
+     * Crea todas las personas pendientes que quedan. Lo hacen los listados y
+     * los recorridos antes de copiar las personas, pero también se puede
+     * llamar antes, por ejemplo en segundo plano después de arrancar. Cada
+     * fragmento se bloquea mientras se crean sus personas.
+     */
+    public void crearPendientes(){
+        Pendientes pe = pendientes;
+
+        if(pe != null){
+            for(int i = 0; i < FRAGMENTOS; i++){
+                crearFragmento(pe, fragmentos[i], pe.porFragmento[i]);
+            }
+        }
+    }
+
+    /**
+     * Crea los socios pendientes que caducan el día indicado o antes, para
+     * que la caducidad de los socios los inactive (ver
+     * {@link CaducidadSocios#revisar()}). Cada socio se crea una sola vez,
+     * así que los días siguientes solo se crean los que caducan después.
+     *
+     * @param hoy El día con el que se compara.
+     */
+    public void crearCaducados(LocalDate hoy){
+        Pendientes pe = pendientes;
+
+        if(pe != null){
+            int[][] porFragmento = pe.caducados(hoy.toEpochDay());
+            for(int i = 0; i < FRAGMENTOS; i++){
+                crearFragmento(pe, fragmentos[i], porFragmento[i]);
+            }
+        }
+    }
+
+    /**
+     * Crea las personas pendientes de las posiciones indicadas de un
+     * fragmento, en orden creciente, y las inserta de una vez.
+     */
+    private void crearFragmento(Pendientes pe, Fragmento f, int[] posiciones){
+        ArrayList <Persona> creadas = new ArrayList<>();
+        ListaEnteros secuencias = new ListaEnteros();
+
+        try{
+            long stamp = f.bloqueo.writeLock();
+            try{
+                for(int posicion : posiciones){
+                    Persona p = crear(pe, f, posicion);
+                    if(p != null){
+                        creadas.add(p);
+                        secuencias.añadir(posicion);
+                    }
+                }
+            }finally{
+                f.insertar(creadas, secuencias);
+                f.bloqueo.unlockWrite(stamp);
+            }
+        }finally{
+            creadas(pe, creadas);
+        }
+    }
+
+    /**
+     * Crea la persona pendiente del tipo indicado con ese número de DNI, si
+     * la hay.
+     */
+    private void crearPendiente(int numeroDNI, boolean esMonitor){
+        Pendientes pe = pendientes;
+
+        if(pe != null){
+            int posicion = pe.origen.buscar(numeroDNI, esMonitor);
+            if(posicion != -1){
+                crearPosicion(pe, posicion);
+            }
+        }
+    }
+
+    private void crearPosicion(Pendientes pe, int posicion){
+        // Se lee sin bloqueo: una persona creada nunca vuelve a estar
+        // pendiente, y si todavía no se ve creada se comprueba con el bloqueo.
+        if(!pe.creadas[posicion]){
+            Fragmento f = fragmento(pe.origen.numeroDNI(posicion));
+            ArrayList <Persona> creadas = new ArrayList<>(1);
+            try{
+                long stamp = f.bloqueo.writeLock();
+                try{
+                    Persona p = crear(pe, f, posicion);
+                    if(p != null){
+                        f.insertar(p, posicion);
+                        creadas.add(p);
+                    }
+                }finally{
+                    f.bloqueo.unlockWrite(stamp);
+                }
+            }finally{
+                creadas(pe, creadas);
+            }
+        }
+    }
+
+    /**
+     * Crea la persona pendiente de una posición, si no se ha creado ya, y la
+     * descuenta de los pendientes del fragmento, de los minutos de los socios
+     * y de los inscritos pendientes de sus actividades, en las que ya queda
+     * inscrita. Se llama con el bloqueo de escritura del fragmento, que es el
+     * que protege las posiciones de sus personas, y después hay que insertar
+     * la persona en el fragmento.
+     *
+     * @return La persona, o {@code null} si ya se había creado.
+     */
+    private Persona crear(Pendientes pe, Fragmento f, int posicion){
+        Persona p = null;
+
+        if(!pe.creadas[posicion]){
+            p = pe.origen.persona(posicion);
+            pe.creadas[posicion] = true;
+
+            if(p instanceof Monitor){
+                f.monitoresPendientes--;
+            }else{
+                Socio s = (Socio) p;
+                f.sociosPendientes--;
+                minutosSocios.add(-s.getDuracionActividades());
+
+                ArrayList <Actividad> actividades = s.copiarActividades();
+                for(int i = 0; i < actividades.size(); i++){
+                    boolean repetida = false;
+                    for(int j = 0; j < i && !repetida; j++){
+                        repetida = actividades.get(j) == actividades.get(i);
+                    }
+                    if(!repetida){
+                        actividades.get(i).inscritoPendienteCreado();
+                    }
+                }
+            }
+        }
+
+        return p;
+    }
+
+    /**
+     * Avisa de las personas creadas y, si ya no quedan pendientes, deja de
+     * comprobarlas.
+     */
+    private void creadas(Pendientes pe, ArrayList<Persona> creadas){
+        for(Persona p : creadas){
+            pe.alCrear.accept(p);
+        }
+        if(!creadas.isEmpty() && pe.restantes.addAndGet(-creadas.size()) == 0){
+            pendientes = null;
+        }
+    }
+
+    /**
+     * Da de alta a una persona si no existe otra del mismo tipo (socio o
+     * monitor) con su DNI. La comprobación y el alta se hacen a la vez, así que
+     * dos altas simultáneas con el mismo DNI no pueden tener éxito las dos. Si
+     * hay una persona pendiente del mismo tipo con ese DNI, se crea antes. La
+     * persona recibe su identificador.
+     *
+     * @param p La persona que se quiere añadir.
+     * @return {@code true} si se ha añadido, {@code false} si ya existía una
+     * persona del mismo tipo con ese DNI o la persona ya está en un
+     * repositorio.
+     */
+    public boolean añadir(Persona p){
+        crearPendiente(p.getNumeroDNI(), p instanceof Monitor);
+
+        Fragmento f = fragmento(p.getNumeroDNI());
+        long stamp = f.bloqueo.writeLock();
+        try{
+            return f.añadir(p, secuencia.getAndIncrement());
+        }finally{
+            f.bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Da de baja a una persona, que deja de tener identificador. En su
+     * posición queda una lápida y, si con ella el fragmento pasa del umbral de
+     * lápidas, se pide su compactación en segundo plano.
+     *
+     * @param p La persona que se quiere eliminar.
+     * @return {@code true} si se ha eliminado, {@code false} si no estaba en
+     * el repositorio.
+     */
+    public boolean eliminar(Persona p){
+        Fragmento f = fragmento(p.getNumeroDNI());
+        boolean eliminada;
+        boolean compactar = false;
+        long stamp = f.bloqueo.writeLock();
+        try{
+            eliminada = f.eliminar(p);
+            if(eliminada && !f.compactacionPendiente && f.lapidas >= MINIMO_LAPIDAS && f.lapidas >= f.tamaño * UMBRAL_LAPIDAS){
+                f.compactacionPendiente = true;
+                compactar = true;
+            }
+        }finally{
+            f.bloqueo.unlockWrite(stamp);
+        }
+
+        if(compactar){
+            COMPACTADOR.execute(() -> compactar(f));
+        }
+        return eliminada;
+    }
+
+    /**
+     * Compacta ahora todos los fragmentos que tengan alguna lápida, sin
+     * esperar al hilo en segundo plano. Sirve, por ejemplo, al terminar una
+     * baja masiva de socios.
+     */
+    public void compactar(){
+        for(Fragmento f : fragmentos){
+            compactar(f);
+        }
+    }
+
+    private void compactar(Fragmento f){
+        long stamp = f.bloqueo.writeLock();
+        try{
+            f.compactacionPendiente = false;
+            if(f.lapidas > 0){
+                f.compactar();
+                compactaciones.incrementAndGet();
+            }
+        }finally{
+            f.bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Devuelve la ocupación del repositorio: las posiciones con personas, las
+     * lápidas que quedan por compactar y las compactaciones hechas.
+     *
+     * @return La ocupación del repositorio.
+     */
+    public Ocupacion ocupacion(){
+        int vivas = 0;
+        int lapidas = 0;
+
+        for(Fragmento f : fragmentos){
+            long stamp = f.bloqueo.readLock();
+            try{
+                vivas += f.tamaño - f.lapidas;
+                lapidas += f.lapidas;
+            }finally{
+                f.bloqueo.unlockRead(stamp);
+            }
+        }
+
+        return new Ocupacion(vivas, lapidas, compactaciones.get());
+    }
+
+    /**
+     * Sustituye una persona por otra con el mismo DNI, conservando su posición
+     * en los listados. Se usa, por ejemplo, al convertir un socio en socio
+     * premium.
+     *
+     * @param anterior La persona que se sustituye.
+     * @param nueva La persona que ocupa su lugar.
+     * @return {@code true} si se ha sustituido, {@code false} si la persona
+     * anterior no estaba en el repositorio.
+     *
+     * @throws IllegalArgumentException Si las dos personas no tienen el mismo
+     * DNI o no son del mismo tipo (socio o monitor), o si la persona nueva ya
+     * está en un repositorio.
+     */
+    public boolean reemplazar(Persona anterior, Persona nueva){
+        if(anterior.getNumeroDNI() != nueva.getNumeroDNI() || (anterior instanceof Monitor) != (nueva instanceof Monitor)){
+            throw new IllegalArgumentException("Solo se puede sustituir una persona por otra del mismo tipo y con el mismo DNI");
+        }
+        if(nueva.getId() != -1){
+            throw new IllegalArgumentException("La persona nueva ya está en un repositorio");
+        }
+
+        Fragmento f = fragmento(anterior.getNumeroDNI());
+        long stamp = f.bloqueo.writeLock();
+        try{
+            return f.reemplazar(anterior, nueva);
+        }finally{
+            f.bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Cambia el nombre de una persona del repositorio (ver
+     * {@link Persona#setNombre(String)}) y la mueve a su nuevo nombre en el
+     * índice por nombre. Las dos cosas se hacen con el fragmento de la persona
+     * bloqueado, así que una búsqueda por nombre la encuentra por el nombre
+     * anterior o por el nuevo, pero nunca por los dos ni por ninguno.
+     *
+     * @param p La persona.
+     * @param nombre El nombre nuevo, con entre 10 y 50 caracteres.
+     * @return {@code true} si se ha cambiado el nombre, {@code false} si la
+     * persona no está en el repositorio o el nombre no es válido.
+     */
+    public boolean renombrar(Persona p, String nombre){
+        Fragmento f = fragmento(p.getNumeroDNI());
+        long stamp = f.bloqueo.writeLock();
+        try{
+            return f.renombrar(p, nombre);
+        }finally{
+            f.bloqueo.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Busca una persona por su DNI. Si es una persona pendiente, se crea.
+     *
+     * @param dni El DNI que se busca.
+     * @param esMonitor {@code true} para buscar entre los monitores y
+     * {@code false} para buscar entre los socios.
+     * @return La persona o {@code null} si no existe.
+     */
+    public Persona buscar(String dni, boolean esMonitor){
+        int numero = MotorValidacion.numeroDNI(dni);
+        if(numero == -1){
+            return null;
+        }
+
+        crearPendiente(numero, esMonitor);
+        Fragmento f = fragmento(numero);
+        long stamp = f.bloqueo.readLock();
+        try{
+            Entrada e = (esMonitor ? f.monitores : f.socios).get(numero);
+            return e == null ? null : e.persona;
+        }finally{
+            f.bloqueo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Busca una persona por su identificador.
+     *
+     * @param id El identificador (ver {@link Persona#getId()}).
+     * @return La persona o {@code null} si no hay ninguna persona con ese
+     * identificador en el repositorio.
+     */
+    public Persona porId(int id){
+        if(id < 0){
+            return null;
+        }
+
+        Fragmento f = fragmentos[id & (FRAGMENTOS - 1)];
+        long stamp = f.bloqueo.readLock();
+        try{
+            return f.almacen.get(id >>> BITS_FRAGMENTO);
+        }finally{
+            f.bloqueo.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Indica si existe alguna persona del tipo indicado con ese DNI.
+     *
+     * @param dni El DNI que se quiere comprobar.
+     * @param esMonitor {@code true} para buscar entre los monitores y
+     * {@code false} para buscar entre los socios.
+     * @return {@code true} si el DNI está registrado, {@code false} en caso
+     * contrario.
+     */
+    public boolean existe(String dni, boolean esMonitor){
+        return buscar(dni, esMonitor) != null;
+    }
+
+    /**
+     * Busca las personas cuyo nombre normalizado coincide con el indicado,
+     * creando antes las pendientes.
+     *
+     * @param nombreNormalizado El nombre normalizado que se busca.
+     * @return Una lista nueva con las personas que coinciden, en orden de alta.
+     */
+    public ArrayList<Persona> buscarNombre(String nombreNormalizado){
+        ArrayList <Entrada> entradas = new ArrayList<>();
+
+        crearPendientes();
+        for(Fragmento f : fragmentos){
+            long stamp = f.bloqueo.readLock();
+            try{
+                for(Persona p : f.nombres.buscar(nombreNormalizado)){
+                    entradas.add(f.entrada(p));
+                }
+            }finally{
+                f.bloqueo.unlockRead(stamp);
+            }
+        }
+
+        entradas.sort((a, b) -> Long.compare(a.secuencia, b.secuencia));
+
+        ArrayList <Persona> coincidencias = new ArrayList<>(entradas.size());
+        for(Entrada e : entradas){
+            coincidencias.add(e.persona);
+        }
+        return coincidencias;
+    }
+
+    /**
+     * Devuelve todas las personas en orden de alta, creando antes las
+     * pendientes.
+     *
+     * @return Una lista nueva con las personas.
+     */
+    public ArrayList<Persona> listar(){
+        Copia[] copias = new Copia[FRAGMENTOS];
+        int total = 0;
+
+        crearPendientes();
+        for(int i = 0; i < FRAGMENTOS; i++){
+            copias[i] = fragmentos[i].copiar();
+            total += copias[i].personas.length;
+        }
+
+        // Cada copia está en orden de alta: se mezclan tomando en cada paso la
+        // persona con la secuencia menor.
+        ArrayList <Persona> personas = new ArrayList<>(total);
+        int[] siguientes = new int[FRAGMENTOS];
+        for(int n = 0; n < total; n++){
+            int menor = -1;
+            for(int i = 0; i < FRAGMENTOS; i++){
+                if(siguientes[i] < copias[i].personas.length && (menor == -1 || copias[i].secuencias[siguientes[i]] < copias[menor].secuencias[siguientes[menor]])){
+                    menor = i;
+                }
+            }
+            personas.add(copias[menor].personas[siguientes[menor]++]);
+        }
+
+        return personas;
+    }
+
+    /**
+     * Devuelve una copia de las personas de cada fragmento, sin mezclarlas en
+     * orden de alta. La usan los recorridos que no necesitan el orden, como
+     * los barridos en paralelo de {@link BarridoSocios}, que reparten cada
+     * fragmento entre varias tareas. Antes se crean las personas pendientes.
+     *
+     * @return Un array con las personas de cada fragmento.
+     */
+    Persona[][] copiarFragmentos(){
+        Persona[][] copias = new Persona[FRAGMENTOS][];
+
+        crearPendientes();
+        for(int i = 0; i < FRAGMENTOS; i++){
+            copias[i] = fragmentos[i].copiar().personas;
+        }
+
+        return copias;
+    }
+
+    /**
+     * Devuelve el número de personas.
+     *
+     * @return El número de personas.
+     */
+    public int size(){
+        return numeroSocios() + numeroMonitores();
+    }
+
+    /**
+     * Indica si no hay ninguna persona.
+     *
+     * @return {@code true} si no hay personas, {@code false} en caso
+     * contrario.
+     */
+    public boolean isEmpty(){
+        return size() == 0;
+    }
+
+    /**
+     * Devuelve el número de socios, incluidos los socios premium y los
+     * pendientes.
+     *
+     * @return El número de socios.
+     */
+    public int numeroSocios(){
+        int total = 0;
+        for(Fragmento f : fragmentos){
+            total += f.contar(false);
+        }
+        return total;
+    }
+
+    /**
+     * Devuelve el número de monitores, incluidos los pendientes.
+     *
+     * @return El número de monitores.
+     */
+    public int numeroMonitores(){
+        int total = 0;
+        for(Fragmento f : fragmentos){
+            total += f.contar(true);
+        }
+        return total;
+    }
+
+    /**
+     * Devuelve la suma de los minutos de actividades de los socios del
+     * repositorio, incluidos los pendientes.
+     *
+     * @return Los minutos de los socios.
+     */
+    public long getMinutosSocios(){
+        return minutosSocios.sum();
+    }
+
+    /**
+     * Devuelve los ingresos por cuotas de los socios del repositorio, es
+     * decir, la suma de sus cuotas.
+     *
+     * @return Los ingresos por cuotas.
+     */
+    public double getIngresos(){
+        return Socio.PRECIO_MINUTO*minutosSocios.sum();
+    }
+
+    /**
+     * Las personas de un origen que todavía no se han creado. Las posiciones
+     * de cada fragmento están en orden creciente, y cada posición creada se
+     * marca con el bloqueo de su fragmento.
+     */
+    private static class Pendientes {
+        private final OrigenPersonas origen;
+        private final Consumer<Persona> alCrear;
+        private final int[][] porFragmento;
+        private final boolean[] creadas;
+        private final AtomicInteger restantes;
+        private int siguienteCaducidad;
+
+        private Pendientes(OrigenPersonas origen, Consumer<Persona> alCrear, int[][] porFragmento){
+            this.origen = origen;
+            this.alCrear = alCrear;
+            this.porFragmento = porFragmento;
+            this.creadas = new boolean[origen.numeroPersonas()];
+            this.restantes = new AtomicInteger(origen.numeroPersonas());
+        }
+
+        /**
+         * Devuelve, por fragmentos y en orden creciente, las posiciones de los
+         * socios del origen que caducan el día indicado o antes y que no se
+         * habían devuelto ya.
+         */
+        private synchronized int[][] caducados(long hoy){
+            ListaEnteros[] posiciones = new ListaEnteros[FRAGMENTOS];
+            for(int i = 0; i < FRAGMENTOS; i++){
+                posiciones[i] = new ListaEnteros();
+            }
+            while(siguienteCaducidad < origen.numeroCaducidades() && origen.diaCaducidad(siguienteCaducidad) <= hoy){
+                int posicion = origen.posicionCaducidad(siguienteCaducidad++);
+                posiciones[numeroFragmento(origen.numeroDNI(posicion))].añadir(posicion);
+            }
+
+            int[][] porFragmento = new int[FRAGMENTOS][];
+            for(int i = 0; i < FRAGMENTOS; i++){
+                porFragmento[i] = posiciones[i].toArray();
+                Arrays.sort(porFragmento[i]);
+            }
+            return porFragmento;
+        }
+    }
+
+    /**
+     * Una persona del repositorio y su secuencia de alta.
+     */
+    private static class Entrada {
+        private Persona persona;
+        private final long secuencia;
+
+        private Entrada(Persona persona, long secuencia){
+            this.persona = persona;
+            this.secuencia = secuencia;
+        }
+    }
+
+    /**
+     * Copia de las personas de un fragmento y de sus secuencias, en orden de
+     * alta.
+     */
+    private static class Copia {
+        private final Persona[] personas;
+        private final long[] secuencias;
+
+        private Copia(Persona[] personas, long[] secuencias){
+            this.personas = personas;
+            this.secuencias = secuencias;
+        }
+    }
+
+    /**
+     * La ocupación del repositorio en un momento dado.
+     */
+    public static class Ocupacion {
+        private final int vivas;
+        private final int lapidas;
+        private final long compactaciones;
+
+        private Ocupacion(int vivas, int lapidas, long compactaciones){
+            this.vivas = vivas;
+            this.lapidas = lapidas;
+            this.compactaciones = compactaciones;
+        }
+
+        /**
+         * Devuelve el número de posiciones ocupadas por personas.
+         *
+         * @return Las posiciones vivas.
+         */
+        public int getVivas(){
+            return vivas;
+        }
+
+        /**
+         * Devuelve el número de lápidas que quedan por compactar.
+         *
+         * @return Las lápidas.
+         */
+        public int getLapidas(){
+            return lapidas;
+        }
+
+        /**
+         * Devuelve la proporción de lápidas entre todas las posiciones.
+         *
+         * @return La proporción de lápidas, entre 0 y 1.
+         */
+        public double getProporcionLapidas(){
+            return vivas + lapidas == 0 ? 0 : (double) lapidas / (vivas + lapidas);
+        }
+
+        /**
+         * Devuelve el número de fragmentos compactados desde que se creó el
+         * repositorio.
+         *
+         * @return Las compactaciones.
+         */
+        public long getCompactaciones(){
+            return compactaciones;
+        }
+
+        @Override
+        public String toString(){
+            return String.format("%d posiciones vivas, %d lápidas (%.1f %%), %d compactaciones", vivas, lapidas, getProporcionLapidas() * 100, compactaciones);
+        }
+    }
+
+    /**
+     * Las personas de un fragmento. Las personas se guardan en orden de alta en
+     * un array, junto con sus secuencias, y se indexan por DNI, por nombre y
+     * por identificador. Las bajas dejan una lápida (null) en el array y
+     * conservan su secuencia hasta que el fragmento se compacta.
+     * Como las secuencias del array son crecientes, la posición de una persona
+     * se busca con una búsqueda binaria de su secuencia. Los métodos que
+     * modifican el fragmento se llaman con el bloqueo de escritura.
+     */
+    private static class Fragmento {
+        private final int numero;
+        private final LongAdder minutosSocios;
+        private final StampedLock bloqueo = new StampedLock();
+        private HashMap <Integer, Entrada> socios = new HashMap<>();
+        private HashMap <Integer, Entrada> monitores = new HashMap<>();
+        private IndiceNombres <Persona> nombres = new IndiceNombres<>();
+        private final AlmacenIds <Persona> almacen = new AlmacenIds<>();
+        private Persona[] personas = new Persona[8];
+        private long[] secuencias = new long[8];
+        private int tamaño;
+        private int lapidas;
+        private int maximoVivas;
+        private int numeroMonitores;
+        private int sociosPendientes;
+        private int monitoresPendientes;
+        private boolean compactacionPendiente;
+
+        private Fragmento(int numero, LongAdder minutosSocios){
+            this.numero = numero;
+            this.minutosSocios = minutosSocios;
+        }
+
+        private boolean añadir(Persona p, long secuencia){
+            HashMap <Integer, Entrada> porDNI = p instanceof Monitor ? monitores : socios;
+            boolean añadida = false;
+
+            if(p.getId() == -1 && !porDNI.containsKey(p.getNumeroDNI())){
+                if(tamaño == personas.length){
+                    personas = Arrays.copyOf(personas, tamaño * 2);
+                    secuencias = Arrays.copyOf(secuencias, tamaño * 2);
+                }
+                personas[tamaño] = p;
+                secuencias[tamaño] = secuencia;
+                tamaño++;
+                indexar(p, secuencia);
+                añadida = true;
+            }
+
+            return añadida;
+        }
+
+        /**
+         * Inserta una persona pendiente recién creada en la posición de su
+         * secuencia, que puede ser anterior a la de otras personas del
+         * fragmento.
+         */
+        private void insertar(Persona p, long secuencia){
+            int i = -(Arrays.binarySearch(secuencias, 0, tamaño, secuencia) + 1);
+
+            if(tamaño == personas.length){
+                personas = Arrays.copyOf(personas, tamaño * 2);
+                secuencias = Arrays.copyOf(secuencias, tamaño * 2);
+            }
+            System.arraycopy(personas, i, personas, i + 1, tamaño - i);
+            System.arraycopy(secuencias, i, secuencias, i + 1, tamaño - i);
+            personas[i] = p;
+            secuencias[i] = secuencia;
+            tamaño++;
+            indexar(p, secuencia);
+        }
+
+        /**
+         * Inserta de una vez varias personas pendientes recién creadas, con
+         * sus secuencias en orden creciente, mezclándolas con las del
+         * fragmento en un array nuevo.
+         */
+        private void insertar(ArrayList<Persona> nuevas, ListaEnteros secuenciasNuevas){
+            if(!nuevas.isEmpty()){
+                int total = tamaño + nuevas.size();
+                int capacidad = personas.length;
+                while(capacidad < total){
+                    capacidad *= 2;
+                }
+
+                Persona[] p = new Persona[capacidad];
+                long[] s = new long[capacidad];
+                int i = 0;
+                int j = 0;
+                for(int n = 0; n < total; n++){
+                    if(j == nuevas.size() || (i < tamaño && secuencias[i] < secuenciasNuevas.get(j))){
+                        p[n] = personas[i];
+                        s[n] = secuencias[i];
+                        i++;
+                    }else{
+                        p[n] = nuevas.get(j);
+                        s[n] = secuenciasNuevas.get(j);
+                        j++;
+                    }
+                }
+                personas = p;
+                secuencias = s;
+                tamaño = total;
+
+                for(int n = 0; n < nuevas.size(); n++){
+                    indexar(nuevas.get(n), secuenciasNuevas.get(n));
+                }
+            }
+        }
+
+        /**
+         * Añade a los índices una persona que ya está en el array y le da su
+         * identificador.
+         */
+        private void indexar(Persona p, long secuencia){
+            boolean esMonitor = p instanceof Monitor;
+
+            maximoVivas = Math.max(maximoVivas, tamaño - lapidas);
+            (esMonitor ? monitores : socios).put(p.getNumeroDNI(), new Entrada(p, secuencia));
+            nombres.añadir(p.getNombreNormalizado(), p);
+            p.setId(almacen.añadir(p) << BITS_FRAGMENTO | numero);
+            if(esMonitor){
+                numeroMonitores++;
+            }else{
+                ((Socio) p).entrarRepositorio(minutosSocios);
+            }
+        }
+
+        private boolean eliminar(Persona p){
+            int i = indice(p);
+
+            if(i != -1){
+                personas[i] = null;
+                lapidas++;
+
+                (p instanceof Monitor ? monitores : socios).remove(p.getNumeroDNI());
+                nombres.eliminar(p.getNombreNormalizado(), p);
+                almacen.eliminar(p.getId() >>> BITS_FRAGMENTO);
+                p.setId(-1);
+                if(p instanceof Monitor){
+                    numeroMonitores--;
+                }else{
+                    ((Socio) p).salirRepositorio();
+                }
+            }
+
+            return i != -1;
+        }
+
+        private boolean reemplazar(Persona anterior, Persona nueva){
+            int i = indice(anterior);
+
+            if(i != -1){
+                personas[i] = nueva;
+                entrada(anterior).persona = nueva;
+                nombres.eliminar(anterior.getNombreNormalizado(), anterior);
+                nombres.añadir(nueva.getNombreNormalizado(), nueva);
+                almacen.reemplazar(anterior.getId() >>> BITS_FRAGMENTO, nueva);
+                nueva.setId(anterior.getId());
+                anterior.setId(-1);
+                if(!(anterior instanceof Monitor)){
+                    ((Socio) anterior).salirRepositorio();
+                    ((Socio) nueva).entrarRepositorio(minutosSocios);
+                }
+            }
+
+            return i != -1;
+        }
+
+        private boolean renombrar(Persona p, String nombre){
+            String anterior = p.getNombreNormalizado();
+            boolean renombrada = indice(p) != -1 && p.cambiarNombre(nombre);
+
+            if(renombrada){
+                nombres.renombrar(anterior, p.getNombreNormalizado(), p);
+            }
+
+            return renombrada;
+        }
+
+        /**
+         * Quita las lápidas del array, conservando el orden de alta. Si el
+         * array se queda muy vacío, se reduce, y si quedan menos de la mitad
+         * de las personas que llegó a haber, se reconstruyen los índices por
+         * DNI y por nombre con las personas que quedan.
+         */
+        private void compactar(){
+            int vivas = 0;
+            for(int i = 0; i < tamaño; i++){
+                if(personas[i] != null){
+                    personas[vivas] = personas[i];
+                    secuencias[vivas] = secuencias[i];
+                    vivas++;
+                }
+            }
+            Arrays.fill(personas, vivas, tamaño, null);
+            tamaño = vivas;
+            lapidas = 0;
+
+            if(personas.length > 8 && personas.length >= tamaño * 4){
+                int capacidad = Math.max(8, tamaño * 2);
+                personas = Arrays.copyOf(personas, capacidad);
+                secuencias = Arrays.copyOf(secuencias, capacidad);
+            }
+
+            if(tamaño * 2 < maximoVivas){
+                reconstruirIndices();
+            }
+        }
+
+        private void reconstruirIndices(){
+            HashMap <Integer, Entrada> nuevosSocios = new HashMap<>();
+            HashMap <Integer, Entrada> nuevosMonitores = new HashMap<>();
+            IndiceNombres <Persona> nuevosNombres = new IndiceNombres<>();
+            for(int i = 0; i < tamaño; i++){
+                Persona p = personas[i];
+                Entrada e = entrada(p);
+                (p instanceof Monitor ? nuevosMonitores : nuevosSocios).put(p.getNumeroDNI(), e);
+                nuevosNombres.añadir(p.getNombreNormalizado(), p);
+            }
+            socios = nuevosSocios;
+            monitores = nuevosMonitores;
+            nombres = nuevosNombres;
+            maximoVivas = tamaño;
+        }
+
+        private Entrada entrada(Persona p){
+            return (p instanceof Monitor ? monitores : socios).get(p.getNumeroDNI());
+        }
+
+        private int indice(Persona p){
+            Entrada e = entrada(p);
+            int posicion = -1;
+
+            if(e != null && e.persona == p){
+                posicion = Arrays.binarySearch(secuencias, 0, tamaño, e.secuencia);
+            }
+            return posicion;
+        }
+
+        private Copia copiar(){
+            long stamp = bloqueo.tryOptimisticRead();
+            Persona[] p = personas;
+            long[] s = secuencias;
+            int n = tamaño;
+            Persona[] copiaPersonas = Arrays.copyOf(p, Math.min(n, p.length));
+            long[] copiaSecuencias = Arrays.copyOf(s, Math.min(n, s.length));
+
+            if(!bloqueo.validate(stamp)){
+                stamp = bloqueo.readLock();
+                try{
+                    copiaPersonas = Arrays.copyOf(personas, tamaño);
+                    copiaSecuencias = Arrays.copyOf(secuencias, tamaño);
+                }finally{
+                    bloqueo.unlockRead(stamp);
+                }
+            }
+
+            return sinLapidas(copiaPersonas, copiaSecuencias);
+        }
+
+        /**
+         * Quita las lápidas de una copia del fragmento. Si no tiene ninguna,
+         * se devuelve la misma copia.
+         */
+        private static Copia sinLapidas(Persona[] personas, long[] secuencias){
+            int vivas = 0;
+            for(Persona p : personas){
+                if(p != null){
+                    vivas++;
+                }
+            }
+
+            if(vivas < personas.length){
+                Persona[] p = new Persona[vivas];
+                long[] s = new long[vivas];
+                int n = 0;
+                for(int i = 0; i < personas.length; i++){
+                    if(personas[i] != null){
+                        p[n] = personas[i];
+                        s[n] = secuencias[i];
+                        n++;
+                    }
+                }
+                personas = p;
+                secuencias = s;
+            }
+
+            return new Copia(personas, secuencias);
+        }
+
+        private int contar(boolean esMonitor){
+            long stamp = bloqueo.tryOptimisticRead();
+            int n = tamaño - lapidas;
+            int m = numeroMonitores;
+            int pendientes = esMonitor ? monitoresPendientes : sociosPendientes;
+
+            if(!bloqueo.validate(stamp)){
+                stamp = bloqueo.readLock();
+                try{
+                    n = tamaño - lapidas;
+                    m = numeroMonitores;
+                    pendientes = esMonitor ? monitoresPendientes : sociosPendientes;
+                }finally{
+                    bloqueo.unlockRead(stamp);
+                }
+            }
+
+            return (esMonitor ? m : n - m) + pendientes;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esta clase representa el resultado de un barrido de los socios (ver
+ * {@link BarridoSocios}). La representación de la clase usa los atributos
+ * <code>revisados</code>, <code>afectados</code>, <code>minutos</code>,
+ * <code>importe</code> y <code>detalles</code>.
+ *
+ * Cada tarea del barrido acumula en su propio resultado y los resultados de
+ * las tareas se combinan al terminar, por lo que los atributos no se comparten
+ * entre hilos mientras se acumulan. Qué son los socios afectados depende del
+ * trabajo: los inactivados, los socios con la cuota corregida o los que tienen
+ * algún dato incorrecto.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ResultadoBarrido {
+    private static final int MAXIMO_DETALLES = 20;
+
+    private long revisados;
+    private long afectados;
+    private long minutos;
+    private double importe;
+    private final ArrayList <String> detalles = new ArrayList<>();
+
+    /**
+     * Cuenta un socio revisado.
+     */
+    void revisado(){
+        revisados++;
+    }
+
+    /**
+     * Cuenta un socio afectado.
+     */
+    void afectado(){
+        afectados++;
+    }
+
+    /**
+     * Cuenta un socio afectado y guarda una descripción de lo que le ocurre.
+     * Solo se guardan las primeras descripciones.
+     *
+     * @param detalle La descripción.
+     */
+    void afectado(String detalle){
+        afectados++;
+        if(detalles.size() < MAXIMO_DETALLES){
+            detalles.add(detalle);
+        }
+    }
+
+    /**
+     * Suma minutos e importe al total del barrido.
+     *
+     * @param minutos Los minutos que se suman.
+     * @param importe El importe que se suma.
+     */
+    void sumar(long minutos, double importe){
+        this.minutos += minutos;
+        this.importe += importe;
+    }
+
+    /**
+     * Añade a este resultado el de otra tarea.
+     *
+     * @param otro El resultado de la otra tarea.
+     * @return Este resultado.
+     */
+    ResultadoBarrido combinar(ResultadoBarrido otro){
+        revisados += otro.revisados;
+        afectados += otro.afectados;
+        minutos += otro.minutos;
+        importe += otro.importe;
+        for(int i = 0; i < otro.detalles.size() && detalles.size() < MAXIMO_DETALLES; i++){
+            detalles.add(otro.detalles.get(i));
+        }
+        return this;
+    }
+
+    /**
+     * Devuelve el número de socios revisados.
+     *
+     * @return Los socios revisados.
+     */
+    public long getRevisados(){
+        return revisados;
+    }
+
+    /**
+     * Devuelve el número de socios afectados.
+     *
+     * @return Los socios afectados.
+     */
+    public long getAfectados(){
+        return afectados;
+    }
+
+    /**
+     * Devuelve la suma de los minutos de los socios revisados.
+     *
+     * @return Los minutos.
+     */
+    public long getMinutos(){
+        return minutos;
+    }
+
+    /**
+     * Devuelve la suma de las cuotas de los socios revisados.
+     *
+     * @return El importe.
+     */
+    public double getImporte(){
+        return importe;
+    }
+
+    /**
+     * Devuelve las descripciones de los primeros socios afectados.
+     *
+     * @return Una lista con las descripciones.
+     */
+    public List<String> getDetalles(){
+        return Collections.unmodifiableList(detalles);
+    }
+}
@@ -2,29 +2,62 @@ package app;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import utils.ConjuntoEnteros;
+import utils.ListaEnteros;
 
 /**
  * Esta clase representa a un socio en una organización, heredando de la clase
  * {@code Persona}. La representación de la clase usa los atributos
- * <code>fechaRegistro</code>, <code>fechaUltimoAcceso</code>,
- * <code>estaActivo</code>, <code>cuota</code> y <code>listaActividad</code>.
+ * <code>diaRegistro</code>, <code>diaUltimoAcceso</code>,
+ * <code>estaActivo</code>, <code>minutosTotales</code>,
+ * <code>minutosRepositorio</code> y <code>actividades</code>.
  *
  * El socio tiene un conjunto de actividades en las que puede participar, y su
  * cuota se calcula en función de la duración de dichas actividades. La clase
  * permite agregar o eliminar actividades, así como gestionar su estado activo y
  * calcular su cuota total.
  *
+ * <p>Los minutos totales y la cuota del socio se actualizan cada vez que añade
+ * o elimina una actividad, o cuando cambia la duración de una actividad en la
+ * que está inscrito, por lo que consultarlos no recorre sus actividades. La
+ * cuota no se guarda, ya que se calcula directamente con los minutos. Los
+ * minutos de los socios que están en un {@link RepositorioPersonas} se
+ * acumulan además en un contador del repositorio, del que se obtienen los
+ * ingresos del gimnasio sin recorrer a los socios (ver
+ * {@link RepositorioPersonas#getIngresos()}). Los socios que no están en un
+ * repositorio, como las copias o los socios rechazados por tener un DNI
+ * repetido, no cuentan en los ingresos.</p>
+ *
+ * <p>Las actividades, los minutos y la cuota de un socio se consultan desde
+ * los tornos a la vez que se modifican desde la consola, por lo que los
+ * métodos que los leen o los cambian se sincronizan sobre el socio. El socio
+ * se bloquea antes que sus actividades, nunca al revés. La fecha del último
+ * acceso y el estado de actividad son volátiles.</p>
+ *
+ * <p>De cada actividad el socio guarda solo su identificador (ver
+ * {@link Actividad#getId()}), que no cambia mientras el socio esté inscrito,
+ * en una {@link ListaEnteros}. Añadir, quitar o
+ * buscar una actividad no crea objetos, y copiar las actividades de un socio es
+ * una sola copia de un array. Las listas de actividades que devuelve la clase
+ * se construyen a partir de los identificadores.</p>
+ *
+ * <p>Igual que la fecha de nacimiento, las fechas de registro y de último
+ * acceso se guardan como número de días desde el 1 de enero de 1970.</p>
+ *
  * @author David Diéguez
  * @version 1.0
  */
 
 
 public class Socio extends Persona{
-    private LocalDate fechaRegistro;
-    private LocalDate fechaUltimoAcceso;
-    private boolean estaActivo;
-    private double cuota;
-    protected ArrayList <Actividad> listaActividad = new ArrayList();
+    private int diaRegistro;
+    private volatile int diaUltimoAcceso;
+    private volatile boolean estaActivo;
+    private int minutosTotales;
+    static final double PRECIO_MINUTO = 6.5/60;
+    private LongAdder minutosRepositorio;
+    protected ListaEnteros actividades = new ListaEnteros();
     
     /**
      * Crea un nuevo objeto {@code Socio} con los datos proporcionados.
@@ -48,10 +81,58 @@ public class Socio extends Persona{
      */
     public Socio(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, String fechaNacimiento) {
         super(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento);
-        this.fechaRegistro = LocalDate.now();
-        this.fechaUltimoAcceso = LocalDate.now();
+        this.diaRegistro = (int) LocalDate.now().toEpochDay();
+        this.diaUltimoAcceso = this.diaRegistro;
         this.estaActivo = true;
-        this.cuota = calcularCuota(this.getDuracionActividades());
+        this.minutosTotales = 0;
+    }
+    
+    /**
+     * Crea un socio que ya estaba dado de alta con sus fechas y su estado. Los
+     * datos se validan como en {@link Persona}, salvo la edad máxima, que solo
+     * se exige al darlo de alta.
+     *
+     * @param nombre El nombre del socio.
+     * @param DNI El DNI del socio.
+     * @param direccion La dirección del socio.
+     * @param localidad La localidad del socio.
+     * @param provincia La provincia del socio.
+     * @param codigoPostal El código postal del socio.
+     * @param telefono El teléfono del socio.
+     * @param fechaNacimiento La fecha de nacimiento del socio.
+     * @param fechaRegistro La fecha de registro del socio.
+     * @param fechaUltimoAcceso La fecha del último acceso del socio.
+     * @param estaActivo Si el socio está activo.
+     */
+    protected Socio(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento, LocalDate fechaRegistro, LocalDate fechaUltimoAcceso, boolean estaActivo) {
+        super(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento);
+        this.diaRegistro = (int) fechaRegistro.toEpochDay();
+        this.diaUltimoAcceso = (int) fechaUltimoAcceso.toEpochDay();
+        this.estaActivo = estaActivo;
+        this.minutosTotales = 0;
+    }
+    
+    /**
+     * Recupera un socio guardado, por ejemplo en una instantánea o en el
+     * diario, sin volver a exigir la edad máxima del alta.
+     *
+     * @param nombre El nombre del socio.
+     * @param DNI El DNI del socio.
+     * @param direccion La dirección del socio.
+     * @param localidad La localidad del socio.
+     * @param provincia La provincia del socio.
+     * @param codigoPostal El código postal del socio.
+     * @param telefono El teléfono del socio.
+     * @param fechaNacimiento La fecha de nacimiento del socio.
+     * @param fechaRegistro La fecha de registro del socio.
+     * @param fechaUltimoAcceso La fecha del último acceso del socio.
+     * @param estaActivo Si el socio está activo.
+     * @return El socio.
+     *
+     * @throws IllegalArgumentException Si alguno de los datos no es válido.
+     */
+    public static Socio restaurar(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento, LocalDate fechaRegistro, LocalDate fechaUltimoAcceso, boolean estaActivo) {
+        return new Socio(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo);
     }
     
     /**
@@ -62,20 +143,21 @@ public class Socio extends Persona{
      * los atributos heredados de la clase {@code Persona}, así como los
      * atributos específicos de la clase {@code Socio} como la fecha de
      * registro, la fecha del último acceso, el estado de actividad, la cuota y
-     * la lista de actividades. La lista de actividades no se clona
-     * profundamente, por lo que ambas instancias compartirán la misma
-     * referencia.
+     * la lista de actividades. Las actividades no se clonan, por lo que ambas
+     * instancias comparten las mismas actividades, y el nuevo socio queda
+     * inscrito en cada una de ellas. Los identificadores de las actividades se
+     * copian de una vez.
      *
      * @param s El socio a copiar.
      */
     public Socio(Socio s){
-        this(s.getNombre(), s.getDNI(), s.getDireccion(), s.getLocalidad(), s.getProvincia(), s.getCodigoPostal(), s.getTelefono(), s.getFechaNacimiento().format(java.time.format.DateTimeFormatter.ISO_DATE));
-        this.fechaRegistro = s.getFechaRegistro();
-        this.fechaUltimoAcceso = s.getFechaUltimoAcceso();
-        this.estaActivo = s.getEstaActivo();
-        this.cuota = s.getCuota();
-        for(Actividad actividad : s.listaActividad){
-            this.listaActividad.add(actividad);
+        this(s.getNombre(), s.getDNI(), s.getDireccion(), s.getLocalidad(), s.getProvincia(), s.getCodigoPostal(), s.getTelefono(), s.getFechaNacimiento(), s.getFechaRegistro(), s.getFechaUltimoAcceso(), s.getEstaActivo());
+        synchronized(s){
+            this.actividades = s.actividades.copiar();
+            for(int i = 0; i < actividades.size(); i++){
+                Actividad.porId(actividades.get(i)).inscribir(this);
+            }
+            registrarMinutos(s.minutosTotales);
         }
     }
 
@@ -85,7 +167,7 @@ public class Socio extends Persona{
      * @return El atributo fecha registro del objeto.
      */
     public LocalDate getFechaRegistro() {
-        return fechaRegistro;
+        return LocalDate.ofEpochDay(diaRegistro);
     }
 
     /**
@@ -94,7 +176,7 @@ public class Socio extends Persona{
      * @param fechaRegistro La fecha de registro que se desea asignar.
      */
     public void setFechaRegistro(LocalDate fechaRegistro) {
-        this.fechaRegistro = fechaRegistro;
+        this.diaRegistro = (int) fechaRegistro.toEpochDay();
     }
 
     /**
@@ -103,7 +185,17 @@ public class Socio extends Persona{
      * @return El atributo fecha último acceso del objeto.
      */
     public LocalDate getFechaUltimoAcceso() {
-        return fechaUltimoAcceso;
+        return LocalDate.ofEpochDay(diaUltimoAcceso);
+    }
+    
+    /**
+     * Devuelve la fecha del último acceso como número de días desde el 1 de
+     * enero de 1970, sin crear un {@link LocalDate}.
+     * 
+     * @return El día del último acceso (ver {@link LocalDate#toEpochDay()}).
+     */
+    public int getDiaUltimoAcceso() {
+        return diaUltimoAcceso;
     }
 
     /**
@@ -112,7 +204,7 @@ public class Socio extends Persona{
      * @param fechaUltimoAcceso La fecha de último acceso que se desea asignar.
      */
     public void setFechaUltimoAcceso(LocalDate fechaUltimoAcceso) {
-        this.fechaUltimoAcceso = fechaUltimoAcceso;
+        this.diaUltimoAcceso = (int) fechaUltimoAcceso.toEpochDay();
     }
 
     /**
@@ -135,63 +227,92 @@ public class Socio extends Persona{
     }
     
     /**
-     * Calcula y devuelve la cuota total a pagar por el socio en función de las
+     * Registra que el socio ha entrado al gimnasio: actualiza la fecha de
+     * último acceso y lo marca como activo.
+     *
+     * @param fecha La fecha del acceso.
+     */
+    public void registrarAcceso(LocalDate fecha) {
+        this.diaUltimoAcceso = (int) fecha.toEpochDay();
+        this.estaActivo = true;
+    }
+    
+    /**
+     * Devuelve la cuota total a pagar por el socio en función de las
      * actividades en las que está inscrito.
      *
-     * La cuota total se calcula sumando las cuotas individuales de todas las
-     * actividades en las que el socio participa. La cuota de cada actividad se
-     * calcula en base a su duración.
+     * La cuota se calcula con los minutos, que se mantienen al añadir o
+     * eliminar actividades, por lo que no se recorre la lista de actividades.
      *
      * @return La cuota total a pagar por el socio.
      */
-    public double getCuota() {
-        double cuotaPagar = 0;
-        
-        for(int i = 0; i < this.listaActividad.size(); i++){
-            cuotaPagar += calcularCuota(this.listaActividad.get(i).getDuracion());
-        }
-        
-        return cuotaPagar;
+    public synchronized double getCuota() {
+        return calcularCuota(minutosTotales);
     }
 
     /**
-     * Devuelve la lista de actividades del socio.
+     * Devuelve la lista de actividades del socio. La lista se construye a
+     * partir de los identificadores de las actividades, por lo que cambiarla
+     * no cambia las actividades del socio.
      *
      * @return La lista de actividades del socio.
      */
     public ArrayList<Actividad> getListaActividad() {
-        return listaActividad;
+        return copiarActividades();
+    }
+    
+    /**
+     * Devuelve una copia de la lista de actividades del socio, que se puede
+     * recorrer aunque el socio cambie de actividades a la vez.
+     *
+     * @return Una lista nueva con las actividades del socio.
+     */
+    public synchronized ArrayList<Actividad> copiarActividades() {
+        ArrayList <Actividad> lista = new ArrayList<>(actividades.size());
+        for(int i = 0; i < actividades.size(); i++){
+            lista.add(Actividad.porId(actividades.get(i)));
+        }
+        return lista;
     }
 
+
     /**
      * Establece la lista de actividades del socio.
      *
      * Asigna una nueva lista de actividades al socio, reemplazando la lista
-     * actual de actividades.
+     * actual de actividades. El socio deja de estar inscrito en las
+     * actividades anteriores, queda inscrito en las nuevas y sus minutos y su
+     * cuota se recalculan a partir de la nueva lista. La lista no se guarda:
+     * el socio se queda con los identificadores de sus actividades.
      *
      * @param listaActividad La lista de actividades a asignar al socio.
      */
-    public void setListaActividad(ArrayList<Actividad> listaActividad) {
-        this.listaActividad = listaActividad;
+    public synchronized void setListaActividad(ArrayList<Actividad> listaActividad) {
+        abandonarActividades();
+        
+        int minutos = 0;
+        try{
+            for(Actividad actividad : listaActividad){
+                actividad.inscribir(this);
+                actividades.añadir(actividad.getId());
+                minutos += actividad.getDuracion();
+            }
+        }finally{
+            registrarMinutos(minutos);
+        }
     }
     
     /**
      * Obtiene la duración total de todas las actividades del socio.
      *
-     * Suma las duraciones de todas las actividades en la lista de actividades
-     * del socio y devuelve el total. Si no hay actividades, el valor retornado
-     * será 0.
+     * La duración se mantiene al añadir o eliminar actividades, por lo que no
+     * se recorre la lista de actividades. Si no hay actividades, el valor
+     * retornado será 0.
      *
      * @return La duración total de las actividades del socio.
      */
-    public int getDuracionActividades(){
-        int duracion = 0;
-        
-        for(int i = 0; i < this.listaActividad.size(); i++){
-            duracion += this.listaActividad.get(i).getDuracion();
-        }
-        
-        return duracion;
+    public synchronized int getDuracionActividades(){
+        return minutosTotales;
     }
     
     /**
@@ -202,17 +323,19 @@ public class Socio extends Persona{
      * socio, después de agregar la nueva actividad, no supera los 360 minutos
      * (6 horas), y si la actividad no es premium. En caso de que la actividad
      * sea añadida, la cuota del socio se actualiza sumando el valor
-     * correspondiente a la duración de la nueva actividad.
+     * correspondiente a la duración de la nueva actividad y el socio queda
+     * inscrito en la actividad.
      *
      * @param a La actividad que se quiere añadir a la lista de actividades.
      * @return true si la actividad fue añadida correctamente, false si no se
      * cumplían los requisitos.
      */
-    public boolean addActividad(Actividad a){
+    public synchronized boolean addActividad(Actividad a){
         boolean esAñadida = false;
-        if(this.getDuracionActividades()+a.getDuracion() <= 360 && !a.getEsPremium()){
-            listaActividad.add(a);
-            this.cuota += calcularCuota(a.getDuracion());
+        if(this.minutosTotales+a.getDuracion() <= 360 && !a.getEsPremium()){
+            a.inscribir(this);
+            actividades.añadir(a.getId());
+            registrarMinutos(a.getDuracion());
             esAñadida = true;
         }
         
@@ -223,16 +346,114 @@ public class Socio extends Persona{
      * Elimina una actividad de la lista de actividades del socio y ajusta la
      * cuota del socio en función de la duración de la actividad eliminada.
      *
-     * La cuota del socio se decrementa según la duración de la actividad
-     * eliminada. Luego, la actividad especificada se elimina de la 
-     * lista de actividades del socio.
+     * Se elimina de la lista exactamente el objeto indicado, aunque el socio
+     * tenga otras actividades iguales, ya que se busca por su identificador. Si se elimina, la cuota del socio se
+     * decrementa según la duración de la actividad eliminada y el socio deja de
+     * estar inscrito en ella.
      *
      * @param a La actividad que se desea eliminar de la lista de actividades.
+     * @return {@code true} si se ha eliminado la actividad, {@code false} si
+     * el socio no la tenía.
+     */
+    public synchronized boolean delActividad(Actividad a){
+        boolean eliminada = actividades.eliminar(a.getId());
+        
+        if(eliminada){
+            registrarMinutos(-a.getDuracion());
+            a.desinscribir(this);
+        }
+        
+        return eliminada;
+    }
+    
+    /**
+     * Elimina todas las actividades del socio y le quita de los inscritos de
+     * cada una de ellas. Se usa cuando el socio deja de existir, al darle de
+     * baja o al sustituirlo por un socio premium.
      */
-    public void delActividad(Actividad a){
-        this.cuota += calcularCuota(-a.getDuracion());
+    public synchronized void abandonarActividades(){
+        for(int i = 0; i < actividades.size(); i++){
+            Actividad.porId(actividades.get(i)).desinscribir(this);
+        }
         
-        listaActividad.remove(a);
+        actividades.limpiar();
+        registrarMinutos(-this.minutosTotales);
+    }
+    
+    /**
+     * Vuelve a calcular los minutos del socio sumando la duración de sus
+     * actividades y, si no coinciden con los que tenía, los corrige junto con
+     * su cuota y los minutos de su repositorio.
+     *
+     * @return Los minutos corregidos, 0 si ya coincidían.
+     */
+    synchronized int recalcularMinutos(){
+        int minutos = 0;
+        for(int i = 0; i < actividades.size(); i++){
+            minutos += Actividad.porId(actividades.get(i)).getDuracion();
+        }
+        
+        int diferencia = minutos - this.minutosTotales;
+        if(diferencia != 0){
+            registrarMinutos(diferencia);
+        }
+        
+        return diferencia;
+    }
+    
+    /**
+     * Cuenta las actividades del socio cuyo identificador no está en el
+     * conjunto indicado, contando las repetidas.
+     *
+     * @param ids Los identificadores de las actividades admitidas.
+     * @return El número de actividades del socio fuera del conjunto.
+     */
+    synchronized int contarActividadesFuera(ConjuntoEnteros ids){
+        int fuera = 0;
+        for(int i = 0; i < actividades.size(); i++){
+            if(!ids.contiene(actividades.get(i))){
+                fuera++;
+            }
+        }
+        return fuera;
+    }
+    
+    /**
+     * Suma minutos a las actividades del socio, y con ellos a su cuota, y a
+     * los minutos de su repositorio si está en uno. Los minutos pueden ser
+     * negativos cuando el socio deja una actividad o se acorta una de sus
+     * actividades.
+     *
+     * @param minutos Los minutos que se suman.
+     */
+    synchronized void registrarMinutos(int minutos){
+        this.minutosTotales += minutos;
+        if(minutosRepositorio != null){
+            minutosRepositorio.add(minutos);
+        }
+    }
+    
+    /**
+     * Empieza a sumar los minutos del socio al contador de su repositorio,
+     * empezando por los que ya tiene. Lo llama el repositorio al dar de alta
+     * al socio.
+     *
+     * @param minutos El contador de minutos del repositorio.
+     */
+    synchronized void entrarRepositorio(LongAdder minutos){
+        this.minutosRepositorio = minutos;
+        minutos.add(this.minutosTotales);
+    }
+    
+    /**
+     * Resta los minutos del socio del contador de su repositorio y deja de
+     * sumarlos. Lo llama el repositorio al dar de baja o sustituir al socio.
+     */
+    synchronized void salirRepositorio(){
+        if(minutosRepositorio != null){
+            minutosRepositorio.add(-this.minutosTotales);
+            minutosRepositorio = null;
+        }
     }
     
     /**
@@ -243,13 +464,29 @@ public class Socio extends Persona{
      * @return El coste total de la actividad en función de su duración.
      */
     protected double calcularCuota(int duracion){
-        double coste = 6.5/60;
-        
-        return coste*duracion;
+        return PRECIO_MINUTO*duracion;
+    }
+    
+    /**
+     * Establece el DNI del socio como {@link Persona#setDNI(String)}. Las
+     * actividades en las que está inscrito guardan al socio por su DNI, por lo
+     * que tampoco se puede cambiar mientras tenga actividades.
+     *
+     * @param DNI El DNI que se desea establecer.
+     *
+     * @throws IllegalStateException Si el socio está en un repositorio o tiene
+     * actividades.
+     */
+    @Override
+    public synchronized void setDNI(String DNI) {
+        if(!actividades.isEmpty()){
+            throw new IllegalStateException("El socio tiene actividades: su DNI no se puede cambiar");
+        }
+        super.setDNI(DNI);
     }
     
     @Override
     public String toString(){
-        return super.toString() + " la fecha de registro es: "+fechaRegistro;
+        return super.toString() + " la fecha de registro es: "+getFechaRegistro();
     }
 }
@@ -1,11 +1,13 @@
 package app;
 
+import java.time.LocalDate;
+
 /**
  * Esta clase representa a un socio premium en una organización, heredando de la
  * clase {@code Socio}. La representación de la clase usa los atributos
- * heredados de la clase {@code Socio}, como {@code fechaRegistro},
- * {@code fechaUltimoAcceso}, {@code estaActivo}, {@code cuota} y
- * {@code listaActividad}.
+ * heredados de la clase {@code Socio}, como {@code diaRegistro},
+ * {@code diaUltimoAcceso}, {@code estaActivo}, {@code minutosTotales} y
+ * {@code actividades}.
  *
  * El socio premium tiene las mismas características que un socio, pero
  * con algunas diferencias en la forma en que las actividades se gestionan. La
@@ -38,6 +40,49 @@ public class SocioPremium extends Socio{
         super(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento);
     }
     
+    /**
+     * Crea un socio premium que ya estaba dado de alta con sus fechas y su
+     * estado, como {@link Socio#restaurar}.
+     *
+     * @param nombre El nombre del socio premium.
+     * @param DNI El DNI del socio premium.
+     * @param direccion La dirección del socio premium.
+     * @param localidad La localidad del socio premium.
+     * @param provincia La provincia del socio premium.
+     * @param codigoPostal El código postal del socio premium.
+     * @param telefono El teléfono del socio premium.
+     * @param fechaNacimiento La fecha de nacimiento del socio premium.
+     * @param fechaRegistro La fecha de registro del socio premium.
+     * @param fechaUltimoAcceso La fecha del último acceso del socio premium.
+     * @param estaActivo Si el socio premium está activo.
+     */
+    protected SocioPremium(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento, LocalDate fechaRegistro, LocalDate fechaUltimoAcceso, boolean estaActivo){
+        super(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo);
+    }
+    
+    /**
+     * Recupera un socio premium guardado, por ejemplo en una instantánea o en
+     * el diario, sin volver a exigir la edad máxima del alta.
+     *
+     * @param nombre El nombre del socio premium.
+     * @param DNI El DNI del socio premium.
+     * @param direccion La dirección del socio premium.
+     * @param localidad La localidad del socio premium.
+     * @param provincia La provincia del socio premium.
+     * @param codigoPostal El código postal del socio premium.
+     * @param telefono El teléfono del socio premium.
+     * @param fechaNacimiento La fecha de nacimiento del socio premium.
+     * @param fechaRegistro La fecha de registro del socio premium.
+     * @param fechaUltimoAcceso La fecha del último acceso del socio premium.
+     * @param estaActivo Si el socio premium está activo.
+     * @return El socio premium.
+     *
+     * @throws IllegalArgumentException Si alguno de los datos no es válido.
+     */
+    public static SocioPremium restaurar(String nombre, String DNI, String direccion, String localidad, String provincia, String codigoPostal, String telefono, LocalDate fechaNacimiento, LocalDate fechaRegistro, LocalDate fechaUltimoAcceso, boolean estaActivo){
+        return new SocioPremium(nombre, DNI, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo);
+    }
+    
     /**
      * Crea un nuevo objeto {@code SocioPremium} copiando los datos de un socio
      * existente.
@@ -46,26 +91,20 @@ public class SocioPremium extends Socio{
      * utilizando los valores del {@code Socio} pasado como parámetro. Se copian
      * todos los atributos heredados de la clase {@code Socio} como la fecha de
      * registro, la fecha del último acceso, el estado de actividad, la cuota y
-     * la lista de actividades.
+     * la lista de actividades, que ya copia el constructor de {@code Socio}.
      *
      * @param s El socio a copiar.
      */
     public SocioPremium(Socio s){
         super(s);
-        s.getFechaRegistro();
-        s.getFechaUltimoAcceso();
-        s.getEstaActivo();
-        s.getCuota();
-        for(Actividad actividad : s.listaActividad){
-            this.listaActividad.add(actividad);
-        }
     }
     
     /**
      * Añade una actividad a la lista de actividades del socio.
      *
-     * Este método agrega una actividad a la lista de actividades del socio y
-     * recalcula la cuota en función de la duración de la actividad añadida.
+     * Este método agrega una actividad a la lista de actividades del socio,
+     * inscribe al socio en la actividad y suma la duración de la actividad a
+     * los minutos y a la cuota del socio.
      *
      * @param a La actividad que se va a añadir a la lista de actividades del
      * socio.
@@ -73,10 +112,11 @@ public class SocioPremium extends Socio{
      * lo contrario, false si no se pudo añadir.
      */
     @Override
-    public boolean addActividad(Actividad a){
+    public synchronized boolean addActividad(Actividad a){
         boolean esAñadida = true;
-        this.listaActividad.add(a);
-        calcularCuota(a.getDuracion());
+        a.inscribir(this);
+        this.actividades.añadir(a.getId());
+        registrarMinutos(a.getDuracion());
         return esAñadida;
     }
 }
@@ -0,0 +1,611 @@
+package app;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Predicate;
+import utils.MotorValidacion;
+
+/**
+ * Esta clase representa una tabla de personas guardada fuera del montón de
+ * Java, por columnas. La representación de la clase usa los atributos
+ * <code>arena</code>, <code>capacidad</code>, <code>tamaño</code>,
+ * <code>lugares</code> y un {@link MemorySegment} por cada columna.
+ *
+ * Cada dato de las personas es una columna de ancho fijo y la fila
+ * <code>i</code> de todas las columnas es la persona <code>i</code>: el DNI, el
+ * teléfono, las fechas (como días desde el 1 de enero de 1970), el estado y los
+ * minutos de los socios, el sueldo, las especialidades y los votos de los
+ * monitores, y el nombre y la dirección en 50 bytes cada uno. La localidad, la
+ * provincia y el código postal se guardan como el código de la cadena en
+ * <code>lugares</code>. Como la memoria de la tabla no está en el montón, el
+ * recolector de basura no tiene que recorrerla, y sus pausas no crecen con el
+ * número de personas de la tabla.
+ *
+ * <p>Los recorridos de toda la tabla (inactivar socios, sumar las cuotas o
+ * filtrar por provincia) solo leen las columnas que necesitan, de forma
+ * secuencial y sin crear objetos. Para consultar una fila se usa una
+ * {@link Fila}, una vista que se puede mover de una fila a otra y que solo lee
+ * los datos que se le piden. Si hace falta una {@link Persona} de verdad, se
+ * crea con {@link #persona(int)}.</p>
+ *
+ * <p>La tabla no guarda las actividades de los socios, solo sus minutos, y no
+ * cambia de tamaño: la capacidad se reserva al crearla y se libera al cerrarla.
+ * Las altas y los cambios se sincronizan sobre la tabla; las consultas se
+ * pueden hacer a la vez desde varios hilos.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class TablaPersonas implements AutoCloseable {
+    private static final byte SOCIO = 0;
+    private static final byte SOCIO_PREMIUM = 1;
+    private static final byte MONITOR = 2;
+    private static final int ESPECIALIDADES = 3;
+    private static final int LONGITUD_TEXTO = 50;
+    private static final int ANCHO_TEXTO = LONGITUD_TEXTO + 1;
+
+    private static final ValueLayout.OfByte BYTE = ValueLayout.JAVA_BYTE;
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG;
+    private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE;
+
+    private final Arena arena;
+    private final int capacidad;
+    private volatile int tamaño;
+
+    private final MemorySegment tipos;
+    private final MemorySegment dnis;
+    private final MemorySegment telefonos;
+    private final MemorySegment nacimientos;
+    private final MemorySegment registros;
+    private final MemorySegment ultimosAccesos;
+    private final MemorySegment activos;
+    private final MemorySegment minutos;
+    private final MemorySegment sueldos;
+    private final MemorySegment especialidades;
+    private final MemorySegment votosPositivos;
+    private final MemorySegment votosNegativos;
+    private final MemorySegment localidades;
+    private final MemorySegment provincias;
+    private final MemorySegment codigosPostales;
+    private final MemorySegment nombres;
+    private final MemorySegment direcciones;
+
+    private final ArrayList <String> lugares = new ArrayList<>();
+    private final HashMap <String, Integer> codigosLugares = new HashMap<>();
+
+    /**
+     * Crea una tabla vacía y reserva la memoria para el número de personas
+     * indicado.
+     *
+     * @param capacidad El número máximo de personas de la tabla.
+     *
+     * @throws IllegalArgumentException Si la capacidad no es positiva.
+     */
+    public TablaPersonas(int capacidad){
+        if(capacidad <= 0){
+            throw new IllegalArgumentException("La capacidad de la tabla tiene que ser positiva");
+        }
+
+        this.capacidad = capacidad;
+        this.arena = Arena.ofShared();
+        this.tipos = columna(BYTE.byteSize());
+        this.dnis = columna(INT.byteSize());
+        this.telefonos = columna(INT.byteSize());
+        this.nacimientos = columna(INT.byteSize());
+        this.registros = columna(INT.byteSize());
+        this.ultimosAccesos = columna(INT.byteSize());
+        this.activos = columna(BYTE.byteSize());
+        this.minutos = columna(INT.byteSize());
+        this.sueldos = columna(DOUBLE.byteSize());
+        this.especialidades = columna(ESPECIALIDADES);
+        this.votosPositivos = columna(LONG.byteSize());
+        this.votosNegativos = columna(LONG.byteSize());
+        this.localidades = columna(INT.byteSize());
+        this.provincias = columna(INT.byteSize());
+        this.codigosPostales = columna(INT.byteSize());
+        this.nombres = columna(ANCHO_TEXTO);
+        this.direcciones = columna(ANCHO_TEXTO);
+    }
+
+    private MemorySegment columna(long ancho){
+        return arena.allocate(ancho * capacidad, Math.min(Long.lowestOneBit(ancho), 8));
+    }
+
+    /**
+     * Añade una persona al final de la tabla. De los socios se guardan sus
+     * minutos, pero no sus actividades.
+     *
+     * @param p La persona.
+     * @return La fila de la persona.
+     *
+     * @throws IllegalStateException Si la tabla está llena.
+     */
+    public synchronized int añadir(Persona p){
+        int fila = tamaño;
+        if(fila == capacidad){
+            throw new IllegalStateException("La tabla está llena (" + capacidad + " personas)");
+        }
+
+        dnis.setAtIndex(INT, fila, p.getNumeroDNI());
+        telefonos.setAtIndex(INT, fila, Integer.parseInt(p.getTelefono()));
+        nacimientos.setAtIndex(INT, fila, (int) p.getFechaNacimiento().toEpochDay());
+        localidades.setAtIndex(INT, fila, codigoLugar(p.getLocalidad()));
+        provincias.setAtIndex(INT, fila, codigoLugar(p.getProvincia()));
+        codigosPostales.setAtIndex(INT, fila, codigoLugar(p.getCodigoPostal()));
+        escribirTexto(nombres, fila, p.getNombre());
+        escribirTexto(direcciones, fila, p.getDireccion());
+
+        if(p instanceof Monitor){
+            Monitor m = (Monitor) p;
+            tipos.set(BYTE, fila, MONITOR);
+            sueldos.setAtIndex(DOUBLE, fila, m.getSueldo());
+            Especialidad[] especialidad = m.getEspecialidad();
+            for(int i = 0; i < ESPECIALIDADES; i++){
+                especialidades.set(BYTE, (long) fila * ESPECIALIDADES + i, (byte) (especialidad[i] == null ? -1 : especialidad[i].ordinal()));
+            }
+            PuntuacionMonitor puntuacion = m.getPuntuacion();
+            votosPositivos.setAtIndex(LONG, fila, puntuacion.getVotosPositivos());
+            votosNegativos.setAtIndex(LONG, fila, puntuacion.getVotosNegativos());
+        }else{
+            Socio s = (Socio) p;
+            tipos.set(BYTE, fila, s instanceof SocioPremium ? SOCIO_PREMIUM : SOCIO);
+            registros.setAtIndex(INT, fila, (int) s.getFechaRegistro().toEpochDay());
+            ultimosAccesos.setAtIndex(INT, fila, s.getDiaUltimoAcceso());
+            activos.set(BYTE, fila, (byte) (s.getEstaActivo() ? 1 : 0));
+            minutos.setAtIndex(INT, fila, s.getDuracionActividades());
+        }
+
+        tamaño = fila + 1;
+        return fila;
+    }
+
+    /**
+     * Registra el acceso del socio de una fila: actualiza la fecha de último
+     * acceso y lo marca como activo.
+     *
+     * @param fila La fila del socio.
+     * @param fecha La fecha del acceso.
+     *
+     * @throws IllegalArgumentException Si la fila es de un monitor.
+     */
+    public synchronized void registrarAcceso(int fila, LocalDate fecha){
+        Objects.checkIndex(fila, tamaño);
+        if(tipos.get(BYTE, fila) == MONITOR){
+            throw new IllegalArgumentException("La fila " + fila + " es de un monitor");
+        }
+
+        ultimosAccesos.setAtIndex(INT, fila, (int) fecha.toEpochDay());
+        activos.set(BYTE, fila, (byte) 1);
+    }
+
+    /**
+     * Inactiva a los socios activos que no han accedido en el último mes, con
+     * la misma regla que {@link CaducidadSocios}. Solo se leen las columnas de
+     * estado y de último acceso, comparando cada fecha con la del último
+     * acceso caducado (ver {@link CaducidadSocios#ultimoAccesoCaducado(LocalDate)}).
+     *
+     * @param hoy El día con el que se compara el último acceso.
+     * @return El número de socios inactivados.
+     */
+    public synchronized int inactivar(LocalDate hoy){
+        int corte = (int) CaducidadSocios.ultimoAccesoCaducado(hoy).toEpochDay();
+        int n = tamaño;
+        int inactivados = 0;
+
+        for(int i = 0; i < n; i++){
+            if(activos.get(BYTE, i) != 0 && ultimosAccesos.getAtIndex(INT, i) <= corte){
+                activos.set(BYTE, i, (byte) 0);
+                inactivados++;
+            }
+        }
+
+        return inactivados;
+    }
+
+    /**
+     * Devuelve la suma de los minutos de actividades de todos los socios de la
+     * tabla. Solo se lee la columna de minutos, que es 0 en los monitores.
+     *
+     * @return Los minutos de todos los socios.
+     */
+    public long minutosSocios(){
+        int n = tamaño;
+        long total = 0;
+
+        for(int i = 0; i < n; i++){
+            total += minutos.getAtIndex(INT, i);
+        }
+
+        return total;
+    }
+
+    /**
+     * Devuelve la suma de las cuotas de todos los socios de la tabla.
+     *
+     * @return Los ingresos de los socios de la tabla.
+     */
+    public double ingresos(){
+        return Socio.PRECIO_MINUTO * minutosSocios();
+    }
+
+    /**
+     * Devuelve las filas de los socios de una provincia. Solo se leen las
+     * columnas de provincia, tipo y estado, comparando códigos en lugar de
+     * cadenas.
+     *
+     * @param provincia La provincia.
+     * @param soloActivos {@code true} para devolver solo los socios activos.
+     * @return Las filas de los socios, en orden.
+     */
+    public int[] filtrarProvincia(String provincia, boolean soloActivos){
+        int codigo;
+        synchronized(this){
+            codigo = codigosLugares.getOrDefault(provincia, -1);
+        }
+
+        int[] filas = new int[16];
+        int encontradas = 0;
+        int n = codigo == -1 ? 0 : tamaño;
+
+        for(int i = 0; i < n; i++){
+            if(provincias.getAtIndex(INT, i) == codigo && tipos.get(BYTE, i) != MONITOR && (!soloActivos || activos.get(BYTE, i) != 0)){
+                if(encontradas == filas.length){
+                    filas = Arrays.copyOf(filas, encontradas * 2);
+                }
+                filas[encontradas++] = i;
+            }
+        }
+
+        return Arrays.copyOf(filas, encontradas);
+    }
+
+    /**
+     * Devuelve las filas que cumplen un filtro. El filtro recibe siempre la
+     * misma {@link Fila}, colocada en cada fila de la tabla, por lo que no
+     * debe guardarla.
+     *
+     * @param filtro El filtro.
+     * @return Las filas que lo cumplen, en orden.
+     */
+    public int[] filtrar(Predicate<Fila> filtro){
+        Fila fila = new Fila();
+        int[] filas = new int[16];
+        int encontradas = 0;
+        int n = tamaño;
+
+        for(int i = 0; i < n; i++){
+            if(filtro.test(fila.en(i))){
+                if(encontradas == filas.length){
+                    filas = Arrays.copyOf(filas, encontradas * 2);
+                }
+                filas[encontradas++] = i;
+            }
+        }
+
+        return Arrays.copyOf(filas, encontradas);
+    }
+
+    /**
+     * Devuelve una vista de una fila de la tabla.
+     *
+     * @param fila La fila.
+     * @return La vista, que se puede mover después a otras filas.
+     */
+    public Fila fila(int fila){
+        return new Fila().en(fila);
+    }
+
+    /**
+     * Crea la persona de una fila en el montón. Los socios se crean sin
+     * actividades.
+     *
+     * @param fila La fila.
+     * @return Una persona nueva con los datos de la fila.
+     */
+    public Persona persona(int fila){
+        Fila f = fila(fila);
+        Persona p;
+
+        if(f.esMonitor()){
+            Monitor m = new Monitor(f.getNombre(), f.getDNI(), f.getDireccion(), f.getLocalidad(), f.getProvincia(), f.getCodigoPostal(), f.getTelefono(), f.getFechaNacimiento().toString(), f.getSueldo());
+            System.arraycopy(f.getEspecialidad(), 0, m.getEspecialidad(), 0, ESPECIALIDADES);
+            m.cargarVotos(votosPositivos.getAtIndex(LONG, fila), votosNegativos.getAtIndex(LONG, fila));
+            p = m;
+        }else{
+            Socio s = f.esPremium()
+                    ? new SocioPremium(f.getNombre(), f.getDNI(), f.getDireccion(), f.getLocalidad(), f.getProvincia(), f.getCodigoPostal(), f.getTelefono(), f.getFechaNacimiento().toString())
+                    : new Socio(f.getNombre(), f.getDNI(), f.getDireccion(), f.getLocalidad(), f.getProvincia(), f.getCodigoPostal(), f.getTelefono(), f.getFechaNacimiento().toString());
+            s.setFechaRegistro(f.getFechaRegistro());
+            s.setFechaUltimoAcceso(f.getFechaUltimoAcceso());
+            s.setEstaActivo(f.getEstaActivo());
+            p = s;
+        }
+
+        return p;
+    }
+
+    /**
+     * Devuelve el número de personas de la tabla.
+     *
+     * @return El número de personas.
+     */
+    public int size(){
+        return tamaño;
+    }
+
+    /**
+     * Devuelve el número máximo de personas de la tabla.
+     *
+     * @return La capacidad.
+     */
+    public int getCapacidad(){
+        return capacidad;
+    }
+
+    /**
+     * Devuelve los bytes reservados fuera del montón para las columnas.
+     *
+     * @return Los bytes de todas las columnas.
+     */
+    public long bytesReservados(){
+        long total = 0;
+        for(MemorySegment columna : new MemorySegment[]{tipos, dnis, telefonos, nacimientos, registros, ultimosAccesos, activos, minutos,
+                sueldos, especialidades, votosPositivos, votosNegativos, localidades, provincias, codigosPostales, nombres, direcciones}){
+            total += columna.byteSize();
+        }
+        return total;
+    }
+
+    /**
+     * Libera la memoria de la tabla. Después no se puede usar la tabla ni sus
+     * filas.
+     */
+    @Override
+    public void close(){
+        arena.close();
+    }
+
+    private int codigoLugar(String lugar){
+        Integer codigo = codigosLugares.get(lugar);
+        if(codigo == null){
+            codigo = lugares.size();
+            lugares.add(lugar);
+            codigosLugares.put(lugar, codigo);
+        }
+        return codigo;
+    }
+
+    private synchronized String lugar(int codigo){
+        return lugares.get(codigo);
+    }
+
+    /**
+     * Escribe un texto en la columna de textos indicada: un byte con la
+     * longitud seguido de los caracteres, que al ser letras, dígitos y vocales
+     * con tilde ocupan un byte cada uno en ISO-8859-1.
+     */
+    private static void escribirTexto(MemorySegment columna, int fila, String texto){
+        byte[] bytes = texto.getBytes(StandardCharsets.ISO_8859_1);
+        if(bytes.length > LONGITUD_TEXTO){
+            throw new IllegalArgumentException("El texto tiene más de " + LONGITUD_TEXTO + " caracteres: " + texto);
+        }
+
+        long inicio = (long) fila * ANCHO_TEXTO;
+        columna.set(BYTE, inicio, (byte) bytes.length);
+        MemorySegment.copy(bytes, 0, columna, BYTE, inicio + 1, bytes.length);
+    }
+
+    private static String leerTexto(MemorySegment columna, int fila){
+        long inicio = (long) fila * ANCHO_TEXTO;
+        byte[] bytes = new byte[Byte.toUnsignedInt(columna.get(BYTE, inicio))];
+        MemorySegment.copy(columna, BYTE, inicio + 1, bytes, 0, bytes.length);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Una vista de una fila de la tabla. Solo guarda la posición de la fila y
+     * lee de las columnas cada dato que se le pide, por lo que una sola vista
+     * sirve para recorrer toda la tabla sin crear una persona por fila.
+     */
+    public class Fila {
+        private int fila;
+
+        private Fila(){
+        }
+
+        /**
+         * Mueve la vista a otra fila.
+         *
+         * @param fila La fila.
+         * @return Esta vista.
+         */
+        public Fila en(int fila){
+            this.fila = Objects.checkIndex(fila, tamaño);
+            return this;
+        }
+
+        /**
+         * Devuelve la fila en la que está la vista.
+         *
+         * @return La fila.
+         */
+        public int getFila(){
+            return fila;
+        }
+
+        /**
+         * Indica si la fila es de un monitor.
+         *
+         * @return {@code true} si es un monitor, {@code false} si es un socio.
+         */
+        public boolean esMonitor(){
+            return tipos.get(BYTE, fila) == MONITOR;
+        }
+
+        /**
+         * Indica si la fila es de un socio premium.
+         *
+         * @return {@code true} si es un socio premium.
+         */
+        public boolean esPremium(){
+            return tipos.get(BYTE, fila) == SOCIO_PREMIUM;
+        }
+
+        /**
+         * Devuelve el nombre.
+         *
+         * @return El nombre de la persona.
+         */
+        public String getNombre(){
+            return leerTexto(nombres, fila);
+        }
+
+        /**
+         * Devuelve el número del DNI, sin la letra de control.
+         *
+         * @return El número del DNI.
+         */
+        public int getNumeroDNI(){
+            return dnis.getAtIndex(INT, fila);
+        }
+
+        /**
+         * Devuelve el DNI.
+         *
+         * @return El DNI de la persona.
+         */
+        public String getDNI(){
+            return MotorValidacion.textoDNI(getNumeroDNI());
+        }
+
+        /**
+         * Devuelve la dirección.
+         *
+         * @return La dirección de la persona.
+         */
+        public String getDireccion(){
+            return leerTexto(direcciones, fila);
+        }
+
+        /**
+         * Devuelve la localidad.
+         *
+         * @return La localidad de la persona.
+         */
+        public String getLocalidad(){
+            return lugar(localidades.getAtIndex(INT, fila));
+        }
+
+        /**
+         * Devuelve la provincia.
+         *
+         * @return La provincia de la persona.
+         */
+        public String getProvincia(){
+            return lugar(provincias.getAtIndex(INT, fila));
+        }
+
+        /**
+         * Devuelve el código postal.
+         *
+         * @return El código postal de la persona.
+         */
+        public String getCodigoPostal(){
+            return lugar(codigosPostales.getAtIndex(INT, fila));
+        }
+
+        /**
+         * Devuelve el teléfono.
+         *
+         * @return El teléfono de la persona.
+         */
+        public String getTelefono(){
+            return Persona.digitos(telefonos.getAtIndex(INT, fila), 9);
+        }
+
+        /**
+         * Devuelve la fecha de nacimiento.
+         *
+         * @return La fecha de nacimiento de la persona.
+         */
+        public LocalDate getFechaNacimiento(){
+            return LocalDate.ofEpochDay(nacimientos.getAtIndex(INT, fila));
+        }
+
+        /**
+         * Devuelve la fecha de registro del socio.
+         *
+         * @return La fecha de registro.
+         */
+        public LocalDate getFechaRegistro(){
+            return LocalDate.ofEpochDay(registros.getAtIndex(INT, fila));
+        }
+
+        /**
+         * Devuelve la fecha del último acceso del socio.
+         *
+         * @return La fecha del último acceso.
+         */
+        public LocalDate getFechaUltimoAcceso(){
+            return LocalDate.ofEpochDay(ultimosAccesos.getAtIndex(INT, fila));
+        }
+
+        /**
+         * Indica si el socio está activo. Los monitores nunca lo están.
+         *
+         * @return {@code true} si el socio está activo.
+         */
+        public boolean getEstaActivo(){
+            return activos.get(BYTE, fila) != 0;
+        }
+
+        /**
+         * Devuelve los minutos de actividades del socio.
+         *
+         * @return Los minutos del socio.
+         */
+        public int getDuracionActividades(){
+            return minutos.getAtIndex(INT, fila);
+        }
+
+        /**
+         * Devuelve la cuota del socio.
+         *
+         * @return La cuota del socio.
+         */
+        public double getCuota(){
+            return Socio.PRECIO_MINUTO * getDuracionActividades();
+        }
+
+        /**
+         * Devuelve el sueldo del monitor.
+         *
+         * @return El sueldo del monitor.
+         */
+        public double getSueldo(){
+            return sueldos.getAtIndex(DOUBLE, fila);
+        }
+
+        /**
+         * Devuelve las especialidades del monitor.
+         *
+         * @return Un array nuevo con las especialidades del monitor.
+         */
+        public Especialidad[] getEspecialidad(){
+            Especialidad[] especialidad = new Especialidad[ESPECIALIDADES];
+            for(int i = 0; i < ESPECIALIDADES; i++){
+                byte e = especialidades.get(BYTE, (long) fila * ESPECIALIDADES + i);
+                especialidad[i] = e == -1 ? null : Especialidad.values()[e];
+            }
+            return especialidad;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package estadisticas;
+
+import app.Actividad;
+import app.CatalogoActividades;
+import app.ObservadorCatalogo;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+/**
+ * Esta clase representa la clasificación de las actividades de un catálogo
+ * ordenadas de mayor a menor valoración. La representación de la clase usa los
+ * atributos <code>clasificacion</code>, <code>entradas</code>,
+ * <code>siguienteOrden</code> y <code>observadores</code>.
+ *
+ * La clasificación se actualiza cada vez que una actividad del catálogo recibe
+ * un voto, recolocando solo esa actividad, por lo que obtener las N mejores
+ * actividades solo recorre esas N actividades y no ordena ni modifica la
+ * lista de actividades del catálogo. Las actividades con la misma valoración
+ * mantienen el orden en el que se añadieron al catálogo.
+ *
+ * <p>Cuando una actividad cambia de posición al añadirse, eliminarse o
+ * recibir un voto, se avisa a los {@link ObservadorClasificacion} registrados
+ * solo de esa actividad.</p>
+ *
+ * <p>El catálogo avisa a la clasificación desde el hilo que hace cada cambio,
+ * por lo que sus métodos están sincronizados para poder consultarla mientras
+ * otros hilos votan.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ClasificacionActividades implements ObservadorCatalogo{
+    private TreeSet <Entrada> clasificacion;
+    private IdentityHashMap <Actividad, Entrada> entradas;
+    private long siguienteOrden;
+    private ArrayList <ObservadorClasificacion> observadores;
+
+    private ClasificacionActividades(){
+        this.clasificacion = new TreeSet<>();
+        this.entradas = new IdentityHashMap<>();
+        this.siguienteOrden = 0;
+        this.observadores = new ArrayList<>();
+    }
+
+    /**
+     * Crea la clasificación de las actividades del catálogo indicado y la
+     * registra en el catálogo para recibir sus cambios. Las actividades que ya
+     * tiene el catálogo se añaden a la clasificación al registrarla, con el
+     * catálogo bloqueado (ver
+     * {@link CatalogoActividades#añadirObservador(ObservadorCatalogo)}), por
+     * lo que no se pierde ningún cambio hecho mientras se crea.
+     *
+     * @param catalogo El catálogo de actividades que se quiere clasificar.
+     * @return La clasificación.
+     */
+    public static ClasificacionActividades crear(CatalogoActividades catalogo){
+        ClasificacionActividades clasificacion = new ClasificacionActividades();
+        catalogo.añadirObservador(clasificacion);
+        return clasificacion;
+    }
+
+    /**
+     * Registra un observador que será avisado cuando cambie la posición de una
+     * actividad. Solo se avisa de la actividad añadida, eliminada o votada, y
+     * no de las actividades que se desplazan una posición por su cambio (ver
+     * {@link ObservadorClasificacion}).
+     *
+     * @param observador El observador que se quiere registrar.
+     */
+    public synchronized void añadirObservador(ObservadorClasificacion observador){
+        observadores.add(observador);
+    }
+
+    /**
+     * Devuelve las N actividades con mejor valoración.
+     *
+     * @param n El número de actividades que se quieren obtener.
+     * @return Una lista con, como mucho, las N mejores actividades ordenadas de
+     * mayor a menor valoración.
+     */
+    public synchronized ArrayList<Actividad> mejores(int n){
+        ArrayList <Actividad> mejores = new ArrayList<>(Math.min(n, clasificacion.size()));
+        Iterator <Entrada> it = clasificacion.iterator();
+
+        while(it.hasNext() && mejores.size() < n){
+            mejores.add(it.next().actividad);
+        }
+
+        return mejores;
+    }
+
+    /**
+     * Devuelve la posición de la actividad en la clasificación.
+     *
+     * @param a La actividad que se busca.
+     * @return La posición de la actividad, empezando en 1, o 0 si no está en la
+     * clasificación.
+     */
+    public synchronized int posicion(Actividad a){
+        Entrada e = entradas.get(a);
+
+        return e == null ? 0 : posicion(e);
+    }
+
+    /**
+     * Devuelve el número de actividades de la clasificación.
+     *
+     * @return El número de actividades.
+     */
+    public synchronized int size(){
+        return clasificacion.size();
+    }
+
+    @Override
+    public synchronized void actividadAñadida(Actividad a){
+        Entrada e = new Entrada(a, a.calcularValoracion(), siguienteOrden++);
+        entradas.put(a, e);
+        clasificacion.add(e);
+
+        avisar(a, 0, e);
+    }
+
+    @Override
+    public synchronized void actividadEliminada(Actividad a){
+        Entrada e = entradas.remove(a);
+
+        if(e != null){
+            int anterior = observadores.isEmpty() ? 0 : posicion(e);
+            clasificacion.remove(e);
+            avisar(a, anterior, null);
+        }
+    }
+
+    @Override
+    public synchronized void votoRegistrado(Actividad a){
+        Entrada e = entradas.get(a);
+        int valoracion = a.calcularValoracion();
+
+        if(e != null && e.valoracion != valoracion){
+            int anterior = observadores.isEmpty() ? 0 : posicion(e);
+            Entrada nueva = new Entrada(a, valoracion, e.orden);
+
+            clasificacion.remove(e);
+            clasificacion.add(nueva);
+            entradas.put(a, nueva);
+
+            avisar(a, anterior, nueva);
+        }
+    }
+
+    private int posicion(Entrada e){
+        return clasificacion.headSet(e).size() + 1;
+    }
+
+    private void avisar(Actividad a, int anterior, Entrada nueva){
+        if(!observadores.isEmpty()){
+            int posicionNueva = nueva == null ? 0 : posicion(nueva);
+
+            if(anterior != posicionNueva){
+                for(ObservadorClasificacion observador : observadores){
+                    observador.clasificacionCambiada(a, anterior, posicionNueva);
+                }
+            }
+        }
+    }
+
+    /**
+     * La valoración de una actividad en el momento en el que se colocó en la
+     * clasificación, junto con el orden en el que se añadió al catálogo para
+     * desempatar.
+     */
+    private static class Entrada implements Comparable<Entrada>{
+        private final Actividad actividad;
+        private final int valoracion;
+        private final long orden;
+
+        private Entrada(Actividad actividad, int valoracion, long orden){
+            this.actividad = actividad;
+            this.valoracion = valoracion;
+            this.orden = orden;
+        }
+
+        @Override
+        public int compareTo(Entrada e){
+            int comparar = Integer.compare(e.valoracion, this.valoracion);
+            if(comparar == 0){
+                comparar = Long.compare(this.orden, e.orden);
+            }
+
+            return comparar;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package estadisticas;
+
+import java.util.Comparator;
+import app.Actividad;
+
+public class MejoresActividadesPorInscritos implements Comparator<Actividad>{
+    @Override
+    public int compare(Actividad a1, Actividad a2) {
+        return a2.getNumeroInscritos() - a1.getNumeroInscritos();
+    }
+}
@@ -6,6 +6,6 @@ import app.Monitor;
 public class MejoresMonitoresPorValoracion implements Comparator<Monitor>{
     @Override
     public int compare(Monitor p1, Monitor p2) {
-        return p2.calcularValoracion() - p1.calcularValoracion();
+        return Double.compare(p2.getPuntuacion().getLimiteInferior(), p1.getPuntuacion().getLimiteInferior());
     }
 }
@@ -0,0 +1,25 @@
+package estadisticas;
+
+import app.Actividad;
+
+/**
+ * Esta interfaz la implementan las clases que quieren saber cuándo cambia la
+ * posición de una actividad en la {@link ClasificacionActividades}.
+ *
+ * Las posiciones empiezan en 1. Una posición anterior de 0 indica que la
+ * actividad acaba de entrar en la clasificación y una posición nueva de 0 que
+ * ha salido de ella.
+ *
+ * Solo se avisa de la actividad que se ha añadido, eliminado o votado. Las
+ * actividades que estaban entre sus dos posiciones se desplazan una posición
+ * (hacia abajo si la actividad ha subido y hacia arriba si ha bajado), pero
+ * no se avisa de cada una de ellas, para que un voto no tenga que recorrer la
+ * clasificación; quien necesite sus posiciones puede deducirlas de las dos
+ * posiciones recibidas.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public interface ObservadorClasificacion {
+    void clasificacionCambiada(Actividad a, int posicionAnterior, int posicionNueva);
+}
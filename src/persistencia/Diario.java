@@ -0,0 +1,308 @@
+package persistencia;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Esta clase representa un diario binario en el que solo se añaden registros
+ * al final del fichero. La representación de la clase usa los atributos
+ * <code>canal</code>, <code>pendientes</code>, <code>escritor</code>,
+ * <code>registrosPorSincronizacion</code>,
+ * <code>milisegundosPorSincronizacion</code>, <code>error</code> y
+ * <code>cerrado</code>.
+ *
+ * Cada registro se guarda como su longitud, su tipo, sus datos y el CRC32 del
+ * tipo y los datos. Al leer el diario, la lectura se detiene en el primer
+ * registro incompleto o con un CRC incorrecto, que es lo que queda en el
+ * fichero si la aplicación se interrumpe mientras escribe.
+ *
+ * <p>Quien registra una operación solo prepara los bytes del registro y lo deja
+ * en una cola, por lo que no espera a la escritura. Un hilo escritor recoge de
+ * una vez todos los registros pendientes y los escribe juntos (escritura en
+ * grupo). Los datos se fuerzan al disco cuando se han escrito
+ * <code>registrosPorSincronizacion</code> registros o han pasado
+ * <code>milisegundosPorSincronizacion</code> milisegundos desde la última vez,
+ * lo que ocurra antes, y siempre al cerrar el diario. Si la aplicación se
+ * interrumpe, como mucho se pierden los registros de ese intervalo.</p>
+ *
+ * <p>Comprobar que el diario está abierto y dejar el registro en la cola se
+ * hace sincronizando sobre el diario, igual que cerrarlo, así que ningún
+ * registro queda en la cola detrás del aviso de cierre sin escribirse. Si el
+ * hilo escritor falla, por ejemplo porque el disco está lleno, el diario deja
+ * de admitir registros: los siguientes se descartan sin lanzar excepciones,
+ * para no interrumpir a quien los registra, y el fallo se consulta con
+ * {@link #getError()}.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class Diario implements Closeable {
+    private static final byte[] FIN = new byte[0];
+    private static final int MAXIMO_DATOS = 1 << 20;
+
+    private final FileChannel canal;
+    private final LinkedBlockingQueue <byte[]> pendientes;
+    private final Thread escritor;
+    private final int registrosPorSincronizacion;
+    private final long milisegundosPorSincronizacion;
+    private volatile IOException error;
+    private boolean cerrado;
+
+    /**
+     * Abre el diario para añadir registros al final.
+     *
+     * @param fichero El fichero del diario. Si no existe, se crea.
+     * @param longitudValida La longitud del fichero hasta el último registro
+     * válido, la que devuelve {@link #leer(Path, LectorRegistros)}. Lo que haya
+     * detrás se descarta.
+     * @param registrosPorSincronizacion El número de registros escritos tras
+     * los que se fuerzan los datos al disco. Con 1 se fuerzan en cada escritura
+     * en grupo.
+     * @param milisegundosPorSincronizacion El tiempo máximo que pasa un
+     * registro escrito sin forzarse al disco.
+     * @throws IOException Si no se puede abrir el fichero.
+     *
+     * @throws IllegalArgumentException Si alguno de los límites de
+     * sincronización no es positivo.
+     */
+    public Diario(Path fichero, long longitudValida, int registrosPorSincronizacion, long milisegundosPorSincronizacion) throws IOException {
+        if(registrosPorSincronizacion <= 0 || milisegundosPorSincronizacion <= 0){
+            throw new IllegalArgumentException("Los límites de sincronización tienen que ser positivos");
+        }
+
+        this.canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.canal.truncate(longitudValida);
+        this.canal.position(longitudValida);
+        this.pendientes = new LinkedBlockingQueue<>();
+        this.registrosPorSincronizacion = registrosPorSincronizacion;
+        this.milisegundosPorSincronizacion = milisegundosPorSincronizacion;
+        this.escritor = new Thread(this::escribir, "escritor-diario");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+    }
+
+    /**
+     * Añade un registro al diario. El registro se escribe en segundo plano.
+     * Si el hilo escritor ha fallado, el registro se descarta.
+     *
+     * @param tipo El tipo del registro.
+     * @param datos Los datos del registro.
+     * @return {@code true} si el registro se va a escribir, {@code false} si
+     * se ha descartado porque el hilo escritor ha fallado.
+     *
+     * @throws IllegalArgumentException Si los datos ocupan más de 1 MiB.
+     * @throws IllegalStateException Si el diario está cerrado.
+     */
+    public boolean registrar(byte tipo, byte[] datos){
+        if(datos.length > MAXIMO_DATOS){
+            throw new IllegalArgumentException("El registro es demasiado grande");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(tipo);
+        crc.update(datos);
+
+        ByteBuffer registro = ByteBuffer.allocate(4 + 1 + datos.length + 4);
+        registro.putInt(datos.length).put(tipo).put(datos).putInt((int) crc.getValue());
+
+        synchronized(this){
+            if(cerrado){
+                throw new IllegalStateException("El diario está cerrado");
+            }
+            if(error == null){
+                pendientes.add(registro.array());
+            }
+        }
+
+        return error == null;
+    }
+
+    /**
+     * Devuelve el error con el que ha fallado el hilo escritor.
+     *
+     * @return El error, o {@code null} si el hilo escritor no ha fallado.
+     */
+    public IOException getError(){
+        return error;
+    }
+
+    /**
+     * Escribe los registros pendientes, los fuerza al disco y cierra el
+     * fichero.
+     *
+     * @throws IOException Si falla la escritura de los últimos registros.
+     */
+    @Override
+    public void close() throws IOException {
+        boolean cerrar;
+        synchronized(this){
+            cerrar = !cerrado;
+            if(cerrar){
+                cerrado = true;
+                pendientes.add(FIN);
+            }
+        }
+
+        if(cerrar){
+            try{
+                escritor.join();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+
+            canal.close();
+
+            if(error != null){
+                throw error;
+            }
+        }
+    }
+
+    /**
+     * Bucle del hilo escritor: espera registros, escribe en grupo todos los
+     * que haya pendientes y fuerza los datos al disco según los límites de
+     * sincronización.
+     */
+    private void escribir(){
+        ArrayList <byte[]> grupo = new ArrayList<>();
+        int sinSincronizar = 0;
+        long ultimaSincronizacion = System.nanoTime();
+        boolean fin = false;
+
+        try{
+            while(!fin){
+                byte[] primero = pendientes.poll(milisegundosPorSincronizacion, TimeUnit.MILLISECONDS);
+
+                if(primero != null){
+                    grupo.add(primero);
+                    pendientes.drainTo(grupo);
+
+                    ByteBuffer[] buffers = new ByteBuffer[grupo.size()];
+                    int n = 0;
+                    for(byte[] registro : grupo){
+                        if(registro == FIN){
+                            fin = true;
+                        }else{
+                            buffers[n++] = ByteBuffer.wrap(registro);
+                        }
+                    }
+
+                    escribirTodo(buffers, n);
+                    sinSincronizar += n;
+                    grupo.clear();
+                }
+
+                long transcurrido = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ultimaSincronizacion);
+                if(sinSincronizar > 0 && (fin || sinSincronizar >= registrosPorSincronizacion || transcurrido >= milisegundosPorSincronizacion)){
+                    canal.force(false);
+                    sinSincronizar = 0;
+                    ultimaSincronizacion = System.nanoTime();
+                }
+            }
+        }catch(IOException e){
+            error = e;
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void escribirTodo(ByteBuffer[] buffers, int n) throws IOException {
+        int primero = 0;
+
+        while(primero < n){
+            canal.write(buffers, primero, n - primero);
+            while(primero < n && !buffers[primero].hasRemaining()){
+                primero++;
+            }
+        }
+    }
+
+    /**
+     * Lee los registros válidos de un diario en el orden en el que se
+     * escribieron.
+     *
+     * @param fichero El fichero del diario.
+     * @param lector El lector que recibe cada registro.
+     * @return La longitud del fichero hasta el último registro válido, 0 si
+     * el fichero no existe.
+     * @throws IOException Si no se puede leer el fichero o el lector falla.
+     */
+    public static long leer(Path fichero, LectorRegistros lector) throws IOException {
+        long longitudValida = 0;
+
+        if(Files.exists(fichero)){
+            try(InputStream entrada = new BufferedInputStream(Files.newInputStream(fichero))){
+                DataInputStream datos = new DataInputStream(entrada);
+                boolean valido = true;
+
+                while(valido){
+                    byte[] registro = leerRegistro(datos);
+
+                    if(registro == null){
+                        valido = false;
+                    }else{
+                        lector.registro(registro[0], new DataInputStream(new ByteArrayInputStream(registro, 1, registro.length - 1)));
+                        longitudValida += 4 + registro.length + 4;
+                    }
+                }
+            }
+        }
+
+        return longitudValida;
+    }
+
+    /**
+     * Lee un registro completo y comprueba su CRC.
+     *
+     * @return El tipo seguido de los datos del registro, o {@code null} si se
+     * ha llegado al final del fichero o el registro no es válido.
+     */
+    private static byte[] leerRegistro(DataInputStream entrada) throws IOException {
+        try{
+            int longitud = entrada.readInt();
+            if(longitud < 0 || longitud > MAXIMO_DATOS){
+                return null;
+            }
+
+            byte[] registro = new byte[1 + longitud];
+            entrada.readFully(registro);
+            int crcGuardado = entrada.readInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(registro);
+
+            return (int) crc.getValue() == crcGuardado ? registro : null;
+        }catch(EOFException e){
+            return null;
+        }
+    }
+
+    /**
+     * Recibe los registros leídos de un diario.
+     */
+    @FunctionalInterface
+    public interface LectorRegistros {
+        /**
+         * Procesa un registro del diario.
+         *
+         * @param tipo El tipo del registro.
+         * @param datos Los datos del registro.
+         * @throws IOException Si los datos no tienen el formato esperado.
+         */
+        void registro(byte tipo, DataInputStream datos) throws IOException;
+    }
+}
@@ -0,0 +1,475 @@
+package persistencia;
+
+import app.Actividad;
+import app.Especialidad;
+import app.Monitor;
+import app.Persona;
+import app.Socio;
+import app.SocioPremium;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Esta clase representa el diario de las operaciones del gimnasio. La
+ * representación de la clase usa el atributo <code>diario</code>.
+ *
+ * Cada operación que modifica los datos del gimnasio (altas y bajas de
+ * personas, accesos y actividades de los socios, votos, valoraciones de los monitores,
+ * conversiones a premium, cambios de sueldo y de especialidades, y altas y
+ * bajas de actividades) se guarda como un registro de un {@link Diario}. Al
+ * arrancar, {@link #reproducir(Path, long, Operaciones)} vuelve a aplicar las
+ * operaciones registradas en el mismo orden. Un registro que no se puede
+ * aplicar, por ejemplo porque sus datos ya no son válidos, se omite y se
+ * avisa con {@link Operaciones#registroOmitido(int, Exception)}, y se siguen
+ * aplicando los siguientes. Las personas se recuperan sin volver a exigir las
+ * reglas del alta que dependen del día, como la edad máxima.
+ *
+ * <p>Después de escribir una {@link Instantanea} el diario se empieza de nuevo
+ * con un registro que lleva el identificador de la instantánea. Al arrancar
+ * desde una instantánea solo se aplican las operaciones de un diario que
+ * empiece por su identificador; un diario anterior, que queda si la aplicación
+ * se interrumpe entre la instantánea y el nuevo diario, ya está incluido en la
+ * instantánea y se descarta.</p>
+ *
+ * <p>Si el diario deja de poder escribirse, las operaciones se siguen
+ * aplicando pero ya no se registran, y el error se consulta con
+ * {@link #getError()}.</p>
+ *
+ * <p>Las personas se identifican por su DNI y su tipo (socio o monitor), igual
+ * que en el índice de DNI, y las actividades por su nombre, duración y
+ * categoría, igual que en el catálogo.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class DiarioGimnasio implements Closeable {
+    private static final byte ALTA = 1;
+    private static final byte BAJA = 2;
+    private static final byte AÑADIR_ACTIVIDAD = 3;
+    private static final byte ELIMINAR_ACTIVIDAD_SOCIO = 4;
+    private static final byte VOTAR = 5;
+    private static final byte ME_GUSTA = 6;
+    private static final byte CONVERTIR_PREMIUM = 7;
+    private static final byte SUELDO = 8;
+    private static final byte ESPECIALIDADES = 9;
+    private static final byte NUEVA_ACTIVIDAD = 10;
+    private static final byte ELIMINAR_ACTIVIDAD = 11;
+    private static final byte INSTANTANEA = 12;
+    private static final byte ACCESO = 13;
+
+    private static final byte SOCIO = 0;
+    private static final byte SOCIO_PREMIUM = 1;
+    private static final byte MONITOR = 2;
+
+    private final Diario diario;
+
+    /**
+     * Crea el diario del gimnasio sobre un diario ya abierto.
+     *
+     * @param diario El diario donde se guardan los registros.
+     */
+    public DiarioGimnasio(Diario diario){
+        this.diario = diario;
+    }
+
+    /**
+     * Registra el alta de una persona con todos sus datos. De los socios se
+     * guardan también su fecha de registro, su fecha de último acceso y si
+     * están activos, para que al reproducir el diario no tomen las del día en
+     * el que se reproduce.
+     *
+     * @param p La persona dada de alta.
+     */
+    public void alta(Persona p){
+        Escritura e = new Escritura();
+        e.byte_(p instanceof Monitor ? MONITOR : p instanceof SocioPremium ? SOCIO_PREMIUM : SOCIO);
+        e.texto(p.getNombre());
+        e.texto(p.getDNI());
+        e.texto(p.getDireccion());
+        e.texto(p.getLocalidad());
+        e.texto(p.getProvincia());
+        e.texto(p.getCodigoPostal());
+        e.texto(p.getTelefono());
+        e.texto(p.getFechaNacimiento().format(DateTimeFormatter.ISO_DATE));
+        if(p instanceof Monitor){
+            e.real(((Monitor) p).getSueldo());
+        }else{
+            Socio s = (Socio) p;
+            e.largo(s.getFechaRegistro().toEpochDay());
+            e.largo(s.getFechaUltimoAcceso().toEpochDay());
+            e.booleano(s.getEstaActivo());
+        }
+        diario.registrar(ALTA, e.bytes());
+    }
+
+    /**
+     * Registra la baja de una persona.
+     *
+     * @param p La persona dada de baja.
+     */
+    public void baja(Persona p){
+        Escritura e = new Escritura();
+        persona(e, p);
+        diario.registrar(BAJA, e.bytes());
+    }
+
+    /**
+     * Registra el último acceso de un socio al gimnasio.
+     *
+     * @param s El socio.
+     */
+    public void acceso(Socio s){
+        Escritura e = new Escritura();
+        e.texto(s.getDNI());
+        e.largo(s.getFechaUltimoAcceso().toEpochDay());
+        diario.registrar(ACCESO, e.bytes());
+    }
+
+    /**
+     * Registra que un socio ha añadido una actividad.
+     *
+     * @param s El socio.
+     * @param a La actividad añadida.
+     */
+    public void añadirActividad(Socio s, Actividad a){
+        Escritura e = new Escritura();
+        persona(e, s);
+        actividad(e, a);
+        diario.registrar(AÑADIR_ACTIVIDAD, e.bytes());
+    }
+
+    /**
+     * Registra que un socio ha eliminado una de sus actividades.
+     *
+     * @param s El socio.
+     * @param a La actividad eliminada.
+     */
+    public void eliminarActividad(Socio s, Actividad a){
+        Escritura e = new Escritura();
+        persona(e, s);
+        actividad(e, a);
+        diario.registrar(ELIMINAR_ACTIVIDAD_SOCIO, e.bytes());
+    }
+
+    /**
+     * Registra un voto a una actividad.
+     *
+     * @param a La actividad votada.
+     * @param voto El voto.
+     */
+    public void votar(Actividad a, int voto){
+        Escritura e = new Escritura();
+        actividad(e, a);
+        e.entero(voto);
+        diario.registrar(VOTAR, e.bytes());
+    }
+
+    /**
+     * Registra una valoración de un monitor.
+     *
+     * @param m El monitor valorado.
+     * @param like {@code true} si la valoración es positiva.
+     */
+    public void meGusta(Monitor m, boolean like){
+        Escritura e = new Escritura();
+        e.texto(m.getDNI());
+        e.booleano(like);
+        diario.registrar(ME_GUSTA, e.bytes());
+    }
+
+    /**
+     * Registra la conversión de un socio en socio premium.
+     *
+     * @param s El socio convertido.
+     */
+    public void convertirPremium(Socio s){
+        Escritura e = new Escritura();
+        e.texto(s.getDNI());
+        diario.registrar(CONVERTIR_PREMIUM, e.bytes());
+    }
+
+    /**
+     * Registra el sueldo actual de un monitor.
+     *
+     * @param m El monitor.
+     */
+    public void sueldo(Monitor m){
+        Escritura e = new Escritura();
+        e.texto(m.getDNI());
+        e.real(m.getSueldo());
+        diario.registrar(SUELDO, e.bytes());
+    }
+
+    /**
+     * Registra las especialidades actuales de un monitor.
+     *
+     * @param m El monitor.
+     */
+    public void especialidades(Monitor m){
+        Escritura e = new Escritura();
+        e.texto(m.getDNI());
+        Especialidad[] especialidades = m.getEspecialidad();
+        e.entero(especialidades.length);
+        for(Especialidad especialidad : especialidades){
+            e.entero(especialidad == null ? -1 : especialidad.ordinal());
+        }
+        diario.registrar(ESPECIALIDADES, e.bytes());
+    }
+
+    /**
+     * Registra el alta de una actividad en el catálogo.
+     *
+     * @param a La actividad.
+     */
+    public void nuevaActividad(Actividad a){
+        Escritura e = new Escritura();
+        actividad(e, a);
+        e.entero(a.getCalorias());
+        e.booleano(a.getEsPremium());
+        diario.registrar(NUEVA_ACTIVIDAD, e.bytes());
+    }
+
+    /**
+     * Registra la baja de una actividad del catálogo.
+     *
+     * @param a La actividad.
+     */
+    public void eliminarActividad(Actividad a){
+        Escritura e = new Escritura();
+        actividad(e, a);
+        diario.registrar(ELIMINAR_ACTIVIDAD, e.bytes());
+    }
+
+    /**
+     * Registra la instantánea de la que parte el diario. Tiene que ser el
+     * primer registro del diario.
+     *
+     * @param identificador El identificador de la instantánea.
+     */
+    public void instantanea(long identificador){
+        Escritura e = new Escritura();
+        e.largo(identificador);
+        diario.registrar(INSTANTANEA, e.bytes());
+    }
+
+    /**
+     * Devuelve el error con el que ha dejado de escribirse el diario. Desde
+     * ese momento las operaciones ya no se registran.
+     *
+     * @return El error, o {@code null} si el diario se sigue escribiendo.
+     */
+    public IOException getError(){
+        return diario.getError();
+    }
+
+    /**
+     * Escribe los registros pendientes y cierra el diario.
+     *
+     * @throws IOException Si falla la escritura de los últimos registros.
+     */
+    @Override
+    public void close() throws IOException {
+        diario.close();
+    }
+
+    /**
+     * Vuelve a aplicar las operaciones de un diario.
+     *
+     * @param fichero El fichero del diario.
+     * @param instantanea El identificador de la instantánea desde la que se ha
+     * arrancado, o 0 si no se ha cargado ninguna. Si no es 0, solo se aplican
+     * las operaciones si el diario empieza por esa instantánea.
+     * @param operaciones Las operaciones que se aplican por cada registro.
+     * @return La longitud del fichero hasta el último registro válido, con la
+     * que se debe abrir el {@link Diario} para seguir escribiendo, o 0 si el
+     * diario se descarta.
+     * @throws IOException Si no se puede leer el fichero. Los registros que
+     * no tienen el formato esperado se omiten sin lanzar excepciones.
+     */
+    public static long reproducir(Path fichero, long instantanea, Operaciones operaciones) throws IOException {
+        Reproduccion reproduccion = new Reproduccion(instantanea, operaciones);
+        long longitudValida = Diario.leer(fichero, reproduccion);
+
+        return reproduccion.aplicar ? longitudValida : 0;
+    }
+
+    /**
+     * Lector que aplica los registros del diario, después de comprobar con el
+     * primer registro que el diario corresponde a la instantánea cargada.
+     */
+    private static class Reproduccion implements Diario.LectorRegistros {
+        private final long instantanea;
+        private final Operaciones operaciones;
+        private boolean primero = true;
+        private boolean aplicar;
+        private int numero;
+
+        private Reproduccion(long instantanea, Operaciones operaciones){
+            this.instantanea = instantanea;
+            this.operaciones = operaciones;
+            this.aplicar = instantanea == 0;
+        }
+
+        @Override
+        public void registro(byte tipo, DataInputStream d) throws IOException {
+            numero++;
+            if(primero){
+                primero = false;
+                if(tipo == INSTANTANEA && instantanea != 0){
+                    aplicar = d.readLong() == instantanea;
+                }
+            }
+
+            if(aplicar){
+                try{
+                    aplicar(tipo, d, operaciones);
+                }catch(IOException | RuntimeException e){
+                    operaciones.registroOmitido(numero, e);
+                }
+            }
+        }
+    }
+
+    private static void aplicar(byte tipo, DataInputStream d, Operaciones operaciones) throws IOException {
+        switch (tipo) {
+            case ALTA -> operaciones.alta(leerPersona(d));
+            case BAJA -> operaciones.baja(d.readUTF(), d.readBoolean());
+            case AÑADIR_ACTIVIDAD -> operaciones.añadirActividad(d.readUTF(), d.readBoolean(), d.readUTF(), d.readInt(), leerEspecialidad(d));
+            case ELIMINAR_ACTIVIDAD_SOCIO -> operaciones.eliminarActividad(d.readUTF(), d.readBoolean(), d.readUTF(), d.readInt(), leerEspecialidad(d));
+            case VOTAR -> operaciones.votar(d.readUTF(), d.readInt(), leerEspecialidad(d), d.readInt());
+            case ME_GUSTA -> operaciones.meGusta(d.readUTF(), d.readBoolean());
+            case CONVERTIR_PREMIUM -> operaciones.convertirPremium(d.readUTF());
+            case SUELDO -> operaciones.sueldo(d.readUTF(), d.readDouble());
+            case ESPECIALIDADES -> {
+                String dni = d.readUTF();
+                Especialidad[] especialidades = new Especialidad[d.readInt()];
+                for(int i = 0; i < especialidades.length; i++){
+                    int ordinal = d.readInt();
+                    especialidades[i] = ordinal == -1 ? null : Especialidad.values()[ordinal];
+                }
+                operaciones.especialidades(dni, especialidades);
+            }
+            case NUEVA_ACTIVIDAD -> {
+                String nombre = d.readUTF();
+                int duracion = d.readInt();
+                Especialidad categoria = leerEspecialidad(d);
+                operaciones.nuevaActividad(new Actividad(nombre, duracion, d.readInt(), categoria, d.readBoolean()));
+            }
+            case ELIMINAR_ACTIVIDAD -> operaciones.eliminarActividad(d.readUTF(), d.readInt(), leerEspecialidad(d));
+            case ACCESO -> operaciones.acceso(d.readUTF(), LocalDate.ofEpochDay(d.readLong()));
+            case INSTANTANEA -> { }
+            default -> throw new IOException("Tipo de registro desconocido: " + tipo);
+        }
+    }
+
+    private static Persona leerPersona(DataInputStream d) throws IOException {
+        byte tipo = d.readByte();
+        String nombre = d.readUTF();
+        String dni = d.readUTF();
+        String direccion = d.readUTF();
+        String localidad = d.readUTF();
+        String provincia = d.readUTF();
+        String codigoPostal = d.readUTF();
+        String telefono = d.readUTF();
+        LocalDate fechaNacimiento = LocalDate.parse(d.readUTF());
+
+        if(tipo == MONITOR){
+            return Monitor.restaurar(nombre, dni, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, d.readDouble());
+        }
+
+        LocalDate fechaRegistro = LocalDate.ofEpochDay(d.readLong());
+        LocalDate fechaUltimoAcceso = LocalDate.ofEpochDay(d.readLong());
+        boolean estaActivo = d.readBoolean();
+
+        return tipo == SOCIO_PREMIUM
+                ? SocioPremium.restaurar(nombre, dni, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo)
+                : Socio.restaurar(nombre, dni, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo);
+    }
+
+    private static Especialidad leerEspecialidad(DataInputStream d) throws IOException {
+        return Especialidad.values()[d.readInt()];
+    }
+
+    private static void persona(Escritura e, Persona p){
+        e.texto(p.getDNI());
+        e.booleano(p instanceof Monitor);
+    }
+
+    private static void actividad(Escritura e, Actividad a){
+        e.texto(a.getNombre());
+        e.entero(a.getDuracion());
+        e.entero(a.getCategoria().ordinal());
+    }
+
+    /**
+     * Los bytes de un registro mientras se preparan. Como se escriben en
+     * memoria, las escrituras no pueden fallar.
+     */
+    private static class Escritura {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final DataOutputStream datos = new DataOutputStream(bytes);
+
+        private void byte_(byte b){
+            try{ datos.writeByte(b); }catch(IOException e){ throw new UncheckedIOException(e); }
+        }
+
+        private void texto(String s){
+            try{ datos.writeUTF(s); }catch(IOException e){ throw new UncheckedIOException(e); }
+        }
+
+        private void entero(int i){
+            try{ datos.writeInt(i); }catch(IOException e){ throw new UncheckedIOException(e); }
+        }
+
+        private void largo(long l){
+            try{ datos.writeLong(l); }catch(IOException e){ throw new UncheckedIOException(e); }
+        }
+
+        private void real(double d){
+            try{ datos.writeDouble(d); }catch(IOException e){ throw new UncheckedIOException(e); }
+        }
+
+        private void booleano(boolean b){
+            try{ datos.writeBoolean(b); }catch(IOException e){ throw new UncheckedIOException(e); }
+        }
+
+        private byte[] bytes(){
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Las operaciones que se aplican al reproducir el diario. Las personas y
+     * actividades que no se encuentren se ignoran.
+     */
+    public interface Operaciones {
+        /**
+         * Avisa de un registro que no se ha podido aplicar. La reproducción
+         * sigue con el registro siguiente.
+         *
+         * @param numero La posición del registro en el diario, empezando por 1.
+         * @param causa El error con el que ha fallado.
+         */
+        void registroOmitido(int numero, Exception causa);
+
+        void alta(Persona p);
+        void baja(String dni, boolean esMonitor);
+        void acceso(String dni, LocalDate fecha);
+        void añadirActividad(String dni, boolean esMonitor, String nombre, int duracion, Especialidad categoria);
+        void eliminarActividad(String dni, boolean esMonitor, String nombre, int duracion, Especialidad categoria);
+        void votar(String nombre, int duracion, Especialidad categoria, int voto);
+        void meGusta(String dni, boolean like);
+        void convertirPremium(String dni);
+        void sueldo(String dni, double sueldo);
+        void especialidades(String dni, Especialidad[] especialidades);
+        void nuevaActividad(Actividad a);
+        void eliminarActividad(String nombre, int duracion, Especialidad categoria);
+    }
+}
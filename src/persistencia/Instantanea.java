@@ -0,0 +1,563 @@
+package persistencia;
+
+import app.Actividad;
+import app.CaducidadSocios;
+import app.CatalogoActividades;
+import app.Especialidad;
+import app.Monitor;
+import app.OrigenPersonas;
+import app.Persona;
+import app.PuntuacionMonitor;
+import app.Socio;
+import app.SocioPremium;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Esta clase representa una instantánea binaria de los datos del gimnasio. La
+ * representación de la clase usa los atributos <code>buffer</code>,
+ * <code>identificador</code>, <code>minutosSocios</code>,
+ * <code>numeroMonitores</code>, <code>numeroCaducidades</code>,
+ * <code>tablas</code>, <code>actividades</code> y <code>personas</code>.
+ *
+ * La instantánea guarda las actividades del catálogo con sus votos y todas las
+ * personas: los socios con sus fechas, su estado y sus actividades, y los
+ * monitores con su sueldo, sus especialidades y sus votos. El fichero empieza
+ * por una cabecera con un número mágico, la versión del formato, el
+ * identificador de la instantánea, el número de actividades y de personas y
+ * los datos de las tablas del final, seguida de una tabla con la posición de
+ * cada actividad y cada persona en el fichero.
+ *
+ * <p>Al final del fichero hay unas tablas con lo que el gimnasio necesita
+ * saber de todas las personas sin crearlas: el número de DNI de cada persona
+ * y si es un monitor, que se guarda en el bit de signo, los socios y los monitores ordenados por número de DNI, los socios activos
+ * ordenados por el día en el que caducan (ver
+ * {@link CaducidadSocios#diaCaducidad(LocalDate)}) y el número de socios
+ * inscritos en cada actividad. La cabecera guarda además la suma de los
+ * minutos de actividades de los socios. Con ellas la instantánea hace de
+ * {@link OrigenPersonas} de un {@link app.RepositorioPersonas}, que crea cada
+ * persona la primera vez que se pide.</p>
+ *
+ * <p>Al abrir una instantánea solo se proyecta el fichero en memoria con un
+ * {@link MappedByteBuffer} y se comprueban la cabecera y las tablas, que se
+ * leen sin copiarlas, por lo que abrirla no crea ninguna persona. Cada
+ * actividad y cada persona se crea la primera vez que se pide y se guarda
+ * para las siguientes. Al crear un socio se le inscribe en sus
+ * actividades.</p>
+ *
+ * <p>La instantánea se escribe en un fichero temporal que después sustituye al
+ * anterior de una vez, así que si la aplicación se interrumpe mientras escribe
+ * se conserva la instantánea anterior entera.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class Instantanea implements OrigenPersonas {
+    private static final int MAGICO = 0x47494D4E;
+    private static final int VERSION = 2;
+    private static final int CABECERA = 4 + 4 + 8 + 4 + 4 + 8 + 4 + 4 + 4;
+
+    private static final byte SOCIO = 0;
+    private static final byte SOCIO_PREMIUM = 1;
+    private static final byte MONITOR = 2;
+
+    private final MappedByteBuffer buffer;
+    private final long identificador;
+    private final long minutosSocios;
+    private final int numeroMonitores;
+    private final int numeroCaducidades;
+    private final int tablas;
+    private final Actividad[] actividades;
+    private final Persona[] personas;
+
+    private Instantanea(MappedByteBuffer buffer) throws IOException {
+        if(buffer.capacity() < CABECERA || buffer.getInt(0) != MAGICO){
+            throw new IOException("El fichero no es una instantánea");
+        }
+        if(buffer.getInt(4) != VERSION){
+            throw new IOException("Versión de instantánea no soportada: " + buffer.getInt(4));
+        }
+
+        this.buffer = buffer;
+        this.identificador = buffer.getLong(8);
+        this.actividades = new Actividad[buffer.getInt(16)];
+        this.personas = new Persona[buffer.getInt(20)];
+        this.minutosSocios = buffer.getLong(24);
+        this.numeroMonitores = buffer.getInt(32);
+        this.numeroCaducidades = buffer.getInt(36);
+        this.tablas = buffer.getInt(40);
+
+        comprobarTablas();
+    }
+
+    /**
+     * Comprueba que las tablas caben en el fichero y que sus posiciones son
+     * válidas, para que una instantánea incompleta no se descubra al crear
+     * sus personas.
+     */
+    private void comprobarTablas() throws IOException {
+        long registros = CABECERA + 4L * (actividades.length + personas.length);
+        long fin = tablas + 4L * (actividades.length + 3L * personas.length + 2L * numeroCaducidades);
+
+        if(numeroMonitores < 0 || numeroMonitores > personas.length || numeroCaducidades < 0 || numeroCaducidades > personas.length - numeroMonitores || tablas < registros || fin != buffer.capacity()){
+            throw new IOException("La instantánea está incompleta");
+        }
+        for(int i = 0; i < actividades.length + personas.length; i++){
+            int posicion = buffer.getInt(CABECERA + 4 * i);
+            if(posicion < registros || posicion >= tablas){
+                throw new IOException("La instantánea está incompleta");
+            }
+        }
+        for(int i = 0; i < personas.length + numeroCaducidades; i++){
+            int posicion = buffer.getInt(tablaIndice() + 8 * i + 4);
+            if(posicion < 0 || posicion >= personas.length){
+                throw new IOException("La instantánea está incompleta");
+            }
+        }
+    }
+
+    /**
+     * Abre una instantánea.
+     *
+     * @param fichero El fichero de la instantánea.
+     * @return La instantánea.
+     * @throws IOException Si no se puede leer el fichero, no es una
+     * instantánea, su versión no está soportada o está incompleta.
+     */
+    public static Instantanea abrir(Path fichero) throws IOException {
+        try(FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ)){
+            return new Instantanea(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    /**
+     * Devuelve el identificador con el que se escribió la instantánea.
+     *
+     * @return El identificador de la instantánea.
+     */
+    public long getIdentificador(){
+        return identificador;
+    }
+
+    @Override
+    public int numeroActividades(){
+        return actividades.length;
+    }
+
+    @Override
+    public int numeroPersonas(){
+        return personas.length;
+    }
+
+    /**
+     * Devuelve la actividad de la posición indicada, creándola si es la
+     * primera vez que se pide.
+     *
+     * @param posicion La posición de la actividad.
+     * @return La actividad.
+     */
+    @Override
+    public Actividad actividad(int posicion){
+        Actividad a = actividades[posicion];
+
+        if(a == null){
+            ByteBuffer b = registro(posicion);
+            String nombre = leerTexto(b);
+            int duracion = b.getInt();
+            int calorias = b.getInt();
+            Especialidad categoria = Especialidad.values()[b.get()];
+            boolean esPremium = b.get() != 0;
+
+            a = new Actividad(nombre, duracion, calorias, categoria, esPremium);
+
+            int[] votos = new int[11];
+            for(int i = 0; i < votos.length; i++){
+                votos[i] = b.getInt();
+            }
+            a.cargarVotos(votos);
+            actividades[posicion] = a;
+        }
+
+        return a;
+    }
+
+    /**
+     * Devuelve la persona de la posición indicada, creándola si es la primera
+     * vez que se pide. Si es un socio, también se crean sus actividades y se
+     * le inscribe en ellas. La persona se crea sin las comprobaciones de un
+     * alta nueva, como la edad máxima, que pudo cumplir después de guardarse,
+     * o el máximo de minutos de un socio, que pudo pasar al alargarse una de
+     * sus actividades. Se pueden pedir a la vez personas distintas desde
+     * varios hilos, pero no la misma.
+     *
+     * @param posicion La posición de la persona.
+     * @return La persona.
+     */
+    @Override
+    public Persona persona(int posicion){
+        Persona p = personas[posicion];
+
+        if(p == null){
+            ByteBuffer b = registro(actividades.length + posicion);
+            byte tipo = b.get();
+            String nombre = leerTexto(b);
+            String dni = leerTexto(b);
+            String direccion = leerTexto(b);
+            String localidad = leerTexto(b);
+            String provincia = leerTexto(b);
+            String codigoPostal = leerTexto(b);
+            String telefono = leerTexto(b);
+            LocalDate fechaNacimiento = LocalDate.ofEpochDay(b.getInt());
+
+            if(tipo == MONITOR){
+                Monitor m = Monitor.restaurar(nombre, dni, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, b.getDouble());
+                Especialidad[] especialidades = m.getEspecialidad();
+                for(int i = 0; i < especialidades.length; i++){
+                    byte especialidad = b.get();
+                    especialidades[i] = especialidad == -1 ? null : Especialidad.values()[especialidad];
+                }
+                m.cargarVotos(b.getLong(), b.getLong());
+                p = m;
+            }else{
+                LocalDate fechaRegistro = LocalDate.ofEpochDay(b.getInt());
+                LocalDate fechaUltimoAcceso = LocalDate.ofEpochDay(b.getInt());
+                boolean estaActivo = b.get() != 0;
+                Socio s = tipo == SOCIO_PREMIUM
+                        ? SocioPremium.restaurar(nombre, dni, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo)
+                        : Socio.restaurar(nombre, dni, direccion, localidad, provincia, codigoPostal, telefono, fechaNacimiento, fechaRegistro, fechaUltimoAcceso, estaActivo);
+                int numeroActividades = b.getInt();
+                ArrayList <Actividad> lista = new ArrayList<>(numeroActividades);
+                for(int i = 0; i < numeroActividades; i++){
+                    lista.add(actividad(b.getInt()));
+                }
+                s.setListaActividad(lista);
+                p = s;
+            }
+            personas[posicion] = p;
+        }
+
+        return p;
+    }
+
+    @Override
+    public int numeroDNI(int posicion){
+        return buffer.getInt(tablas + 4 * (actividades.length + posicion)) & Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean esMonitor(int posicion){
+        return buffer.getInt(tablas + 4 * (actividades.length + posicion)) < 0;
+    }
+
+    @Override
+    public int buscar(int numeroDNI, boolean esMonitor){
+        int inicio = esMonitor ? personas.length - numeroMonitores : 0;
+        int fin = esMonitor ? personas.length : personas.length - numeroMonitores;
+        int posicion = -1;
+
+        while(inicio < fin && posicion == -1){
+            int medio = (inicio + fin) >>> 1;
+            int numero = buffer.getInt(tablaIndice() + 8 * medio);
+            if(numero < numeroDNI){
+                inicio = medio + 1;
+            }else if(numero > numeroDNI){
+                fin = medio;
+            }else{
+                posicion = buffer.getInt(tablaIndice() + 8 * medio + 4);
+            }
+        }
+
+        return posicion;
+    }
+
+    @Override
+    public long getMinutosSocios(){
+        return minutosSocios;
+    }
+
+    @Override
+    public int numeroInscritos(int posicionActividad){
+        return buffer.getInt(tablas + 4 * posicionActividad);
+    }
+
+    @Override
+    public int numeroCaducidades(){
+        return numeroCaducidades;
+    }
+
+    @Override
+    public long diaCaducidad(int i){
+        return buffer.getInt(tablaIndice() + 8 * (personas.length + i));
+    }
+
+    @Override
+    public int posicionCaducidad(int i){
+        return buffer.getInt(tablaIndice() + 8 * (personas.length + i) + 4);
+    }
+
+    /**
+     * Devuelve la posición en el fichero de la tabla de socios y monitores
+     * ordenados por número de DNI, a la que sigue la de caducidades.
+     */
+    private int tablaIndice(){
+        return tablas + 4 * (actividades.length + personas.length);
+    }
+
+    /**
+     * Devuelve las personas de la instantánea como una lista de solo lectura.
+     * Cada persona se crea la primera vez que se pide a la lista.
+     *
+     * @return Las personas de la instantánea.
+     */
+    public List<Persona> getPersonas(){
+        return new Personas();
+    }
+
+    /**
+     * Devuelve los datos del registro indicado de la tabla de posiciones.
+     */
+    private ByteBuffer registro(int entrada){
+        return buffer.duplicate().position(buffer.getInt(CABECERA + 4 * entrada));
+    }
+
+    private static String leerTexto(ByteBuffer b){
+        byte[] bytes = new byte[Short.toUnsignedInt(b.getShort())];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe una instantánea con las actividades del catálogo y las personas
+     * indicadas, sustituyendo la que hubiera en el fichero.
+     *
+     * @param fichero El fichero de la instantánea.
+     * @param identificador El identificador de la instantánea.
+     * @param catalogo El catálogo de actividades.
+     * @param personas Las personas del gimnasio. Las actividades de los socios
+     * tienen que estar en el catálogo.
+     * @throws IOException Si no se puede escribir el fichero.
+     *
+     * @throws IllegalArgumentException Si algún socio tiene una actividad que
+     * no está en el catálogo o la instantánea ocupa más de 2 GiB.
+     */
+    public static void escribir(Path fichero, long identificador, CatalogoActividades catalogo, List<? extends Persona> personas) throws IOException {
+        Path temporal = fichero.resolveSibling(fichero.getFileName() + ".tmp");
+        int numeroActividades = catalogo.size();
+        int[] posiciones = new int[numeroActividades + personas.size()];
+        Tablas t = new Tablas(numeroActividades, personas.size());
+        int tablas;
+
+        try(DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal), 1 << 16))){
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeLong(identificador);
+            salida.writeInt(numeroActividades);
+            salida.writeInt(personas.size());
+            salida.write(new byte[CABECERA - 24 + 4 * posiciones.length]);
+
+            for(int i = 0; i < numeroActividades; i++){
+                posiciones[i] = posicion(salida);
+                escribirActividad(salida, catalogo.get(i));
+            }
+            for(int i = 0; i < personas.size(); i++){
+                posiciones[numeroActividades + i] = posicion(salida);
+                escribirPersona(salida, personas.get(i), catalogo, t, i);
+            }
+
+            tablas = posicion(salida);
+            t.escribir(salida);
+            posicion(salida);
+        }
+
+        try(FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE)){
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA - 24 + 4 * posiciones.length);
+            cabecera.putLong(t.minutosSocios);
+            cabecera.putInt(t.numeroMonitores);
+            cabecera.putInt(t.numeroCaducidades);
+            cabecera.putInt(tablas);
+            cabecera.asIntBuffer().put(posiciones);
+            cabecera.rewind();
+
+            canal.position(24);
+            while(cabecera.hasRemaining()){
+                canal.write(cabecera);
+            }
+            canal.force(true);
+        }
+
+        Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int posicion(DataOutputStream salida){
+        int posicion = salida.size();
+        if(posicion < 0){
+            throw new IllegalArgumentException("La instantánea no puede ocupar más de 2 GiB");
+        }
+        return posicion;
+    }
+
+    private static void escribirActividad(DataOutputStream salida, Actividad a) throws IOException {
+        escribirTexto(salida, a.getNombre());
+        salida.writeInt(a.getDuracion());
+        salida.writeInt(a.getCalorias());
+        salida.writeByte(a.getCategoria().ordinal());
+        salida.writeBoolean(a.getEsPremium());
+        for(int votos : a.getDistribucionVotos()){
+            salida.writeInt(votos);
+        }
+    }
+
+    private static void escribirPersona(DataOutputStream salida, Persona p, CatalogoActividades catalogo, Tablas t, int posicionPersona) throws IOException {
+        salida.writeByte(p instanceof Monitor ? MONITOR : p instanceof SocioPremium ? SOCIO_PREMIUM : SOCIO);
+        escribirTexto(salida, p.getNombre());
+        escribirTexto(salida, p.getDNI());
+        escribirTexto(salida, p.getDireccion());
+        escribirTexto(salida, p.getLocalidad());
+        escribirTexto(salida, p.getProvincia());
+        escribirTexto(salida, p.getCodigoPostal());
+        escribirTexto(salida, p.getTelefono());
+        salida.writeInt((int) p.getFechaNacimiento().toEpochDay());
+
+        if(p instanceof Monitor){
+            Monitor m = (Monitor) p;
+            salida.writeDouble(m.getSueldo());
+            for(Especialidad especialidad : m.getEspecialidad()){
+                salida.writeByte(especialidad == null ? -1 : especialidad.ordinal());
+            }
+            PuntuacionMonitor puntuacion = m.getPuntuacion();
+            salida.writeLong(puntuacion.getVotosPositivos());
+            salida.writeLong(puntuacion.getVotosNegativos());
+            t.monitor(p, posicionPersona);
+        }else{
+            Socio s = (Socio) p;
+            LocalDate fechaUltimoAcceso = s.getFechaUltimoAcceso();
+            boolean estaActivo = s.getEstaActivo();
+            salida.writeInt((int) s.getFechaRegistro().toEpochDay());
+            salida.writeInt((int) fechaUltimoAcceso.toEpochDay());
+            salida.writeBoolean(estaActivo);
+            List<Actividad> actividades = s.copiarActividades();
+            salida.writeInt(actividades.size());
+            t.socio(p, posicionPersona, estaActivo ? CaducidadSocios.diaCaducidad(fechaUltimoAcceso).toEpochDay() : -1);
+            for(Actividad a : actividades){
+                int posicion = catalogo.posicion(a);
+                if(posicion == -1){
+                    throw new IllegalArgumentException("La actividad " + a.getNombre() + " no está en el catálogo");
+                }
+                salida.writeInt(posicion);
+                t.actividad(posicionPersona, posicion, a.getDuracion());
+            }
+        }
+    }
+
+    private static void escribirTexto(DataOutputStream salida, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        salida.writeShort(bytes.length);
+        salida.write(bytes);
+    }
+
+    /**
+     * Las tablas del final de la instantánea, que se llenan al escribir cada
+     * persona. Los índices guardan en cada {@code long} el número de DNI o el
+     * día de caducidad en los 32 bits altos y la posición de la persona en
+     * los bajos, para ordenarlos de una vez.
+     */
+    private static class Tablas {
+        private final int[] inscritos;
+        private final int[] ultimoInscrito;
+        private final int[] dnis;
+        private final long[] socios;
+        private final long[] monitores;
+        private final long[] caducidades;
+        private int numeroSocios;
+        private int numeroMonitores;
+        private int numeroCaducidades;
+        private long minutosSocios;
+
+        private Tablas(int numeroActividades, int numeroPersonas){
+            this.inscritos = new int[numeroActividades];
+            this.ultimoInscrito = new int[numeroActividades];
+            this.dnis = new int[numeroPersonas];
+            this.socios = new long[numeroPersonas];
+            this.monitores = new long[numeroPersonas];
+            this.caducidades = new long[numeroPersonas];
+            Arrays.fill(ultimoInscrito, -1);
+        }
+
+        private void monitor(Persona p, int posicion){
+            dnis[posicion] = p.getNumeroDNI() | Integer.MIN_VALUE;
+            monitores[numeroMonitores++] = (long) p.getNumeroDNI() << 32 | posicion;
+        }
+
+        private void socio(Persona p, int posicion, long diaCaducidad){
+            dnis[posicion] = p.getNumeroDNI();
+            socios[numeroSocios++] = (long) p.getNumeroDNI() << 32 | posicion;
+            if(diaCaducidad != -1){
+                caducidades[numeroCaducidades++] = diaCaducidad << 32 | posicion;
+            }
+        }
+
+        /**
+         * Anota una actividad de un socio. El socio cuenta una sola vez en los
+         * inscritos de cada actividad, aunque la tenga repetida.
+         */
+        private void actividad(int posicionSocio, int posicionActividad, int duracion){
+            if(ultimoInscrito[posicionActividad] != posicionSocio){
+                ultimoInscrito[posicionActividad] = posicionSocio;
+                inscritos[posicionActividad]++;
+            }
+            minutosSocios += duracion;
+        }
+
+        private void escribir(DataOutputStream salida) throws IOException {
+            Arrays.sort(socios, 0, numeroSocios);
+            Arrays.sort(monitores, 0, numeroMonitores);
+            Arrays.sort(caducidades, 0, numeroCaducidades);
+
+            for(int numero : inscritos){
+                salida.writeInt(numero);
+            }
+            for(int dni : dnis){
+                salida.writeInt(dni);
+            }
+            for(int i = 0; i < numeroSocios; i++){
+                salida.writeLong(socios[i]);
+            }
+            for(int i = 0; i < numeroMonitores; i++){
+                salida.writeLong(monitores[i]);
+            }
+            for(int i = 0; i < numeroCaducidades; i++){
+                salida.writeLong(caducidades[i]);
+            }
+        }
+    }
+
+    /**
+     * Vista de solo lectura de las personas de la instantánea.
+     */
+    private class Personas extends AbstractList<Persona> implements RandomAccess {
+        @Override
+        public Persona get(int posicion){
+            return persona(posicion);
+        }
+
+        @Override
+        public int size(){
+            return personas.length;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package servidor;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cliente de carga para el {@link ServidorTornos}. Envía peticiones al
+ * servidor desde hilos virtuales, con un número máximo de peticiones en curso,
+ * y muestra la latencia (p50, p99 y máxima), las peticiones por segundo y los
+ * errores.
+ *
+ * Nueve de cada diez peticiones son accesos ({@code POST /acceso/{dni}}) y el
+ * resto se reparten entre las consultas de actividades y de cuota, repartiendo
+ * los DNI indicados entre todas ellas. Antes de medir se envía una décima parte
+ * de las peticiones para calentar el servidor, que no se cuentan.
+ *
+ * <p>Uso: {@code ClienteCarga [url] [peticiones] [concurrencia] [dni,dni,...]}.
+ * Por defecto, {@code http://localhost:8080}, 10000 peticiones, 64 en curso y
+ * los socios de los datos de prueba.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ClienteCarga {
+    private static final String URL = "http://localhost:8080";
+    private static final int PETICIONES = 10000;
+    private static final int CONCURRENCIA = 64;
+    private static final String DNIS = "12345678Z,05696354J,81815144G";
+
+    public static void main(String[] args) throws InterruptedException {
+        String url = args.length > 0 ? args[0] : URL;
+        int peticiones = args.length > 1 ? Integer.parseInt(args[1]) : PETICIONES;
+        int concurrencia = args.length > 2 ? Integer.parseInt(args[2]) : CONCURRENCIA;
+        String[] dnis = (args.length > 3 ? args[3] : DNIS).split(",");
+
+        if(peticiones <= 0 || concurrencia <= 0){
+            throw new IllegalArgumentException("Las peticiones y la concurrencia tienen que ser positivas");
+        }
+
+        try(ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()){
+            HttpClient cliente = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .executor(hilos)
+                    .build();
+
+            enviar(cliente, hilos, url, dnis, Math.max(1, peticiones / 10), concurrencia, new long[Math.max(1, peticiones / 10)]);
+
+            long[] latencias = new long[peticiones];
+            long inicio = System.nanoTime();
+            int errores = enviar(cliente, hilos, url, dnis, peticiones, concurrencia, latencias);
+            long total = System.nanoTime() - inicio;
+
+            Arrays.sort(latencias);
+            System.out.println("Peticiones: " + peticiones + " (" + concurrencia + " en curso), errores: " + errores);
+            System.out.println(String.format(Locale.ROOT, "Peticiones por segundo: %.0f", peticiones / (total / 1e9)));
+            System.out.println(String.format(Locale.ROOT, "Latencia p50: %.3f ms, p99: %.3f ms, max: %.3f ms",
+                    percentil(latencias, 0.50) / 1e6, percentil(latencias, 0.99) / 1e6, latencias[latencias.length - 1] / 1e6));
+        }
+    }
+
+    /**
+     * Envía las peticiones con como mucho {@code concurrencia} en curso y
+     * espera a que terminen todas.
+     *
+     * @return El número de peticiones que han fallado o no han respondido 200.
+     */
+    private static int enviar(HttpClient cliente, ExecutorService hilos, String url, String[] dnis, int peticiones, int concurrencia, long[] latencias) throws InterruptedException {
+        Semaphore enCurso = new Semaphore(concurrencia);
+        AtomicInteger errores = new AtomicInteger();
+
+        for(int i = 0; i < peticiones; i++){
+            HttpRequest peticion = peticion(url, dnis[i % dnis.length], i);
+            int posicion = i;
+
+            enCurso.acquire();
+            hilos.execute(() -> {
+                long inicio = System.nanoTime();
+                try{
+                    HttpResponse<Void> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.discarding());
+                    if(respuesta.statusCode() != 200){
+                        errores.incrementAndGet();
+                    }
+                }catch(Exception e){
+                    errores.incrementAndGet();
+                }finally{
+                    latencias[posicion] = System.nanoTime() - inicio;
+                    enCurso.release();
+                }
+            });
+        }
+        enCurso.acquire(concurrencia);
+
+        return errores.get();
+    }
+
+    private static HttpRequest peticion(String url, String dni, int i){
+        HttpRequest.Builder peticion;
+
+        if(i % 10 == 8){
+            peticion = HttpRequest.newBuilder(URI.create(url + "/socios/" + dni + "/actividades")).GET();
+        }else if(i % 10 == 9){
+            peticion = HttpRequest.newBuilder(URI.create(url + "/socios/" + dni + "/cuota")).GET();
+        }else{
+            peticion = HttpRequest.newBuilder(URI.create(url + "/acceso/" + dni)).POST(HttpRequest.BodyPublishers.noBody());
+        }
+
+        return peticion.timeout(Duration.ofSeconds(10)).build();
+    }
+
+    private static long percentil(long[] ordenadas, double p){
+        int posicion = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, posicion)];
+    }
+}
@@ -0,0 +1,251 @@
+package servidor;
+
+import app.Actividad;
+import app.Persona;
+import app.RepositorioPersonas;
+import app.Socio;
+import app.SocioPremium;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import utils.ValidarDatos;
+
+/**
+ * Esta clase representa el servidor HTTP con el que los tornos del gimnasio
+ * registran los accesos de los socios. La representación de la clase usa los
+ * atributos <code>servidor</code>, <code>hilos</code>,
+ * <code>repositorio</code> y <code>registroAcceso</code>.
+ *
+ * Las peticiones que atiende son:
+ * <ul>
+ * <li>{@code POST /acceso/{dni}}: registra el acceso del socio con ese DNI,
+ * igual que al entrar en su perfil desde la consola.</li>
+ * <li>{@code GET /socios/{dni}/actividades}: devuelve las actividades en las
+ * que está inscrito el socio.</li>
+ * <li>{@code GET /socios/{dni}/cuota}: devuelve los minutos de actividades y
+ * la cuota del socio.</li>
+ * </ul>
+ * Las respuestas son objetos JSON. Si el DNI no es válido se responde 400, si
+ * no hay ningún socio con ese DNI 404 y si el método no es el de la petición
+ * 405.
+ *
+ * <p>Cada petición se atiende en su propio hilo virtual, por lo que una
+ * petición que espera (por ejemplo, a que el repositorio libere el bloqueo de
+ * un fragmento) no ocupa un hilo de la plataforma y el servidor no necesita
+ * un grupo de hilos dimensionado para el pico de los tornos. Las consultas
+ * leen el repositorio de personas, que se puede usar a la vez desde la
+ * consola.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ServidorTornos {
+    private static final int CONEXIONES_PENDIENTES = 1024;
+    private static final String RUTA_ACCESO = "/acceso/";
+    private static final String RUTA_SOCIOS = "/socios/";
+
+    static {
+        // El servidor del JDK escribe las cabeceras y el cuerpo de la respuesta
+        // por separado; con el algoritmo de Nagle el cuerpo espera al ACK
+        // retardado del cliente y cada respuesta tarda unos 40 ms más.
+        if(System.getProperty("sun.net.httpserver.nodelay") == null){
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer servidor;
+    private final ExecutorService hilos;
+    private final RepositorioPersonas repositorio;
+    private final Predicate<Socio> registroAcceso;
+
+    /**
+     * Crea el servidor sin empezar a atender peticiones.
+     *
+     * @param direccion La dirección y el puerto donde escucha el servidor. Con
+     * el puerto 0 se usa un puerto libre.
+     * @param repositorio El repositorio de las personas del gimnasio.
+     * @param registroAcceso La operación que registra el acceso de un socio.
+     * Devuelve {@code false} si el socio ya no está en el repositorio.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    public ServidorTornos(InetSocketAddress direccion, RepositorioPersonas repositorio, Predicate<Socio> registroAcceso) throws IOException {
+        this.repositorio = repositorio;
+        this.registroAcceso = registroAcceso;
+        this.hilos = Executors.newVirtualThreadPerTaskExecutor();
+        this.servidor = HttpServer.create(direccion, CONEXIONES_PENDIENTES);
+        this.servidor.setExecutor(hilos);
+        this.servidor.createContext(RUTA_ACCESO, this::acceso);
+        this.servidor.createContext(RUTA_SOCIOS, this::socios);
+    }
+
+    /**
+     * Empieza a atender peticiones.
+     */
+    public void iniciar(){
+        servidor.start();
+    }
+
+    /**
+     * Deja de aceptar peticiones y espera como mucho un segundo a que terminen
+     * las que están en curso.
+     */
+    public void detener(){
+        servidor.stop(1);
+        hilos.shutdown();
+    }
+
+    /**
+     * Devuelve el puerto en el que escucha el servidor.
+     *
+     * @return El puerto del servidor.
+     */
+    public int getPuerto(){
+        return servidor.getAddress().getPort();
+    }
+
+    /**
+     * Atiende {@code POST /acceso/{dni}}.
+     */
+    private void acceso(HttpExchange intercambio) throws IOException {
+        try{
+            if(!intercambio.getRequestMethod().equals("POST")){
+                error(intercambio, 405, "Solo se admite POST");
+            }else{
+                intercambio.getRequestBody().readAllBytes();
+                Socio socio = buscarSocio(intercambio, intercambio.getRequestURI().getPath().substring(RUTA_ACCESO.length()));
+
+                if(socio != null){
+                    if(registroAcceso.test(socio)){
+                        responder(intercambio, 200, "{\"dni\":" + texto(socio.getDNI())
+                                + ",\"nombre\":" + texto(socio.getNombre())
+                                + ",\"fechaUltimoAcceso\":" + texto(socio.getFechaUltimoAcceso().toString()) + "}");
+                    }else{
+                        // Otro puesto lo ha dado de baja después de buscarlo.
+                        error(intercambio, 404, "No existe ningun socio con ese DNI");
+                    }
+                }
+            }
+        }catch(RuntimeException e){
+            error(intercambio, 500, "Error interno");
+        }finally{
+            intercambio.close();
+        }
+    }
+
+    /**
+     * Atiende {@code GET /socios/{dni}/actividades} y
+     * {@code GET /socios/{dni}/cuota}.
+     */
+    private void socios(HttpExchange intercambio) throws IOException {
+        try{
+            String[] partes = intercambio.getRequestURI().getPath().substring(RUTA_SOCIOS.length()).split("/");
+
+            if(partes.length != 2 || !(partes[1].equals("actividades") || partes[1].equals("cuota"))){
+                error(intercambio, 404, "No existe la ruta");
+            }else if(!intercambio.getRequestMethod().equals("GET")){
+                error(intercambio, 405, "Solo se admite GET");
+            }else{
+                Socio socio = buscarSocio(intercambio, partes[0]);
+
+                if(socio != null && partes[1].equals("actividades")){
+                    responder(intercambio, 200, actividades(socio));
+                }else if(socio != null){
+                    responder(intercambio, 200, "{\"dni\":" + texto(socio.getDNI())
+                            + ",\"premium\":" + (socio instanceof SocioPremium)
+                            + ",\"minutos\":" + socio.getDuracionActividades()
+                            + ",\"cuota\":" + String.format(Locale.ROOT, "%.2f", socio.getCuota()) + "}");
+                }
+            }
+        }catch(RuntimeException e){
+            error(intercambio, 500, "Error interno");
+        }finally{
+            intercambio.close();
+        }
+    }
+
+    private static String actividades(Socio socio){
+        ArrayList <Actividad> actividades = socio.copiarActividades();
+        StringBuilder json = new StringBuilder(64 + 64 * actividades.size());
+
+        json.append("{\"dni\":").append(texto(socio.getDNI())).append(",\"actividades\":[");
+        for(int i = 0; i < actividades.size(); i++){
+            Actividad a = actividades.get(i);
+            if(i > 0){
+                json.append(',');
+            }
+            json.append("{\"nombre\":").append(texto(a.getNombre()))
+                .append(",\"duracion\":").append(a.getDuracion())
+                .append(",\"categoria\":").append(texto(a.getCategoria().name())).append('}');
+        }
+        json.append("]}");
+
+        return json.toString();
+    }
+
+    /**
+     * Valida el DNI de la petición y busca el socio. Si no es válido o no hay
+     * ningún socio con ese DNI, responde con el error.
+     *
+     * @return El socio, o {@code null} si ya se ha respondido con un error.
+     */
+    private Socio buscarSocio(HttpExchange intercambio, String dni) throws IOException {
+        Socio socio = null;
+        dni = dni.toUpperCase(Locale.ROOT);
+
+        if(!ValidarDatos.validarNif(dni)){
+            error(intercambio, 400, "El DNI no es valido");
+        }else{
+            Persona p = repositorio.buscar(dni, false);
+            if(p == null){
+                error(intercambio, 404, "No existe ningun socio con ese DNI");
+            }else{
+                socio = (Socio) p;
+            }
+        }
+
+        return socio;
+    }
+
+    private static void error(HttpExchange intercambio, int codigo, String mensaje) throws IOException {
+        responder(intercambio, codigo, "{\"error\":" + texto(mensaje) + "}");
+    }
+
+    private static void responder(HttpExchange intercambio, int codigo, String json) throws IOException {
+        byte[] cuerpo = json.getBytes(StandardCharsets.UTF_8);
+
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, cuerpo.length);
+        try(OutputStream salida = intercambio.getResponseBody()){
+            salida.write(cuerpo);
+        }
+    }
+
+    /**
+     * Devuelve un texto como cadena JSON, escapando las comillas, las barras
+     * invertidas y los caracteres de control.
+     */
+    private static String texto(String s){
+        StringBuilder json = new StringBuilder(s.length() + 2).append('"');
+
+        for(int i = 0; i < s.length(); i++){
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\'){
+                json.append('\\').append(c);
+            }else if(c < 0x20){
+                json.append(String.format("\\u%04x", (int) c));
+            }else{
+                json.append(c);
+            }
+        }
+
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,216 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase representa un almacén de objetos en el que cada objeto recibe un
+ * identificador numérico al guardarse. La representación de la clase usa los
+ * atributos <code>bitsCasilla</code>, <code>elementos</code>,
+ * <code>generaciones</code>, <code>libres</code>, <code>ocupados</code> y
+ * <code>tamaño</code>.
+ *
+ * Los objetos se guardan en un array y el identificador indica su casilla,
+ * por lo que buscar un objeto por su identificador es leer una casilla del
+ * array. Al quitar un objeto su casilla queda vacía, como una lápida, sin
+ * mover los demás objetos, y pasa a una lista de casillas libres que se usan
+ * antes de hacer crecer el array.
+ *
+ * <p>Para que un identificador antiguo no encuentre al objeto que ocupa
+ * después su casilla, el identificador incluye también la generación de la
+ * casilla, que aumenta cada vez que se vacía: los 7 bits altos del
+ * identificador son la generación y los bajos la casilla. El número de bits
+ * de los identificadores se elige al crear el almacén, hasta 31, y con él el
+ * número de casillas: con 27 bits, los que usa por defecto, el almacén tiene
+ * 2<sup>20</sup> casillas y quien use los identificadores puede añadirles
+ * hasta 4 bits propios; con 31 bits tiene 2<sup>24</sup> casillas. El array
+ * crece según se ocupan las casillas, así que un almacén con muchas casillas
+ * no ocupa más memoria mientras tenga pocos objetos. Los identificadores son
+ * siempre positivos. Una casilla solo repite identificador después de
+ * vaciarse 128 veces.</p>
+ *
+ * <p>El almacén no se sincroniza: quien lo comparte entre hilos tiene que
+ * sincronizar los accesos.</p>
+ *
+ * @param <T> El tipo de los objetos guardados.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class AlmacenIds <T> {
+    /**
+     * Número de bits de los identificadores por defecto.
+     */
+    public static final int BITS = 27;
+
+    private static final int BITS_GENERACION = 7;
+    private static final int GENERACIONES = 1 << BITS_GENERACION;
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private final int bitsCasilla;
+    private Object[] elementos;
+    private byte[] generaciones;
+    private final ListaEnteros libres;
+    private int ocupados;
+    private int tamaño;
+
+    /**
+     * Crea un almacén vacío con identificadores de {@link #BITS} bits.
+     */
+    public AlmacenIds(){
+        this(BITS);
+    }
+
+    /**
+     * Crea un almacén vacío con identificadores del número de bits indicado.
+     * El almacén tiene 2<sup>bits - 7</sup> casillas.
+     *
+     * @param bits El número de bits de los identificadores, entre 8 y 31.
+     *
+     * @throws IllegalArgumentException Si el número de bits no está entre 8
+     * y 31.
+     */
+    public AlmacenIds(int bits){
+        if(bits <= BITS_GENERACION || bits > 31){
+            throw new IllegalArgumentException("Los identificadores tienen que tener entre " + (BITS_GENERACION + 1) + " y 31 bits");
+        }
+
+        this.bitsCasilla = bits - BITS_GENERACION;
+        this.elementos = new Object[CAPACIDAD_INICIAL];
+        this.generaciones = new byte[CAPACIDAD_INICIAL];
+        this.libres = new ListaEnteros();
+    }
+
+    /**
+     * Guarda un objeto en una casilla libre o, si no hay ninguna, al final.
+     *
+     * @param elemento El objeto.
+     * @return El identificador del objeto.
+     *
+     * @throws IllegalArgumentException Si el objeto es null.
+     * @throws IllegalStateException Si todas las casillas del almacén están
+     * ocupadas.
+     */
+    public int añadir(T elemento){
+        if(elemento == null){
+            throw new IllegalArgumentException("No se puede guardar null");
+        }
+
+        int casilla;
+        if(!libres.isEmpty()){
+            casilla = libres.quitarUltimo();
+        }else{
+            if(tamaño == 1 << bitsCasilla){
+                throw new IllegalStateException("El almacén está lleno: sus " + tamaño + " casillas están ocupadas");
+            }
+            if(tamaño == elementos.length){
+                elementos = Arrays.copyOf(elementos, tamaño * 2);
+                generaciones = Arrays.copyOf(generaciones, tamaño * 2);
+            }
+            casilla = tamaño++;
+        }
+
+        elementos[casilla] = elemento;
+        ocupados++;
+        return generaciones[casilla] << bitsCasilla | casilla;
+    }
+
+    /**
+     * Devuelve el objeto con el identificador indicado.
+     *
+     * Este método no falla aunque otro hilo cambie el almacén a la vez, por lo
+     * que se puede llamar con una lectura optimista que luego se valida.
+     *
+     * @param id El identificador.
+     * @return El objeto, o null si el identificador no es de ningún objeto del
+     * almacén.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id){
+        Object[] e = elementos;
+        byte[] g = generaciones;
+        int casilla = id & ((1 << bitsCasilla) - 1);
+        return id >= 0 && casilla < e.length && casilla < g.length && g[casilla] == id >>> bitsCasilla ? (T) e[casilla] : null;
+    }
+
+    /**
+     * Sustituye el objeto con el identificador indicado por otro, que se queda
+     * con el mismo identificador.
+     *
+     * @param id El identificador.
+     * @param elemento El objeto nuevo.
+     * @return El objeto sustituido, o null si el identificador no es de ningún
+     * objeto del almacén, en cuyo caso no se guarda el nuevo.
+     *
+     * @throws IllegalArgumentException Si el objeto nuevo es null.
+     */
+    public T reemplazar(int id, T elemento){
+        if(elemento == null){
+            throw new IllegalArgumentException("No se puede guardar null");
+        }
+
+        T anterior = get(id);
+        if(anterior != null){
+            elementos[id & ((1 << bitsCasilla) - 1)] = elemento;
+        }
+        return anterior;
+    }
+
+    /**
+     * Quita el objeto con el identificador indicado, dejando su casilla vacía
+     * para otro objeto.
+     *
+     * @param id El identificador.
+     * @return El objeto quitado, o null si el identificador no es de ningún
+     * objeto del almacén.
+     */
+    public T eliminar(int id){
+        T elemento = get(id);
+
+        if(elemento != null){
+            int casilla = id & ((1 << bitsCasilla) - 1);
+            elementos[casilla] = null;
+            generaciones[casilla] = (byte) ((generaciones[casilla] + 1) % GENERACIONES);
+            libres.añadir(casilla);
+            ocupados--;
+        }
+
+        return elemento;
+    }
+
+    /**
+     * Indica si el identificador es de algún objeto del almacén.
+     *
+     * @param id El identificador.
+     * @return {@code true} si el objeto está en el almacén.
+     */
+    public boolean contiene(int id){
+        return get(id) != null;
+    }
+
+    /**
+     * Devuelve el número de objetos guardados.
+     *
+     * @return El número de objetos.
+     */
+    public int size(){
+        return ocupados;
+    }
+
+    /**
+     * Indica si el almacén está vacío.
+     *
+     * @return {@code true} si no tiene objetos.
+     */
+    public boolean isEmpty(){
+        return ocupados == 0;
+    }
+
+    /**
+     * Devuelve el número de casillas usadas alguna vez, ocupadas o vacías.
+     *
+     * @return El número de casillas.
+     */
+    public int casillas(){
+        return tamaño;
+    }
+}
@@ -0,0 +1,207 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase representa un conjunto de números enteros guardados en una tabla
+ * hash de <code>int</code>, sin convertirlos en objetos. La representación de
+ * la clase usa los atributos <code>claves</code>, <code>tamaño</code> y
+ * <code>contieneVacio</code>.
+ *
+ * La tabla usa direccionamiento abierto con sondeo lineal: cada número se
+ * guarda en la primera casilla libre a partir de la de su hash, y al quitar un
+ * número se mueven hacia atrás los que venían detrás, por lo que no hacen
+ * falta marcas de borrado. Las casillas libres tienen el valor
+ * {@link Integer#MIN_VALUE}; si ese número está en el conjunto, se indica con
+ * <code>contieneVacio</code>. Añadir solo crea un array nuevo al crecer la
+ * tabla, y comprobar o quitar un número no crea ningún objeto.
+ *
+ * <p>El conjunto no se sincroniza: quien lo comparte entre hilos tiene que
+ * sincronizar los accesos.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ConjuntoEnteros {
+    private static final int LIBRE = Integer.MIN_VALUE;
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private int[] claves;
+    private int tamaño;
+    private boolean contieneVacio;
+
+    /**
+     * Crea un conjunto vacío.
+     */
+    public ConjuntoEnteros(){
+        this.claves = nuevaTabla(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * Añade un número al conjunto.
+     *
+     * @param valor El número.
+     * @return {@code true} si no estaba en el conjunto.
+     */
+    public boolean añadir(int valor){
+        if(valor == LIBRE){
+            boolean añadido = !contieneVacio;
+            if(añadido){
+                contieneVacio = true;
+                tamaño++;
+            }
+            return añadido;
+        }
+
+        int i = buscar(valor);
+        boolean añadido = claves[i] == LIBRE;
+        if(añadido){
+            claves[i] = valor;
+            tamaño++;
+            if(tamaño * 4 > claves.length * 3){
+                crecer();
+            }
+        }
+        return añadido;
+    }
+
+    /**
+     * Indica si un número está en el conjunto.
+     *
+     * @param valor El número.
+     * @return {@code true} si está en el conjunto.
+     */
+    public boolean contiene(int valor){
+        return valor == LIBRE ? contieneVacio : claves[buscar(valor)] != LIBRE;
+    }
+
+    /**
+     * Quita un número del conjunto.
+     *
+     * @param valor El número.
+     * @return {@code true} si estaba en el conjunto.
+     */
+    public boolean eliminar(int valor){
+        if(valor == LIBRE){
+            boolean eliminado = contieneVacio;
+            if(eliminado){
+                contieneVacio = false;
+                tamaño--;
+            }
+            return eliminado;
+        }
+
+        int i = buscar(valor);
+        boolean eliminado = claves[i] != LIBRE;
+        if(eliminado){
+            cerrarHueco(i);
+            tamaño--;
+        }
+        return eliminado;
+    }
+
+    /**
+     * Quita todos los números del conjunto, conservando la tabla.
+     */
+    public void limpiar(){
+        Arrays.fill(claves, LIBRE);
+        contieneVacio = false;
+        tamaño = 0;
+    }
+
+    /**
+     * Devuelve el número de elementos del conjunto.
+     *
+     * @return El tamaño del conjunto.
+     */
+    public int size(){
+        return tamaño;
+    }
+
+    /**
+     * Indica si el conjunto está vacío.
+     *
+     * @return {@code true} si no tiene elementos.
+     */
+    public boolean isEmpty(){
+        return tamaño == 0;
+    }
+
+    /**
+     * Devuelve los números del conjunto en un array nuevo, sin un orden
+     * concreto.
+     *
+     * @return El array.
+     */
+    public int[] toArray(){
+        int[] valores = new int[tamaño];
+        int n = 0;
+        if(contieneVacio){
+            valores[n++] = LIBRE;
+        }
+        for(int clave : claves){
+            if(clave != LIBRE){
+                valores[n++] = clave;
+            }
+        }
+        return valores;
+    }
+
+    /**
+     * Devuelve la casilla del número o, si no está, la casilla libre en la que
+     * iría.
+     */
+    private int buscar(int valor){
+        int mascara = claves.length - 1;
+        int i = casilla(valor, mascara);
+        while(claves[i] != LIBRE && claves[i] != valor){
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    /**
+     * Libera la casilla indicada y mueve hacia atrás los números siguientes
+     * que ya no se encontrarían con la casilla libre en medio.
+     */
+    private void cerrarHueco(int hueco){
+        int mascara = claves.length - 1;
+        int i = hueco;
+
+        while(true){
+            i = (i + 1) & mascara;
+            int clave = claves[i];
+            if(clave == LIBRE){
+                break;
+            }
+            int inicio = casilla(clave, mascara);
+            // Se mueve si su casilla inicial no está entre el hueco y su posición.
+            if(((i - inicio) & mascara) >= ((i - hueco) & mascara)){
+                claves[hueco] = clave;
+                hueco = i;
+            }
+        }
+        claves[hueco] = LIBRE;
+    }
+
+    private void crecer(){
+        int[] anteriores = claves;
+        claves = nuevaTabla(anteriores.length * 2);
+        for(int clave : anteriores){
+            if(clave != LIBRE){
+                claves[buscar(clave)] = clave;
+            }
+        }
+    }
+
+    private static int casilla(int valor, int mascara){
+        int h = valor * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mascara;
+    }
+
+    private static int[] nuevaTabla(int capacidad){
+        int[] tabla = new int[capacidad];
+        Arrays.fill(tabla, LIBRE);
+        return tabla;
+    }
+}
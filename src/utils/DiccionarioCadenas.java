@@ -0,0 +1,51 @@
+package utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Esta clase representa un diccionario de cadenas que se repiten mucho, como
+ * las localidades, las provincias o los códigos postales de las personas. La
+ * representación de la clase usa el atributo <code>cadenas</code>.
+ *
+ * Cada cadena distinta se guarda una sola vez: al pedir la cadena canónica de
+ * un texto se devuelve la primera cadena igual que se guardó, de forma que
+ * miles de personas de la misma localidad comparten la misma cadena en lugar
+ * de tener cada una su copia. A diferencia de {@link String#intern()}, las
+ * cadenas solo se comparten dentro del diccionario.
+ *
+ * <p>Se puede usar desde varios hilos a la vez.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class DiccionarioCadenas {
+    private final ConcurrentHashMap <String, String> cadenas;
+
+    /**
+     * Crea un diccionario vacío.
+     */
+    public DiccionarioCadenas(){
+        this.cadenas = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Devuelve la cadena canónica de un texto, y la guarda si es la primera
+     * vez que se pide.
+     *
+     * @param texto El texto.
+     * @return La cadena guardada en el diccionario igual al texto.
+     */
+    public String canonica(String texto){
+        String canonica = cadenas.putIfAbsent(texto, texto);
+        return canonica == null ? texto : canonica;
+    }
+
+    /**
+     * Devuelve el número de cadenas distintas del diccionario.
+     *
+     * @return El número de cadenas.
+     */
+    public int size(){
+        return cadenas.size();
+    }
+}
@@ -0,0 +1,126 @@
+package utils;
+
+/**
+ * Decodificador de fechas en formato "yyyy-mm-dd", el formato en el que se
+ * introducen las fechas de nacimiento.
+ *
+ * Comprueba el formato (4 dígitos para el año y 1 o 2 para el mes y el día,
+ * igual que {@link PatronesUtiles#PATRON_FECHA}), comprueba que la fecha exista
+ * en el calendario y la convierte en el número de días desde el 1 de enero de
+ * 1970 (ver {@link java.time.LocalDate#toEpochDay()}), todo en una sola pasada
+ * por los caracteres y sin crear objetos.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class FechaISO {
+    /**
+     * Valor devuelto por {@link #decodificar(CharSequence)} cuando la fecha no
+     * es válida.
+     */
+    public static final long FECHA_INVALIDA = Long.MIN_VALUE;
+
+    /**
+     * Decodifica una fecha en formato "yyyy-mm-dd".
+     *
+     * @param fecha La fecha que se quiere decodificar.
+     * @return El número de días desde el 1 de enero de 1970, o
+     * {@link #FECHA_INVALIDA} si el texto no tiene el formato adecuado o la
+     * fecha no existe.
+     */
+    public static long decodificar(CharSequence fecha){
+        if(fecha == null){
+            return FECHA_INVALIDA;
+        }
+
+        int longitud = fecha.length();
+        if(longitud < 8 || longitud > 10){
+            return FECHA_INVALIDA;
+        }
+
+        int year = 0;
+        for(int i = 0; i < 4; i++){
+            int digito = digito(fecha.charAt(i));
+            if(digito < 0){
+                return FECHA_INVALIDA;
+            }
+            year = year * 10 + digito;
+        }
+        if(fecha.charAt(4) != '-'){
+            return FECHA_INVALIDA;
+        }
+
+        int posicion = 5;
+        int month = 0;
+        int digitos = 0;
+        while(posicion < longitud && digito(fecha.charAt(posicion)) >= 0){
+            month = month * 10 + digito(fecha.charAt(posicion));
+            posicion++;
+            digitos++;
+        }
+        if(digitos < 1 || digitos > 2 || posicion >= longitud || fecha.charAt(posicion) != '-'){
+            return FECHA_INVALIDA;
+        }
+
+        posicion++;
+        int day = 0;
+        digitos = 0;
+        while(posicion < longitud && digito(fecha.charAt(posicion)) >= 0){
+            day = day * 10 + digito(fecha.charAt(posicion));
+            posicion++;
+            digitos++;
+        }
+        if(digitos < 1 || digitos > 2 || posicion != longitud){
+            return FECHA_INVALIDA;
+        }
+
+        if(month < 1 || month > 12 || day < 1 || day > diasMes(year, month)){
+            return FECHA_INVALIDA;
+        }
+
+        return diaEpoch(year, month, day);
+    }
+
+    /**
+     * Devuelve el número de días del mes indicado.
+     *
+     * @param year El año.
+     * @param month El mes, de 1 a 12.
+     * @return El número de días del mes.
+     */
+    public static int diasMes(int year, int month){
+        return switch (month) {
+            case 4, 6, 9, 11 -> 30;
+            case 2 -> esBisiesto(year) ? 29 : 28;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Indica si un año es bisiesto.
+     *
+     * @param year El año.
+     * @return {@code true} si es bisiesto, {@code false} en caso contrario.
+     */
+    public static boolean esBisiesto(int year){
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Convierte una fecha válida en el número de días desde el 1 de enero de
+     * 1970, con el mismo resultado que {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static long diaEpoch(int year, int month, int day){
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearEra = y - era * 400;
+        long diaYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long diaEra = yearEra * 365 + yearEra / 4 - yearEra / 100 + diaYear;
+
+        return era * 146097 + diaEra - 719468;
+    }
+
+    private static int digito(char c){
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
@@ -0,0 +1,358 @@
+package utils;
+
+import app.Monitor;
+import app.Persona;
+import app.RepositorioPersonas;
+import app.Socio;
+import app.SocioPremium;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Importa socios, socios premium y monitores desde un fichero CSV.
+ *
+ * Cada línea del fichero es una persona con los campos separados por
+ * {@code ;} en este orden: tipo (SOCIO, SOCIOPREMIUM o MONITOR), nombre, DNI,
+ * dirección, localidad, provincia, código postal, teléfono, fecha de
+ * nacimiento y, solo para los monitores, sueldo. Se ignoran las líneas vacías,
+ * las que empiezan por {@code #} y una primera línea de cabecera cuyo primer
+ * campo sea "tipo".
+ *
+ * <p>El fichero se lee por lotes de líneas: las personas de cada lote se
+ * validan y se crean en paralelo en un {@link ForkJoinPool} y después se dan de
+ * alta todas juntas. Solo hay un lote en memoria a la vez, por lo que la
+ * memoria que usa la importación no depende del tamaño del fichero.</p>
+ *
+ * <p>Igual que en el alta de personas, no se da de alta a una persona si ya
+ * existe otra del mismo tipo (socio o monitor) con su DNI, ya sea en el
+ * gimnasio o en una línea anterior del fichero. Como el gimnasio se puede
+ * usar desde otros puestos mientras se importa, el alta del lote devuelve las
+ * personas que no ha podido dar de alta porque otro puesto ha dado de alta
+ * antes su DNI, y esas líneas también se rechazan. Las líneas que no se
+ * importan se escriben en el fichero de rechazos con su número de línea y el
+ * motivo.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ImportadorPersonas {
+    private static final int UMBRAL_PARALELO = 256;
+    private static final int CAMPOS_LINEA = MotorValidacion.NUMERO_CAMPOS + 1;
+
+    private final RepositorioPersonas repositorio;
+    private final Function<ArrayList<Persona>, List<Persona>> altaLote;
+    private final int tamañoLote;
+    private final ForkJoinPool pool;
+
+    /**
+     * Crea un importador.
+     *
+     * @param repositorio El repositorio de las personas del gimnasio, con el
+     * que se detectan los DNI repetidos. Debe actualizarse al dar de alta cada
+     * lote.
+     * @param altaLote La operación que da de alta un lote de personas ya
+     * validadas. Devuelve las personas del lote que no ha dado de alta.
+     * @param tamañoLote El número de líneas de cada lote.
+     *
+     * @throws IllegalArgumentException Si el tamaño del lote no es positivo.
+     */
+    public ImportadorPersonas(RepositorioPersonas repositorio, Function<ArrayList<Persona>, List<Persona>> altaLote, int tamañoLote){
+        if(tamañoLote <= 0){
+            throw new IllegalArgumentException("El tamaño del lote tiene que ser positivo");
+        }
+
+        this.repositorio = repositorio;
+        this.altaLote = altaLote;
+        this.tamañoLote = tamañoLote;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Importa las personas del fichero indicado.
+     *
+     * @param origen El fichero CSV con las personas.
+     * @param rechazos El fichero donde se escriben las líneas que no se
+     * importan. Si ya existe, se sobrescribe.
+     * @return El resultado de la importación.
+     * @throws IOException Si no se puede leer el fichero de origen o escribir el
+     * de rechazos.
+     */
+    public ResultadoImportacion importar(Path origen, Path rechazos) throws IOException {
+        long inicio = System.nanoTime();
+        int leidas = 0;
+        int importadas = 0;
+        int rechazadas = 0;
+
+        try(BufferedReader lector = Files.newBufferedReader(origen, StandardCharsets.UTF_8);
+            BufferedWriter escritor = Files.newBufferedWriter(rechazos, StandardCharsets.UTF_8)){
+
+            String[] lineas = new String[tamañoLote];
+            int[] numeros = new int[tamañoLote];
+            int numeroLinea = 0;
+            String linea;
+            int n = 0;
+
+            while((linea = lector.readLine()) != null){
+                numeroLinea++;
+                if(esLineaDatos(linea, numeroLinea)){
+                    lineas[n] = linea;
+                    numeros[n] = numeroLinea;
+                    n++;
+
+                    if(n == tamañoLote){
+                        importadas += procesarLote(lineas, numeros, n, escritor);
+                        leidas += n;
+                        n = 0;
+                    }
+                }
+            }
+
+            if(n > 0){
+                importadas += procesarLote(lineas, numeros, n, escritor);
+                leidas += n;
+            }
+            rechazadas = leidas - importadas;
+        }
+
+        return new ResultadoImportacion(leidas, importadas, rechazadas, System.nanoTime() - inicio);
+    }
+
+    private boolean esLineaDatos(String linea, int numeroLinea){
+        boolean esDatos = !linea.isBlank() && !linea.startsWith("#");
+
+        if(esDatos && numeroLinea == 1){
+            int separador = linea.indexOf(';');
+            String primero = separador == -1 ? linea : linea.substring(0, separador);
+            esDatos = !Utilidades.formatearString(primero).equals("TIPO");
+        }
+
+        return esDatos;
+    }
+
+    /**
+     * Valida y crea en paralelo las personas de un lote, descarta las que
+     * tienen un DNI repetido y da de alta el resto. Las que el alta devuelve
+     * sin dar de alta también se escriben en los rechazos.
+     *
+     * @return El número de personas dadas de alta.
+     */
+    private int procesarLote(String[] lineas, int[] numeros, int n, BufferedWriter rechazos) throws IOException {
+        Persona[] personas = new Persona[n];
+        String[] motivos = new String[n];
+
+        pool.invoke(new ConstruirPersonas(lineas, personas, motivos, 0, n));
+
+        ArrayList <Persona> lote = new ArrayList<>(n);
+        int[] posiciones = new int[n];
+        HashSet <String> dniLote = new HashSet<>();
+
+        for(int i = 0; i < n; i++){
+            Persona p = personas[i];
+
+            if(p != null){
+                boolean esMonitor = p instanceof Monitor;
+                String clave = (esMonitor ? "M" : "S") + p.getDNI();
+
+                if(repositorio.existe(p.getDNI(), esMonitor) || !dniLote.add(clave)){
+                    p = null;
+                    motivos[i] = "El DNI ya lo tiene otra persona";
+                }
+            }
+
+            if(p == null){
+                rechazar(rechazos, numeros[i], motivos[i], lineas[i]);
+            }else{
+                posiciones[lote.size()] = i;
+                lote.add(p);
+            }
+        }
+
+        int importadas = lote.size();
+        if(!lote.isEmpty()){
+            Set <Persona> noAñadidas = Collections.newSetFromMap(new IdentityHashMap<>());
+            noAñadidas.addAll(altaLote.apply(lote));
+
+            for(int j = 0; j < lote.size() && !noAñadidas.isEmpty(); j++){
+                if(noAñadidas.remove(lote.get(j))){
+                    int i = posiciones[j];
+                    rechazar(rechazos, numeros[i], "El DNI ya lo tiene otra persona", lineas[i]);
+                    importadas--;
+                }
+            }
+        }
+        Arrays.fill(lineas, 0, n, null);
+
+        return importadas;
+    }
+
+    private static void rechazar(BufferedWriter rechazos, int numeroLinea, String motivo, String linea) throws IOException {
+        rechazos.write(numeroLinea + ";" + motivo + ";" + linea);
+        rechazos.newLine();
+    }
+
+    /**
+     * Crea la persona de una línea del fichero.
+     *
+     * @param linea La línea del fichero.
+     * @param motivos El array donde se guarda el motivo si la línea no es
+     * válida.
+     * @param posicion La posición de la línea en el lote.
+     * @return La persona, o {@code null} si la línea no es válida.
+     */
+    private static Persona construirPersona(String linea, String[] motivos, int posicion){
+        String[] campos = linea.split(";", -1);
+
+        if(campos.length < CAMPOS_LINEA){
+            motivos[posicion] = "Faltan campos";
+            return null;
+        }
+
+        String tipo = Utilidades.formatearString(campos[0]);
+        if(!ValidarDatos.validarTipoPersona(tipo)){
+            motivos[posicion] = "El tipo de persona no es valido";
+            return null;
+        }
+
+        String[] datos = new String[MotorValidacion.NUMERO_CAMPOS];
+        for(int i = 0; i < datos.length; i++){
+            datos[i] = campos[i + 1].trim();
+        }
+
+        int errores = MotorValidacion.validarPersona(datos);
+        if(errores != 0){
+            motivos[posicion] = "Campos incorrectos: " + MotorValidacion.describirErrores(errores);
+            return null;
+        }
+
+        Persona p = null;
+        try{
+            switch (tipo) {
+                case "SOCIO" -> p = new Socio(datos[0], datos[1], datos[2], datos[3], datos[4], datos[5], datos[6], datos[7]);
+                case "SOCIOPREMIUM" -> p = new SocioPremium(datos[0], datos[1], datos[2], datos[3], datos[4], datos[5], datos[6], datos[7]);
+                default -> {
+                    if(campos.length <= CAMPOS_LINEA){
+                        motivos[posicion] = "Falta el sueldo del monitor";
+                    }else{
+                        p = new Monitor(datos[0], datos[1], datos[2], datos[3], datos[4], datos[5], datos[6], datos[7], Double.parseDouble(campos[CAMPOS_LINEA].trim()));
+                    }
+                }
+            }
+        }catch(NumberFormatException e){
+            motivos[posicion] = "El sueldo no es un numero";
+        }catch(IllegalArgumentException e){
+            motivos[posicion] = e.getMessage();
+        }
+
+        return p;
+    }
+
+    /**
+     * Tarea que crea las personas de un rango del lote, dividiéndolo en
+     * partes más pequeñas para repartirlas entre los hilos del pool.
+     */
+    @SuppressWarnings("serial")
+    private static class ConstruirPersonas extends RecursiveAction {
+        private final String[] lineas;
+        private final Persona[] personas;
+        private final String[] motivos;
+        private final int desde;
+        private final int hasta;
+
+        private ConstruirPersonas(String[] lineas, Persona[] personas, String[] motivos, int desde, int hasta){
+            this.lineas = lineas;
+            this.personas = personas;
+            this.motivos = motivos;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute(){
+            if(hasta - desde <= UMBRAL_PARALELO){
+                for(int i = desde; i < hasta; i++){
+                    personas[i] = construirPersona(lineas[i], motivos, i);
+                }
+            }else{
+                int mitad = (desde + hasta) >>> 1;
+                invokeAll(new ConstruirPersonas(lineas, personas, motivos, desde, mitad),
+                          new ConstruirPersonas(lineas, personas, motivos, mitad, hasta));
+            }
+        }
+    }
+
+    /**
+     * Resultado de una importación.
+     */
+    public static class ResultadoImportacion {
+        private final int leidas;
+        private final int importadas;
+        private final int rechazadas;
+        private final long nanosegundos;
+
+        private ResultadoImportacion(int leidas, int importadas, int rechazadas, long nanosegundos){
+            this.leidas = leidas;
+            this.importadas = importadas;
+            this.rechazadas = rechazadas;
+            this.nanosegundos = nanosegundos;
+        }
+
+        /**
+         * Devuelve el número de líneas de datos leídas.
+         *
+         * @return Las líneas leídas.
+         */
+        public int getLeidas(){
+            return leidas;
+        }
+
+        /**
+         * Devuelve el número de personas dadas de alta.
+         *
+         * @return Las personas importadas.
+         */
+        public int getImportadas(){
+            return importadas;
+        }
+
+        /**
+         * Devuelve el número de líneas escritas en el fichero de rechazos.
+         *
+         * @return Las líneas rechazadas.
+         */
+        public int getRechazadas(){
+            return rechazadas;
+        }
+
+        /**
+         * Devuelve la duración de la importación en milisegundos.
+         *
+         * @return Los milisegundos que ha durado la importación.
+         */
+        public long getMilisegundos(){
+            return nanosegundos / 1_000_000;
+        }
+
+        /**
+         * Devuelve el número de líneas procesadas por segundo.
+         *
+         * @return Las líneas por segundo.
+         */
+        public double getFilasPorSegundo(){
+            return nanosegundos == 0 ? 0 : leidas * 1e9 / nanosegundos;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Esta clase representa un índice por nombre normalizado de personas o
+ * actividades. La representación de la clase usa el atributo
+ * <code>coincidencias</code>, que asocia cada nombre normalizado (en mayúsculas
+ * y sin espacios, ver {@link Utilidades#formatearString(String)}) con los
+ * elementos que tienen ese nombre.
+ *
+ * Las búsquedas por nombre se resuelven en tiempo constante, ya que el nombre
+ * normalizado de cada elemento se calcula una sola vez al añadirlo y no en cada
+ * búsqueda.
+ *
+ * @param <T> El tipo de los elementos indexados.
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class IndiceNombres <T> {
+    private HashMap <String, ArrayList<T>> coincidencias;
+
+    /**
+     * Crea un índice vacío.
+     */
+    public IndiceNombres(){
+        this.coincidencias = new HashMap<>();
+    }
+
+    /**
+     * Añade un elemento al índice con su nombre normalizado.
+     *
+     * @param nombreNormalizado El nombre normalizado del elemento.
+     * @param elemento El elemento que se quiere añadir.
+     */
+    public void añadir(String nombreNormalizado, T elemento){
+        coincidencias.computeIfAbsent(nombreNormalizado, k -> new ArrayList<>()).add(elemento);
+    }
+
+    /**
+     * Elimina un elemento del índice. Se elimina exactamente el objeto
+     * indicado, aunque existan otros elementos iguales con el mismo nombre.
+     *
+     * @param nombreNormalizado El nombre normalizado del elemento.
+     * @param elemento El elemento que se quiere eliminar.
+     */
+    public void eliminar(String nombreNormalizado, T elemento){
+        ArrayList <T> lista = coincidencias.get(nombreNormalizado);
+
+        if(lista != null){
+            boolean eliminado = false;
+            for(int i = 0; i < lista.size() && !eliminado; i++){
+                if(lista.get(i) == elemento){
+                    lista.remove(i);
+                    eliminado = true;
+                }
+            }
+
+            if(lista.isEmpty()){
+                coincidencias.remove(nombreNormalizado);
+            }
+        }
+    }
+
+    /**
+     * Cambia un elemento de nombre dentro del índice. Debe llamarse después de
+     * cambiar el nombre del elemento.
+     *
+     * @param nombreAnterior El nombre normalizado que tenía el elemento.
+     * @param nombreNuevo El nombre normalizado que tiene ahora el elemento.
+     * @param elemento El elemento que ha cambiado de nombre.
+     */
+    public void renombrar(String nombreAnterior, String nombreNuevo, T elemento){
+        if(!nombreAnterior.equals(nombreNuevo)){
+            eliminar(nombreAnterior, elemento);
+            añadir(nombreNuevo, elemento);
+        }
+    }
+
+    /**
+     * Devuelve los elementos cuyo nombre normalizado coincide con el indicado.
+     *
+     * @param nombreNormalizado El nombre normalizado que se busca.
+     * @return Una lista nueva con los elementos que coinciden, vacía si no hay
+     * ninguno.
+     */
+    public ArrayList<T> buscar(String nombreNormalizado){
+        ArrayList <T> lista = coincidencias.get(nombreNormalizado);
+
+        if(lista == null){
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(lista);
+    }
+}
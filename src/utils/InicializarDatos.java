@@ -1,6 +1,5 @@
 package utils;
 
-import app.Actividad;
 import java.util.ArrayList;
 import app.Especialidad;
 import app.Monitor;
@@ -295,55 +294,19 @@ public class InicializarDatos {
     }
     
     /**
-     * Filtra una lista de personas buscando coincidencias por nombre o DNI.
+     * Busca las personas cuyo nombre coincide con el nombre proporcionado.
      *
-     * Este método recorre una lista de objetos {@code Persona} y añade a una
-     * lista de coincidencias aquellas personas cuyo nombre o DNI coincidan con
-     * el valor proporcionado en el parámetro {@code nombre}.
+     * Este método consulta el índice de nombres normalizados, por lo que no
+     * recorre la lista de personas ni vuelve a formatear sus nombres.
      *
-     * @param lista La lista de personas a filtrar.
-     * @param nombre El nombre o el DNI que se buscará en la lista de personas.
+     * @param indice El índice por nombre normalizado de las personas.
+     * @param nombre El nombre normalizado que se buscará.
      *
      * @return Una lista de objetos {@code Persona} que contiene las personas
-     * cuya información coincide con el nombre o DNI proporcionado.
+     * cuyo nombre coincide con el proporcionado.
      */
-    public static ArrayList listaCoincidencias(ArrayList <Persona> lista, String nombre){
-        ArrayList <Persona> coincidencias = new ArrayList();
-        
-        for(Persona persona : lista){
-            String coincideNombre = Utilidades.formatearString(persona.getNombre());
-            if (nombre.equals(coincideNombre) || nombre.equals(persona.getDNI())) {
-                coincidencias.add(persona);
-            }
-        }
-        
-        return coincidencias;
-    }
-    
-    /**
-     * Filtra una lista de actividades buscando coincidencias por nombre.
-     *
-     * Este método recorre una lista de objetos {@code Actividad} y añade a una
-     * lista de coincidencias aquellas actividades cuyo nombre coincida con el
-     * valor proporcionado en el parámetro {@code nombre}.
-     *
-     * @param lista La lista de actividades a filtrar.
-     * @param nombre El nombre de la actividad que se buscará en la lista.
-     *
-     * @return Una lista de objetos {@code Actividad} que contiene las
-     * actividades cuyo nombre coincide con el proporcionado.
-     */
-    public static ArrayList listaCoincidenciasActividad(ArrayList<Actividad> lista, String nombre) {
-        ArrayList<Actividad> coincidencias = new ArrayList();
-
-        for (Actividad actividad : lista) {
-            String coincideNombre = Utilidades.formatearString(actividad.getNombre());
-            if (nombre.equals(coincideNombre)) {
-                coincidencias.add(actividad);
-            }
-        }
-
-        return coincidencias;
+    public static ArrayList listaCoincidencias(IndiceNombres <Persona> indice, String nombre){
+        return indice.buscar(nombre);
     }
     
 }
@@ -0,0 +1,169 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase representa una lista de números enteros guardados en un array de
+ * <code>int</code>, sin convertirlos en objetos. La representación de la clase
+ * usa los atributos <code>elementos</code> y <code>tamaño</code>.
+ *
+ * Añadir un número solo crea un array nuevo cuando el array está lleno, y
+ * buscar, comprobar o quitar un número no crea ningún objeto. Copiar la lista
+ * es una sola copia del array. Las listas vacías comparten un array vacío hasta
+ * que se añade el primer número.
+ *
+ * <p>La lista no se sincroniza: quien la comparte entre hilos tiene que
+ * sincronizar los accesos.</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class ListaEnteros {
+    private static final int[] VACIO = new int[0];
+    private static final int CAPACIDAD_INICIAL = 4;
+
+    private int[] elementos;
+    private int tamaño;
+
+    /**
+     * Crea una lista vacía.
+     */
+    public ListaEnteros(){
+        this.elementos = VACIO;
+    }
+
+    private ListaEnteros(int[] elementos){
+        this.elementos = elementos;
+        this.tamaño = elementos.length;
+    }
+
+    /**
+     * Añade un número al final de la lista.
+     *
+     * @param valor El número.
+     */
+    public void añadir(int valor){
+        if(tamaño == elementos.length){
+            elementos = Arrays.copyOf(elementos, Math.max(CAPACIDAD_INICIAL, tamaño * 2));
+        }
+        elementos[tamaño++] = valor;
+    }
+
+    /**
+     * Devuelve el número de una posición.
+     *
+     * @param posicion La posición.
+     * @return El número.
+     *
+     * @throws IndexOutOfBoundsException Si la posición no está en la lista.
+     */
+    public int get(int posicion){
+        if(posicion < 0 || posicion >= tamaño){
+            throw new IndexOutOfBoundsException("Posición " + posicion + " fuera de la lista de " + tamaño + " elementos");
+        }
+        return elementos[posicion];
+    }
+
+    /**
+     * Devuelve la posición de la primera aparición de un número.
+     *
+     * @param valor El número.
+     * @return La posición, o -1 si el número no está en la lista.
+     */
+    public int posicion(int valor){
+        for(int i = 0; i < tamaño; i++){
+            if(elementos[i] == valor){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indica si un número está en la lista.
+     *
+     * @param valor El número.
+     * @return {@code true} si está en la lista.
+     */
+    public boolean contiene(int valor){
+        return posicion(valor) != -1;
+    }
+
+    /**
+     * Quita la primera aparición de un número, moviendo los siguientes una
+     * posición.
+     *
+     * @param valor El número.
+     * @return {@code true} si estaba en la lista.
+     */
+    public boolean eliminar(int valor){
+        int posicion = posicion(valor);
+        if(posicion != -1){
+            System.arraycopy(elementos, posicion + 1, elementos, posicion, tamaño - posicion - 1);
+            tamaño--;
+        }
+        return posicion != -1;
+    }
+
+    /**
+     * Quita el último número de la lista y lo devuelve.
+     *
+     * @return El último número.
+     *
+     * @throws IllegalStateException Si la lista está vacía.
+     */
+    public int quitarUltimo(){
+        if(tamaño == 0){
+            throw new IllegalStateException("La lista está vacía");
+        }
+        return elementos[--tamaño];
+    }
+
+    /**
+     * Quita todos los números de la lista, conservando el array.
+     */
+    public void limpiar(){
+        tamaño = 0;
+    }
+
+    /**
+     * Devuelve el número de elementos de la lista.
+     *
+     * @return El tamaño de la lista.
+     */
+    public int size(){
+        return tamaño;
+    }
+
+    /**
+     * Indica si la lista está vacía.
+     *
+     * @return {@code true} si no tiene elementos.
+     */
+    public boolean isEmpty(){
+        return tamaño == 0;
+    }
+
+    /**
+     * Devuelve una copia de la lista, con un array del tamaño justo.
+     *
+     * @return La copia.
+     */
+    public ListaEnteros copiar(){
+        return new ListaEnteros(tamaño == 0 ? VACIO : Arrays.copyOf(elementos, tamaño));
+    }
+
+    /**
+     * Devuelve los números de la lista en un array nuevo.
+     *
+     * @return El array.
+     */
+    public int[] toArray(){
+        return Arrays.copyOf(elementos, tamaño);
+    }
+
+    @Override
+    public String toString(){
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,320 @@
+package utils;
+
+/**
+ * Motor de validación de los datos de las personas, pensado para dar de alta
+ * muchas personas a la vez.
+ *
+ * Los campos con formato fijo (DNI, teléfono y código postal) y los textos
+ * (nombre, localidad, provincia y dirección) se comprueban recorriendo sus
+ * caracteres una sola vez, sin expresiones regulares y sin crear objetos. La
+ * letra del DNI se calcula acumulando el resto módulo 23 mientras se leen los
+ * dígitos, sin extraer subcadenas ni convertir el número. Cada comprobación
+ * acepta exactamente los mismos valores que el patrón equivalente de
+ * {@link PatronesUtiles}.
+ *
+ * <p>Además de las comprobaciones sueltas, el motor valida registros completos
+ * de personas, con los campos en el mismo orden que el constructor de
+ * {@code Persona}, y devuelve para cada registro una máscara de bits con un bit
+ * a 1 por cada campo incorrecto (ver las constantes {@code CAMPO_*}).</p>
+ *
+ * @author David Diéguez
+ * @version 1.0
+ */
+public class MotorValidacion {
+    public static final int CAMPO_NOMBRE = 0;
+    public static final int CAMPO_DNI = 1;
+    public static final int CAMPO_DIRECCION = 2;
+    public static final int CAMPO_LOCALIDAD = 3;
+    public static final int CAMPO_PROVINCIA = 4;
+    public static final int CAMPO_CODIGO_POSTAL = 5;
+    public static final int CAMPO_TELEFONO = 6;
+    public static final int CAMPO_FECHA_NACIMIENTO = 7;
+    public static final int NUMERO_CAMPOS = 8;
+
+    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
+    private static final String[] NOMBRES_CAMPOS = {"nombre", "DNI", "direccion", "localidad", "provincia", "codigo postal", "telefono", "fecha de nacimiento"};
+
+    /**
+     * Comprueba si un texto tiene el formato de un DNI: 8 dígitos seguidos de
+     * una letra de control en mayúsculas, sin comprobar que la letra sea la
+     * correcta.
+     *
+     * @param dni El texto a comprobar.
+     * @return {@code true} si tiene el formato de un DNI, {@code false} en caso
+     * contrario.
+     */
+    public static boolean esFormatoDNI(CharSequence dni){
+        return dni != null && dni.length() == 9 && sonDigitos(dni, 8) && LETRAS_DNI.indexOf(dni.charAt(8)) != -1;
+    }
+
+    /**
+     * Comprueba si un DNI tiene el formato correcto y su letra de control
+     * corresponde al número.
+     *
+     * @param dni El DNI a comprobar.
+     * @return {@code true} si el DNI es válido, {@code false} en caso
+     * contrario.
+     */
+    public static boolean esDNI(CharSequence dni){
+        if(dni == null || dni.length() != 9){
+            return false;
+        }
+
+        int resto = 0;
+        for(int i = 0; i < 8; i++){
+            char c = dni.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+            resto = (resto * 10 + (c - '0')) % 23;
+        }
+
+        return dni.charAt(8) == LETRAS_DNI.charAt(resto);
+    }
+
+    /**
+     * Devuelve el número de un DNI válido. Como la letra de control depende
+     * solo del número, el número basta para volver a formar el DNI (ver
+     * {@link #textoDNI(int)}).
+     *
+     * @param dni El DNI.
+     * @return El número del DNI, o -1 si el DNI no es válido.
+     */
+    public static int numeroDNI(CharSequence dni){
+        if(!esDNI(dni)){
+            return -1;
+        }
+
+        int numero = 0;
+        for(int i = 0; i < 8; i++){
+            numero = numero * 10 + (dni.charAt(i) - '0');
+        }
+        return numero;
+    }
+
+    /**
+     * Forma el DNI que corresponde a un número: los 8 dígitos del número
+     * seguidos de su letra de control.
+     *
+     * @param numero El número del DNI, entre 0 y 99999999.
+     * @return El DNI.
+     */
+    public static String textoDNI(int numero){
+        char[] dni = new char[9];
+        dni[8] = LETRAS_DNI.charAt(numero % 23);
+        for(int i = 7; i >= 0; i--){
+            dni[i] = (char) ('0' + numero % 10);
+            numero /= 10;
+        }
+        return new String(dni);
+    }
+
+    /**
+     * Comprueba si un texto está formado por exactamente 9 dígitos.
+     *
+     * @param telefono El texto a comprobar.
+     * @return {@code true} si es un teléfono válido, {@code false} en caso
+     * contrario.
+     */
+    public static boolean esTelefono(CharSequence telefono){
+        return telefono != null && telefono.length() == 9 && sonDigitos(telefono, 9);
+    }
+
+    /**
+     * Comprueba si un texto está formado por exactamente 5 dígitos.
+     *
+     * @param codigoPostal El texto a comprobar.
+     * @return {@code true} si es un código postal válido, {@code false} en caso
+     * contrario.
+     */
+    public static boolean esCodigoPostal(CharSequence codigoPostal){
+        return codigoPostal != null && codigoPostal.length() == 5 && sonDigitos(codigoPostal, 5);
+    }
+
+    /**
+     * Comprueba si un texto es un nombre válido: entre 10 y 50 letras o
+     * espacios.
+     *
+     * @param nombre El texto a comprobar.
+     * @return {@code true} si es un nombre válido, {@code false} en caso
+     * contrario.
+     */
+    public static boolean esNombre(CharSequence nombre){
+        return sonLetras(nombre, 10, 50);
+    }
+
+    /**
+     * Comprueba si un texto es una localidad o provincia válida: entre 3 y 50
+     * letras o espacios.
+     *
+     * @param texto El texto a comprobar.
+     * @return {@code true} si es válido, {@code false} en caso contrario.
+     */
+    public static boolean esGeneral(CharSequence texto){
+        return sonLetras(texto, 3, 50);
+    }
+
+    /**
+     * Comprueba si un texto es una dirección válida: entre 3 y 50 letras sin
+     * tilde, dígitos, comas o espacios.
+     *
+     * @param direccion El texto a comprobar.
+     * @return {@code true} si es una dirección válida, {@code false} en caso
+     * contrario.
+     */
+    public static boolean esDireccion(CharSequence direccion){
+        if(direccion == null || direccion.length() < 3 || direccion.length() > 50){
+            return false;
+        }
+
+        for(int i = 0; i < direccion.length(); i++){
+            char c = direccion.charAt(i);
+            if(!esLetraSinTilde(c) && !(c >= '0' && c <= '9') && c != ',' && c != ' '){
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Valida los datos de una persona.
+     *
+     * @param campos Los datos de la persona en el orden de las constantes
+     * {@code CAMPO_*}, que es el orden del constructor de {@code Persona}.
+     * @return Una máscara con el bit {@code 1 << CAMPO_*} a 1 por cada campo
+     * incorrecto o que falta, 0 si todos los campos son válidos.
+     */
+    public static int validarPersona(String[] campos){
+        int errores = 0;
+
+        if(!esNombre(campo(campos, CAMPO_NOMBRE))){
+            errores |= 1 << CAMPO_NOMBRE;
+        }
+        if(!esDNI(campo(campos, CAMPO_DNI))){
+            errores |= 1 << CAMPO_DNI;
+        }
+        if(!esDireccion(campo(campos, CAMPO_DIRECCION))){
+            errores |= 1 << CAMPO_DIRECCION;
+        }
+        if(!esGeneral(campo(campos, CAMPO_LOCALIDAD))){
+            errores |= 1 << CAMPO_LOCALIDAD;
+        }
+        if(!esGeneral(campo(campos, CAMPO_PROVINCIA))){
+            errores |= 1 << CAMPO_PROVINCIA;
+        }
+        if(!esCodigoPostal(campo(campos, CAMPO_CODIGO_POSTAL))){
+            errores |= 1 << CAMPO_CODIGO_POSTAL;
+        }
+        if(!esTelefono(campo(campos, CAMPO_TELEFONO))){
+            errores |= 1 << CAMPO_TELEFONO;
+        }
+        if(!ValidarDatos.validarFechaNacimiento(FechaISO.decodificar(campo(campos, CAMPO_FECHA_NACIMIENTO)))){
+            errores |= 1 << CAMPO_FECHA_NACIMIENTO;
+        }
+
+        return errores;
+    }
+
+    /**
+     * Valida un lote de registros de personas.
+     *
+     * @param registros Los registros que se quieren validar, cada uno con los
+     * campos en el orden de las constantes {@code CAMPO_*}.
+     * @return Un array con la máscara de errores de cada registro, en el mismo
+     * orden (ver {@link #validarPersona(String[])}).
+     */
+    public static int[] validarLote(String[][] registros){
+        int[] errores = new int[registros.length];
+        validarLote(registros, 0, registros.length, errores);
+        return errores;
+    }
+
+    /**
+     * Valida los registros de un rango del lote y guarda sus máscaras de
+     * errores en las mismas posiciones del array de errores. Permite repartir
+     * un lote grande entre varios hilos.
+     *
+     * @param registros Los registros del lote.
+     * @param desde La posición del primer registro que se valida.
+     * @param hasta La posición siguiente al último registro que se valida.
+     * @param errores El array donde se guardan las máscaras de errores.
+     */
+    public static void validarLote(String[][] registros, int desde, int hasta, int[] errores){
+        for(int i = desde; i < hasta; i++){
+            errores[i] = validarPersona(registros[i]);
+        }
+    }
+
+    /**
+     * Indica si una máscara de errores tiene marcado el campo indicado.
+     *
+     * @param errores La máscara de errores.
+     * @param campo El campo, una de las constantes {@code CAMPO_*}.
+     * @return {@code true} si el campo es incorrecto, {@code false} en caso
+     * contrario.
+     */
+    public static boolean tieneError(int errores, int campo){
+        return (errores & (1 << campo)) != 0;
+    }
+
+    /**
+     * Describe los campos incorrectos de una máscara de errores.
+     *
+     * @param errores La máscara de errores.
+     * @return Los nombres de los campos incorrectos separados por comas.
+     */
+    public static String describirErrores(int errores){
+        StringBuilder descripcion = new StringBuilder();
+
+        for(int campo = 0; campo < NUMERO_CAMPOS; campo++){
+            if(tieneError(errores, campo)){
+                if(descripcion.length() > 0){
+                    descripcion.append(", ");
+                }
+                descripcion.append(NOMBRES_CAMPOS[campo]);
+            }
+        }
+
+        return descripcion.toString();
+    }
+
+    private static String campo(String[] campos, int posicion){
+        return campos != null && posicion < campos.length ? campos[posicion] : null;
+    }
+
+    private static boolean sonDigitos(CharSequence texto, int longitud){
+        for(int i = 0; i < longitud; i++){
+            char c = texto.charAt(i);
+            if(c < '0' || c > '9'){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sonLetras(CharSequence texto, int minimo, int maximo){
+        if(texto == null || texto.length() < minimo || texto.length() > maximo){
+            return false;
+        }
+
+        for(int i = 0; i < texto.length(); i++){
+            char c = texto.charAt(i);
+            if(!esLetraSinTilde(c) && c != ' ' && !esVocalConTilde(c)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean esLetraSinTilde(char c){
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean esVocalConTilde(char c){
+        return switch (c) {
+            case 'á', 'é', 'í', 'ó', 'Á', 'É', 'Í', 'Ó' -> true;
+            default -> false;
+        };
+    }
+}
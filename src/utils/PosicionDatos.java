@@ -1,99 +1,118 @@
 package utils;
 
 import app.Actividad;
+import app.CatalogoActividades;
 import app.Monitor;
 import java.util.ArrayList;
 import app.Persona;
+import app.RepositorioPersonas;
 
 public class PosicionDatos {
     /**
-     * Busca la posición de una persona en la lista a partir de un nombre o DNI.
+     * Busca una persona en el repositorio a partir de un nombre o DNI.
      *
      * Este método solicita al usuario un dato de búsqueda (nombre o DNI) a
      * través de un mensaje personalizado. Si el valor introducido es un DNI
-     * válido y no se está buscando un monitor, se buscará la posición por DNI.
-     * Si es un nombre válido, se buscará por nombre. Devuelve la posición de la
-     * persona encontrada en la lista o -1 si no se encuentra.
+     * válido y se están buscando socios, se buscará por DNI en el repositorio.
+     * Si es un nombre válido, se buscará por nombre normalizado. Devuelve la
+     * persona encontrada o {@code null} si no se encuentra.
      *
-     * @param lista Lista de personas donde se realizará la búsqueda.
-     * @param esMonitor Indica si se está buscando un monitor (true) o un socio
-     * (false).
+     * @param repositorio Repositorio de personas donde se realizará la
+     * búsqueda.
+     * @param buscarMonitores Indica si se deben buscar monitores.
+     * @param buscarSocios Indica si se deben buscar socios.
      * @param mensaje El mensaje mostrado al usuario para solicitar el dato de
      * búsqueda.
-     * @return La posición de la persona en la lista, o -1 si no se encuentra.
+     * @return La persona encontrada, o {@code null} si no se encuentra.
      */
-    public static int encontrarPersona(ArrayList <Persona> lista, boolean esMonitor, String mensaje){
-        int posicion = -1;
+    public static Persona encontrarPersona(RepositorioPersonas repositorio, boolean buscarMonitores, boolean buscarSocios, String mensaje){
+        Persona encontrada = null;
         String persona = LeerDatosTeclado.leerString(mensaje);
-        if(ValidarDatos.esDNI(persona) && !esMonitor){
-            posicion = obtenerPosicionPorDNI(lista, persona);
+        if(ValidarDatos.esDNI(persona) && buscarSocios){
+            encontrada = obtenerPersonaPorDNI(repositorio, persona, buscarMonitores);
         }else if(ValidarDatos.validarNombre(persona)){
-            posicion = obtenerPosicionPorNombre(lista, persona);
+            encontrada = obtenerPersonaPorNombre(repositorio, persona, buscarMonitores, buscarSocios);
         }
         
-        return posicion;
+        return encontrada;
     }
     
     /**
-     * Busca la posición de una persona en la lista a partir de su DNI.
+     * Busca una persona en el repositorio a partir de su DNI.
      *
      * Este método valida el DNI proporcionado. Si el DNI no es válido, solicita
-     * un nuevo DNI al usuario. Luego, busca la persona en la lista utilizando
-     * el DNI validado. Si se encuentra una coincidencia, se devuelve la
-     * posición de la persona en la lista.
+     * un nuevo DNI al usuario. Luego, busca el DNI en el repositorio entre los
+     * socios y, si se indica, entre los monitores.
      *
-     * @param lista Lista de personas donde se realizará la búsqueda.
+     * @param repositorio Repositorio de personas donde se realizará la
+     * búsqueda.
      * @param dni El DNI de la persona a buscar.
-     * @return La posición de la persona en la lista, o -1 si no se encuentra.
+     * @param buscarMonitores Indica si también se deben buscar monitores.
+     * @return La persona encontrada, o {@code null} si no se encuentra.
      */
-    private static int obtenerPosicionPorDNI(ArrayList <Persona> lista, String dni){
+    private static Persona obtenerPersonaPorDNI(RepositorioPersonas repositorio, String dni, boolean buscarMonitores){
         if(!ValidarDatos.validarNif(dni)){
             dni = InicializarDatos.inicializarDNI();
         }
         
-        return mostrarCoincidencias(lista, dni);
+        ArrayList <Persona> coincidencias = new ArrayList<>();
+        
+        Persona socio = repositorio.buscar(dni, false);
+        if(socio != null){
+            coincidencias.add(socio);
+        }
+        
+        if(buscarMonitores){
+            Persona monitor = repositorio.buscar(dni, true);
+            if(monitor != null){
+                coincidencias.add(monitor);
+            }
+        }
+        
+        return mostrarCoincidencias(coincidencias);
     }
     
     /**
-     * Busca la posición de una persona en la lista a partir de su nombre.
+     * Busca una persona en el repositorio a partir de su nombre.
      *
      * Este método formatea el nombre proporcionado para asegurarse de que
-     * coincide con el formato adecuado. Luego, busca la persona en la lista
-     * utilizando el nombre formateado. Si se encuentra una coincidencia, se
-     * devuelve la posición de la persona en la lista.
+     * coincide con el formato adecuado. Luego, busca las personas con ese
+     * nombre normalizado y se queda solo con las del tipo buscado.
      *
-     * @param lista Lista de personas donde se realizará la búsqueda.
+     * @param repositorio Repositorio de personas donde se realizará la
+     * búsqueda.
      * @param nombre El nombre de la persona a buscar.
-     * @return La posición de la persona en la lista, o -1 si no se encuentra.
+     * @param buscarMonitores Indica si se deben buscar monitores.
+     * @param buscarSocios Indica si se deben buscar socios.
+     * @return La persona encontrada, o {@code null} si no se encuentra.
      */
-    private static int obtenerPosicionPorNombre(ArrayList <Persona> lista, String nombre){
+    private static Persona obtenerPersonaPorNombre(RepositorioPersonas repositorio, String nombre, boolean buscarMonitores, boolean buscarSocios){
         nombre = Utilidades.formatearString(nombre);
         
-        return mostrarCoincidencias(lista, nombre);
+        ArrayList <Persona> coincidencias = repositorio.buscarNombre(nombre);
+        
+        if(buscarMonitores != buscarSocios){
+            coincidencias = InicializarDatos.filtrarPersonas(coincidencias, buscarMonitores);
+        }
+        
+        return mostrarCoincidencias(coincidencias);
     }
 
     /**
-     * Muestra las coincidencias de personas en la lista basadas en un nombre y
-     * permite seleccionar una de ellas.
+     * Muestra las coincidencias de personas encontradas y permite seleccionar
+     * una de ellas.
      *
-     * Este método busca todas las personas que coincidan con el nombre
-     * proporcionado, muestra las opciones disponibles si hay más de una
-     * coincidencia, y permite al usuario seleccionar una persona. Luego, valida
-     * si la persona seleccionada es un monitor y obtiene la posición de esa
-     * persona en la lista.
+     * Este método muestra las opciones disponibles si hay más de una
+     * coincidencia y permite al usuario seleccionar una persona.
      *
-     * @param lista Lista de personas en la que se buscarán las coincidencias.
-     * @param nombre El nombre de la persona a buscar.
-     * @return La posición de la persona seleccionada en la lista, o -1 si no se
-     * encuentra.
+     * @param coincidencias Las personas que coinciden con la búsqueda.
+     * @return La persona seleccionada, o {@code null} si no hay coincidencias.
      */
-    private static int mostrarCoincidencias(ArrayList<Persona> lista, String nombre) {
-        int seleccion, posicion = -1;
-        boolean esMonitor = false;
-        ArrayList <Persona> coincidencias = InicializarDatos.listaCoincidencias(lista, nombre);
+    private static Persona mostrarCoincidencias(ArrayList<Persona> coincidencias) {
+        Persona persona = null;
         
         if(!coincidencias.isEmpty()){
-            seleccion = 0;
+            int seleccion = 0;
             
             if(coincidencias.size() > 1){
                 mostrarOpcionesSocios(coincidencias);
@@ -101,38 +120,32 @@ public class PosicionDatos {
                 seleccion = (LeerDatosTeclado.leerInt("Introduce el usuario que quieras seleccionar: ", 1, coincidencias.size())-1);
             }
             
-            if(coincidencias.get(seleccion) instanceof Monitor){
-                esMonitor = true;
-            }
-            
-            String dniPersona = coincidencias.get(seleccion).getDNI();
-            
-            posicion = ValidarDatos.comprobarExistenciaNif(lista, dniPersona, esMonitor);
+            persona = coincidencias.get(seleccion);
         }
         
-        return posicion;
+        return persona;
     }
     
     /**
      * Muestra las coincidencias de actividades en la lista basadas en un nombre
      * y permite seleccionar una de ellas.
      *
-     * Este método busca todas las actividades que coincidan con el nombre
-     * proporcionado, muestra las opciones disponibles si hay más de una
-     * coincidencia, y permite al usuario seleccionar una actividad. Luego,
-     * valida si la actividad seleccionada existe en la lista y obtiene su
-     * posición.
+     * Este método busca en el catálogo todas las actividades que
+     * coincidan con el nombre proporcionado, muestra las opciones disponibles si hay más de una
+     * coincidencia, y permite al usuario seleccionar una actividad. Se
+     * devuelve el identificador de la actividad y no su posición, que cambia
+     * si se elimina otra actividad del catálogo mientras tanto.
      *
-     * @param lista Lista de actividades en la que se buscarán las
+     * @param catalogo Catálogo de actividades en el que se buscarán las
      * coincidencias.
      * @param nombre El nombre de la actividad a buscar.
-     * @return La posición de la actividad seleccionada en la lista, o -1 si no
-     * se encuentra.
+     * @return El identificador de la actividad seleccionada (ver
+     * {@link Actividad#getId()}), o -1 si no se encuentra.
      */
-    public static int mostrarCoincidenciasActividad(ArrayList<Actividad> lista, String nombre) {
-        int seleccion, posicion = -1;
+    public static int mostrarCoincidenciasActividad(CatalogoActividades catalogo, String nombre) {
+        int seleccion, id = -1;
         
-        ArrayList<Actividad> coincidencias = InicializarDatos.listaCoincidenciasActividad(lista, nombre);
+        ArrayList<Actividad> coincidencias = catalogo.buscarNombre(nombre);
 
         if (!coincidencias.isEmpty()) {
             seleccion = 0;
@@ -142,12 +155,10 @@ public class PosicionDatos {
 
                 seleccion = (LeerDatosTeclado.leerInt("Introduce el usuario que quieras seleccionar: ", 1, coincidencias.size()) - 1);
             }
-            Actividad actividad = coincidencias.get(seleccion);
-
-            posicion = ValidarDatos.comprobarExistenciaActividad(lista, actividad);
+            id = coincidencias.get(seleccion).getId();
         }
 
-        return posicion;
+        return id;
     }
 
     /**
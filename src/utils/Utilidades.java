@@ -2,10 +2,14 @@ package utils;
 
 import app.Especialidad;
 import java.time.LocalDate;
+import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
-import java.util.regex.Matcher;
 
 public class Utilidades {
+    private static volatile long diaActual;
+    private static volatile long diaNacimientoMinimo;
+    private static volatile long finDiaActual = Long.MIN_VALUE;
+    
     /**
      * Ordena un array de especialidades, moviendo los valores nulos al final
      * del array.
@@ -34,91 +38,82 @@ public class Utilidades {
      * Formatea una cadena de texto, convirtiéndola a mayúsculas y eliminando
      * los espacios en blanco.
      *
+     * Los espacios se eliminan recorriendo la cadena una sola vez, sin usar
+     * expresiones regulares. Se consideran espacios los mismos caracteres que
+     * {@code \\s}: espacio, tabulador, salto de línea, tabulador vertical,
+     * salto de página y retorno de carro.
+     *
      * @param s La cadena de texto que se desea formatear.
      * @return La cadena formateada, en mayúsculas y sin espacios.
      */    
     public static String formatearString(String s) {
-        String formateado = s.toUpperCase().replaceAll("\\s", "");
-        return formateado;
+        String mayusculas = s.toUpperCase();
+        StringBuilder formateado = new StringBuilder(mayusculas.length());
+        
+        for (int i = 0; i < mayusculas.length(); i++) {
+            char c = mayusculas.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r') {
+                formateado.append(c);
+            }
+        }
+        
+        return formateado.toString();
     }
 
     /**
-     * Extrae el día de una fecha en formato específico.
+     * Calcula la edad de una persona basada en su fecha de nacimiento.
      *
-     * Este método toma una fecha en formato de cadena y utiliza una expresión
-     * regular para extraer el valor del día de la misma. La fecha debe
-     * coincidir con el patrón esperado para ser procesada correctamente.
+     * Este método toma una fecha de nacimiento como entrada y calcula la edad
+     * en años completos, utilizando la fecha actual como referencia. La edad se
+     * calcula restando los años entre la fecha de nacimiento y la fecha actual.
      *
-     * @param fecha La fecha de la que se desea extraer el día, en formato de
-     * cadena (por ejemplo: "yyyy-MM-dd").
-     * @return El valor del día extraído de la fecha. Si no se puede extraer el
-     * día, se devuelve 0.
+     * @param fechaNacimiento La fecha de nacimiento de la persona, representada
+     * como un objeto {@link LocalDate}.
+     * @return La edad de la persona en años completos.
      */
-    public static int extraerDayDesdeFecha(String fecha) {
-        int day = 0;
-        Matcher matcher = PatronesUtiles.TRABAJAR_FECHAS.matcher(fecha);
-        if (matcher.find()) {
-            day = Integer.parseInt(matcher.group(3));
-        }
-        return day;
+    public static int calcularEdad(LocalDate fechaNacimiento) {
+        return calcularEdad(fechaNacimiento, diaActual());
     }
-
+    
     /**
-     * Extrae el mes de una fecha en formato específico.
-     *
-     * Este método toma una fecha en formato de cadena y utiliza una expresión
-     * regular para extraer el valor del mes de la misma. La fecha debe
-     * coincidir con el patrón esperado para ser procesada correctamente.
+     * Calcula la edad de una persona en el día indicado.
      *
-     * @param fecha La fecha de la que se desea extraer el mes, en formato de
-     * cadena (por ejemplo: "yyyy-MM-dd").
-     * @return El valor del mes extraído de la fecha. Si no se puede extraer el
-     * mes, se devuelve 0.
+     * @param fechaNacimiento La fecha de nacimiento de la persona.
+     * @param dia El día de referencia, como número de días desde el 1 de enero
+     * de 1970 (ver {@link LocalDate#toEpochDay()}).
+     * @return La edad de la persona en años completos ese día.
      */
-    public static int extraerMonthDesdeFecha(String fecha) {
-        int month = 0;
-        Matcher matcher = PatronesUtiles.TRABAJAR_FECHAS.matcher(fecha);
-        if (matcher.find()) {
-            month = Integer.parseInt(matcher.group(2));
-        }
-        return month;
+    public static int calcularEdad(LocalDate fechaNacimiento, long dia) {
+        return (int) ChronoUnit.YEARS.between(fechaNacimiento, LocalDate.ofEpochDay(dia));
     }
-
+    
     /**
-     * Extrae el año de una fecha en formato específico.
+     * Devuelve el día actual como número de días desde el 1 de enero de 1970.
      *
-     * Este método toma una fecha en formato de cadena y utiliza una expresión
-     * regular para extraer el valor del año de la misma. La fecha debe
-     * coincidir con el patrón esperado para ser procesada correctamente.
+     * La fecha solo se vuelve a calcular cuando cambia el día; el resto de
+     * llamadas solo leen el reloj del sistema en milisegundos, sin crear
+     * objetos.
      *
-     * @param fecha La fecha de la que se desea extraer el año, en formato de
-     * cadena (por ejemplo: "yyyy-MM-dd").
-     * @return El valor del año extraído de la fecha. Si no se puede extraer el
-     * año, se devuelve 0.
+     * @return El día actual (ver {@link LocalDate#toEpochDay()}).
      */
-    public static int extraerYearDesdeFecha(String fecha) {
-        int year = 0;
-        Matcher matcher = PatronesUtiles.TRABAJAR_FECHAS.matcher(fecha);
-        if (matcher.find()) {
-            year = Integer.parseInt(matcher.group(1));
+    public static long diaActual() {
+        if(System.currentTimeMillis() >= finDiaActual){
+            LocalDate hoy = LocalDate.now();
+            diaActual = hoy.toEpochDay();
+            diaNacimientoMinimo = hoy.minusYears(100).toEpochDay() + 1;
+            finDiaActual = hoy.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
         }
-        return year;
+        return diaActual;
     }
     
     /**
-     * Calcula la edad de una persona basada en su fecha de nacimiento.
-     *
-     * Este método toma una fecha de nacimiento como entrada y calcula la edad
-     * en años completos, utilizando la fecha actual como referencia. La edad se
-     * calcula restando los años entre la fecha de nacimiento y la fecha actual.
+     * Devuelve el primer día de nacimiento con el que una persona tiene hoy
+     * como mucho 99 años.
      *
-     * @param fechaNacimiento La fecha de nacimiento de la persona, representada
-     * como un objeto {@link LocalDate}.
-     * @return La edad de la persona en años completos.
+     * @return El día, como número de días desde el 1 de enero de 1970.
      */
-    public static int calcularEdad(LocalDate fechaNacimiento) {
-        LocalDate hoy = LocalDate.now();
-        int edad = (int) ChronoUnit.YEARS.between(fechaNacimiento, hoy);
-        return edad;
+    public static long diaNacimientoMinimo() {
+        diaActual();
+        return diaNacimientoMinimo;
     }
 }
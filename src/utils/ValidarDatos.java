@@ -1,25 +1,24 @@
 package utils;
 
-import java.time.LocalDate;
 import java.util.ArrayList;
 import app.Actividad;
+import app.CatalogoActividades;
 import app.Especialidad;
 import app.Monitor;
 import app.Persona;
 
 public class ValidarDatos {
-    private static final String LETRAS_DNI = "TRWAGMYFPDXBNJZSQVHLCKE";
-    
     /**
      * Verifica si un DNI proporcionado es válido si el formato del DNI 
-     * coincide con el patrón.
+     * coincide con el patrón. Las comprobaciones de formato se delegan en
+     * {@link MotorValidacion}, que no usa expresiones regulares.
      *
      * @param dni El DNI a verificar.
      * @return {@code true} si el DNI es válido según el patrón definido,
      * {@code false} en caso contrario.
      */
     public static boolean esDNI(String dni){
-        return dni.matches(PatronesUtiles.PATRON_NIF);
+        return MotorValidacion.esFormatoDNI(dni);
     }
     
     /**
@@ -29,7 +28,7 @@ public class ValidarDatos {
      * @return True si el nombre es valido y false en caso contrario.
      */
     public static boolean validarNombre(String nombre) {
-        return nombre.matches(PatronesUtiles.PATRON_NOMBRE);
+        return MotorValidacion.esNombre(nombre);
     }
 
     /**
@@ -39,7 +38,7 @@ public class ValidarDatos {
      * @return True si el nombre es valido y false en caso contrario.
      */
     public static boolean validarGeneral(String general) {
-        return general.matches(PatronesUtiles.PATRON_GENERAL);
+        return MotorValidacion.esGeneral(general);
     }
 
     /**
@@ -51,7 +50,7 @@ public class ValidarDatos {
      * correcto y false si alguna condición no se cumple.
      */
     public static boolean validarNif(String nif) {
-        return nif.matches(PatronesUtiles.PATRON_NIF) && averiguarLetraNif(nif).equals(ultimoCaracter(nif));
+        return MotorValidacion.esDNI(nif);
     }
 
     /**
@@ -65,7 +64,7 @@ public class ValidarDatos {
     }
     
     public static boolean validarDireccion(String direccion) {
-        return direccion.matches(PatronesUtiles.PATRON_DIRECCION);
+        return MotorValidacion.esDireccion(direccion);
     }
 
     /**
@@ -75,7 +74,7 @@ public class ValidarDatos {
      * @return True si el String tiene solamente 5 números, en otro caso false.
      */
     public static boolean validarCodigoPostal(String codigoPostal) {
-        return codigoPostal.matches(PatronesUtiles.PATRON_CODIGO_POSTAL);
+        return MotorValidacion.esCodigoPostal(codigoPostal);
     }
 
     /**
@@ -85,7 +84,7 @@ public class ValidarDatos {
      * @return True si el String tiene solamente 9 números, en otro caso false.
      */
     public static boolean validarTelefono(String telefono) {
-        return telefono.matches(PatronesUtiles.PATRON_TELEFONO);
+        return MotorValidacion.esTelefono(telefono);
     }
 
     /**
@@ -95,28 +94,31 @@ public class ValidarDatos {
      * @return True si el formato es correcto y false si no es correcto.
      */
     public static boolean validarFormatoFecha(String fecha) {
-        return fecha.matches(PatronesUtiles.PATRON_FECHA);
+        return PatronesUtiles.TRABAJAR_FECHAS.matcher(fecha).matches();
     }
 
+    /**
+     * Valida si un String es una fecha de nacimiento válida: tiene el formato
+     * "yyyy-mm-dd", existe, no es posterior a hoy y la persona no tiene más de
+     * 99 años.
+     *
+     * @param fecha El String a validar.
+     * @return True si es una fecha de nacimiento válida y false si no lo es.
+     */
     public static boolean validarFecha(String fecha) {
-        boolean esValido = false;
-
-        if (validarFormatoFecha(fecha)) {
-            LocalDate hoy = LocalDate.now();
-            
-            int year = Utilidades.extraerYearDesdeFecha(fecha);
-            int month = Utilidades.extraerMonthDesdeFecha(fecha);
-            int day = Utilidades.extraerDayDesdeFecha(fecha);
-            
-            if (esFechaValida(year, month, day)) {
-                LocalDate fechaIngresada = LocalDate.of(year, month, day);
-                if (!fechaIngresada.isAfter(hoy) && Utilidades.calcularEdad(fechaIngresada) <= 99) {
-                    esValido = true;
-                }
-            }
-        }
-
-        return esValido;
+        return validarFechaNacimiento(FechaISO.decodificar(fecha));
+    }
+    
+    /**
+     * Valida una fecha de nacimiento ya decodificada con
+     * {@link FechaISO#decodificar(CharSequence)}.
+     *
+     * @param dia La fecha como número de días desde el 1 de enero de 1970.
+     * @return True si la fecha es válida, no es posterior a hoy y la persona no
+     * tiene más de 99 años, false en caso contrario.
+     */
+    public static boolean validarFechaNacimiento(long dia) {
+        return dia != FechaISO.FECHA_INVALIDA && dia <= Utilidades.diaActual() && dia >= Utilidades.diaNacimientoMinimo();
     }
     
     public static boolean validarSueldo(double sueldo){
@@ -156,6 +158,9 @@ public class ValidarDatos {
      * Valida que el NIF que le pasamos, este dentro de la lista de 
      * tarjetas.
      * 
+     * La lista se recorre desde el final, por lo que la búsqueda termina en
+     * la última coincidencia sin recorrer el resto de la lista.
+     * 
      * @param listaPersonas La lista de tarjetas donde comprobaremos
      * si el NIF esta o no.
      * @param nif El NIF que queremos saber su posición.
@@ -165,9 +170,10 @@ public class ValidarDatos {
      */
     public static int comprobarExistenciaNif(ArrayList <Persona> listaPersonas, String nif){
         int contador = -1;
+        int numero = MotorValidacion.numeroDNI(nif);
         
-        for(int i=0; i<listaPersonas.size(); i++){
-            if(listaPersonas.get(i).getDNI().equals(nif)){
+        for(int i = listaPersonas.size()-1; i >= 0 && contador == -1 && numero != -1; i--){
+            if(listaPersonas.get(i).getNumeroDNI() == numero){
                 contador = i;
             }
         }
@@ -177,11 +183,12 @@ public class ValidarDatos {
     
     public static int comprobarExistenciaNif(ArrayList <Persona> listaPersonas, String nif, boolean esMonitor){
         int contador = -1;
+        int numero = MotorValidacion.numeroDNI(nif);
         
-        for(int i=0; i<listaPersonas.size(); i++){
-            if(esMonitor && listaPersonas.get(i).getDNI().equals(nif) && listaPersonas.get(i) instanceof Monitor){
+        for(int i = listaPersonas.size()-1; i >= 0 && contador == -1 && numero != -1; i--){
+            if(esMonitor && listaPersonas.get(i).getNumeroDNI() == numero && listaPersonas.get(i) instanceof Monitor){
                 contador = i;
-            }else if(!esMonitor && listaPersonas.get(i).getDNI().equals(nif) && !(listaPersonas.get(i) instanceof Monitor)){
+            }else if(!esMonitor && listaPersonas.get(i).getNumeroDNI() == numero && !(listaPersonas.get(i) instanceof Monitor)){
                 contador = i;
             }
         }
@@ -190,95 +197,39 @@ public class ValidarDatos {
     }
     
     /**
-     * Saca la letra del NIF.
-     *
-     * @param nif NIF del que queremos sacar la letra.
-     * @return String con la letra del NIF.
-     * @throws IllegalArgumentException Si el NIF no tienen el formato correcto.
-     */
-    private static String ultimoCaracter(String nif) {
-        formatoDNI(nif);
-
-        String ultimoCaracter = nif.substring(nif.length() - 1, nif.length());
-
-        return ultimoCaracter;
-    }
-
-    /**
-     * Averigua la letra del DNI que queramos saber.
-     *
-     * @param nif DNI del que queremos saber la letra.
-     * @return String con la letra del DNI.
+     * Busca en el catálogo las actividades con el nombre indicado y, si hay
+     * varias, pide al usuario que elija una.
+     * 
+     * @param catalogo El catálogo de actividades.
+     * @param nombre El nombre normalizado de la actividad.
+     * @return Devuelve -1 si no hay ninguna actividad con ese nombre o el
+     * identificador de la actividad elegida.
      */
-    private static String averiguarLetraNif(String nif) {
-        formatoDNI(nif);
-
-        int numeroDni, posicionLetra;
-        String letraValidacion;
-
-        numeroDni = Integer.parseInt(nif.substring(0, nif.length() - 1));
-        posicionLetra = numeroDni % 23;
-        letraValidacion = LETRAS_DNI.substring(posicionLetra, posicionLetra + 1);
-
-        return letraValidacion;
-    }
-
-    private static void formatoDNI(String nif) throws IllegalArgumentException {
-        if (!nif.matches(PatronesUtiles.PATRON_NIF)) {
-            throw new IllegalArgumentException("ERROR: El NIF no cumple con el patrón adecuado");
-        }
-    }
-    
-    private static boolean esFechaValida(int year, int month, int day) {
-        boolean esValido = false;
-        
-        switch (month) {
-            case 1, 3, 5, 7, 8, 10, 12 -> {
-                esValido = (day >= 1 && day <= 31);
-            }
-            case 4, 6, 9, 11 -> {
-                esValido = (day >= 1 && day <= 30);
-            }
-            case 2 -> {
-                if (esBisiesto(year)) {
-                    esValido = (day >= 1 && day <= 29);
-                } else {
-                    esValido = (day >= 1 && day <= 28);
-                }
-            }
-        }
-        return esValido;
-    }
-    
-    private static boolean esBisiesto(int year){
-        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
-    }
-    
-    public static int comprobarExistenciaActividad(ArrayList <Actividad> listaActividad, String nombre){
-        int contador = PosicionDatos.mostrarCoincidenciasActividad(listaActividad, nombre);
+    public static int comprobarExistenciaActividad(CatalogoActividades catalogo, String nombre){
+        int contador = PosicionDatos.mostrarCoincidenciasActividad(catalogo, nombre);
         
         return contador;
     }
     
-    public static int comprobarExistenciaActividad(ArrayList <Actividad> listaActividad, Actividad actividad){
-        int contador = -1;
-        
-        for(int i = 0; i < listaActividad.size(); i++){
-            if(actividad.equals(listaActividad.get(i))){
-                contador = i;
-            }
-        }
-        
-        return contador;
+    /**
+     * Comprueba si existe en el catálogo una actividad igual a la indicada.
+     * 
+     * @param catalogo El catálogo de actividades.
+     * @param actividad La actividad que se busca.
+     * @return Devuelve -1 si la actividad no está en el catálogo o su posición
+     * si está.
+     */
+    public static int comprobarExistenciaActividad(CatalogoActividades catalogo, Actividad actividad){
+        return catalogo.posicion(actividad);
     }
     
     public static int comprobarExistenciaNombre(ArrayList <Persona> listaPersonas, String nombre){
         int contador = -1;
         
+        nombre = Utilidades.formatearString(nombre);
+        
         for(int i = 0; i < listaPersonas.size(); i++){
-            String nombrePersona = listaPersonas.get(i).getNombre();
-            nombrePersona = Utilidades.formatearString(nombrePersona);
-            nombre = Utilidades.formatearString(nombre);
+            String nombrePersona = listaPersonas.get(i).getNombreNormalizado();
             
             if(nombre.equals(nombrePersona)) {
                 contador = i;